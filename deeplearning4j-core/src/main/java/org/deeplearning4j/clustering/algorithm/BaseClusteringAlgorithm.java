@@ -193,4 +193,8 @@ public class BaseClusteringAlgorithm implements ClusteringAlgorithm, Serializabl
         clusterSet.removePoints();
     }
 
+    protected ClusteringStrategy getClusteringStrategy() {
+        return clusteringStrategy;
+    }
+
 }
@@ -21,10 +21,20 @@ package org.deeplearning4j.clustering.kmeans;
 import org.deeplearning4j.clustering.algorithm.BaseClusteringAlgorithm;
 import org.deeplearning4j.clustering.algorithm.strategy.ClusteringStrategy;
 import org.deeplearning4j.clustering.algorithm.strategy.FixedClusterCountStrategy;
+import org.deeplearning4j.clustering.cluster.Cluster;
+import org.deeplearning4j.clustering.cluster.ClusterSet;
+import org.deeplearning4j.clustering.cluster.Point;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.List;
 
 
 /**
- * 
+ * Besides classic implementation, which works on individual Points, two matrix-based strategies are available
+ * for euclidean distance: exact k-means with triangle inequality pruning (see setupHamerly()), and mini-batch k-means (see setupMiniBatch()).
+ * Both of them copy points into single matrix, and compute distances in blocks with gemm calls.
+ *
  * @author Julien Roch
  *
  */
@@ -32,12 +42,19 @@ public class KMeansClustering extends BaseClusteringAlgorithm {
 
     private static final long serialVersionUID = 8476951388145944776L;
 
+    private static final String EUCLIDEAN = "euclidean";
 
+    private MatrixKMeans matrixKMeans;
 
     protected KMeansClustering(ClusteringStrategy clusteringStrategy) {
         super(clusteringStrategy);
     }
 
+    protected KMeansClustering(ClusteringStrategy clusteringStrategy, MatrixKMeans matrixKMeans) {
+        super(clusteringStrategy);
+        this.matrixKMeans = matrixKMeans;
+    }
+
 
 
     public static KMeansClustering setup(int clusterCount, int maxIterationCount, String distanceFunction) {
@@ -53,5 +70,96 @@ public class KMeansClustering extends BaseClusteringAlgorithm {
         return new KMeansClustering(clusteringStrategy);
     }
 
+    /**
+     * Exact k-means, that skips distance computations with triangle inequality (Hamerly's algorithm).
+     * Iterations stop once no point changes its cluster, or after maxIterationCount iterations.
+     *
+     * @param clusterCount number of clusters
+     * @param maxIterationCount maximal number of iterations
+     * @param distanceFunction only euclidean distance is supported
+     * @return
+     */
+    public static KMeansClustering setupHamerly(int clusterCount, int maxIterationCount, String distanceFunction) {
+        return setupMatrix(new MatrixKMeans.Builder().mode(MatrixKMeans.Mode.HAMERLY).clusterCount(clusterCount)
+                        .maxIterations(maxIterationCount), distanceFunction);
+    }
+
+    /**
+     * Mini-batch k-means: each iteration moves centers using random batch of points only.
+     *
+     * @param clusterCount number of clusters
+     * @param maxIterationCount number of batches
+     * @param batchSize number of points per batch
+     * @param distanceFunction only euclidean distance is supported
+     * @return
+     */
+    public static KMeansClustering setupMiniBatch(int clusterCount, int maxIterationCount, int batchSize,
+                    String distanceFunction) {
+        return setupMatrix(new MatrixKMeans.Builder().mode(MatrixKMeans.Mode.MINI_BATCH).clusterCount(clusterCount)
+                        .maxIterations(maxIterationCount).batchSize(batchSize), distanceFunction);
+    }
+
+    /**
+     * Matrix-based k-means with custom configuration
+     *
+     * @param builder MatrixKMeans configuration
+     * @param distanceFunction only euclidean distance is supported
+     * @return
+     */
+    public static KMeansClustering setupMatrix(MatrixKMeans.Builder builder, String distanceFunction) {
+        if (!EUCLIDEAN.equals(distanceFunction))
+            throw new IllegalArgumentException("Matrix-based k-means supports euclidean distance only, got ["
+                            + distanceFunction + "]");
+
+        MatrixKMeans matrixKMeans = builder.build();
+        ClusteringStrategy clusteringStrategy =
+                        FixedClusterCountStrategy.setup(matrixKMeans.getClusterCount(), distanceFunction);
+        return new KMeansClustering(clusteringStrategy, matrixKMeans);
+    }
 
+    @Override
+    public ClusterSet applyTo(List<Point> points) {
+        if (matrixKMeans == null)
+            return super.applyTo(points);
+
+        INDArray matrix = Nd4j.create(points.size(), points.get(0).getArray().length());
+        for (int i = 0; i < points.size(); i++)
+            matrix.putRow(i, points.get(i).getArray());
+
+        KMeansResult result = matrixKMeans.fit(matrix);
+
+        ClusterSet clusterSet = new ClusterSet(getClusteringStrategy().getDistanceFunction());
+        Cluster[] clusters = new Cluster[result.getClusterSizes().length];
+        for (int j = 0; j < clusters.length; j++) {
+            if (result.getClusterSizes()[j] == 0 && !getClusteringStrategy().isAllowEmptyClusters())
+                continue;
+
+            clusters[j] = new Cluster(new Point(result.getCenters().getRow(j).dup()),
+                            getClusteringStrategy().getDistanceFunction());
+            clusterSet.getClusters().add(clusters[j]);
+        }
+
+        int[] assignments = result.getAssignments();
+        for (int i = 0; i < points.size(); i++) {
+            Cluster cluster = clusters[assignments[i]];
+            cluster.addPoint(points.get(i), false);
+            clusterSet.getPointDistribution().put(points.get(i).getId(), cluster.getId());
+        }
+
+        return clusterSet;
+    }
+
+    /**
+     * Clusters rows of the points matrix. Available for matrix-based strategies only.
+     *
+     * @param points points, one per row
+     * @return
+     */
+    public KMeansResult applyTo(INDArray points) {
+        if (matrixKMeans == null)
+            throw new IllegalStateException(
+                            "Clustering of points matrix is available for setupHamerly() and setupMiniBatch() only");
+
+        return matrixKMeans.fit(points);
+    }
 }
@@ -0,0 +1,78 @@
+/*-
+ *
+ *  * Copyright 2015 Skymind,Inc.
+ *  *
+ *  *    Licensed under the Apache License, Version 2.0 (the "License");
+ *  *    you may not use this file except in compliance with the License.
+ *  *    You may obtain a copy of the License at
+ *  *
+ *  *        http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *    Unless required by applicable law or agreed to in writing, software
+ *  *    distributed under the License is distributed on an "AS IS" BASIS,
+ *  *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *    See the License for the specific language governing permissions and
+ *  *    limitations under the License.
+ *
+ */
+
+package org.deeplearning4j.clustering.kmeans;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+
+/**
+ * Result of {@link MatrixKMeans}: cluster centers, and cluster index for each point
+ */
+public class KMeansResult implements Serializable {
+
+    private final INDArray centers;
+    private final int[] assignments;
+    private final int[] clusterSizes;
+    private final double inertia;
+    private final int iterations;
+
+    public KMeansResult(INDArray centers, int[] assignments, int[] clusterSizes, double inertia, int iterations) {
+        this.centers = centers;
+        this.assignments = assignments;
+        this.clusterSizes = clusterSizes;
+        this.inertia = inertia;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Cluster centers, one per row
+     */
+    public INDArray getCenters() {
+        return centers;
+    }
+
+    /**
+     * Cluster index for each point, in the same order as points
+     */
+    public int[] getAssignments() {
+        return assignments;
+    }
+
+    /**
+     * Number of points in each cluster
+     */
+    public int[] getClusterSizes() {
+        return clusterSizes;
+    }
+
+    /**
+     * Sum of squared distances from points to centers of their clusters
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * Number of iterations done
+     */
+    public int getIterations() {
+        return iterations;
+    }
+}
@@ -0,0 +1,588 @@
+/*-
+ *
+ *  * Copyright 2015 Skymind,Inc.
+ *  *
+ *  *    Licensed under the Apache License, Version 2.0 (the "License");
+ *  *    you may not use this file except in compliance with the License.
+ *  *    You may obtain a copy of the License at
+ *  *
+ *  *        http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *    Unless required by applicable law or agreed to in writing, software
+ *  *    distributed under the License is distributed on an "AS IS" BASIS,
+ *  *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *    See the License for the specific language governing permissions and
+ *  *    limitations under the License.
+ *
+ */
+
+package org.deeplearning4j.clustering.kmeans;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Euclidean k-means over single points matrix (one point per row).
+ *
+ * Distances are computed in blocks: distances from a block of points to all centers come from single gemm call,
+ * as ||x||^2 - 2 * x * c + ||c||^2, so there's no per-point or per-distance op invocation.
+ *
+ * Two modes are available:
+ * <ul>
+ *     <li>HAMERLY: exact k-means (same result as Lloyd iterations), that uses triangle inequality to skip points
+ *     which can't change their cluster. Each point keeps upper bound on the distance to its center, and lower bound
+ *     on the distance to the second closest center, so distances are recomputed only for points where bounds overlap.
+ *     Memory overhead is O(n), unlike Elkan's O(n * k) bounds.</li>
+ *     <li>MINI_BATCH: approximate k-means, where each iteration assigns small random batch of points,
+ *     and moves centers towards them with per-center learning rate (Sculley, "Web-scale k-means clustering")</li>
+ * </ul>
+ *
+ * Centers are initialized with k-means++ seeding.
+ */
+public class MatrixKMeans implements Serializable {
+    private static final Logger log = LoggerFactory.getLogger(MatrixKMeans.class);
+
+    public enum Mode {
+        HAMERLY, MINI_BATCH
+    }
+
+    private final Mode mode;
+    private final int clusterCount;
+    private final int maxIterations;
+    private final int batchSize;
+    private final int blockSize;
+    private final double tolerance;
+    private final long seed;
+
+    protected MatrixKMeans(Builder builder) {
+        this.mode = builder.mode;
+        this.clusterCount = builder.clusterCount;
+        this.maxIterations = builder.maxIterations;
+        this.batchSize = builder.batchSize;
+        this.blockSize = builder.blockSize;
+        this.tolerance = builder.tolerance;
+        this.seed = builder.seed;
+    }
+
+    /**
+     * Clusters points
+     *
+     * @param points points matrix, one point per row
+     * @return
+     */
+    public KMeansResult fit(INDArray points) {
+        if (points.rank() != 2)
+            throw new IllegalArgumentException("Points should be passed as matrix, one point per row");
+
+        if (points.rows() < clusterCount)
+            throw new IllegalArgumentException("Number of points [" + points.rows()
+                            + "] is less than number of clusters [" + clusterCount + "]");
+
+        if (points.ordering() != 'c' || points.isView())
+            points = points.dup('c');
+
+        // squared L2 norms of all points, computed once
+        double[] pointNorms = toDouble(points.norm2(1));
+        for (int i = 0; i < pointNorms.length; i++)
+            pointNorms[i] *= pointNorms[i];
+
+        Random random = new Random(seed);
+
+        switch (mode) {
+            case MINI_BATCH:
+                return fitMiniBatch(points, pointNorms, random);
+            case HAMERLY:
+            default:
+                return fitHamerly(points, pointNorms, random);
+        }
+    }
+
+    private KMeansResult fitHamerly(INDArray points, double[] pointNorms, Random random) {
+        int n = points.rows();
+        int d = points.columns();
+        int k = clusterCount;
+
+        double[] centers = initCenters(points, pointNorms, null, random);
+
+        int[] assignments = new int[n];
+        Arrays.fill(assignments, -1);
+        double[] upper = new double[n];
+        Arrays.fill(upper, Double.MAX_VALUE);
+        double[] lower = new double[n];
+
+        // per-cluster sums of points, updated only for points that change their cluster
+        double[] sums = new double[k * d];
+        int[] counts = new int[k];
+
+        int[] candidates = new int[Math.min(blockSize, n)];
+        int iteration = 0;
+        while (iteration < maxIterations) {
+            iteration++;
+
+            INDArray centersMatrix = Nd4j.create(centers, new int[] {k, d});
+            double[] centerNorms = squaredNorms(centers, k, d);
+            double[] halfDistances = halfMinCenterDistances(centersMatrix, centerNorms);
+
+            int changed = 0;
+            int numCandidates = 0;
+            int skipped = 0;
+            for (int i = 0; i < n; i++) {
+                if (assignments[i] >= 0) {
+                    double bound = Math.max(halfDistances[assignments[i]], lower[i]);
+                    if (upper[i] <= bound) {
+                        skipped++;
+                        continue;
+                    }
+                }
+
+                candidates[numCandidates++] = i;
+                if (numCandidates == candidates.length) {
+                    changed += assignBlock(points, pointNorms, candidates, numCandidates, centersMatrix, centerNorms,
+                                    assignments, upper, lower, sums, counts);
+                    numCandidates = 0;
+                }
+            }
+
+            if (numCandidates > 0)
+                changed += assignBlock(points, pointNorms, candidates, numCandidates, centersMatrix, centerNorms,
+                                assignments, upper, lower, sums, counts);
+
+            log.debug("Iteration {}: {} points changed cluster, {} points skipped", iteration, changed, skipped);
+
+            if (changed == 0)
+                break;
+
+            // move centers, and relax bounds by centers drift
+            double[] drift = new double[k];
+            int maxDriftCluster = 0;
+            for (int j = 0; j < k; j++) {
+                if (counts[j] == 0)
+                    continue;
+
+                double sum = 0.0;
+                for (int c = 0; c < d; c++) {
+                    double value = sums[j * d + c] / counts[j];
+                    double diff = value - centers[j * d + c];
+                    sum += diff * diff;
+                    centers[j * d + c] = value;
+                }
+                drift[j] = Math.sqrt(sum);
+                if (drift[j] > drift[maxDriftCluster])
+                    maxDriftCluster = j;
+            }
+
+            double secondDrift = 0.0;
+            for (int j = 0; j < k; j++)
+                if (j != maxDriftCluster)
+                    secondDrift = Math.max(secondDrift, drift[j]);
+
+            for (int i = 0; i < n; i++) {
+                int a = assignments[i];
+                upper[i] += drift[a];
+                lower[i] -= a == maxDriftCluster ? secondDrift : drift[maxDriftCluster];
+            }
+        }
+
+        return result(centers, assignments, counts, sums, pointNorms, iteration);
+    }
+
+    /**
+     * Assigns block of candidate points to their nearest centers, and updates bounds and cluster sums
+     *
+     * @return number of points that changed cluster
+     */
+    private int assignBlock(INDArray points, double[] pointNorms, int[] candidates, int numCandidates,
+                    INDArray centersMatrix, double[] centerNorms, int[] assignments, double[] upper, double[] lower,
+                    double[] sums, int[] counts) {
+        int d = points.columns();
+        int k = clusterCount;
+
+        int[] indexes = numCandidates == candidates.length ? candidates : Arrays.copyOf(candidates, numCandidates);
+        INDArray rows = Nd4j.pullRows(points, 1, indexes, 'c');
+        double[] distances = distanceBlock(rows, pointNorms, indexes, centersMatrix, centerNorms);
+        double[] raw = null;
+
+        int changed = 0;
+        for (int r = 0; r < numCandidates; r++) {
+            int best = 0;
+            double bestDistance = Double.MAX_VALUE;
+            double secondDistance = Double.MAX_VALUE;
+            for (int j = 0; j < k; j++) {
+                double distance = distances[r * k + j];
+                if (distance < bestDistance) {
+                    secondDistance = bestDistance;
+                    bestDistance = distance;
+                    best = j;
+                } else if (distance < secondDistance)
+                    secondDistance = distance;
+            }
+
+            // bounds are kept as plain distances, so triangle inequality holds for them
+            int i = indexes[r];
+            upper[i] = Math.sqrt(bestDistance);
+            lower[i] = secondDistance == Double.MAX_VALUE ? Double.MAX_VALUE : Math.sqrt(secondDistance);
+
+            int previous = assignments[i];
+            if (previous == best)
+                continue;
+
+            if (raw == null)
+                raw = toDouble(rows);
+
+            if (previous >= 0) {
+                counts[previous]--;
+                for (int c = 0; c < d; c++)
+                    sums[previous * d + c] -= raw[r * d + c];
+            }
+
+            counts[best]++;
+            for (int c = 0; c < d; c++)
+                sums[best * d + c] += raw[r * d + c];
+
+            assignments[i] = best;
+            changed++;
+        }
+
+        return changed;
+    }
+
+    private KMeansResult fitMiniBatch(INDArray points, double[] pointNorms, Random random) {
+        int n = points.rows();
+        int d = points.columns();
+        int k = clusterCount;
+        int batch = Math.min(batchSize, n);
+
+        // seeding over all points would take k passes over the whole matrix, so we use random subset instead
+        int sampleSize = Math.min(n, Math.max(3 * batch, 10 * k));
+        int[] sample = sampleSize == n ? null : randomIndexes(n, sampleSize, random);
+        double[] centers = initCenters(points, pointNorms, sample, random);
+
+        long[] seen = new long[k];
+        int[] batchAssignments = new int[batch];
+        int iteration = 0;
+        while (iteration < maxIterations) {
+            iteration++;
+
+            int[] indexes = randomIndexes(n, batch, random);
+            INDArray rows = Nd4j.pullRows(points, 1, indexes, 'c');
+            double[] raw = toDouble(rows);
+            double[] distances = distanceBlock(rows, pointNorms, indexes, Nd4j.create(centers, new int[] {k, d}),
+                            squaredNorms(centers, k, d));
+
+            for (int r = 0; r < batch; r++)
+                batchAssignments[r] = argMin(distances, r * k, k);
+
+            double[] previous = tolerance > 0 ? centers.clone() : null;
+
+            // per-center learning rate is 1 / number of points assigned to this center so far
+            for (int r = 0; r < batch; r++) {
+                int j = batchAssignments[r];
+                seen[j]++;
+                double eta = 1.0 / seen[j];
+                for (int c = 0; c < d; c++)
+                    centers[j * d + c] += eta * (raw[r * d + c] - centers[j * d + c]);
+            }
+
+            if (previous != null) {
+                double shift = 0.0;
+                for (int i = 0; i < centers.length; i++)
+                    shift += (centers[i] - previous[i]) * (centers[i] - previous[i]);
+
+                if (shift / k < tolerance) {
+                    log.debug("Mini-batch k-means converged after {} iterations", iteration);
+                    break;
+                }
+            }
+        }
+
+        // final assignment of all points, done with contiguous blocks
+        INDArray centersMatrix = Nd4j.create(centers, new int[] {k, d});
+        double[] centerNorms = squaredNorms(centers, k, d);
+        int[] assignments = new int[n];
+        int[] counts = new int[k];
+        double inertia = 0.0;
+        for (int start = 0; start < n; start += blockSize) {
+            int end = Math.min(n, start + blockSize);
+            INDArray rows = points.get(NDArrayIndex.interval(start, end), NDArrayIndex.all());
+            double[] distances = distanceBlock(rows, pointNorms, start, end, centersMatrix, centerNorms);
+            for (int r = 0; r < end - start; r++) {
+                int best = argMin(distances, r * k, k);
+                assignments[start + r] = best;
+                counts[best]++;
+                inertia += distances[r * k + best];
+            }
+        }
+
+        return new KMeansResult(centersMatrix, assignments, counts, inertia, iteration);
+    }
+
+    private KMeansResult result(double[] centers, int[] assignments, int[] counts, double[] sums,
+                    double[] pointNorms, int iterations) {
+        int k = clusterCount;
+        int d = centers.length / k;
+
+        /*
+            sum of ||x - c||^2 over cluster is sum of ||x||^2 - 2 * c * (sum of x) + count * ||c||^2,
+            so there's no need for another pass over points
+         */
+        double inertia = 0.0;
+        for (double norm : pointNorms)
+            inertia += norm;
+
+        for (int j = 0; j < k; j++) {
+            double dot = 0.0;
+            double norm = 0.0;
+            for (int c = 0; c < d; c++) {
+                dot += centers[j * d + c] * sums[j * d + c];
+                norm += centers[j * d + c] * centers[j * d + c];
+            }
+            inertia += counts[j] * norm - 2 * dot;
+        }
+
+        return new KMeansResult(Nd4j.create(centers, new int[] {k, d}), assignments, counts, Math.max(0.0, inertia),
+                        iterations);
+    }
+
+    /**
+     * k-means++ seeding: each next center is picked with probability proportional to squared distance to the nearest center chosen so far
+     *
+     * @param sample indexes of points to pick centers from, or null to use all points
+     */
+    private double[] initCenters(INDArray points, double[] pointNorms, int[] sample, Random random) {
+        int d = points.columns();
+        int k = clusterCount;
+
+        INDArray candidates = sample == null ? points : Nd4j.pullRows(points, 1, sample, 'c');
+        int m = candidates.rows();
+        double[] candidateNorms = new double[m];
+        for (int i = 0; i < m; i++)
+            candidateNorms[i] = pointNorms[sample == null ? i : sample[i]];
+
+        double[] centers = new double[k * d];
+        double[] minDistances = new double[m];
+        Arrays.fill(minDistances, Double.MAX_VALUE);
+
+        int next = random.nextInt(m);
+        for (int j = 0; j < k; j++) {
+            double[] center = toDouble(candidates.getRow(next));
+            System.arraycopy(center, 0, centers, j * d, d);
+
+            if (j == k - 1)
+                break;
+
+            double centerNorm = 0.0;
+            for (double v : center)
+                centerNorm += v * v;
+
+            double[] dots = toDouble(candidates.mmul(Nd4j.create(center, new int[] {d, 1})));
+            double total = 0.0;
+            for (int i = 0; i < m; i++) {
+                double distance = Math.max(0.0, candidateNorms[i] - 2 * dots[i] + centerNorm);
+                if (distance < minDistances[i])
+                    minDistances[i] = distance;
+                total += minDistances[i];
+            }
+
+            if (total <= 0.0) {
+                next = random.nextInt(m);
+                continue;
+            }
+
+            double threshold = random.nextDouble() * total;
+            double cumulative = 0.0;
+            next = m - 1;
+            for (int i = 0; i < m; i++) {
+                cumulative += minDistances[i];
+                if (cumulative >= threshold && minDistances[i] > 0) {
+                    next = i;
+                    break;
+                }
+            }
+        }
+
+        return centers;
+    }
+
+    /**
+     * Squared distances from rows to all centers, row-major [rows, k]
+     */
+    private double[] distanceBlock(INDArray rows, double[] pointNorms, int[] indexes, INDArray centers,
+                    double[] centerNorms) {
+        double[] dots = toDouble(Nd4j.gemm(rows, centers, false, true));
+        int k = centerNorms.length;
+        for (int r = 0; r < indexes.length; r++)
+            toDistances(dots, r * k, pointNorms[indexes[r]], centerNorms);
+        return dots;
+    }
+
+    private double[] distanceBlock(INDArray rows, double[] pointNorms, int start, int end, INDArray centers,
+                    double[] centerNorms) {
+        double[] dots = toDouble(Nd4j.gemm(rows, centers, false, true));
+        int k = centerNorms.length;
+        for (int r = 0; r < end - start; r++)
+            toDistances(dots, r * k, pointNorms[start + r], centerNorms);
+        return dots;
+    }
+
+    private static void toDistances(double[] dots, int offset, double pointNorm, double[] centerNorms) {
+        for (int j = 0; j < centerNorms.length; j++)
+            dots[offset + j] = Math.max(0.0, pointNorm - 2 * dots[offset + j] + centerNorms[j]);
+    }
+
+    /**
+     * For each center, half of the distance to the closest other center
+     */
+    private double[] halfMinCenterDistances(INDArray centersMatrix, double[] centerNorms) {
+        int k = centerNorms.length;
+        double[] dots = toDouble(Nd4j.gemm(centersMatrix, centersMatrix, false, true));
+        double[] result = new double[k];
+        Arrays.fill(result, Double.MAX_VALUE);
+        for (int a = 0; a < k; a++) {
+            for (int b = 0; b < k; b++) {
+                if (a == b)
+                    continue;
+
+                double distance = Math.sqrt(Math.max(0.0, centerNorms[a] - 2 * dots[a * k + b] + centerNorms[b]));
+                result[a] = Math.min(result[a], distance / 2);
+            }
+        }
+
+        if (k == 1)
+            result[0] = Double.MAX_VALUE;
+
+        return result;
+    }
+
+    private static double[] squaredNorms(double[] data, int rows, int columns) {
+        double[] result = new double[rows];
+        for (int r = 0; r < rows; r++) {
+            double sum = 0.0;
+            for (int c = 0; c < columns; c++)
+                sum += data[r * columns + c] * data[r * columns + c];
+            result[r] = sum;
+        }
+        return result;
+    }
+
+    private static int argMin(double[] data, int offset, int length) {
+        int result = 0;
+        for (int j = 1; j < length; j++)
+            if (data[offset + j] < data[offset + result])
+                result = j;
+        return result;
+    }
+
+    private static int[] randomIndexes(int n, int count, Random random) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++)
+            result[i] = random.nextInt(n);
+        return result;
+    }
+
+    private static double[] toDouble(INDArray array) {
+        if (array.ordering() != 'c' || array.isView())
+            array = array.dup('c');
+        return array.data().asDouble();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    public static class Builder {
+        protected Mode mode = Mode.HAMERLY;
+        protected int clusterCount = 2;
+        protected int maxIterations = 100;
+        protected int batchSize = 1024;
+        protected int blockSize = 4096;
+        protected double tolerance = 0.0;
+        protected long seed = 12345;
+
+        public Builder() {
+
+        }
+
+        public Builder mode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder clusterCount(int clusterCount) {
+            this.clusterCount = clusterCount;
+            return this;
+        }
+
+        /**
+         * Maximal number of iterations. For HAMERLY mode, iterations stop earlier if no point changed its cluster.
+         *
+         * @param maxIterations
+         * @return
+         */
+        public Builder maxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+
+        /**
+         * Number of points sampled for each iteration of MINI_BATCH mode
+         *
+         * @param batchSize
+         * @return
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = Math.max(1, batchSize);
+            return this;
+        }
+
+        /**
+         * Number of points passed to single gemm call
+         *
+         * @param blockSize
+         * @return
+         */
+        public Builder blockSize(int blockSize) {
+            this.blockSize = Math.max(1, blockSize);
+            return this;
+        }
+
+        /**
+         * MINI_BATCH mode stops once mean squared center shift per iteration falls below this value. 0 disables this check.
+         *
+         * @param tolerance
+         * @return
+         */
+        public Builder tolerance(double tolerance) {
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Seed used for center initialization and mini-batch sampling. Default is fixed, so results are reproducible.
+         *
+         * @param seed
+         * @return
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public MatrixKMeans build() {
+            if (clusterCount < 1)
+                throw new IllegalArgumentException("Number of clusters should be positive");
+
+            return new MatrixKMeans(this);
+        }
+    }
+}
@@ -135,6 +135,14 @@ public class DataPoint implements Serializable {
         return point;
     }
 
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    public boolean isInvert() {
+        return invert;
+    }
+
     public void setPoint(INDArray point) {
         this.point = point;
     }
@@ -0,0 +1,286 @@
+/*-
+ *
+ *  * Copyright 2015 Skymind,Inc.
+ *  *
+ *  *    Licensed under the Apache License, Version 2.0 (the "License");
+ *  *    you may not use this file except in compliance with the License.
+ *  *    You may obtain a copy of the License at
+ *  *
+ *  *        http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *    Unless required by applicable law or agreed to in writing, software
+ *  *    distributed under the License is distributed on an "AS IS" BASIS,
+ *  *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *    See the License for the specific language governing permissions and
+ *  *    limitations under the License.
+ *
+ */
+
+package org.deeplearning4j.clustering.sptree;
+
+import java.util.Arrays;
+
+/**
+ * Space-partitioning tree (quadtree for 2 dimensions, octree for 3 dimensions, etc) used by Barnes-Hut t-SNE.
+ *
+ * Same structure as {@link SpTree}, but all nodes are kept in flat primitive arrays, points are referenced by their row index
+ * in row-major data array, and each leaf holds single point (duplicates of that point are counted, but not stored).
+ *
+ * Tree is read-only after construction, so force computations for different points can run in parallel.
+ */
+public class FlatSpTree {
+    private final double[] data;
+    private final int dimensions;
+    private final int numChildren;
+
+    private int numNodes;
+    // per-node arrays, vectors are stored row-major: node * dimensions
+    private double[] corner;
+    private double[] width;
+    private double[] centerOfMass;
+    private double[] maxWidthSquared;
+    private int[] cumSize;
+    // index of the first child, children are stored next to each other. -1 for leafs
+    private int[] firstChild;
+    // point stored in leaf, -1 for empty nodes
+    private int[] point;
+
+    /**
+     * Builds tree over points
+     *
+     * @param data points, row-major
+     * @param numPoints number of points
+     * @param dimensions number of dimensions
+     */
+    public FlatSpTree(double[] data, int numPoints, int dimensions) {
+        if (dimensions < 1 || dimensions > 16)
+            throw new IllegalArgumentException("Number of dimensions should be in range [1, 16], got " + dimensions);
+
+        this.data = data;
+        this.dimensions = dimensions;
+        this.numChildren = 1 << dimensions;
+
+        allocate(Math.max(16, numPoints * 2));
+
+        // root covers bounding box of all points
+        double[] mean = new double[dimensions];
+        double[] min = new double[dimensions];
+        double[] max = new double[dimensions];
+        Arrays.fill(min, Double.MAX_VALUE);
+        Arrays.fill(max, -Double.MAX_VALUE);
+        for (int i = 0; i < numPoints; i++) {
+            for (int d = 0; d < dimensions; d++) {
+                double value = data[i * dimensions + d];
+                mean[d] += value;
+                min[d] = Math.min(min[d], value);
+                max[d] = Math.max(max[d], value);
+            }
+        }
+
+        int root = newNode();
+        for (int d = 0; d < dimensions; d++) {
+            mean[d] = numPoints == 0 ? 0.0 : mean[d] / numPoints;
+            corner[root * dimensions + d] = mean[d];
+            width[root * dimensions + d] = Math.max(max[d] - mean[d], mean[d] - min[d]) + 1e-5;
+        }
+        updateMaxWidth(root);
+
+        for (int i = 0; i < numPoints; i++)
+            insert(i);
+    }
+
+    private void allocate(int capacity) {
+        corner = new double[capacity * dimensions];
+        width = new double[capacity * dimensions];
+        centerOfMass = new double[capacity * dimensions];
+        maxWidthSquared = new double[capacity];
+        cumSize = new int[capacity];
+        firstChild = new int[capacity];
+        point = new int[capacity];
+    }
+
+    private int newNode() {
+        if (numNodes == cumSize.length) {
+            int capacity = cumSize.length * 2;
+            corner = Arrays.copyOf(corner, capacity * dimensions);
+            width = Arrays.copyOf(width, capacity * dimensions);
+            centerOfMass = Arrays.copyOf(centerOfMass, capacity * dimensions);
+            maxWidthSquared = Arrays.copyOf(maxWidthSquared, capacity);
+            cumSize = Arrays.copyOf(cumSize, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            point = Arrays.copyOf(point, capacity);
+        }
+
+        int node = numNodes++;
+        firstChild[node] = -1;
+        point[node] = -1;
+        return node;
+    }
+
+    private void updateMaxWidth(int node) {
+        double result = 0.0;
+        for (int d = 0; d < dimensions; d++)
+            result = Math.max(result, width[node * dimensions + d]);
+        maxWidthSquared[node] = result * result;
+    }
+
+    /**
+     * Child of node, which covers specified point
+     */
+    private int childFor(int node, int pointIndex) {
+        int child = 0;
+        for (int d = 0; d < dimensions; d++)
+            if (data[pointIndex * dimensions + d] > corner[node * dimensions + d])
+                child |= 1 << d;
+        return firstChild[node] + child;
+    }
+
+    private void addToCenterOfMass(int node, int pointIndex) {
+        cumSize[node]++;
+        double mult1 = (double) (cumSize[node] - 1) / cumSize[node];
+        double mult2 = 1.0 / cumSize[node];
+        for (int d = 0; d < dimensions; d++)
+            centerOfMass[node * dimensions + d] = centerOfMass[node * dimensions + d] * mult1
+                            + data[pointIndex * dimensions + d] * mult2;
+    }
+
+    private boolean samePoint(int a, int b) {
+        for (int d = 0; d < dimensions; d++)
+            if (data[a * dimensions + d] != data[b * dimensions + d])
+                return false;
+        return true;
+    }
+
+    private void insert(int pointIndex) {
+        int node = 0;
+        while (true) {
+            addToCenterOfMass(node, pointIndex);
+
+            if (firstChild[node] < 0) {
+                if (point[node] < 0) {
+                    point[node] = pointIndex;
+                    return;
+                }
+
+                // duplicates are only counted
+                if (samePoint(point[node], pointIndex))
+                    return;
+
+                subDivide(node);
+            }
+
+            node = childFor(node, pointIndex);
+        }
+    }
+
+    private void subDivide(int node) {
+        int first = -1;
+        for (int i = 0; i < numChildren; i++) {
+            int child = newNode();
+            if (i == 0)
+                first = child;
+
+            for (int d = 0; d < dimensions; d++) {
+                double halfWidth = 0.5 * width[node * dimensions + d];
+                width[child * dimensions + d] = halfWidth;
+                corner[child * dimensions + d] = corner[node * dimensions + d]
+                                + (((i >> d) & 1) == 1 ? halfWidth : -halfWidth);
+            }
+            updateMaxWidth(child);
+        }
+        firstChild[node] = first;
+
+        // existing point, with all its duplicates, moves to the child
+        int existing = point[node];
+        point[node] = -1;
+        int child = childFor(node, existing);
+        point[child] = existing;
+        cumSize[child] = cumSize[node] - 1;
+        System.arraycopy(data, existing * dimensions, centerOfMass, child * dimensions, dimensions);
+    }
+
+    /**
+     * Computes repulsive t-SNE force acting on specified point, approximated with Barnes-Hut algorithm.
+     * This method doesn't modify tree, so it can be called from multiple threads at once.
+     *
+     * @param pointIndex index of the point
+     * @param theta accuracy parameter, 0 means exact computation
+     * @param negativeForce force is added here
+     * @param offset offset of the point's force within negativeForce array
+     * @return contribution of this point to normalization term sum(Q)
+     */
+    public double computeNonEdgeForces(int pointIndex, double theta, double[] negativeForce, int offset) {
+        return computeNonEdgeForces(0, pointIndex, theta * theta, negativeForce, offset);
+    }
+
+    private double computeNonEdgeForces(int node, int pointIndex, double thetaSquared, double[] negativeForce,
+                    int offset) {
+        int size = cumSize[node];
+        boolean leaf = firstChild[node] < 0;
+        if (size == 0 || (leaf && size == 1 && point[node] == pointIndex))
+            return 0.0;
+
+        double distance = 0.0;
+        int pointOffset = pointIndex * dimensions;
+        int nodeOffset = node * dimensions;
+        for (int d = 0; d < dimensions; d++) {
+            double diff = data[pointOffset + d] - centerOfMass[nodeOffset + d];
+            distance += diff * diff;
+        }
+
+        // node can be used as a summary, if it's small enough when seen from the point
+        if (leaf || maxWidthSquared[node] < thetaSquared * distance) {
+            double q = 1.0 / (1.0 + distance);
+            double mult = size * q;
+            double sumQ = mult;
+            mult *= q;
+            for (int d = 0; d < dimensions; d++)
+                negativeForce[offset + d] += mult * (data[pointOffset + d] - centerOfMass[nodeOffset + d]);
+            return sumQ;
+        }
+
+        double sumQ = 0.0;
+        int first = firstChild[node];
+        for (int i = 0; i < numChildren; i++)
+            sumQ += computeNonEdgeForces(first + i, pointIndex, thetaSquared, negativeForce, offset);
+        return sumQ;
+    }
+
+    /**
+     * Checks that every stored point lies within boundaries of its node
+     *
+     * @return
+     */
+    public boolean isCorrect() {
+        for (int node = 0; node < numNodes; node++) {
+            if (point[node] < 0)
+                continue;
+
+            for (int d = 0; d < dimensions; d++) {
+                double value = data[point[node] * dimensions + d];
+                double c = corner[node * dimensions + d];
+                double w = width[node * dimensions + d];
+                if (value < c - w || value > c + w)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getCumSize() {
+        return cumSize[0];
+    }
+
+    /**
+     * Center of mass of all points
+     *
+     * @return
+     */
+    public double[] getCenterOfMass() {
+        return Arrays.copyOf(centerOfMass, dimensions);
+    }
+}
@@ -0,0 +1,693 @@
+/*-
+ *
+ *  * Copyright 2015 Skymind,Inc.
+ *  *
+ *  *    Licensed under the Apache License, Version 2.0 (the "License");
+ *  *    you may not use this file except in compliance with the License.
+ *  *    You may obtain a copy of the License at
+ *  *
+ *  *        http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *    Unless required by applicable law or agreed to in writing, software
+ *  *    distributed under the License is distributed on an "AS IS" BASIS,
+ *  *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *    See the License for the specific language governing permissions and
+ *  *    limitations under the License.
+ *
+ */
+
+package org.deeplearning4j.clustering.vptree;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.clustering.sptree.DataPoint;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * k-NN index on top of {@link VPTree}, that supports inserts and deletes.
+ *
+ * Every stored vector occupies a slot. Slots [0, treeSize) are indexed by immutable VPTree,
+ * slots after that form insert buffer, which is searched with brute force.
+ * Deleted vectors are tombstoned, and filtered out of search results.
+ * Once insert buffer or number of tombstones grows over configured limits, the tree is rebuilt in background thread:
+ * live vectors are copied under read lock, new tree is built without any locks held, and then swapped in under write lock.
+ * Vectors inserted or deleted while rebuild was in progress are carried over to the new tree.
+ *
+ * Re-inserting existing id replaces its vector.
+ *
+ * All methods are thread-safe. Searches run concurrently with each other, and block only while vectors are inserted, deleted, or new tree is swapped in.
+ */
+@Slf4j
+public class MutableVPTree {
+    private final String similarityFunction;
+    private final boolean invert;
+    private final int distanceType;
+    private final int workers;
+    private final int maxBufferSize;
+    private final double rebuildRatio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // only one rebuild runs at a time
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    private ExecutorService executor;
+
+    private int dimension;
+
+    // slot -> vector, row-major
+    private double[] vectors = new double[0];
+    // slot -> L2 norm, used for cosine similarity only
+    private double[] norms;
+    // slot -> external id
+    private int[] slotIds = new int[0];
+    private int slots;
+    private BitSet deleted = new BitSet();
+    private int deletedCount;
+    private Map<Integer, Integer> idToSlot = new HashMap<>();
+    private int nextId;
+
+    private VPTree tree;
+    private int treeSize;
+    // number of tombstones within [0, treeSize)
+    private int treeDeleted;
+
+    protected MutableVPTree(Builder builder) {
+        this.similarityFunction = builder.similarityFunction;
+        this.invert = builder.invert;
+        this.distanceType = VPTree.distanceType(similarityFunction);
+        this.workers = builder.workers;
+        this.maxBufferSize = builder.maxBufferSize;
+        this.rebuildRatio = builder.rebuildRatio;
+        this.dimension = builder.dimension;
+        if (distanceType == VPTree.DIST_COSINE)
+            this.norms = new double[0];
+
+        if (builder.points != null && builder.points.rows() > 0) {
+            int[] ids = new int[builder.points.rows()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = i;
+
+            // stored without scheduling a background rebuild, the tree is built right here
+            store(ids, builder.points);
+            rebuild();
+        }
+    }
+
+    /**
+     * Creates index over specified points. Ids of points are their row numbers.
+     *
+     * @param points points, one per row
+     * @param similarityFunction the similarity function to use
+     * @param invert whether to invert the distance (similarity functions have different min/max objectives)
+     */
+    public MutableVPTree(INDArray points, String similarityFunction, boolean invert) {
+        this(new Builder().similarityFunction(similarityFunction).invert(invert).points(points));
+    }
+
+    /**
+     * Creates empty index
+     *
+     * @param similarityFunction the similarity function to use
+     * @param invert whether to invert the distance (similarity functions have different min/max objectives)
+     */
+    public MutableVPTree(String similarityFunction, boolean invert) {
+        this(new Builder().similarityFunction(similarityFunction).invert(invert));
+    }
+
+    /**
+     * Inserts single vector. If vector with the same id is already stored, it gets replaced.
+     *
+     * @param id non-negative id of the vector
+     * @param vector
+     */
+    public void insert(int id, @NonNull INDArray vector) {
+        insert(new int[] {id}, vector.reshape(1, vector.length()));
+    }
+
+    /**
+     * Inserts multiple vectors at once. If vectors with the same ids are already stored, they get replaced.
+     *
+     * @param ids non-negative ids of the vectors
+     * @param vectors vectors, one per row
+     */
+    public void insert(@NonNull int[] ids, @NonNull INDArray vectors) {
+        if (store(ids, vectors))
+            maybeScheduleRebuild();
+    }
+
+    private boolean store(int[] ids, INDArray vectors) {
+        if (ids.length != vectors.rows())
+            throw new IllegalArgumentException("Number of ids [" + ids.length + "] doesn't match number of vectors ["
+                            + vectors.rows() + "]");
+
+        if (ids.length == 0)
+            return false;
+
+        for (int id : ids)
+            if (id < 0)
+                throw new IllegalArgumentException("Ids should be non-negative, got [" + id + "]");
+
+        double[] raw = vectors.dup('c').data().asDouble();
+        int columns = vectors.columns();
+
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0)
+                dimension = columns;
+            else if (dimension != columns)
+                throw new IllegalArgumentException("Vector length [" + columns + "] doesn't match index dimension ["
+                                + dimension + "]");
+
+            ensureCapacity(slots + ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                Integer previous = idToSlot.get(ids[i]);
+                if (previous != null)
+                    markDeleted(previous);
+
+                int slot = slots++;
+                System.arraycopy(raw, i * dimension, this.vectors, slot * dimension, dimension);
+                if (norms != null)
+                    norms[slot] = norm(this.vectors, slot * dimension, dimension);
+                slotIds[slot] = ids[i];
+                idToSlot.put(ids[i], slot);
+                nextId = Math.max(nextId, ids[i] + 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return true;
+    }
+
+    /**
+     * Inserts vectors with newly assigned ids
+     *
+     * @param vectors vectors, one per row
+     * @return ids assigned to vectors, in the same order
+     */
+    public int[] add(@NonNull INDArray vectors) {
+        if (vectors.isVector())
+            vectors = vectors.reshape(1, vectors.length());
+
+        int[] ids = new int[vectors.rows()];
+        lock.writeLock().lock();
+        try {
+            // write lock is reentrant, so ids can't be taken by concurrent insert
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = nextId + i;
+
+            insert(ids, vectors);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return ids;
+    }
+
+    /**
+     * Deletes vectors with specified ids. Unknown ids are ignored.
+     *
+     * @param ids
+     * @return number of vectors deleted
+     */
+    public int delete(int... ids) {
+        return delete(ids, null);
+    }
+
+    /**
+     * Deletes vectors with specified ids. Unknown ids are ignored.
+     * Whole batch is deleted under single lock, so rebuild is considered once, after all ids are deleted.
+     *
+     * @param ids ids to delete
+     * @param deleted if not null, ids actually deleted are added to this list
+     * @return number of vectors deleted
+     */
+    public int delete(@NonNull int[] ids, List<Integer> deleted) {
+        int result = 0;
+        lock.writeLock().lock();
+        try {
+            for (int id : ids) {
+                Integer slot = idToSlot.remove(id);
+                if (slot != null) {
+                    markDeleted(slot);
+                    result++;
+                    if (deleted != null)
+                        deleted.add(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (result > 0)
+            maybeScheduleRebuild();
+
+        return result;
+    }
+
+    private void markDeleted(int slot) {
+        deleted.set(slot);
+        deletedCount++;
+        if (slot < treeSize)
+            treeDeleted++;
+    }
+
+    private void ensureCapacity(int required) {
+        if (slotIds.length >= required)
+            return;
+
+        int capacity = Math.max(16, Math.max(required, slotIds.length + (slotIds.length >> 1)));
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        slotIds = Arrays.copyOf(slotIds, capacity);
+        if (norms != null)
+            norms = Arrays.copyOf(norms, capacity);
+    }
+
+    private static double norm(double[] data, int offset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++)
+            sum += data[offset + i] * data[offset + i];
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Returns true if vector with specified id is stored in this index
+     *
+     * @param id
+     * @return
+     */
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return idToSlot.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns copy of the vector with specified id, or null if there's no such vector
+     *
+     * @param id
+     * @return
+     */
+    public INDArray getVector(int id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = idToSlot.get(id);
+            if (slot == null)
+                return null;
+
+            return Nd4j.create(Arrays.copyOfRange(vectors, slot * dimension, (slot + 1) * dimension));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method looks for k nearest vectors to the given one.
+     * Results are ordered the same way {@link VPTree#search(INDArray, int, List, List)} orders them.
+     *
+     * @param target query vector
+     * @param k number of neighbours
+     * @param ids ids of the nearest vectors will be put here
+     * @param distances distances to the nearest vectors will be put here
+     */
+    public void search(@NonNull INDArray target, int k, @NonNull List<Integer> ids, @NonNull List<Double> distances) {
+        ids.clear();
+        distances.clear();
+
+        if (k <= 0)
+            return;
+
+        double[] query = target.dup('c').data().asDouble();
+        double queryNorm = norms == null ? 0.0 : norm(query, 0, query.length);
+
+        VPTree.SearchState state = new VPTree.SearchState(k);
+        List<DataPoint> treeResults = new ArrayList<>();
+        List<Double> treeDistances = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (slots - deletedCount == 0)
+                return;
+
+            if (query.length != dimension)
+                throw new IllegalArgumentException("Query length [" + query.length
+                                + "] doesn't match index dimension [" + dimension + "]");
+
+            if (tree != null) {
+                // tombstoned vectors are still in the tree, so we ask for more candidates, and filter them out
+                tree.search(target, Math.min(treeSize, k + treeDeleted), treeResults, treeDistances);
+                for (int i = 0; i < treeResults.size(); i++) {
+                    int slot = treeResults.get(i).getIndex();
+                    double distance = treeDistances.get(i);
+                    if (!deleted.get(slot) && distance < state.tau)
+                        state.offer(slot, distance);
+                }
+            }
+
+            for (int slot = treeSize; slot < slots; slot++) {
+                if (deleted.get(slot))
+                    continue;
+
+                double distance = VPTree.distance(distanceType, invert, dimension, vectors, slot * dimension,
+                                norms == null ? 0.0 : norms[slot], query, 0, queryNorm);
+                if (distance < state.tau)
+                    state.offer(slot, distance);
+            }
+
+            while (state.size > 0) {
+                ids.add(slotIds[state.positions[0]]);
+                distances.add(state.distances[0]);
+                state.poll();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (invert) {
+            Collections.reverse(ids);
+            Collections.reverse(distances);
+        }
+    }
+
+    private boolean needsRebuild() {
+        int pending = slots - treeSize;
+        int live = slots - deletedCount;
+        return pending >= maxBufferSize || deletedCount > rebuildRatio * Math.max(live, 1);
+    }
+
+    private void maybeScheduleRebuild() {
+        lock.readLock().lock();
+        try {
+            if (!needsRebuild())
+                return;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (!rebuildScheduled.compareAndSet(false, true))
+            return;
+
+        synchronized (this) {
+            if (executor == null)
+                executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "MutableVPTree rebuild thread");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    rebuildScheduled.set(false);
+                    try {
+                        rebuildIfRequired();
+                    } catch (Throwable t) {
+                        log.error("Background VPTree rebuild failed", t);
+                    }
+                }
+            });
+        }
+    }
+
+    private void rebuildIfRequired() {
+        synchronized (rebuildLock) {
+            // tree could have been rebuilt since this rebuild was scheduled
+            lock.readLock().lock();
+            try {
+                if (!needsRebuild())
+                    return;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the tree over all live vectors, and drops tombstones and insert buffer.
+     * This method blocks till new tree is built. Searches, inserts and deletes can run while tree is being built.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            int captured;
+            int live = 0;
+            int[] oldToNew;
+            double[] data;
+
+            lock.readLock().lock();
+            try {
+                captured = slots;
+                oldToNew = new int[captured];
+                for (int slot = 0; slot < captured; slot++)
+                    oldToNew[slot] = deleted.get(slot) ? -1 : live++;
+
+                data = new double[live * dimension];
+                for (int slot = 0; slot < captured; slot++)
+                    if (oldToNew[slot] >= 0)
+                        System.arraycopy(vectors, slot * dimension, data, oldToNew[slot] * dimension, dimension);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            long time = System.currentTimeMillis();
+            VPTree newTree = live == 0 ? null
+                            : new VPTree(Nd4j.create(data, new int[] {live, dimension}), similarityFunction, invert,
+                                            workers);
+            log.debug("VPTree over {} points built in {} ms", live, System.currentTimeMillis() - time);
+
+            lock.writeLock().lock();
+            try {
+                int carried = 0;
+                for (int slot = captured; slot < slots; slot++)
+                    if (!deleted.get(slot))
+                        carried++;
+
+                int capacity = Math.max(16, live + carried);
+                double[] newVectors = Arrays.copyOf(data, capacity * dimension);
+                double[] newNorms = norms == null ? null : new double[capacity];
+                int[] newSlotIds = new int[capacity];
+                BitSet newDeleted = new BitSet();
+                int newDeletedCount = 0;
+                Map<Integer, Integer> newIdToSlot = new HashMap<>();
+
+                for (int slot = 0; slot < captured; slot++) {
+                    int target = oldToNew[slot];
+                    if (target < 0)
+                        continue;
+
+                    newSlotIds[target] = slotIds[slot];
+                    if (newNorms != null)
+                        newNorms[target] = norms[slot];
+
+                    // vector could be deleted or replaced while tree was built
+                    if (deleted.get(slot)) {
+                        newDeleted.set(target);
+                        newDeletedCount++;
+                    } else
+                        newIdToSlot.put(slotIds[slot], target);
+                }
+
+                int target = live;
+                for (int slot = captured; slot < slots; slot++) {
+                    if (deleted.get(slot))
+                        continue;
+
+                    System.arraycopy(vectors, slot * dimension, newVectors, target * dimension, dimension);
+                    if (newNorms != null)
+                        newNorms[target] = norms[slot];
+                    newSlotIds[target] = slotIds[slot];
+                    newIdToSlot.put(slotIds[slot], target);
+                    target++;
+                }
+
+                this.vectors = newVectors;
+                this.norms = newNorms;
+                this.slotIds = newSlotIds;
+                this.slots = target;
+                this.deleted = newDeleted;
+                this.deletedCount = newDeletedCount;
+                this.treeDeleted = newDeletedCount;
+                this.idToSlot = newIdToSlot;
+                this.tree = newTree;
+                this.treeSize = live;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns number of live vectors in this index
+     *
+     * @return
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of vectors inserted after last rebuild, that are searched with brute force
+     *
+     * @return
+     */
+    public int pendingSize() {
+        lock.readLock().lock();
+        try {
+            return slots - treeSize;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of deleted vectors, that are still kept till next rebuild
+     *
+     * @return
+     */
+    public int deletedSize() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDimension() {
+        lock.readLock().lock();
+        try {
+            return dimension;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getSimilarityFunction() {
+        return similarityFunction;
+    }
+
+    public boolean isInvert() {
+        return invert;
+    }
+
+    /**
+     * Stops background rebuild thread
+     */
+    public synchronized void shutdown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    public static class Builder {
+        protected String similarityFunction = VPTree.EUCLIDEAN;
+        protected boolean invert = true;
+        protected int workers = Runtime.getRuntime().availableProcessors();
+        protected int maxBufferSize = 4096;
+        protected double rebuildRatio = 0.2;
+        protected int dimension = 0;
+        protected INDArray points;
+
+        public Builder() {
+
+        }
+
+        /**
+         * @param similarityFunction the similarity function to use
+         * @return
+         */
+        public Builder similarityFunction(@NonNull String similarityFunction) {
+            this.similarityFunction = similarityFunction;
+            return this;
+        }
+
+        /**
+         * Default is true, same as in {@link VPTree}
+         *
+         * @param invert whether to invert the distance (similarity functions have different min/max objectives)
+         * @return
+         */
+        public Builder invert(boolean invert) {
+            this.invert = invert;
+            return this;
+        }
+
+        /**
+         * Number of threads used to build the tree
+         *
+         * @param workers
+         * @return
+         */
+        public Builder workers(int workers) {
+            this.workers = Math.max(1, workers);
+            return this;
+        }
+
+        /**
+         * Tree gets rebuilt once this number of vectors was inserted since last rebuild
+         *
+         * @param maxBufferSize
+         * @return
+         */
+        public Builder maxBufferSize(int maxBufferSize) {
+            this.maxBufferSize = Math.max(1, maxBufferSize);
+            return this;
+        }
+
+        /**
+         * Tree gets rebuilt once number of deleted vectors exceeds this fraction of live vectors
+         *
+         * @param rebuildRatio
+         * @return
+         */
+        public Builder rebuildRatio(double rebuildRatio) {
+            this.rebuildRatio = rebuildRatio;
+            return this;
+        }
+
+        /**
+         * Vector length. If not set, it's taken from the first inserted vector.
+         *
+         * @param dimension
+         * @return
+         */
+        public Builder dimension(int dimension) {
+            this.dimension = dimension;
+            return this;
+        }
+
+        /**
+         * Initial points, one per row. Ids of points are their row numbers.
+         *
+         * @param points
+         * @return
+         */
+        public Builder points(INDArray points) {
+            this.points = points;
+            return this;
+        }
+
+        public MutableVPTree build() {
+            return new MutableVPTree(this);
+        }
+    }
+}
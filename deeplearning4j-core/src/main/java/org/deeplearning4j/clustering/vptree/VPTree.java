@@ -22,33 +22,62 @@ import org.deeplearning4j.berkeley.CounterMap;
 import org.deeplearning4j.berkeley.PriorityQueue;
 import org.deeplearning4j.clustering.sptree.DataPoint;
 import org.deeplearning4j.clustering.sptree.HeapItem;
-import org.deeplearning4j.util.MathUtils;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Vantage point tree implementation
  *
+ * All points are copied into single contiguous array, laid out in tree order, and the tree itself is implicit:
+ * node covering range [lower, upper) has its vantage point at lower, left subtree at [lower + 1, median) and right subtree at [median, upper).
+ * Large subtrees are built in parallel with fork-join.
+ *
+ * Tree is immutable after construction, and search state is kept per query, so search() is safe to call from multiple threads at once.
+ *
  * @author Adam Gibson
  */
 public class VPTree {
 
     public static final String EUCLIDEAN = "euclidean";
+
+    // subtrees smaller than this are built sequentially
+    private static final int PARALLEL_THRESHOLD = 2048;
+
+    private static final int DIST_EUCLIDEAN = 0;
+    static final int DIST_COSINE = 1;
+    private static final int DIST_MANHATTAN = 2;
+    private static final int DIST_DOT = 3;
+
     private List<DataPoint> items;
-    private double tau;
-    private Node root;
-    private CounterMap<DataPoint, DataPoint> distances;
     private String similarityFunction;
     private boolean invert = true;
 
+    // distances are negated, if DataPoints were created with invert flag
+    private boolean negate;
+    private int distanceType;
+
+    private int size;
+    private int dimension;
+    // points in tree order, row-major
+    private double[] data;
+    // L2 norms in tree order, used for cosine similarity only
+    private double[] norms;
+    // tree position -> index in items
+    private int[] indexes;
+    // tree position -> threshold of the node at that position
+    private double[] thresholds;
 
-    public VPTree(INDArray points,boolean invert) {
-        this(points,"euclidean",invert);
+    private int workers = Runtime.getRuntime().availableProcessors();
+
+
+    public VPTree(INDArray points, boolean invert) {
+        this(points, "euclidean", invert);
     }
 
     /**
@@ -58,53 +87,54 @@ public class VPTree {
      * @param invert whether to invert the distance (similarity functions have different min/max objectives)
      */
     public VPTree(INDArray items, String similarityFunction, boolean invert) {
+        this(items, similarityFunction, invert, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     *
+     * @param items the items to use
+     * @param similarityFunction the similiarity function to use
+     * @param invert whether to invert the distance (similarity functions have different min/max objectives)
+     * @param workers number of threads used to build the tree
+     */
+    public VPTree(INDArray items, String similarityFunction, boolean invert, int workers) {
         List<DataPoint> thisItems = new ArrayList<>();
-        this.similarityFunction = similarityFunction;
-        this.invert = invert;
         for (int i = 0; i < items.slices(); i++)
-            thisItems.add(new DataPoint(i, items.slice(i), this.similarityFunction, invert));
-        this.items = thisItems;
-        final int deviceId = Nd4j.getAffinityManager().getDeviceForCurrentThread();
-        distances = CounterMap.runPairWise(thisItems, new CounterMap.CountFunction<DataPoint>() {
-            @Override
-            public double count(DataPoint v1, DataPoint v2) {
-                Nd4j.getAffinityManager().attachThreadToDevice(Thread.currentThread(), deviceId);
-                return v1.distance(v2);
-            }
-        });
+            thisItems.add(new DataPoint(i, items.slice(i), similarityFunction, invert));
 
+        this.items = thisItems;
+        this.similarityFunction = similarityFunction;
+        this.invert = invert;
+        this.negate = invert;
+        this.workers = Math.max(1, workers);
 
-        root = buildFromPoints(0, this.items.size());
+        build(items.slices() == 0 ? null : items.reshape(items.slices(), items.length() / items.slices()));
     }
 
     /**
      *
      * @param items the items to use
-     * @param distances the distances
+     * @param distances this argument is ignored, distances aren't cached anymore
      * @param similarityFunction the similarity function to use
      * @param invert whether to invert the metric (different optimization objective)
      */
+    @Deprecated
     public VPTree(List<DataPoint> items, CounterMap<DataPoint, DataPoint> distances, String similarityFunction,
-                  boolean invert) {
-        this.items = items;
-        this.distances = distances;
-        this.invert = invert;
-        this.similarityFunction = similarityFunction;
-        root = buildFromPoints(0, items.size());
-
+                    boolean invert) {
+        this(items, similarityFunction, invert);
     }
 
+    /**
+     * Please note: distance function is defined by DataPoints, same way DataPoint.distance() does
+     *
+     * @param items the items to use
+     * @param similarityFunction the similarity function to use
+     * @param invert whether to invert the results order
+     */
     public VPTree(List<DataPoint> items, String similarityFunction, boolean invert) {
-        this.items = items;
         this.invert = invert;
         this.similarityFunction = similarityFunction;
-        distances = CounterMap.runPairWise(items, new CounterMap.CountFunction<DataPoint>() {
-            @Override
-            public double count(DataPoint v1, DataPoint v2) {
-                return v1.distance(v2);
-            }
-        });
-        root = buildFromPoints(0, items.size());
+        buildFromItems(items);
     }
 
 
@@ -112,6 +142,7 @@ public class VPTree {
         this(items, similarityFunction, true);
     }
 
+    @Deprecated
     public VPTree(List<DataPoint> items, CounterMap<DataPoint, DataPoint> distances, String similarityFunction) {
         this(items, distances, similarityFunction, true);
 
@@ -126,6 +157,7 @@ public class VPTree {
         this(items, EUCLIDEAN);
     }
 
+    @Deprecated
     public VPTree(List<DataPoint> items, CounterMap<DataPoint, DataPoint> distances) {
         this(items, distances, EUCLIDEAN);
 
@@ -147,72 +179,363 @@ public class VPTree {
         return items;
     }
 
+    /**
+     * Replaces tree points, and rebuilds the tree over them.
+     * Please note: this method isn't thread-safe, it shouldn't be called while other threads search this tree.
+     *
+     * @param items new points
+     * @deprecated build a new tree instead
+     */
+    @Deprecated
     public void setItems(List<DataPoint> items) {
+        buildFromItems(items);
+    }
+
+    private void buildFromItems(List<DataPoint> items) {
         this.items = items;
+        if (!items.isEmpty()) {
+            this.negate = items.get(0).isInvert();
+            this.similarityFunction = items.get(0).getFunctionName();
+        }
+
+        build(items.isEmpty() ? null : buildFromData(items));
+    }
+
+    /**
+     * @return empty map, distances aren't cached anymore
+     * @deprecated distances are computed during build and search, and aren't kept
+     */
+    @Deprecated
+    public CounterMap<DataPoint, DataPoint> getDistances() {
+        return new CounterMap<>();
     }
 
-    private double getDistance(DataPoint d1, DataPoint d2) {
-        double count = distances.getCount(d1, d2);
-        if (count == 0) {
-            double realDistance = d1.distance(d2);
-            distances.setCount(d1, d2, realDistance);
-            distances.setCount(d2, d1, realDistance);
-            return realDistance;
+    /**
+     * @param distances this argument is ignored, distances aren't cached anymore
+     * @deprecated distances are computed during build and search, and aren't kept
+     */
+    @Deprecated
+    public void setDistances(CounterMap<DataPoint, DataPoint> distances) {
+        // nothing to do here
+    }
+
+    /**
+     * Returns number of points in this tree
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    public String getSimilarityFunction() {
+        return similarityFunction;
+    }
+
+    public boolean isInvert() {
+        return invert;
+    }
+
+    static int distanceType(String function) {
+        if (function == null)
+            return DIST_EUCLIDEAN;
+
+        switch (function) {
+            case "cosinesimilarity":
+                return DIST_COSINE;
+            case "manhattan":
+                return DIST_MANHATTAN;
+            case "dot":
+                return DIST_DOT;
+            default:
+                return DIST_EUCLIDEAN;
         }
-        return count;
     }
 
-    private Node buildFromPoints(int lower, int upper) {
-        if (upper == lower)
-            return null;
-        Node ret = new Node(lower, 0);
-        if (upper - lower > 1) {
-            int randomPoint = MathUtils.randomNumberBetween(lower, upper - 1);
+    private void build(INDArray matrix) {
+        this.distanceType = distanceType(similarityFunction);
 
-            // Partition around the median distance
-            int median = (upper + lower) / 2;
-            double distances[] = new double[items.size()];
-            double sortedDistances[] = new double[items.size()];
-            DataPoint basePoint = items.get(randomPoint);
-            for (int i = 0; i < items.size(); ++i) {
-                distances[i] = getDistance(basePoint, items.get(i));
-                sortedDistances[i] = distances[i];
+        if (matrix == null) {
+            this.size = 0;
+            this.data = new double[0];
+            this.indexes = new int[0];
+            this.thresholds = new double[0];
+            return;
+        }
+
+        this.size = matrix.rows();
+        this.dimension = matrix.columns();
+
+        double[] raw = matrix.dup('c').data().asDouble();
+        double[] rawNorms = distanceType == DIST_COSINE ? computeNorms(raw, size, dimension) : null;
+
+        this.indexes = new int[size];
+        for (int i = 0; i < size; i++)
+            indexes[i] = i;
+        this.thresholds = new double[size];
+
+        double[] scratch = new double[size];
+        BuildTask root = new BuildTask(raw, rawNorms, scratch, 0, size);
+        if (workers > 1 && size > PARALLEL_THRESHOLD) {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            try {
+                pool.invoke(root);
+            } finally {
+                pool.shutdown();
             }
+        } else {
+            // compute() would fork into the common pool for large ranges, so we build everything in this thread
+            root.buildSequential(0, size);
+        }
 
-            Arrays.sort(sortedDistances);
-            final double medianDistance = sortedDistances[sortedDistances.length / 2];
-            List<DataPoint> leftPoints = new ArrayList<>(sortedDistances.length);
-            List<DataPoint> rightPoints = new ArrayList<>(sortedDistances.length);
+        // now we lay out points in tree order, so search walks memory mostly forward
+        this.data = new double[raw.length];
+        this.norms = rawNorms == null ? null : new double[size];
+        for (int pos = 0; pos < size; pos++) {
+            System.arraycopy(raw, indexes[pos] * dimension, data, pos * dimension, dimension);
+            if (norms != null)
+                norms[pos] = rawNorms[indexes[pos]];
+        }
+    }
 
-            for (int i = 0; i < distances.length; i++) {
-                if (distances[i] < medianDistance) {
-                    leftPoints.add(items.get(i));
-                } else {
-                    rightPoints.add(items.get(i));
+    static double[] computeNorms(double[] points, int rows, int columns) {
+        double[] result = new double[rows];
+        for (int r = 0; r < rows; r++) {
+            double sum = 0.0;
+            int offset = r * columns;
+            for (int c = 0; c < columns; c++)
+                sum += points[offset + c] * points[offset + c];
+            result[r] = Math.sqrt(sum);
+        }
+        return result;
+    }
+
+    /**
+     * Distance between rows of two arrays, same as DataPoint.distance() would return for them
+     */
+    private double distance(double[] x, int xOffset, double xNorm, double[] y, int yOffset, double yNorm) {
+        return distance(distanceType, negate, dimension, x, xOffset, xNorm, y, yOffset, yNorm);
+    }
+
+    static double distance(int distanceType, boolean negate, int dimension, double[] x, int xOffset, double xNorm,
+                    double[] y, int yOffset, double yNorm) {
+        double result;
+        switch (distanceType) {
+            case DIST_MANHATTAN: {
+                double sum = 0.0;
+                for (int i = 0; i < dimension; i++)
+                    sum += Math.abs(x[xOffset + i] - y[yOffset + i]);
+                result = sum;
+                break;
+            }
+            case DIST_DOT:
+            case DIST_COSINE: {
+                double dot = 0.0;
+                for (int i = 0; i < dimension; i++)
+                    dot += x[xOffset + i] * y[yOffset + i];
+                result = distanceType == DIST_DOT ? dot : dot / (xNorm * yNorm);
+                break;
+            }
+            default: {
+                double sum = 0.0;
+                for (int i = 0; i < dimension; i++) {
+                    double diff = x[xOffset + i] - y[yOffset + i];
+                    sum += diff * diff;
                 }
+                result = Math.sqrt(sum);
             }
+        }
 
-            for (int i = 0; i < leftPoints.size(); ++i) {
-                items.set(i, leftPoints.get(i));
-            }
+        return negate ? -result : result;
+    }
+
+    /**
+     * Picks vantage point position for specified range. It depends on range only, so tree layout doesn't depend on number of build threads.
+     */
+    private static int vantagePoint(int lower, int upper) {
+        long h = (lower * 0x9E3779B97F4A7C15L) ^ (upper * 0xC2B2AE3D27D4EB4FL);
+        h ^= h >>> 31;
+        return lower + (int) ((h & Long.MAX_VALUE) % (upper - lower));
+    }
 
-            for (int i = 0; i < rightPoints.size(); ++i) {
-                items.set(i + leftPoints.size(), rightPoints.get(i));
+    private void swap(double[] scratch, int a, int b) {
+        int tmpIndex = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = tmpIndex;
+
+        double tmp = scratch[a];
+        scratch[a] = scratch[b];
+        scratch[b] = tmp;
+    }
+
+    /**
+     * Partially sorts range [lower, upper) of scratch distances (and indexes along with them),
+     * so element at position n is in its sorted place, elements before it are not greater, and elements after it are not less.
+     */
+    private void select(double[] scratch, int lower, int upper, int n) {
+        int left = lower;
+        int right = upper - 1;
+        while (right > left) {
+            int mid = (left + right) >>> 1;
+            double pivot = scratch[mid];
+            swap(scratch, mid, right);
+
+            int store = left;
+            for (int i = left; i < right; i++) {
+                if (scratch[i] < pivot) {
+                    swap(scratch, i, store);
+                    store++;
+                }
             }
+            swap(scratch, store, right);
+
+            if (store == n)
+                return;
+            else if (store < n)
+                left = store + 1;
+            else
+                right = store - 1;
+        }
+    }
 
-            ret.setThreshold(getDistance(items.get(lower), items.get(median)));
-            ret.setIndex(lower);
-            ret.setLeft(buildFromPoints(lower + 1, median));
-            ret.setRight(buildFromPoints(median, upper));
+    /**
+     * Builds node for range [lower, upper). Subtrees are built separately, and work on disjoint parts of indexes/scratch arrays.
+     */
+    private class BuildTask extends RecursiveAction {
+        private final double[] raw;
+        private final double[] rawNorms;
+        private final double[] scratch;
+        private final int lower;
+        private final int upper;
+
+        private BuildTask(double[] raw, double[] rawNorms, double[] scratch, int lower, int upper) {
+            this.raw = raw;
+            this.rawNorms = rawNorms;
+            this.scratch = scratch;
+            this.lower = lower;
+            this.upper = upper;
+        }
 
+        @Override
+        protected void compute() {
+            if (upper - lower > PARALLEL_THRESHOLD) {
+                int median = partition(lower, upper);
+                invokeAll(new BuildTask(raw, rawNorms, scratch, lower + 1, median),
+                                new BuildTask(raw, rawNorms, scratch, median, upper));
+            } else
+                buildSequential(lower, upper);
+        }
 
+        private void buildSequential(int lower, int upper) {
+            if (upper - lower <= 1)
+                return;
 
+            int median = partition(lower, upper);
+            buildSequential(lower + 1, median);
+            buildSequential(median, upper);
         }
 
-        return ret;
+        /**
+         * Moves vantage point to lower, partitions the rest of the range around median distance, and returns median position
+         */
+        private int partition(int lower, int upper) {
+            swap(scratch, lower, vantagePoint(lower, upper));
+
+            int base = indexes[lower];
+            double baseNorm = rawNorms == null ? 0.0 : rawNorms[base];
+            for (int i = lower + 1; i < upper; i++) {
+                int other = indexes[i];
+                scratch[i] = distance(raw, base * dimension, baseNorm, raw, other * dimension,
+                                rawNorms == null ? 0.0 : rawNorms[other]);
+            }
+
+            int median = (upper + lower) / 2;
+            select(scratch, lower + 1, upper, median);
+            thresholds[lower] = scratch[median];
 
+            return median;
+        }
     }
 
+    /**
+     * Per-query search state: bounded max-heap of k best candidates found so far
+     */
+    static class SearchState {
+        final int k;
+        final int[] positions;
+        final double[] distances;
+        int size;
+        double tau = Double.MAX_VALUE;
+
+        SearchState(int k) {
+            this.k = k;
+            this.positions = new int[k];
+            this.distances = new double[k];
+        }
+
+        void offer(int position, double distance) {
+            if (size == k) {
+                // replace current max with new candidate
+                positions[0] = position;
+                distances[0] = distance;
+                siftDown(0);
+            } else {
+                int i = size++;
+                positions[i] = position;
+                distances[i] = distance;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (distances[parent] >= distances[i])
+                        break;
+                    swap(i, parent);
+                    i = parent;
+                }
+            }
+
+            if (size == k)
+                tau = distances[0];
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size)
+                    return;
+
+                int largest = left;
+                if (left + 1 < size && distances[left + 1] > distances[left])
+                    largest = left + 1;
+
+                if (distances[i] >= distances[largest])
+                    return;
+
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tmpPosition = positions[a];
+            positions[a] = positions[b];
+            positions[b] = tmpPosition;
+
+            double tmp = distances[a];
+            distances[a] = distances[b];
+            distances[b] = tmp;
+        }
+
+        /**
+         * Removes current max element
+         */
+        void poll() {
+            size--;
+            if (size > 0) {
+                positions[0] = positions[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+        }
+    }
 
     /**
      *
@@ -222,17 +545,45 @@ public class VPTree {
      * @param distances
      */
     public void search(DataPoint target, int k, List<DataPoint> results, List<Double> distances) {
-        PriorityQueue<HeapItem> pq = new PriorityQueue<>();
-        tau = Double.MAX_VALUE;
-        search(root, target, k, pq);
+        search(target.getPoint(), k, results, distances);
+    }
 
+    /**
+     * This method looks for k nearest points to the given vector.
+     * This method is thread-safe.
+     *
+     * @param target query vector, should have the same length as tree points
+     * @param k number of neighbours
+     * @param results nearest points will be put here
+     * @param distances distances to the nearest points will be put here
+     */
+    public void search(INDArray target, int k, List<DataPoint> results, List<Double> distances) {
         results.clear();
         distances.clear();
 
-        while (!pq.isEmpty()) {
-            results.add(items.get(pq.peek().getIndex()));
-            distances.add(pq.peek().getDistance());
-            pq.next();
+        if (size == 0 || k <= 0)
+            return;
+
+        if (target.length() != dimension)
+            throw new IllegalArgumentException("Query length [" + target.length() + "] doesn't match tree points length ["
+                            + dimension + "]");
+
+        double[] query = target.dup('c').data().asDouble();
+        double queryNorm = 0.0;
+        if (distanceType == DIST_COSINE) {
+            for (int i = 0; i < query.length; i++)
+                queryNorm += query[i] * query[i];
+            queryNorm = Math.sqrt(queryNorm);
+        }
+
+        SearchState state = new SearchState(k);
+        search(0, size, query, queryNorm, state);
+
+        // candidates go out farthest first, the same way PriorityQueue used to return them
+        while (state.size > 0) {
+            results.add(items.get(indexes[state.positions[0]]));
+            distances.add(state.distances[0]);
+            state.poll();
         }
 
         if (invert) {
@@ -241,60 +592,89 @@ public class VPTree {
         }
     }
 
+    private void search(int lower, int upper, double[] query, double queryNorm, SearchState state) {
+        if (upper <= lower)
+            return;
+
+        double distance = distance(data, lower * dimension, norms == null ? 0.0 : norms[lower], query, 0, queryNorm);
+        if (distance < state.tau)
+            state.offer(lower, distance);
+
+        if (upper - lower == 1)
+            return;
+
+        int median = (upper + lower) / 2;
+        double threshold = thresholds[lower];
+
+        if (distance < threshold) {
+            if (distance - state.tau <= threshold) { // if there can still be neighbors inside the ball, recursively search left child first
+                search(lower + 1, median, query, queryNorm, state);
+            }
+
+            if (distance + state.tau >= threshold) { // if there can still be neighbors outside the ball, recursively search right child
+                search(median, upper, query, queryNorm, state);
+            }
+
+        } else {
+            if (distance + state.tau >= threshold) { // if there can still be neighbors outside the ball, recursively search right child first
+                search(median, upper, query, queryNorm, state);
+            }
+
+            if (distance - state.tau <= threshold) { // if there can still be neighbors inside the ball, recursively search left child
+                search(lower + 1, median, query, queryNorm, state);
+            }
+        }
+    }
+
     /**
+     * Searches explicit tree of nodes, indexes of nodes refer to items of this tree.
+     * Results are added to pq, which keeps k farthest candidates on top.
      *
      * @param node
      * @param target
      * @param k
      * @param pq
+     * @deprecated tree nodes aren't kept anymore, use {@link #search(INDArray, int, List, List)} instead
      */
+    @Deprecated
     public void search(Node node, DataPoint target, int k, PriorityQueue<HeapItem> pq) {
         if (node == null)
             return;
-        DataPoint get = items.get(node.getIndex());
-        double distance = getDistance(get, target);
+
+        double tau = pq.size() == k ? pq.peek().getDistance() : Double.MAX_VALUE;
+        double distance = items.get(node.getIndex()).distance(target);
         if (distance < tau) {
             if (pq.size() == k)
                 pq.next();
-            pq.add(new HeapItem(node.index, distance), distance);
+            pq.add(new HeapItem(node.getIndex(), distance), distance);
             if (pq.size() == k)
                 tau = pq.peek().getDistance();
-
-
         }
 
         if (node.getLeft() == null && node.getRight() == null)
             return;
 
         if (distance < node.getThreshold()) {
-            if (distance - tau <= node.getThreshold()) { // if there can still be neighbors inside the ball, recursively search left child first
+            if (distance - tau <= node.getThreshold())
                 search(node.getLeft(), target, k, pq);
-            }
 
-            if (distance + tau >= node.getThreshold()) { // if there can still be neighbors outside the ball, recursively search right child
+            tau = pq.size() == k ? pq.peek().getDistance() : Double.MAX_VALUE;
+            if (distance + tau >= node.getThreshold())
                 search(node.getRight(), target, k, pq);
-            }
-
         } else {
-            if (distance + tau >= node.getThreshold()) { // if there can still be neighbors outside the ball, recursively search right child first
+            if (distance + tau >= node.getThreshold())
                 search(node.getRight(), target, k, pq);
-            }
 
-            if (distance - tau <= node.getThreshold()) { // if there can still be neighbors inside the ball, recursively search left child
+            tau = pq.size() == k ? pq.peek().getDistance() : Double.MAX_VALUE;
+            if (distance - tau <= node.getThreshold())
                 search(node.getLeft(), target, k, pq);
-            }
         }
-
-    }
-
-    public CounterMap<DataPoint, DataPoint> getDistances() {
-        return distances;
-    }
-
-    public void setDistances(CounterMap<DataPoint, DataPoint> distances) {
-        this.distances = distances;
     }
 
+    /**
+     * @deprecated tree is laid out in arrays now, this class is kept for {@link #search(Node, DataPoint, int, PriorityQueue)} only
+     */
+    @Deprecated
     public static class Node {
         private int index;
         private double threshold;
@@ -368,5 +748,4 @@ public class VPTree {
             this.right = right;
         }
     }
-
 }
@@ -170,7 +170,7 @@ public class RecordReaderDataSetIterator implements DataSetIterator {
 
         if (!recordReader.batchesSupported() || collectMetaData) {
         //if (true) {
-            List<DataSet> dataSets = new ArrayList<>();
+            List<List<Writable>> records = new ArrayList<>();
             List<RecordMetaData> meta = (collectMetaData ? new ArrayList<RecordMetaData>() : null);
             for (int i = 0; i < num; i++) {
                 if (!hasNext())
@@ -182,28 +182,18 @@ public class RecordReaderDataSetIterator implements DataSetIterator {
                     }
 
                     try {
-                        List<Writable> record = sequenceIter.next();
-                        DataSet d = getDataSet(record);
-                        //account for transform process
-                        if (d != null)
-                            dataSets.add(d);
+                        records.add(sequenceIter.next());
                     } catch (Exception e) {
                         log.warn("Unable to get dataset ...skipping", e);
                     }
                 } else {
                     if (collectMetaData) {
                         Record record = recordReader.nextRecord();
-                        DataSet d = getDataSet(record.getRecord());
-                        if (d != null) {
-                            dataSets.add(d);
-                            meta.add(record.getMetaData());
-                        }
+                        records.add(record.getRecord());
+                        meta.add(record.getMetaData());
                     } else {
                         try {
-                            List<Writable> record = recordReader.next();
-                            DataSet d = getDataSet(record);
-                            if (d != null)
-                                dataSets.add(d);
+                            records.add(recordReader.next());
                         } catch (Exception e) {
                             log.warn("Unable to get dataset ...skipping", e);
                         }
@@ -212,14 +202,10 @@ public class RecordReaderDataSetIterator implements DataSetIterator {
             }
             batchNum++;
 
-            if (dataSets.isEmpty()) {
+            ret = getDataSet(records, meta);
+            if (ret == null) {
                 return null;
             }
-
-            ret = DataSet.merge(dataSets);
-            if (collectMetaData) {
-                ret.setExampleMetaData(meta);
-            }
         } else {
 
 
@@ -247,6 +233,93 @@ public class RecordReaderDataSetIterator implements DataSetIterator {
     }
 
 
+    /**
+     * Convert a minibatch of records, in bulk if possible. Records that can't be converted are skipped (with a
+     * warning) unless meta data is being collected.
+     */
+    private DataSet getDataSet(List<List<Writable>> records, List<RecordMetaData> meta) {
+        if (records.isEmpty())
+            return null;
+
+        DataSet ret = null;
+        try {
+            ret = getDataSetBulk(records);
+        } catch (RuntimeException e) {
+            //Fall back to converting each record separately, which skips or reports the invalid records
+        }
+
+        if (ret == null) {
+            List<DataSet> dataSets = new ArrayList<>();
+            List<RecordMetaData> dataSetsMeta = (meta != null ? new ArrayList<RecordMetaData>() : null);
+            for (int i = 0; i < records.size(); i++) {
+                if (meta != null) {
+                    DataSet d = getDataSet(records.get(i));
+                    if (d != null) {
+                        dataSets.add(d);
+                        dataSetsMeta.add(meta.get(i));
+                    }
+                } else {
+                    try {
+                        DataSet d = getDataSet(records.get(i));
+                        if (d != null)
+                            dataSets.add(d);
+                    } catch (Exception e) {
+                        log.warn("Unable to get dataset ...skipping", e);
+                    }
+                }
+            }
+            if (dataSets.isEmpty()) {
+                return null;
+            }
+            ret = DataSet.merge(dataSets);
+            meta = dataSetsMeta;
+        }
+
+        if (meta != null) {
+            ret.setExampleMetaData(meta);
+        }
+        return ret;
+    }
+
+    /**
+     * Convert a minibatch of records of scalar values directly to the feature and label arrays, without first
+     * creating one DataSet per record
+     *
+     * @return The DataSet, or null if the records can't be converted in bulk
+     */
+    private DataSet getDataSetBulk(List<List<Writable>> records) {
+        int n = records.size();
+        int size = records.get(0).size();
+
+        //allow people to specify label index as -1 and infer the last possible label
+        if (numPossibleLabels >= 1 && labelIndex < 0) {
+            labelIndex = size - 1;
+        }
+
+        INDArray features;
+        INDArray labels;
+        if (labelIndex < 0) {
+            //No labels
+            features = WritableBatchConverter.toMatrix(records, n, size, 0, size - 1, -1, -1);
+            labels = (features == null ? null : features.dup());
+        } else if (regression) {
+            //Single or multi-output regression. The converter is only used for an inferred label index
+            if (labelIndexTo < labelIndex || labelIndexTo >= size)
+                return null;
+            features = WritableBatchConverter.toMatrix(records, n, size, 0, size - 1, labelIndex, labelIndexTo);
+            labels = WritableBatchConverter.toMatrix(records, n, size, labelIndex, labelIndexTo, -1, -1);
+        } else {
+            if (numPossibleLabels < 1 || labelIndex >= size)
+                return null;
+            features = WritableBatchConverter.toMatrix(records, n, size, 0, size - 1, labelIndex, labelIndex);
+            labels = WritableBatchConverter.toOneHot(records, n, labelIndex, numPossibleLabels, converter);
+        }
+
+        if (features == null || labels == null)
+            return null;
+        return new DataSet(features, labels);
+    }
+
     private DataSet getDataSet(List<Writable> record) {
         if (record == null)
             return null;
@@ -473,19 +546,17 @@ public class RecordReaderDataSetIterator implements DataSetIterator {
      */
     public DataSet loadFromMetaData(List<RecordMetaData> list) throws IOException {
         List<Record> records = recordReader.loadFromMetaData(list);
-        List<DataSet> dataSets = new ArrayList<>();
+        List<List<Writable>> writables = new ArrayList<>();
         List<RecordMetaData> meta = new ArrayList<>();
         for (Record r : records) {
-            dataSets.add(getDataSet(r.getRecord()));
+            writables.add(r.getRecord());
             meta.add(r.getMetaData());
         }
 
-        if (dataSets.isEmpty()) {
+        DataSet ret = getDataSet(writables, meta);
+        if (ret == null) {
             return null;
         }
-
-        DataSet ret = DataSet.merge(dataSets);
-        ret.setExampleMetaData(meta);
         last = ret;
         if (preProcessor != null)
             preProcessor.preProcess(ret);
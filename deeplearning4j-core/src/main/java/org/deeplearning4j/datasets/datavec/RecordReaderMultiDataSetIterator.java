@@ -256,7 +256,11 @@ public class RecordReaderMultiDataSetIterator implements MultiDataSetIterator {
     }
 
     private INDArray convertWritables(List<List<Writable>> list, int minValues, SubsetDetails details) {
-        INDArray arr;
+        INDArray arr = convertWritablesBulk(list, minValues, details);
+        if (arr != null)
+            return arr;
+
+        //Element-wise conversion: NDArrayWritables, and anything else the bulk conversion doesn't handle
         if (details.entireReader) {
             if (list.get(0).size() == 1 && list.get(0).get(0) instanceof NDArrayWritable) {
                 //Special case: single NDArrayWritable...
@@ -339,6 +343,19 @@ public class RecordReaderMultiDataSetIterator implements MultiDataSetIterator {
         return arr;
     }
 
+    private INDArray convertWritablesBulk(List<List<Writable>> list, int minValues, SubsetDetails details) {
+        if (details.oneHot) {
+            return WritableBatchConverter.toOneHot(list, minValues, details.subsetStart, details.oneHotNumClasses,
+                            null);
+        } else if (details.entireReader) {
+            int size = list.get(0).size();
+            return WritableBatchConverter.toMatrix(list, minValues, size, 0, size - 1, -1, -1);
+        } else {
+            return WritableBatchConverter.toMatrix(list, minValues, -1, details.subsetStart,
+                            details.subsetEndInclusive, -1, -1);
+        }
+    }
+
     private void putExample(INDArray arr, INDArray singleExample, int exampleIdx) {
         switch (arr.rank()) {
             case 2:
@@ -364,39 +381,54 @@ public class RecordReaderMultiDataSetIterator implements MultiDataSetIterator {
                     int maxTSLength, SubsetDetails details, int[] longestSequence) {
         if (maxTSLength == -1)
             maxTSLength = list.get(0).size();
-        INDArray arr;
-        if (details.entireReader) {
-            int size = list.get(0).iterator().next().size();
-            arr = Nd4j.create(new int[] {minValues, size, maxTSLength}, 'f');
-        } else if (details.oneHot)
-            arr = Nd4j.create(new int[] {minValues, details.oneHotNumClasses, maxTSLength}, 'f');
-        else
-            arr = Nd4j.create(new int[] {minValues, details.subsetEndInclusive - details.subsetStart + 1, maxTSLength},
-                            'f');
+
+        //Offsets for alignment. Only practical differences between the modes are: (a) offset, and (b) masking
+        int[] startOffsets = new int[minValues];
+        if (alignmentMode == AlignmentMode.ALIGN_END) {
+            for (int i = 0; i < minValues; i++)
+                startOffsets[i] = longestSequence[i] - list.get(i).size();
+        }
 
         boolean needMaskArray = false;
         for (List<List<Writable>> c : list) {
             if (c.size() < maxTSLength)
                 needMaskArray = true;
         }
-        INDArray maskArray;
-        if (needMaskArray)
-            maskArray = Nd4j.ones(minValues, maxTSLength);
-        else
-            maskArray = null;
+        INDArray maskArray = null;
+        if (needMaskArray) {
+            //Mask out padding: time steps at the start (for align end) or at the end (for align start)
+            int[] maskFrom = new int[minValues];
+            int[] maskTo = new int[minValues];
+            for (int i = 0; i < minValues; i++) {
+                maskFrom[i] = (alignmentMode == AlignmentMode.ALIGN_END ? startOffsets[i] : 0);
+                maskTo[i] = (alignmentMode == AlignmentMode.ALIGN_START ? list.get(i).size() : maxTSLength);
+            }
+            maskArray = WritableBatchConverter.sequenceMask(minValues, maxTSLength, maskFrom, maskTo);
+        }
+
+        INDArray arr;
+        int nColumns;
+        if (details.entireReader) {
+            nColumns = list.get(0).iterator().next().size();
+            arr = WritableBatchConverter.toSequenceArray(list, minValues, maxTSLength, startOffsets, nColumns, 0,
+                            nColumns - 1);
+        } else if (details.oneHot) {
+            nColumns = details.oneHotNumClasses;
+            arr = WritableBatchConverter.toOneHotSequenceArray(list, minValues, maxTSLength, startOffsets,
+                            details.subsetStart, details.oneHotNumClasses);
+        } else {
+            nColumns = details.subsetEndInclusive - details.subsetStart + 1;
+            arr = WritableBatchConverter.toSequenceArray(list, minValues, maxTSLength, startOffsets, -1,
+                            details.subsetStart, details.subsetEndInclusive);
+        }
+        if (arr != null)
+            return new Pair<>(arr, maskArray);
+        arr = Nd4j.create(new int[] {minValues, nColumns, maxTSLength}, 'f');
 
+        //Element-wise conversion: NDArrayWritables, and anything else the bulk conversion doesn't handle
         for (int i = 0; i < minValues; i++) {
             List<List<Writable>> sequence = list.get(i);
-
-            //Offset for alignment:
-            int startOffset;
-            if (alignmentMode == AlignmentMode.ALIGN_START || alignmentMode == AlignmentMode.EQUAL_LENGTH) {
-                startOffset = 0;
-            } else {
-                //Align end
-                //Only practical differences here are: (a) offset, and (b) masking
-                startOffset = longestSequence[i] - sequence.size();
-            }
+            int startOffset = startOffsets[i];
 
             int t = 0;
             int k;
@@ -459,26 +491,8 @@ public class RecordReaderMultiDataSetIterator implements MultiDataSetIterator {
                     }
                 }
             }
-
-            //For any remaining time steps: set mask array to 0 (just padding)
-            if (needMaskArray) {
-                //Masking array entries at start (for align end)
-                if (alignmentMode == AlignmentMode.ALIGN_END) {
-                    for (int t2 = 0; t2 < startOffset; t2++) {
-                        maskArray.putScalar(i, t2, 0.0);
-                    }
-                }
-
-                //Masking array entries at end (for align start)
-                if (alignmentMode == AlignmentMode.ALIGN_START) {
-                    for (int t2 = t; t2 < maxTSLength; t2++) {
-                        maskArray.putScalar(i, t2, 0.0);
-                    }
-                }
-            }
         }
 
-
         return new Pair<>(arr, maskArray);
     }
 
@@ -0,0 +1,314 @@
+/*-
+ *
+ *  * Copyright 2017 Skymind,Inc.
+ *  *
+ *  *    Licensed under the Apache License, Version 2.0 (the "License");
+ *  *    you may not use this file except in compliance with the License.
+ *  *    You may obtain a copy of the License at
+ *  *
+ *  *        http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  *    Unless required by applicable law or agreed to in writing, software
+ *  *    distributed under the License is distributed on an "AS IS" BASIS,
+ *  *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *    See the License for the specific language governing permissions and
+ *  *    limitations under the License.
+ *
+ */
+
+package org.deeplearning4j.datasets.datavec;
+
+import org.datavec.api.io.WritableConverter;
+import org.datavec.api.io.converters.WritableConverterException;
+import org.datavec.api.writable.Text;
+import org.datavec.api.writable.Writable;
+import org.datavec.common.data.NDArrayWritable;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bulk conversion of minibatches of records (lists of scalar {@link Writable}s) to INDArrays.<br>
+ * Values are written to a primitive array (float or double, as per {@link Nd4j#dataType()}) that is then wrapped in
+ * a single INDArray, rather than setting each value of the array via putScalar. For large minibatches, records are
+ * converted in parallel.<br>
+ * The conversion methods return null if the records can't be converted in bulk: non-scalar (NDArrayWritable) values,
+ * empty values, records of unexpected length or out of range class indices. Callers should then fall back to their
+ * element-wise conversion, which handles (or reports) these cases.
+ *
+ * @see RecordReaderDataSetIterator
+ * @see RecordReaderMultiDataSetIterator
+ */
+class WritableBatchConverter {
+
+    /** Minimum number of values in the minibatch before records are converted in parallel */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static ForkJoinPool pool;
+
+    private WritableBatchConverter() {}
+
+    /**
+     * Convert the given columns of the first nRows records to a [nRows, nColumns] matrix ('c' order)
+     *
+     * @param records        Records to convert
+     * @param nRows          Number of records to convert
+     * @param recordLength   Required length of each record, or -1 if records may have any length (> colToInclusive)
+     * @param colFrom        First column to convert
+     * @param colToInclusive Last column to convert, inclusive
+     * @param skipFrom       First column in the range to leave out of the matrix (for example, labels), or -1 if none
+     * @param skipToInclusive Last column in the range to leave out of the matrix, inclusive
+     * @return The matrix, or null if the records can't be converted in bulk
+     */
+    static INDArray toMatrix(final List<List<Writable>> records, int nRows, final int recordLength,
+                    final int colFrom, final int colToInclusive, final int skipFrom, final int skipToInclusive) {
+        int nSkip = skipFrom < 0 ? 0 : Math.min(skipToInclusive, colToInclusive) - Math.max(skipFrom, colFrom) + 1;
+        final int nCols = colToInclusive - colFrom + 1 - Math.max(0, nSkip);
+        if (nRows <= 0 || nCols <= 0 || records.size() < nRows)
+            return null;
+
+        final Buffer buffer = new Buffer(nRows * nCols);
+        boolean converted = convert(new RowConversion() {
+            @Override
+            boolean convertRows(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    List<Writable> record = records.get(i);
+                    if (record.size() <= colToInclusive || (recordLength >= 0 && record.size() != recordLength))
+                        return false;
+                    Iterator<Writable> iter = record.iterator();
+                    for (int j = 0; j < colFrom; j++)
+                        iter.next();
+                    int idx = i * nCols;
+                    for (int j = colFrom; j <= colToInclusive; j++) {
+                        Writable w = iter.next();
+                        if (j >= skipFrom && j <= skipToInclusive)
+                            continue;
+                        if (!isScalar(w))
+                            return false;
+                        buffer.put(idx++, w.toDouble());
+                    }
+                }
+                return true;
+            }
+        }, nRows, nCols);
+
+        return converted ? buffer.toArray(new int[] {nRows, nCols}, 'c') : null;
+    }
+
+    /**
+     * Convert the class index in the given column of the first nRows records to a one-hot [nRows, numClasses] matrix
+     *
+     * @param converter Converter to apply to the class index writable before conversion. May be null
+     * @return The matrix, or null if the records can't be converted in bulk
+     */
+    static INDArray toOneHot(List<List<Writable>> records, int nRows, int column, int numClasses,
+                    WritableConverter converter) {
+        if (nRows <= 0 || numClasses <= 0 || records.size() < nRows)
+            return null;
+
+        //Only one value per record: not worth converting in parallel. This also means the converter needn't be thread safe
+        Buffer buffer = new Buffer(nRows * numClasses);
+        for (int i = 0; i < nRows; i++) {
+            List<Writable> record = records.get(i);
+            if (record.size() <= column)
+                return null;
+            Writable w = record.get(column);
+            if (converter != null) {
+                try {
+                    w = converter.convert(w);
+                } catch (WritableConverterException e) {
+                    return null;
+                }
+            }
+            if (!isScalar(w))
+                return null;
+            int classIdx = w.toInt();
+            if (classIdx < 0 || classIdx >= numClasses)
+                return null;
+            buffer.put(i * numClasses + classIdx, 1.0);
+        }
+        return buffer.toArray(new int[] {nRows, numClasses}, 'c');
+    }
+
+    /**
+     * Convert the given columns of the first nExamples sequences to a [nExamples, nColumns, maxTSLength] array ('f'
+     * order). Time step t of example i is placed at time step startOffsets[i] + t; any other time steps are zero.
+     *
+     * @param recordLength Required length of each time step, or -1 if time steps may have any length (> colToInclusive)
+     * @return The array, or null if the sequences can't be converted in bulk
+     */
+    static INDArray toSequenceArray(List<List<List<Writable>>> sequences, int nExamples, int maxTSLength,
+                    int[] startOffsets, int recordLength, int colFrom, int colToInclusive) {
+        return toSequenceArray(sequences, nExamples, maxTSLength, startOffsets, recordLength, colFrom,
+                        colToInclusive, -1);
+    }
+
+    /**
+     * Convert the class index in the given column of the first nExamples sequences to a one-hot
+     * [nExamples, numClasses, maxTSLength] array ('f' order), with time steps placed as per
+     * {@link #toSequenceArray(List, int, int, int[], int, int, int)}
+     *
+     * @return The array, or null if the sequences can't be converted in bulk
+     */
+    static INDArray toOneHotSequenceArray(List<List<List<Writable>>> sequences, int nExamples, int maxTSLength,
+                    int[] startOffsets, int column, int numClasses) {
+        if (numClasses <= 0)
+            return null;
+        return toSequenceArray(sequences, nExamples, maxTSLength, startOffsets, -1, column, column, numClasses);
+    }
+
+    private static INDArray toSequenceArray(final List<List<List<Writable>>> sequences, final int nExamples,
+                    final int maxTSLength, final int[] startOffsets, final int recordLength, final int colFrom,
+                    final int colToInclusive, final int oneHotNumClasses) {
+        final boolean oneHot = oneHotNumClasses > 0;
+        final int nCols = oneHot ? oneHotNumClasses : colToInclusive - colFrom + 1;
+        if (nExamples <= 0 || nCols <= 0 || maxTSLength <= 0 || sequences.size() < nExamples)
+            return null;
+
+        final Buffer buffer = new Buffer(nExamples * nCols * maxTSLength);
+        boolean converted = convert(new RowConversion() {
+            @Override
+            boolean convertRows(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    int k = startOffsets[i];
+                    if (k < 0 || k + sequences.get(i).size() > maxTSLength)
+                        return false;
+                    for (List<Writable> timeStep : sequences.get(i)) {
+                        if (timeStep.size() <= colToInclusive
+                                        || (recordLength >= 0 && timeStep.size() != recordLength))
+                            return false;
+                        Iterator<Writable> iter = timeStep.iterator();
+                        for (int j = 0; j < colFrom; j++)
+                            iter.next();
+                        //'f' order: index of [i, j, k] is i + nExamples * (j + nCols * k)
+                        int base = i + nExamples * nCols * k;
+                        if (oneHot) {
+                            Writable w = iter.next();
+                            if (!isScalar(w))
+                                return false;
+                            int classIdx = w.toInt();
+                            if (classIdx < 0 || classIdx >= nCols)
+                                return false;
+                            buffer.put(base + nExamples * classIdx, 1.0);
+                        } else {
+                            for (int j = 0; j < nCols; j++) {
+                                Writable w = iter.next();
+                                if (!isScalar(w))
+                                    return false;
+                                buffer.put(base + nExamples * j, w.toDouble());
+                            }
+                        }
+                        k++;
+                    }
+                }
+                return true;
+            }
+        }, nExamples, nCols * maxTSLength);
+
+        return converted ? buffer.toArray(new int[] {nExamples, nCols, maxTSLength}, 'f') : null;
+    }
+
+    /**
+     * Create a [nExamples, maxTSLength] mask array ('c' order) with ones for time steps maskFrom[i] (inclusive) to
+     * maskTo[i] (exclusive) of each example i, and zeros elsewhere
+     */
+    static INDArray sequenceMask(int nExamples, int maxTSLength, int[] maskFrom, int[] maskTo) {
+        Buffer buffer = new Buffer(nExamples * maxTSLength);
+        for (int i = 0; i < nExamples; i++) {
+            int end = Math.min(maskTo[i], maxTSLength);
+            for (int t = Math.max(maskFrom[i], 0); t < end; t++)
+                buffer.put(i * maxTSLength + t, 1.0);
+        }
+        return buffer.toArray(new int[] {nExamples, maxTSLength}, 'c');
+    }
+
+    private static boolean isScalar(Writable w) {
+        if (w instanceof NDArrayWritable)
+            return false;
+        //Empty values are skipped (not converted to 0) by RecordReaderDataSetIterator
+        return !(w instanceof Text) || ((Text) w).getLength() > 0;
+    }
+
+    private static boolean convert(RowConversion conversion, int nRows, long valuesPerRow) {
+        if (PARALLELISM < 2 || nRows < 2 || nRows * valuesPerRow < PARALLEL_THRESHOLD)
+            return conversion.convertRows(0, nRows);
+        int grain = Math.max(1, nRows / (4 * PARALLELISM));
+        return getPool().invoke(new RowRangeTask(conversion, 0, nRows, grain));
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        //Worker threads of a ForkJoinPool are daemon threads, so the shared pool doesn't need to be shut down
+        if (pool == null)
+            pool = new ForkJoinPool(PARALLELISM);
+        return pool;
+    }
+
+    private abstract static class RowConversion {
+        /**
+         * Convert records [from, to)
+         *
+         * @return false if a record can't be converted in bulk
+         */
+        abstract boolean convertRows(int from, int to);
+    }
+
+    private static class RowRangeTask extends RecursiveTask<Boolean> {
+        private final RowConversion conversion;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        private RowRangeTask(RowConversion conversion, int from, int to, int grain) {
+            this.conversion = conversion;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (to - from <= grain)
+                return conversion.convertRows(from, to);
+            int mid = (from + to) >>> 1;
+            RowRangeTask left = new RowRangeTask(conversion, from, mid, grain);
+            left.fork();
+            boolean right = new RowRangeTask(conversion, mid, to, grain).compute();
+            return left.join() && right;
+        }
+    }
+
+    /**
+     * Zero initialized primitive array of the current nd4j data type
+     */
+    private static class Buffer {
+        private final float[] floats;
+        private final double[] doubles;
+
+        private Buffer(int length) {
+            if (Nd4j.dataType() == DataBuffer.Type.DOUBLE) {
+                floats = null;
+                doubles = new double[length];
+            } else {
+                floats = new float[length];
+                doubles = null;
+            }
+        }
+
+        private void put(int idx, double value) {
+            if (floats != null)
+                floats[idx] = (float) value;
+            else
+                doubles[idx] = value;
+        }
+
+        private INDArray toArray(int[] shape, char order) {
+            return floats != null ? Nd4j.create(floats, shape, order) : Nd4j.create(doubles, shape, order);
+        }
+    }
+}
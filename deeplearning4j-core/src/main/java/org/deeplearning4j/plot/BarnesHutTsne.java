@@ -20,12 +20,11 @@
 package org.deeplearning4j.plot;
 
 
-import com.google.common.util.concurrent.AtomicDouble;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.math3.util.FastMath;
 import org.deeplearning4j.berkeley.Pair;
 import org.deeplearning4j.clustering.sptree.DataPoint;
-import org.deeplearning4j.clustering.sptree.SpTree;
+import org.deeplearning4j.clustering.sptree.FlatSpTree;
 import org.deeplearning4j.clustering.vptree.VPTree;
 import org.deeplearning4j.nn.api.Model;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
@@ -45,12 +44,14 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static org.nd4j.linalg.factory.Nd4j.*;
-import static org.nd4j.linalg.ops.transforms.Transforms.pow;
 import static org.nd4j.linalg.ops.transforms.Transforms.sign;
 
 
@@ -82,17 +83,19 @@ public class BarnesHutTsne implements Model {
     protected INDArray Y;
     private int N;
     private double theta;
-    private INDArray rows;
-    private INDArray cols;
-    private INDArray vals;
+    // sparse input similarities, compressed row storage
+    private int[] rowP;
+    private int[] colP;
+    private double[] valP;
     private String simiarlityFunction = "cosinesimilarity";
     private boolean invert = true;
     private INDArray x;
     private int numDimensions = 0;
     public final static String Y_GRAD = "yIncs";
-    private SpTree tree;
     private INDArray gains;
     private INDArray yIncs;
+    protected int workers = Runtime.getRuntime().availableProcessors();
+    private transient ForkJoinPool pool;
     protected transient IterationListener iterationListener;
 
     public BarnesHutTsne(int numDimensions, String simiarlityFunction, double theta, boolean invert, int maxIter,
@@ -161,89 +164,135 @@ public class BarnesHutTsne implements Model {
      * @return the probabilities of co-occurrence
      */
     public INDArray computeGaussianPerplexity(final INDArray d, double u) {
+        computeInputSimilarities(d, u);
+        return Nd4j.create(valP);
+    }
+
+    /**
+     * Fills sparse input similarities (rowP, colP, valP) with conditional probabilities
+     * over 3 * perplexity nearest neighbours of each point
+     */
+    private void computeInputSimilarities(final INDArray d, final double u) {
         N = d.rows();
 
         final int k = (int) (3 * u);
-        if (u > k)
-            throw new IllegalStateException("Illegal k value " + k + "greater than " + u);
-
-
-        rows = zeros(1, N + 1);
-        cols = zeros(1, N * k);
-        vals = zeros(1, N * k);
+        if (k > N - 1)
+            throw new IllegalStateException("Perplexity " + u + " is too large for " + N + " points");
 
+        rowP = new int[N + 1];
+        colP = new int[N * k];
+        valP = new double[N * k];
         for (int n = 0; n < N; n++)
-            rows.putScalar(n + 1, rows.getDouble(n) + k);
-
-
-        final INDArray beta = ones(N, 1);
+            rowP[n + 1] = rowP[n] + k;
 
         final double logU = FastMath.log(u);
-        VPTree tree = new VPTree(d, simiarlityFunction, invert);
+        final VPTree tree = new VPTree(d, simiarlityFunction, invert, workers);
 
         log.info("Calculating probabilities of data similarities...");
-        for (int i = 0; i < N; i++) {
-            if (i % 500 == 0)
-                log.info("Handled " + i + " records");
-
-            double betaMin = -Double.MAX_VALUE;
-            double betaMax = Double.MAX_VALUE;
-            List<DataPoint> results = new ArrayList<>();
-            tree.search(new DataPoint(i, d.slice(i)), k + 1, results, new ArrayList<Double>());
-            double betas = beta.getDouble(i);
-
-            INDArray cArr = VPTree.buildFromData(results);
-            Pair<INDArray, Double> pair = computeGaussianKernel(cArr, beta.getDouble(i), k);
-            INDArray currP = pair.getFirst();
-            double hDiff = pair.getSecond() - logU;
-            int tries = 0;
-            boolean found = false;
-            //binary search
-            while (!found && tries < 200) {
-                if (hDiff < tolerance && -hDiff < tolerance)
-                    found = true;
-                else {
-                    if (hDiff > 0) {
-                        betaMin = betas;
-
-                        if (betaMax == Double.MAX_VALUE || betaMax == -Double.MAX_VALUE)
-                            betas *= 2;
-                        else
-                            betas = (betas + betaMax) / 2.0;
-                    } else {
-                        betaMax = betas;
-                        if (betaMin == -Double.MAX_VALUE || betaMin == Double.MAX_VALUE)
-                            betas /= 2.0;
-                        else
-                            betas = (betas + betaMin) / 2.0;
+        invoke(N, new RangeFunction() {
+            @Override
+            public double apply(int from, int to) {
+                List<DataPoint> results = new ArrayList<>();
+                List<Double> distances = new ArrayList<>();
+                int[] indices = new int[k + 1];
+                double[] squared = new double[k + 1];
+                double[] currP = new double[k];
+
+                for (int i = from; i < to; i++) {
+                    tree.search(d.getRow(i), k + 1, results, distances);
+
+                    // sort neighbours nearest first, skipping the point itself
+                    int found = 0;
+                    for (int j = 0; j < results.size(); j++) {
+                        int index = results.get(j).getIndex();
+                        if (index == i)
+                            continue;
+
+                        double value = dissimilarity(distances.get(j));
+                        value *= value;
+                        int position = found++;
+                        while (position > 0 && squared[position - 1] > value) {
+                            squared[position] = squared[position - 1];
+                            indices[position] = indices[position - 1];
+                            position--;
+                        }
+                        squared[position] = value;
+                        indices[position] = index;
                     }
 
-                    pair = computeGaussianKernel(cArr, betas, k);
-                    hDiff = pair.getSecond() - logU;
-                    tries++;
-                }
+                    if (found < k)
+                        throw new IllegalStateException("Found only " + found + " neighbours for point " + i);
 
+                    computeRow(squared, k, logU, currP);
+                    int offset = rowP[i];
+                    for (int l = 0; l < k; l++) {
+                        colP[offset + l] = indices[l];
+                        valP[offset + l] = currP[l];
+                    }
+                }
+                return 0.0;
             }
+        });
+    }
 
+    /**
+     * Converts distance returned by VPTree to dissimilarity, smaller values for closer points
+     */
+    private double dissimilarity(double distance) {
+        // VPTree negates distances, when invert is set
+        double value = invert ? -distance : distance;
+        if ("cosinesimilarity".equals(simiarlityFunction))
+            return 1.0 - value;
+        return Math.abs(value);
+    }
 
-            currP.divi(currP.sum(Integer.MAX_VALUE));
-            INDArray indices = Nd4j.create(1, k + 1);
-            for (int j = 0; j < indices.length(); j++) {
-                if (j >= results.size())
-                    break;
-                indices.putScalar(j, results.get(j).getIndex());
+    /**
+     * Binary search for the gaussian kernel precision, which gives required perplexity
+     *
+     * @param squared squared distances to neighbours, nearest first
+     * @param k number of neighbours
+     * @param logU log of perplexity
+     * @param currP normalized probabilities will be put here
+     */
+    private void computeRow(double[] squared, int k, double logU, double[] currP) {
+        double beta = 1.0;
+        double betaMin = -Double.MAX_VALUE;
+        double betaMax = Double.MAX_VALUE;
+        // entropy doesn't depend on distance shift, so nearest distance is subtracted to avoid underflow
+        double shift = squared[0];
+        double sum = 0.0;
+
+        for (int tries = 0; tries < 200; tries++) {
+            sum = 0.0;
+            double h = 0.0;
+            for (int m = 0; m < k; m++) {
+                currP[m] = FastMath.exp(-beta * (squared[m] - shift));
+                sum += currP[m];
+                h += beta * (squared[m] - shift) * currP[m];
             }
-
-            for (int l = 0; l < k; l++) {
-                cols.putScalar(rows.getInt(i) + l, indices.getDouble(l + 1));
-                vals.putScalar(rows.getInt(i) + l, currP.getDouble(l));
+            h = h / sum + FastMath.log(sum);
+
+            double hDiff = h - logU;
+            if (hDiff < tolerance && -hDiff < tolerance)
+                break;
+
+            if (hDiff > 0) {
+                betaMin = beta;
+                if (betaMax == Double.MAX_VALUE)
+                    beta *= 2;
+                else
+                    beta = (beta + betaMax) / 2.0;
+            } else {
+                betaMax = beta;
+                if (betaMin == -Double.MAX_VALUE)
+                    beta /= 2.0;
+                else
+                    beta = (beta + betaMin) / 2.0;
             }
-
-
-
         }
-        return vals;
 
+        for (int m = 0; m < k; m++)
+            currP[m] /= sum;
     }
 
     @Override
@@ -309,86 +358,127 @@ public class BarnesHutTsne implements Model {
      * @return
      */
     public INDArray symmetrized(INDArray rowP, INDArray colP, INDArray valP) {
-        INDArray rowCounts = Nd4j.create(N);
-        for (int n = 0; n < N; n++) {
-            int begin = rowP.getInt(n);
-            int end = rowP.getInt(n + 1);
-            for (int i = begin; i < end; i++) {
-                boolean present = false;
-                for (int m = rowP.getInt(colP.getInt(i)); m < rowP.getInt(colP.getInt(i) + 1); m++)
-                    if (colP.getInt(m) == n) {
-                        present = true;
-                    }
+        N = rowP.length() - 1;
+        symmetrize(rowP.dup('c').data().asInt(), colP.dup('c').data().asInt(), valP.dup('c').data().asDouble());
+        return Nd4j.create(this.valP);
+    }
 
+    /**
+     * Replaces sparse similarities P with (P + P^T) / 2.
+     * Rows of P are sorted by column, and then merged with rows of transposed P.
+     */
+    private void symmetrize(final int[] rowP, final int[] colP, final double[] valP) {
+        final int n = rowP.length - 1;
+
+        // sort each row by column
+        invoke(n, new RangeFunction() {
+            @Override
+            public double apply(int from, int to) {
+                long[] keys = new long[0];
+                double[] values = new double[0];
+                for (int row = from; row < to; row++) {
+                    int begin = rowP[row];
+                    int length = rowP[row + 1] - begin;
+                    if (keys.length < length) {
+                        keys = new long[length];
+                        values = new double[length];
+                    }
 
-                if (present)
-                    rowCounts.putScalar(n, rowCounts.getDouble(n) + 1);
+                    for (int i = 0; i < length; i++)
+                        keys[i] = ((long) colP[begin + i] << 32) | i;
+                    Arrays.sort(keys, 0, length);
 
-                else {
-                    rowCounts.putScalar(n, rowCounts.getDouble(n) + 1);
-                    rowCounts.putScalar(colP.getInt(i), rowCounts.getDouble(colP.getInt(i)) + 1);
+                    System.arraycopy(valP, begin, values, 0, length);
+                    for (int i = 0; i < length; i++) {
+                        colP[begin + i] = (int) (keys[i] >>> 32);
+                        valP[begin + i] = values[(int) keys[i]];
+                    }
                 }
+                return 0.0;
+            }
+        });
+
+        // transposed matrix, rows are sorted since we go over source rows in order
+        final int[] tRowP = new int[n + 1];
+        for (int i = 0; i < rowP[n]; i++)
+            tRowP[colP[i] + 1]++;
+        for (int i = 0; i < n; i++)
+            tRowP[i + 1] += tRowP[i];
+
+        final int[] tColP = new int[rowP[n]];
+        final double[] tValP = new double[rowP[n]];
+        int[] offset = Arrays.copyOf(tRowP, n);
+        for (int row = 0; row < n; row++) {
+            for (int i = rowP[row]; i < rowP[row + 1]; i++) {
+                int position = offset[colP[i]]++;
+                tColP[position] = row;
+                tValP[position] = valP[i];
             }
         }
 
+        // size of union for each row
+        final int[] symRowP = new int[n + 1];
+        invoke(n, new RangeFunction() {
+            @Override
+            public double apply(int from, int to) {
+                for (int row = from; row < to; row++)
+                    symRowP[row + 1] = merge(row, rowP, colP, valP, tRowP, tColP, tValP, null, null, 0);
+                return 0.0;
+            }
+        });
+        for (int i = 0; i < n; i++)
+            symRowP[i + 1] += symRowP[i];
+
+        final int[] symColP = new int[symRowP[n]];
+        final double[] symValP = new double[symRowP[n]];
+        invoke(n, new RangeFunction() {
+            @Override
+            public double apply(int from, int to) {
+                for (int row = from; row < to; row++)
+                    merge(row, rowP, colP, valP, tRowP, tColP, tValP, symColP, symValP, symRowP[row]);
+                return 0.0;
+            }
+        });
 
-        int numElements = rowCounts.sum(Integer.MAX_VALUE).getInt(0);
-        INDArray offset = Nd4j.create(N);
-        INDArray symRowP = Nd4j.create(N + 1);
-        INDArray symColP = Nd4j.create(numElements);
-        INDArray symValP = Nd4j.create(numElements);
-
-        for (int n = 0; n < N; n++)
-            symRowP.putScalar(n + 1, symRowP.getDouble(n) + rowCounts.getDouble(n));
-
-
-
-        for (int n = 0; n < N; n++) {
-            for (int i = rowP.getInt(n); i < rowP.getInt(n + 1); i++) {
-                boolean present = false;
-                for (int m = rowP.getInt(colP.getInt(i)); m < rowP.getInt(colP.getInt(i)) + 1; m++) {
-                    if (colP.getInt(m) == n) {
-                        present = true;
-                        if (n < colP.getInt(i)) {
-                            // make sure we do not add elements twice
-                            symColP.putScalar(symRowP.getInt(n) + offset.getInt(n), colP.getInt(i));
-                            symColP.putScalar(symRowP.getInt(colP.getInt(i)) + offset.getInt(colP.getInt(i)), n);
-                            symValP.putScalar(symRowP.getInt(n) + offset.getInt(n),
-                                            valP.getDouble(i) + valP.getDouble(m));
-                            symValP.putScalar(symRowP.getInt(colP.getInt(i)) + offset.getInt(colP.getInt(i)),
-                                            valP.getDouble(i) + valP.getDouble(m));
-                        }
-                    }
-                }
-
-                // If (colP[i], n) is not present, there is no addition involved
-                if (!present) {
-                    int colPI = colP.getInt(i);
-                    if (n < colPI) {
-                        symColP.putScalar(symRowP.getInt(n) + offset.getInt(n), colPI);
-                        symColP.putScalar(symRowP.getInt(colP.getInt(i)) + offset.getInt(colPI), n);
-                        symValP.putScalar(symRowP.getInt(n) + offset.getInt(n), valP.getDouble(i));
-                        symValP.putScalar(symRowP.getInt(colPI) + offset.getInt(colPI), valP.getDouble(i));
-                    }
+        this.rowP = symRowP;
+        this.colP = symColP;
+        this.valP = symValP;
+    }
 
-                }
+    /**
+     * Merges sorted row of P with the same row of P^T. Merged values are (p + pT) / 2.
+     * If output arrays are null, only counts entries.
+     *
+     * @return number of entries in merged row
+     */
+    private static int merge(int row, int[] rowP, int[] colP, double[] valP, int[] tRowP, int[] tColP,
+                    double[] tValP, int[] outColP, double[] outValP, int outOffset) {
+        int i = rowP[row];
+        int iEnd = rowP[row + 1];
+        int j = tRowP[row];
+        int jEnd = tRowP[row + 1];
+        int count = 0;
+        while (i < iEnd || j < jEnd) {
+            int column;
+            double value;
+            if (j == jEnd || (i < iEnd && colP[i] < tColP[j])) {
+                column = colP[i];
+                value = valP[i++];
+            } else if (i == iEnd || tColP[j] < colP[i]) {
+                column = tColP[j];
+                value = tValP[j++];
+            } else {
+                column = colP[i];
+                value = valP[i++] + tValP[j++];
+            }
 
-                // Update offsets
-                if (!present || (present && n < colP.getInt(i))) {
-                    offset.putScalar(n, offset.getInt(n) + 1);
-                    int colPI = colP.getInt(i);
-                    if (colPI != n)
-                        offset.putScalar(colPI, offset.getDouble(colPI) + 1);
-                }
+            if (outColP != null) {
+                outColP[outOffset + count] = column;
+                outValP[outOffset + count] = value / 2.0;
             }
+            count++;
         }
-
-        // Divide the result by two
-        symValP.divi(2.0);
-
-
-        return symValP;
-
+        return count;
     }
 
     /**
@@ -459,23 +549,32 @@ public class BarnesHutTsne implements Model {
             }
 
 
-            computeGaussianPerplexity(x, perplexity);
-            vals = symmetrized(rows, cols, vals).divi(vals.sum(Integer.MAX_VALUE));
+            computeInputSimilarities(x, perplexity);
+            symmetrize(rowP, colP, valP);
+
+            double sum = 0.0;
+            for (double value : valP)
+                sum += value;
             //lie about gradient
-            vals.muli(12);
+            for (int i = 0; i < valP.length; i++)
+                valP[i] = valP[i] / sum * 12;
+
             for (int i = 0; i < maxIter; i++) {
-                step(vals, i);
+                update(gradient().getGradientFor(Y_GRAD), Y_GRAD);
 
                 if (i == switchMomentumIteration)
                     momentum = finalMomentum;
                 if (i == stopLyingIteration)
-                    vals.divi(12);
+                    for (int j = 0; j < valP.length; j++)
+                        valP[j] /= 12;
 
 
                 if (iterationListener != null) {
                     iterationListener.iterationDone(this, i);
                 }
-                log.info("Error at iteration " + i + " is " + score());
+                // score costs as much as gradient, so it's computed only from time to time
+                if (i % 50 == 0 || i == maxIter - 1)
+                    log.info("Error at iteration " + i + " is " + score());
             }
         }
     }
@@ -500,8 +599,9 @@ public class BarnesHutTsne implements Model {
     public void update(INDArray gradient, String paramType) {
         INDArray yGrads = gradient;
 
-        gains = gains.add(.2).muli(sign(yGrads)).neqi(sign(yIncs))
-                        .addi(gains.mul(0.8).muli(sign(yGrads)).neqi(sign(yIncs)));
+        // gains grow where gradient sign differs from the previous step direction, and decay otherwise
+        INDArray signChanged = sign(yGrads).neqi(sign(yIncs));
+        gains = gains.add(.2).muli(signChanged).addi(gains.mul(0.8).muli(signChanged.rsub(1.0)));
 
         BooleanIndexing.applyWhere(gains, Conditions.lessThan(minGain), new Value(minGain));
 
@@ -583,32 +683,43 @@ public class BarnesHutTsne implements Model {
 
     @Override
     public double score() {
+        final double[] y = Y.dup('c').data().asDouble();
+        final int n = Y.rows();
+        final int dims = Y.columns();
+        final FlatSpTree tree = new FlatSpTree(y, n, dims);
+
         // Get estimate of normalization term
-        INDArray buff = Nd4j.create(numDimensions);
-        AtomicDouble sum_Q = new AtomicDouble(0.0);
-        for (int n = 0; n < N; n++)
-            tree.computeNonEdgeForces(n, theta, buff, sum_Q);
+        final double sumQ = invoke(n, new RangeFunction() {
+            @Override
+            public double apply(int from, int to) {
+                double[] buff = new double[dims];
+                double sum = 0.0;
+                for (int i = from; i < to; i++)
+                    sum += tree.computeNonEdgeForces(i, theta, buff, 0);
+                return sum;
+            }
+        });
 
         // Loop over all edges to compute t-SNE error
-        double C = .0;
-        INDArray linear = Y;
-        for (int n = 0; n < N; n++) {
-            int begin = rows.getInt(n);
-            int end = rows.getInt(n + 1);
-            int ind1 = n;
-            for (int i = begin; i < end; i++) {
-                int ind2 = cols.getInt(i);
-                buff.assign(linear.slice(ind1));
-                buff.subi(linear.slice(ind2));
-
-                double Q = pow(buff, 2).sum(Integer.MAX_VALUE).getDouble(0);
-                Q = (1.0 / (1.0 + Q)) / sum_Q.doubleValue();
-                C += vals.getDouble(i) * FastMath.log(vals.getDouble(i) + Nd4j.EPS_THRESHOLD)
-                                / (Q + Nd4j.EPS_THRESHOLD);
+        return invoke(n, new RangeFunction() {
+            @Override
+            public double apply(int from, int to) {
+                double c = 0.0;
+                for (int i = from; i < to; i++) {
+                    for (int e = rowP[i]; e < rowP[i + 1]; e++) {
+                        int j = colP[e];
+                        double distance = 0.0;
+                        for (int d = 0; d < dims; d++) {
+                            double diff = y[i * dims + d] - y[j * dims + d];
+                            distance += diff * diff;
+                        }
+                        double q = (1.0 / (1.0 + distance)) / sumQ;
+                        c += valP[e] * FastMath.log((valP[e] + Nd4j.EPS_THRESHOLD) / (q + Nd4j.EPS_THRESHOLD));
+                    }
+                }
+                return c;
             }
-        }
-
-        return C;
+        });
     }
 
     @Override
@@ -691,25 +802,94 @@ public class BarnesHutTsne implements Model {
         if (gains == null)
             gains = ones(Y.shape());
 
-        AtomicDouble sumQ = new AtomicDouble(0);
-        /* Calculate gradient based on barnes hut approximation with positive and negative forces */
-        INDArray posF = Nd4j.create(Y.shape());
-        INDArray negF = Nd4j.create(Y.shape());
-        if (tree == null)
-            tree = new SpTree(Y);
-        tree.computeEdgeForces(rows, cols, vals, N, posF);
+        final double[] y = Y.dup('c').data().asDouble();
+        final int n = Y.rows();
+        final int dims = Y.columns();
+        // points move every iteration, so tree is rebuilt each time
+        final FlatSpTree tree = new FlatSpTree(y, n, dims);
 
-        for (int n = 0; n < N; n++)
-            tree.computeNonEdgeForces(n, theta, negF.slice(n), sumQ);
+        /* Calculate gradient based on barnes hut approximation with positive and negative forces */
+        final double[] posF = new double[y.length];
+        final double[] negF = new double[y.length];
+        double sumQ = invoke(n, new RangeFunction() {
+            @Override
+            public double apply(int from, int to) {
+                double sum = 0.0;
+                for (int i = from; i < to; i++) {
+                    int offset = i * dims;
+                    // attractive forces along edges of input similarity graph
+                    for (int e = rowP[i]; e < rowP[i + 1]; e++) {
+                        int other = colP[e] * dims;
+                        double distance = 0.0;
+                        for (int d = 0; d < dims; d++) {
+                            double diff = y[offset + d] - y[other + d];
+                            distance += diff * diff;
+                        }
+                        double mult = valP[e] / (1.0 + distance);
+                        for (int d = 0; d < dims; d++)
+                            posF[offset + d] += mult * (y[offset + d] - y[other + d]);
+                    }
 
+                    sum += tree.computeNonEdgeForces(i, theta, negF, offset);
+                }
+                return sum;
+            }
+        });
 
-        INDArray dC = posF.subi(negF.divi(sumQ));
+        double[] dC = new double[y.length];
+        for (int i = 0; i < dC.length; i++)
+            dC[i] = posF[i] - negF[i] / sumQ;
 
         Gradient ret = new DefaultGradient();
-        ret.gradientForVariable().put(Y_GRAD, dC);
+        ret.gradientForVariable().put(Y_GRAD, Nd4j.create(dC, Y.shape()));
         return ret;
     }
 
+    /**
+     * Range of points, which is processed by one task
+     */
+    private interface RangeFunction {
+        double apply(int from, int to);
+    }
+
+    private static class RangeTask extends RecursiveTask<Double> {
+        private final RangeFunction function;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        private RangeTask(RangeFunction function, int from, int to, int grain) {
+            this.function = function;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= grain)
+                return function.apply(from, to);
+
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(function, from, middle, grain);
+            left.fork();
+            double right = new RangeTask(function, middle, to, grain).compute();
+            return right + left.join();
+        }
+    }
+
+    /**
+     * Splits range [0, n) between workers, and sums up values returned for each part
+     */
+    private double invoke(int n, RangeFunction function) {
+        if (workers <= 1 || n < 256)
+            return function.apply(0, n);
+
+        if (pool == null)
+            pool = new ForkJoinPool(workers);
+        return pool.invoke(new RangeTask(function, 0, n, Math.max(64, n / (workers * 8))));
+    }
+
     @Override
     public Pair<Gradient, Double> gradientAndScore() {
         return new Pair<>(gradient(), score());
@@ -759,6 +939,7 @@ public class BarnesHutTsne implements Model {
         private boolean invert = true;
         private int numDim = 2;
         private String similarityFunction = "cosinesimilarity";
+        private int workers = Runtime.getRuntime().availableProcessors();
 
         public Builder minGain(double minGain) {
             this.minGain = minGain;
@@ -847,10 +1028,20 @@ public class BarnesHutTsne implements Model {
             return this;
         }
 
+        /**
+         * Number of threads used for neighbour search and gradient computation
+         */
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
         public BarnesHutTsne build() {
-            return new BarnesHutTsne(numDim, similarityFunction, theta, invert, maxIter, realMin, initialMomentum,
-                            finalMomentum, momentum, switchMomentumIteration, normalize, stopLyingIteration, tolerance,
-                            learningRate, useAdaGrad, perplexity, null, minGain);
+            BarnesHutTsne tsne = new BarnesHutTsne(numDim, similarityFunction, theta, invert, maxIter, realMin,
+                            initialMomentum, finalMomentum, momentum, switchMomentumIteration, normalize,
+                            stopLyingIteration, tolerance, learningRate, useAdaGrad, perplexity, null, minGain);
+            tsne.workers = workers;
+            return tsne;
         }
 
     }
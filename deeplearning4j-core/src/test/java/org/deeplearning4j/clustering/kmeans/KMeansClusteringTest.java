@@ -0,0 +1,156 @@
+package org.deeplearning4j.clustering.kmeans;
+
+import org.deeplearning4j.clustering.cluster.Cluster;
+import org.deeplearning4j.clustering.cluster.ClusterSet;
+import org.deeplearning4j.clustering.cluster.Point;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KMeansClusteringTest {
+
+    /**
+     * Gaussian blobs around distant centers
+     */
+    private static INDArray blobs(int clusters, int pointsPerCluster, int dimension, long seed) {
+        Random random = new Random(seed);
+        double[][] data = new double[clusters * pointsPerCluster][dimension];
+        for (int c = 0; c < clusters; c++) {
+            double[] center = new double[dimension];
+            for (int d = 0; d < dimension; d++)
+                center[d] = random.nextDouble() * 100;
+
+            for (int p = 0; p < pointsPerCluster; p++)
+                for (int d = 0; d < dimension; d++)
+                    data[c * pointsPerCluster + p][d] = center[d] + random.nextGaussian();
+        }
+        return Nd4j.create(data);
+    }
+
+    private static double[] row(INDArray matrix, int i) {
+        return matrix.getRow(i).dup().data().asDouble();
+    }
+
+    private static double squaredDistance(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++)
+            sum += (a[i] - b[i]) * (a[i] - b[i]);
+        return sum;
+    }
+
+    /**
+     * Checks that every point is assigned to its nearest center, and returns inertia computed with brute force
+     */
+    private static double checkAssignments(INDArray points, KMeansResult result) {
+        int k = result.getCenters().rows();
+        double[][] centers = new double[k][];
+        for (int j = 0; j < k; j++)
+            centers[j] = row(result.getCenters(), j);
+
+        double inertia = 0.0;
+        int[] sizes = new int[k];
+        for (int i = 0; i < points.rows(); i++) {
+            double[] point = row(points, i);
+            double assigned = squaredDistance(point, centers[result.getAssignments()[i]]);
+            for (int j = 0; j < k; j++)
+                assertTrue(assigned <= squaredDistance(point, centers[j]) + 1e-3);
+            inertia += assigned;
+            sizes[result.getAssignments()[i]]++;
+        }
+
+        assertArrayEquals(sizes, result.getClusterSizes());
+        return inertia;
+    }
+
+    @Test
+    public void testHamerly1() {
+        INDArray points = blobs(8, 500, 10, 12345);
+        MatrixKMeans kMeans = new MatrixKMeans.Builder().clusterCount(8).maxIterations(100).blockSize(333).seed(42)
+                        .build();
+
+        KMeansResult result = kMeans.fit(points);
+        assertTrue(result.getIterations() < 100);
+
+        double inertia = checkAssignments(points, result);
+        assertEquals(inertia, result.getInertia(), inertia * 1e-3);
+
+        // converged exactly, so each center is mean of its points
+        int d = points.columns();
+        double[][] means = new double[8][d];
+        for (int i = 0; i < points.rows(); i++) {
+            double[] point = row(points, i);
+            for (int c = 0; c < d; c++)
+                means[result.getAssignments()[i]][c] += point[c] / result.getClusterSizes()[result.getAssignments()[i]];
+        }
+        for (int j = 0; j < 8; j++)
+            assertArrayEquals(means[j], row(result.getCenters(), j), 1e-3);
+    }
+
+    @Test
+    public void testMiniBatch1() {
+        INDArray points = blobs(5, 2000, 4, 12345);
+
+        KMeansResult exact = new MatrixKMeans.Builder().clusterCount(5).seed(42).build().fit(points);
+        KMeansResult approximate = new MatrixKMeans.Builder().mode(MatrixKMeans.Mode.MINI_BATCH).clusterCount(5)
+                        .maxIterations(200).batchSize(100).seed(42).build().fit(points);
+
+        assertEquals(200, approximate.getIterations());
+        double inertia = checkAssignments(points, approximate);
+        assertEquals(inertia, approximate.getInertia(), inertia * 1e-3);
+
+        // blobs are well separated, so mini-batch result should be close to exact one
+        assertTrue(approximate.getInertia() < exact.getInertia() * 1.1);
+    }
+
+    @Test
+    public void testApplyToPoints1() {
+        INDArray points = blobs(3, 100, 2, 12345);
+        List<Point> list = new ArrayList<>();
+        for (int i = 0; i < points.rows(); i++)
+            list.add(new Point(String.valueOf(i), points.getRow(i).dup()));
+
+        ClusterSet clusterSet = KMeansClustering.setupHamerly(3, 50, "euclidean").applyTo(list);
+        assertEquals(3, clusterSet.getClusterCount());
+
+        int total = 0;
+        for (Cluster cluster : clusterSet.getClusters()) {
+            assertEquals(100, cluster.getPoints().size());
+            total += cluster.getPoints().size();
+        }
+        assertEquals(300, total);
+        assertEquals(300, clusterSet.getPointDistribution().size());
+
+        // points of the same blob end up in the same cluster
+        for (int i = 0; i < 300; i++)
+            assertEquals(clusterSet.getPointDistribution().get(String.valueOf(i / 100 * 100)),
+                            clusterSet.getPointDistribution().get(String.valueOf(i)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedDistance1() {
+        KMeansClustering.setupMiniBatch(3, 10, 100, "manhattan");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testApplyToMatrixWithoutSetup1() {
+        KMeansClustering.setup(3, 10, "euclidean").applyTo(Nd4j.rand(10, 2));
+    }
+
+    @Test
+    public void testDefaultSeed1() {
+        INDArray points = blobs(4, 200, 3, 12345);
+        KMeansResult first = new MatrixKMeans.Builder().mode(MatrixKMeans.Mode.MINI_BATCH).clusterCount(4)
+                        .maxIterations(20).batchSize(50).build().fit(points);
+        KMeansResult second = new MatrixKMeans.Builder().mode(MatrixKMeans.Mode.MINI_BATCH).clusterCount(4)
+                        .maxIterations(20).batchSize(50).build().fit(points);
+
+        assertArrayEquals(first.getAssignments(), second.getAssignments());
+        assertEquals(first.getCenters(), second.getCenters());
+    }
+}
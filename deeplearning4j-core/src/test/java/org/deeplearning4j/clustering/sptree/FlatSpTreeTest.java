@@ -0,0 +1,77 @@
+package org.deeplearning4j.clustering.sptree;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FlatSpTreeTest {
+
+    private static double[] randomPoints(int n, int dimensions, long seed) {
+        Random random = new Random(seed);
+        double[] data = new double[n * dimensions];
+        for (int i = 0; i < data.length; i++)
+            data[i] = random.nextGaussian() * 10;
+        return data;
+    }
+
+    @Test
+    public void testStructure1() {
+        double[] data = randomPoints(1000, 2, 12345);
+        // duplicated point
+        System.arraycopy(data, 0, data, 2, 2);
+
+        FlatSpTree tree = new FlatSpTree(data, 1000, 2);
+        assertTrue(tree.isCorrect());
+        assertEquals(1000, tree.getCumSize());
+
+        double[] mean = new double[2];
+        for (int i = 0; i < 1000; i++)
+            for (int d = 0; d < 2; d++)
+                mean[d] += data[i * 2 + d] / 1000;
+        assertArrayEquals(mean, tree.getCenterOfMass(), 1e-6);
+    }
+
+    @Test
+    public void testExactForces1() {
+        int n = 300;
+        int dimensions = 3;
+        double[] data = randomPoints(n, dimensions, 12345);
+        FlatSpTree tree = new FlatSpTree(data, n, dimensions);
+
+        for (int i = 0; i < n; i += 7) {
+            double[] expectedForce = new double[dimensions];
+            double expectedSumQ = 0.0;
+            for (int j = 0; j < n; j++) {
+                if (j == i)
+                    continue;
+                double distance = 0.0;
+                for (int d = 0; d < dimensions; d++)
+                    distance += (data[i * dimensions + d] - data[j * dimensions + d])
+                                    * (data[i * dimensions + d] - data[j * dimensions + d]);
+                double q = 1.0 / (1.0 + distance);
+                expectedSumQ += q;
+                for (int d = 0; d < dimensions; d++)
+                    expectedForce[d] += q * q * (data[i * dimensions + d] - data[j * dimensions + d]);
+            }
+
+            // theta = 0 visits every leaf, so result is exact
+            double[] force = new double[dimensions + 1];
+            double sumQ = tree.computeNonEdgeForces(i, 0.0, force, 1);
+            assertEquals(expectedSumQ, sumQ, 1e-9);
+            assertEquals(0.0, force[0], 0.0);
+            for (int d = 0; d < dimensions; d++)
+                assertEquals(expectedForce[d], force[d + 1], 1e-9);
+
+            // approximation should stay close
+            double[] approximate = new double[dimensions];
+            assertEquals(expectedSumQ, tree.computeNonEdgeForces(i, 0.5, approximate, 0), expectedSumQ * 0.05);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyDimensions1() {
+        new FlatSpTree(new double[17], 1, 17);
+    }
+}
@@ -0,0 +1,205 @@
+package org.deeplearning4j.clustering.vptree;
+
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MutableVPTreeTest {
+
+    /**
+     * Checks search results against brute force over expected id -> vector map
+     */
+    private static void checkNeighbours(MutableVPTree index, Map<Integer, INDArray> expected, INDArray query, int k) {
+        List<Integer> ids = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        index.search(query, k, ids, distances);
+
+        List<Double> bruteForce = new ArrayList<>();
+        for (INDArray vector : expected.values())
+            bruteForce.add(vector.distance2(query));
+        Collections.sort(bruteForce);
+
+        int expectedSize = Math.min(k, expected.size());
+        assertEquals(expectedSize, ids.size());
+
+        // invert = false, so results go farthest first
+        for (int i = 0; i < expectedSize; i++) {
+            int position = expectedSize - 1 - i;
+            assertEquals(bruteForce.get(position), distances.get(i), 1e-5);
+            assertTrue(expected.containsKey(ids.get(i)));
+            assertEquals(distances.get(i), expected.get(ids.get(i)).distance2(query), 1e-5);
+        }
+    }
+
+    @Test
+    public void testInsertDelete1() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray points = Nd4j.rand(1000, 6);
+
+        // large limits, so rebuilds happen only when we ask for them
+        MutableVPTree index = new MutableVPTree.Builder().invert(false).points(points).maxBufferSize(100000)
+                        .rebuildRatio(100.0).build();
+
+        Map<Integer, INDArray> expected = new HashMap<>();
+        for (int i = 0; i < points.rows(); i++)
+            expected.put(i, points.getRow(i).dup());
+
+        assertEquals(1000, index.size());
+        assertEquals(0, index.pendingSize());
+
+        Random random = new Random(12345);
+        for (int i = 0; i < 300; i++) {
+            int id = random.nextInt(1000);
+            if (expected.remove(id) != null)
+                assertEquals(1, index.delete(id));
+            else
+                assertEquals(0, index.delete(id));
+        }
+
+        int[] added = index.add(Nd4j.rand(200, 6));
+        assertEquals(200, added.length);
+        for (int id : added) {
+            assertTrue(id >= 1000);
+            expected.put(id, index.getVector(id));
+        }
+
+        assertEquals(expected.size(), index.size());
+        for (int q = 0; q < 20; q++)
+            checkNeighbours(index, expected, Nd4j.rand(1, 6), 15);
+
+        index.rebuild();
+        assertEquals(0, index.pendingSize());
+        assertEquals(0, index.deletedSize());
+        assertEquals(expected.size(), index.size());
+        for (int q = 0; q < 20; q++)
+            checkNeighbours(index, expected, Nd4j.rand(1, 6), 15);
+    }
+
+    @Test
+    public void testReplace1() {
+        MutableVPTree index = new MutableVPTree(VPTree.EUCLIDEAN, false);
+        index.insert(0, Nd4j.create(new double[] {0, 0}));
+        index.insert(1, Nd4j.create(new double[] {10, 10}));
+        index.rebuild();
+
+        index.insert(0, Nd4j.create(new double[] {20, 20}));
+        assertEquals(2, index.size());
+
+        List<Integer> ids = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        index.search(Nd4j.create(new double[] {19, 19}), 1, ids, distances);
+        assertEquals(Collections.singletonList(0), ids);
+
+        index.search(Nd4j.create(new double[] {1, 1}), 1, ids, distances);
+        assertEquals(Collections.singletonList(1), ids);
+
+        assertEquals(1, index.delete(0));
+        assertFalse(index.contains(0));
+        assertNull(index.getVector(0));
+
+        index.search(Nd4j.create(new double[] {19, 19}), 5, ids, distances);
+        assertEquals(Collections.singletonList(1), ids);
+    }
+
+    @Test
+    public void testBatchDelete1() {
+        // same default as VPTree
+        assertTrue(new MutableVPTree.Builder().build().isInvert());
+
+        MutableVPTree index = new MutableVPTree(VPTree.EUCLIDEAN, false);
+        for (int i = 0; i < 10; i++)
+            index.insert(i, Nd4j.create(new double[] {i, i}));
+        index.rebuild();
+
+        List<Integer> deleted = new ArrayList<>();
+        assertEquals(3, index.delete(new int[] {1, 3, 42, 5, 3}, deleted));
+        assertEquals(Arrays.asList(1, 3, 5), deleted);
+        assertEquals(7, index.size());
+        assertFalse(index.contains(3));
+        assertTrue(index.contains(4));
+
+        index.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDimensionMismatch1() {
+        MutableVPTree index = new MutableVPTree(VPTree.EUCLIDEAN, false);
+        index.insert(0, Nd4j.create(new double[] {0, 0}));
+        index.insert(1, Nd4j.create(new double[] {0, 0, 0}));
+    }
+
+    @Test
+    public void testConcurrentUpdates1() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        final INDArray points = Nd4j.rand(4000, 4);
+
+        // small buffer, so background rebuilds happen while we insert and search
+        final MutableVPTree index =
+                        new MutableVPTree.Builder().invert(false).maxBufferSize(256).rebuildRatio(0.1).build();
+        final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < points.rows(); i++) {
+                        index.insert(i, points.getRow(i));
+                        if (i % 4 == 3)
+                            index.delete(i - 2);
+                    }
+                } catch (Throwable t) {
+                    exception.set(t);
+                }
+            }
+        });
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<Integer> ids = new ArrayList<>();
+                    List<Double> distances = new ArrayList<>();
+                    Random random = new Random(12345);
+                    for (int i = 0; i < 2000; i++) {
+                        INDArray query = points.getRow(random.nextInt(points.rows()));
+                        index.search(query, 5, ids, distances);
+                        assertEquals(ids.size(), distances.size());
+                        assertTrue(ids.size() <= 5);
+                        for (int j = 1; j < distances.size(); j++)
+                            assertTrue(distances.get(j - 1) >= distances.get(j));
+                    }
+                } catch (Throwable t) {
+                    exception.set(t);
+                }
+            }
+        });
+
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+
+        if (exception.get() != null)
+            throw new RuntimeException(exception.get());
+
+        Map<Integer, INDArray> expected = new HashMap<>();
+        for (int i = 0; i < points.rows(); i++)
+            if (i % 4 != 1)
+                expected.put(i, points.getRow(i));
+
+        assertEquals(expected.size(), index.size());
+        for (int q = 0; q < 20; q++)
+            checkNeighbours(index, expected, Nd4j.rand(1, 4), 10);
+
+        index.rebuild();
+        for (int q = 0; q < 20; q++)
+            checkNeighbours(index, expected, Nd4j.rand(1, 4), 10);
+
+        index.shutdown();
+    }
+}
@@ -18,14 +18,18 @@
 
 package org.deeplearning4j.clustering.vptree;
 
+import org.deeplearning4j.berkeley.PriorityQueue;
 import org.deeplearning4j.clustering.sptree.DataPoint;
+import org.deeplearning4j.clustering.sptree.HeapItem;
 import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Anatoly Borisov
@@ -48,4 +52,184 @@ public class VpTreeNodeTest {
 
     }
 
+
+    /**
+     * Returns indexes of k nearest rows, found with brute force
+     */
+    private static int[] bruteForce(final INDArray points, final INDArray query, int k) {
+        Integer[] order = new Integer[points.rows()];
+        final double[] distances = new double[points.rows()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            distances[i] = points.getRow(i).distance2(query);
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Double.compare(distances[o1], distances[o2]);
+            }
+        });
+
+        int[] result = new int[k];
+        for (int i = 0; i < k; i++)
+            result[i] = order[i];
+        return result;
+    }
+
+    private static void checkNeighbours(VPTree tree, INDArray points, INDArray query, int k) {
+        List<DataPoint> results = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        tree.search(new DataPoint(0, query), k, results, distances);
+
+        int[] expected = bruteForce(points, query, k);
+        assertEquals(k, results.size());
+        for (int i = 0; i < k; i++) {
+            assertEquals(points.getRow(expected[i]).distance2(query), distances.get(i), 1e-5);
+            assertEquals(distances.get(i), points.getRow(results.get(i).getIndex()).distance2(query), 1e-5);
+        }
+    }
+
+    @Test
+    public void testKnnMatchesBruteForce1() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray points = Nd4j.rand(3000, 8);
+
+        List<DataPoint> items = new ArrayList<>();
+        for (int i = 0; i < points.rows(); i++)
+            items.add(new DataPoint(i, points.getRow(i)));
+
+        VPTree tree = new VPTree(items);
+        assertEquals(3000, tree.size());
+
+        for (int q = 0; q < 20; q++)
+            checkNeighbours(tree, points, Nd4j.rand(1, 8), 10);
+    }
+
+    @Test
+    public void testParallelBuild1() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray points = Nd4j.rand(20000, 4);
+
+        List<DataPoint> items = new ArrayList<>();
+        for (int i = 0; i < points.rows(); i++)
+            items.add(new DataPoint(i, points.getRow(i)));
+
+        VPTree tree = new VPTree(items);
+
+        for (int q = 0; q < 10; q++)
+            checkNeighbours(tree, points, Nd4j.rand(1, 4), 5);
+    }
+
+    @Test
+    public void testSingleWorkerBuild1() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray points = Nd4j.rand(20000, 4);
+
+        List<DataPoint> items = new ArrayList<>();
+        for (int i = 0; i < points.rows(); i++)
+            items.add(new DataPoint(i, points.getRow(i)));
+
+        VPTree reference = new VPTree(items);
+        // single worker builds large trees in the calling thread, without forking into the common pool
+        VPTree tree = new VPTree(points, "euclidean", false, 1);
+
+        for (int q = 0; q < 10; q++) {
+            INDArray query = Nd4j.rand(1, 4);
+            checkNeighbours(reference, points, query, 5);
+
+            List<DataPoint> expected = new ArrayList<>();
+            reference.search(new DataPoint(0, query), 5, expected, new ArrayList<Double>());
+            List<DataPoint> results = new ArrayList<>();
+            tree.search(query, 5, results, new ArrayList<Double>());
+
+            // without invert flag, results go out farthest first
+            Collections.reverse(results);
+            assertEquals(expected.size(), results.size());
+            for (int i = 0; i < expected.size(); i++)
+                assertEquals(expected.get(i).getIndex(), results.get(i).getIndex());
+        }
+    }
+
+    @Test
+    public void testConcurrentSearch1() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        final INDArray points = Nd4j.rand(5000, 6);
+        final INDArray queries = Nd4j.rand(64, 6);
+
+        List<DataPoint> items = new ArrayList<>();
+        for (int i = 0; i < points.rows(); i++)
+            items.add(new DataPoint(i, points.getRow(i)));
+
+        final VPTree tree = new VPTree(items);
+
+        // sequential results are the reference
+        final int[][] expected = new int[queries.rows()][];
+        for (int q = 0; q < queries.rows(); q++) {
+            List<DataPoint> results = new ArrayList<>();
+            tree.search(queries.getRow(q), 7, results, new ArrayList<Double>());
+            expected[q] = new int[results.size()];
+            for (int i = 0; i < results.size(); i++)
+                expected[q][i] = results.get(i).getIndex();
+        }
+
+        final AtomicInteger failures = new AtomicInteger(0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int r = 0; r < 5; r++) {
+                        for (int q = 0; q < queries.rows(); q++) {
+                            List<DataPoint> results = new ArrayList<>();
+                            tree.search(queries.getRow(q), 7, results, new ArrayList<Double>());
+                            for (int i = 0; i < results.size(); i++)
+                                if (results.get(i).getIndex() != expected[q][i])
+                                    failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void testDeprecatedApi1() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray points = Nd4j.rand(500, 3);
+
+        List<DataPoint> items = new ArrayList<>();
+        for (int i = 0; i < points.rows(); i++)
+            items.add(new DataPoint(i, points.getRow(i)));
+
+        // setItems rebuilds the tree over new points
+        VPTree tree = new VPTree(Nd4j.rand(10, 3));
+        tree.setItems(items);
+        assertEquals(500, tree.size());
+        checkNeighbours(tree, points, Nd4j.rand(1, 3), 5);
+        assertTrue(tree.getDistances().isEmpty());
+
+        // explicit nodes still can be searched, their indexes point to tree items
+        List<DataPoint> three = new ArrayList<>();
+        three.add(new DataPoint(0, Nd4j.create(new double[] {55, 55})));
+        three.add(new DataPoint(1, Nd4j.create(new double[] {60, 60})));
+        three.add(new DataPoint(2, Nd4j.create(new double[] {65, 65})));
+        VPTree small = new VPTree(three);
+
+        VPTree.Node root = new VPTree.Node(1, 7.1);
+        root.setLeft(new VPTree.Node(0, 0.0));
+        root.setRight(new VPTree.Node(2, 0.0));
+
+        PriorityQueue<HeapItem> pq = new PriorityQueue<>();
+        small.search(root, new DataPoint(0, Nd4j.create(new double[] {50, 50})), 1, pq);
+        assertEquals(1, pq.size());
+        assertEquals(0, pq.peek().getIndex());
+    }
+
 }
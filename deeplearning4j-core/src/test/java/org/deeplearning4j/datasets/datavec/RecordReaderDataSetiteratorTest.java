@@ -32,6 +32,7 @@ import org.datavec.api.split.FileSplit;
 import org.datavec.api.split.NumberedFileInputSplit;
 import org.datavec.api.writable.DoubleWritable;
 import org.datavec.api.writable.IntWritable;
+import org.datavec.api.writable.Text;
 import org.datavec.api.writable.Writable;
 import org.datavec.common.data.NDArrayWritable;
 import org.deeplearning4j.datasets.datavec.exception.ZeroLengthSequenceException;
@@ -43,6 +44,7 @@ import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.io.ClassPathResource;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 
@@ -1001,6 +1003,59 @@ public class RecordReaderDataSetiteratorTest {
     }
 
 
+    @Test
+    public void testRecordReaderBulkConversion() {
+        //Large enough minibatches for the records to be converted in parallel, and a smaller one
+        Random r = new Random(12345);
+        int nFeatures = 300;
+        int nClasses = 10;
+        for (int batchSize : new int[] {256, 5}) {
+            Collection<Collection<Writable>> data = new ArrayList<>();
+            INDArray expFeatures = Nd4j.create(batchSize, nFeatures);
+            INDArray expLabels = Nd4j.create(batchSize, nClasses);
+            INDArray expRegressionLabels = Nd4j.create(batchSize, 2);
+            for (int i = 0; i < batchSize; i++) {
+                List<Writable> record = new ArrayList<>();
+                for (int j = 0; j < nFeatures; j++) {
+                    double d = r.nextDouble();
+                    //Mix of writable types, as from a CSV record reader and from a transform process
+                    record.add(j % 2 == 0 ? new DoubleWritable(d) : new Text(String.valueOf(d)));
+                    expFeatures.putScalar(i, j, d);
+                }
+                int label = r.nextInt(nClasses);
+                record.add(new IntWritable(label));
+                expLabels.putScalar(i, label, 1.0);
+                expRegressionLabels.putScalar(i, 0, record.get(nFeatures - 1).toDouble());
+                expRegressionLabels.putScalar(i, 1, label);
+                data.add(record);
+            }
+
+            DataSet ds = new RecordReaderDataSetIterator(new CollectionRecordReader(data), batchSize, nFeatures,
+                            nClasses).next();
+            assertEquals(expFeatures, ds.getFeatures());
+            assertEquals(expLabels, ds.getLabels());
+
+            ds = new RecordReaderDataSetIterator(new CollectionRecordReader(data), batchSize, nFeatures - 1,
+                            nFeatures, true).next();
+            assertEquals(expFeatures.get(NDArrayIndex.all(), NDArrayIndex.interval(0, nFeatures - 1)),
+                            ds.getFeatures());
+            assertEquals(expRegressionLabels, ds.getLabels());
+        }
+    }
+
+    @Test
+    public void testRecordReaderInvalidRecordSkipped() {
+        Collection<Collection<Writable>> data = new ArrayList<>();
+        data.add(Arrays.<Writable>asList(new DoubleWritable(0), new DoubleWritable(1), new IntWritable(0)));
+        data.add(Arrays.<Writable>asList(new DoubleWritable(2), new DoubleWritable(3), new IntWritable(5)));
+        data.add(Arrays.<Writable>asList(new DoubleWritable(4), new DoubleWritable(5), new IntWritable(1)));
+
+        //Label value 5 is invalid for 2 classes: the second example is skipped, as with element-wise conversion
+        DataSet ds = new RecordReaderDataSetIterator(new CollectionRecordReader(data), 3, 2, 2).next();
+        assertEquals(Nd4j.create(new double[][] {{0, 1}, {4, 5}}), ds.getFeatures());
+        assertEquals(Nd4j.create(new double[][] {{1, 0}, {0, 1}}), ds.getLabels());
+    }
+
     @Test
     @Ignore
     public void specialRRTest4() throws Exception {
@@ -9,11 +9,17 @@ import org.datavec.api.io.labels.ParentPathLabelGenerator;
 import org.datavec.api.records.metadata.RecordMetaData;
 import org.datavec.api.records.reader.RecordReader;
 import org.datavec.api.records.reader.SequenceRecordReader;
+import org.datavec.api.records.reader.impl.collection.CollectionRecordReader;
+import org.datavec.api.records.reader.impl.collection.CollectionSequenceRecordReader;
 import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
 import org.datavec.api.records.reader.impl.csv.CSVSequenceRecordReader;
 import org.datavec.api.split.FileSplit;
 import org.datavec.api.split.InputSplit;
 import org.datavec.api.split.NumberedFileInputSplit;
+import org.datavec.api.writable.DoubleWritable;
+import org.datavec.api.writable.IntWritable;
+import org.datavec.api.writable.Text;
+import org.datavec.api.writable.Writable;
 import org.datavec.image.recordreader.ImageRecordReader;
 import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -21,11 +27,12 @@ import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.io.ClassPathResource;
 
 import java.io.*;
-import java.util.Random;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -546,6 +553,83 @@ public class RecordReaderMultiDataSetIteratorTest {
         }
     }
 
+    @Test
+    public void testBulkConversion() throws Exception {
+        //Large enough minibatches for the records to be converted in parallel
+        Random r = new Random(12345);
+        int batchSize = 64;
+        int nFeatures = 60;
+        int nClasses = 5;
+        int maxLength = 20;
+
+        Collection<Collection<Writable>> data = new ArrayList<>();
+        Collection<Collection<Collection<Writable>>> sequences = new ArrayList<>();
+        Collection<Collection<Collection<Writable>>> sequenceLabels = new ArrayList<>();
+        INDArray expFeatures = Nd4j.create(batchSize, nFeatures);
+        INDArray expLabels = Nd4j.create(batchSize, nClasses);
+        INDArray expSeqFeatures = Nd4j.create(new int[] {batchSize, nFeatures, maxLength}, 'f');
+        INDArray expSeqLabelsAlignEnd = Nd4j.create(new int[] {batchSize, nClasses, maxLength}, 'f');
+        INDArray expFeaturesMask = Nd4j.create(batchSize, maxLength);
+        INDArray expLabelsMaskAlignStart = Nd4j.create(batchSize, maxLength);
+        for (int i = 0; i < batchSize; i++) {
+            List<Writable> record = new ArrayList<>();
+            for (int j = 0; j < nFeatures; j++) {
+                double d = r.nextDouble();
+                record.add(j % 2 == 0 ? new DoubleWritable(d) : new Text(String.valueOf(d)));
+                expFeatures.putScalar(i, j, d);
+            }
+            int label = r.nextInt(nClasses);
+            record.add(new IntWritable(label));
+            expLabels.putScalar(i, label, 1.0);
+            data.add(record);
+
+            //Variable length sequences, with a single label at the end
+            int length = (i == 0 ? maxLength : 1 + r.nextInt(maxLength));
+            List<Collection<Writable>> sequence = new ArrayList<>();
+            for (int t = 0; t < length; t++) {
+                List<Writable> step = new ArrayList<>();
+                for (int j = 0; j < nFeatures; j++) {
+                    double d = r.nextDouble();
+                    step.add(new DoubleWritable(d));
+                    expSeqFeatures.putScalar(new int[] {i, j, t}, d);
+                }
+                sequence.add(step);
+                expFeaturesMask.putScalar(i, t, 1.0);
+            }
+            sequences.add(sequence);
+            sequenceLabels.add(Collections.<Collection<Writable>>singletonList(
+                            Collections.<Writable>singletonList(new IntWritable(label))));
+            expSeqLabelsAlignEnd.putScalar(new int[] {i, label, length - 1}, 1.0);
+            expLabelsMaskAlignStart.putScalar(i, 0, 1.0);
+        }
+
+        MultiDataSetIterator iter = new RecordReaderMultiDataSetIterator.Builder(batchSize)
+                        .addReader("reader", new CollectionRecordReader(data)).addInput("reader", 0, nFeatures - 1)
+                        .addInput("reader").addOutputOneHot("reader", nFeatures, nClasses).build();
+        MultiDataSet mds = iter.next();
+        assertEquals(expFeatures, mds.getFeatures(0));
+        assertEquals(expFeatures, mds.getFeatures(1).get(NDArrayIndex.all(), NDArrayIndex.interval(0, nFeatures)));
+        assertEquals(expLabels, mds.getLabels(0));
+
+        for (RecordReaderMultiDataSetIterator.AlignmentMode mode : new RecordReaderMultiDataSetIterator.AlignmentMode[] {
+                        RecordReaderMultiDataSetIterator.AlignmentMode.ALIGN_START,
+                        RecordReaderMultiDataSetIterator.AlignmentMode.ALIGN_END}) {
+            iter = new RecordReaderMultiDataSetIterator.Builder(batchSize)
+                            .addSequenceReader("features", new CollectionSequenceRecordReader(sequences))
+                            .addSequenceReader("labels", new CollectionSequenceRecordReader(sequenceLabels))
+                            .addInput("features").addOutputOneHot("labels", 0, nClasses).sequenceAlignmentMode(mode)
+                            .build();
+            mds = iter.next();
+            assertEquals(expSeqFeatures, mds.getFeatures(0));
+            if (mode == RecordReaderMultiDataSetIterator.AlignmentMode.ALIGN_START) {
+                assertEquals(expFeaturesMask, mds.getFeaturesMaskArray(0));
+                assertEquals(expLabelsMaskAlignStart, mds.getLabelsMaskArray(0));
+            } else {
+                assertEquals(expSeqLabelsAlignEnd, mds.getLabels(0));
+            }
+        }
+    }
+
     @Test
     public void testImagesRRDMSI_Batched() throws Exception {
         File parentDir = Files.createTempDir();
@@ -10,16 +10,18 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
 import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
 import org.nd4j.linalg.factory.Nd4j;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author raver119@gmail.com
@@ -112,6 +114,93 @@ public class AsyncDataSetIteratorTest {
 
 
 
+    @Test
+    public void testParallelPrefetchOrdered() throws Exception {
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < TEST_SIZE; i++) {
+            list.add(new DataSet(Nd4j.valueArrayOf(1, 10, i), Nd4j.valueArrayOf(1, 2, i)));
+        }
+        ExistingDataSetIterator base = new ExistingDataSetIterator(list);
+        SlowPreProcessor preProcessor = new SlowPreProcessor();
+        base.setPreProcessor(preProcessor);
+
+        AsyncDataSetIterator iterator = new AsyncDataSetIterator(base, 4, true, 4, true);
+        assertEquals(preProcessor, iterator.getPreProcessor());
+        for (int e = 0; e < 3; e++) {
+            int cnt = 0;
+            while (iterator.hasNext()) {
+                DataSet ds = iterator.next();
+                //Pre processor (adds 0.5, in place) is applied once per epoch, and order is preserved
+                assertEquals("Epoch " + e, cnt + 0.5 * (e + 1), ds.getFeatures().meanNumber().doubleValue(), 1e-6);
+                assertEquals("Epoch " + e, cnt, ds.getLabels().meanNumber().doubleValue(), 1e-6);
+                cnt++;
+            }
+            assertEquals(TEST_SIZE, cnt);
+            iterator.reset();
+        }
+        iterator.shutdown();
+
+        assertEquals(3 * TEST_SIZE, preProcessor.count.get());
+        //Pre processor is handed back to the underlying iterator
+        assertEquals(preProcessor, base.getPreProcessor());
+        assertTrue(iterator.getConsumerStallTimeMs() >= 0);
+    }
+
+    @Test
+    public void testParallelPrefetchUnordered() throws Exception {
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < TEST_SIZE; i++) {
+            list.add(new DataSet(Nd4j.valueArrayOf(1, 10, i), Nd4j.valueArrayOf(1, 2, i)));
+        }
+        ExistingDataSetIterator base = new ExistingDataSetIterator(list);
+        base.setPreProcessor(new SlowPreProcessor());
+
+        AsyncDataSetIterator iterator = new AsyncDataSetIterator(base, 8, false, 3, false);
+        boolean[] seen = new boolean[TEST_SIZE];
+        int cnt = 0;
+        while (iterator.hasNext()) {
+            DataSet ds = iterator.next();
+            int idx = (int) ds.getLabels().getDouble(0);
+            assertFalse(seen[idx]);
+            seen[idx] = true;
+            assertEquals(idx + 0.5, ds.getFeatures().getDouble(0), 1e-6);
+            cnt++;
+        }
+        assertEquals(TEST_SIZE, cnt);
+        iterator.shutdown();
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testParallelPrefetchWithException() {
+        ExistingDataSetIterator crashingIterator = new ExistingDataSetIterator(new IterableWithException(100));
+        AsyncDataSetIterator iterator = new AsyncDataSetIterator(crashingIterator, 8, true, 4, true);
+
+        TestDataSetConsumer consumer = new TestDataSetConsumer(iterator, EXECUTION_SMALL);
+        consumer.consumeWhileHasNext(true);
+        iterator.shutdown();
+    }
+
+    private static class SlowPreProcessor implements DataSetPreProcessor {
+        private final AtomicInteger count = new AtomicInteger(0);
+        private final Random random = new Random(12345);
+
+        @Override
+        public void preProcess(org.nd4j.linalg.dataset.api.DataSet toPreProcess) {
+            int sleep;
+            synchronized (random) {
+                sleep = random.nextInt(3);
+            }
+            try {
+                //Finish out of order
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            toPreProcess.getFeatures().addi(0.5);
+            count.incrementAndGet();
+        }
+    }
+
     private class IterableWithException implements Iterable<DataSet> {
         private final AtomicLong counter = new AtomicLong(0);
         private final int crashIteration;
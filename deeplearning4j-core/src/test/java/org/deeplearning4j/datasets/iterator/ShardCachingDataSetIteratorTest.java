@@ -0,0 +1,189 @@
+package org.deeplearning4j.datasets.iterator;
+
+import org.deeplearning4j.datasets.iterator.impl.ListDataSetIterator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ShardCachingDataSetIteratorTest {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    private static List<DataSet> getSequenceData(int nBatches) {
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < nBatches; i++) {
+            INDArray f = Nd4j.rand(new int[] {3, 4, 5});
+            INDArray l = Nd4j.rand(new int[] {3, 2, 5});
+            INDArray fm = Nd4j.ones(3, 5);
+            fm.putScalar(0, 4, 0.0);
+            list.add(new DataSet(f, l, fm, fm.dup()));
+        }
+        return list;
+    }
+
+    /**
+     * Iterator over copies of the given DataSets, counting the number of DataSets returned
+     */
+    private static class CountingIterator extends ListDataSetIterator {
+        private final AtomicInteger count;
+
+        private CountingIterator(List<DataSet> list, AtomicInteger count) {
+            super(list, 1);
+            this.count = count;
+        }
+
+        @Override
+        public DataSet next() {
+            count.incrementAndGet();
+            return super.next().copy();
+        }
+    }
+
+    private static List<DataSet> epoch(ShardCachingDataSetIterator iter) {
+        List<DataSet> out = new ArrayList<>();
+        while (iter.hasNext())
+            out.add(iter.next());
+        iter.reset();
+        return out;
+    }
+
+    @Test
+    public void testCacheInOrder() throws Exception {
+        List<DataSet> data = getSequenceData(10);
+        AtomicInteger count = new AtomicInteger();
+        File dir = testDir.newFolder();
+        ShardCachingDataSetIterator iter = new ShardCachingDataSetIterator.Builder(new CountingIterator(data, count),
+                        dir).batchesPerShard(3).build();
+
+        for (int e = 0; e < 3; e++) {
+            List<DataSet> out = epoch(iter);
+            assertTrue(iter.isCacheComplete());
+            assertEquals(data, out);
+        }
+        //Only the first pass uses the underlying iterator
+        assertEquals(10, count.get());
+        assertEquals(4, iter.getShards().size());
+        iter.shutdown();
+
+        //A new iterator on the same directory can reuse the existing cache
+        count.set(0);
+        iter = new ShardCachingDataSetIterator.Builder(new CountingIterator(data, count), dir).reuseExistingCache(true)
+                        .build();
+        assertTrue(iter.isCacheComplete());
+        assertEquals(data, epoch(iter));
+        assertEquals(0, count.get());
+        iter.shutdown();
+    }
+
+    @Test
+    public void testEndOfPass() throws Exception {
+        List<DataSet> data = getSequenceData(5);
+        AtomicInteger count = new AtomicInteger();
+        ShardCachingDataSetIterator iter = new ShardCachingDataSetIterator.Builder(new CountingIterator(data, count),
+                        testDir.newFolder()).batchesPerShard(2).build();
+
+        for (int e = 0; e < 3; e++) {
+            int n = 0;
+            while (iter.hasNext()) {
+                iter.next();
+                n++;
+                if (e > 0)
+                    assertEquals(3 * n, iter.cursor());
+            }
+            assertEquals(data.size(), n);
+            //hasNext() stays false until the iterator is reset
+            assertFalse(iter.hasNext());
+            assertFalse(iter.hasNext());
+            assertTrue(iter.isCacheComplete());
+            assertEquals(3 * data.size(), iter.numExamples());
+            iter.reset();
+            assertEquals(0, iter.cursor());
+        }
+        assertEquals(data.size(), count.get());
+
+        //The first pass is also completed if the iterator is reset without a final call to hasNext()
+        iter = new ShardCachingDataSetIterator.Builder(new CountingIterator(data, count), testDir.newFolder())
+                        .build();
+        for (int i = 0; i < data.size(); i++)
+            iter.next();
+        iter.reset();
+        assertTrue(iter.isCacheComplete());
+        assertEquals(data, epoch(iter));
+        iter.shutdown();
+    }
+
+    @Test
+    public void testShuffledShards() throws Exception {
+        List<DataSet> data = getSequenceData(12);
+        ShardCachingDataSetIterator iter = new ShardCachingDataSetIterator.Builder(
+                        new CountingIterator(data, new AtomicInteger()), testDir.newFolder()).batchesPerShard(4)
+                                        .shuffleShards(true).seed(12345).compress(true).build();
+
+        assertEquals(data, epoch(iter));
+
+        boolean anyShuffled = false;
+        for (int e = 0; e < 5; e++) {
+            List<DataSet> out = epoch(iter);
+            assertEquals(data.size(), out.size());
+            //Shards are shuffled, but minibatches within each shard are in order
+            for (int s = 0; s < 3; s++) {
+                int first = data.indexOf(out.get(4 * s));
+                assertEquals(0, first % 4);
+                assertEquals(data.subList(first, first + 4), out.subList(4 * s, 4 * s + 4));
+                anyShuffled |= first != 4 * s;
+            }
+        }
+        assertTrue(anyShuffled);
+        iter.shutdown();
+    }
+
+    @Test
+    public void testPartialFirstPassDiscarded() throws Exception {
+        List<DataSet> data = getSequenceData(6);
+        AtomicInteger count = new AtomicInteger();
+        final AtomicInteger preProcessed = new AtomicInteger();
+        ShardCachingDataSetIterator iter = new ShardCachingDataSetIterator.Builder(new CountingIterator(data, count),
+                        testDir.newFolder()).batchesPerShard(2).build();
+        iter.setPreProcessor(new DataSetPreProcessor() {
+            @Override
+            public void preProcess(org.nd4j.linalg.dataset.api.DataSet toPreProcess) {
+                preProcessed.incrementAndGet();
+                toPreProcess.getFeatures().addi(1.0);
+            }
+        });
+
+        iter.next();
+        iter.next();
+        iter.next();
+        iter.reset();
+        assertFalse(iter.isCacheComplete());
+        assertEquals(0, iter.getShards().size());
+
+        for (int e = 0; e < 2; e++) {
+            List<DataSet> out = epoch(iter);
+            assertEquals(data.size(), out.size());
+            for (int i = 0; i < data.size(); i++) {
+                //Preprocessor is applied after caching, so is only applied once to each returned DataSet
+                assertEquals(data.get(i).getFeatures().add(1.0), out.get(i).getFeatures());
+                assertEquals(data.get(i).getLabels(), out.get(i).getLabels());
+                assertEquals(data.get(i).getFeaturesMaskArray(), out.get(i).getFeaturesMaskArray());
+            }
+        }
+        assertEquals(9, count.get());
+        assertEquals(3 + 2 * data.size(), preProcessed.get());
+        iter.shutdown();
+    }
+}
@@ -0,0 +1,144 @@
+package org.deeplearning4j.datasets.pack;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.util.DataTypeUtil;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestPackedDataSet {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    private static List<DataSet> dataSets() {
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int n = 1 + i % 4;
+            list.add(new DataSet(Nd4j.rand(n, 5), Nd4j.rand(n, 3)));
+        }
+        //Time series with masks, and f-order view as features
+        list.add(new DataSet(Nd4j.rand(new int[] {2, 4, 6}, 'f'), Nd4j.rand(new int[] {2, 3, 6}),
+                        Nd4j.ones(2, 6), Nd4j.zeros(2, 6)));
+        list.add(new DataSet(Nd4j.rand(10, 5).get(NDArrayIndex.interval(2, 5), NDArrayIndex.all()), null));
+        //Compressible block
+        list.add(new DataSet(Nd4j.zeros(100, 10), Nd4j.ones(100, 2)));
+        return list;
+    }
+
+    private File write(List<DataSet> list, boolean compress) throws IOException {
+        File f = testDir.newFile();
+        try (PackedDataSetWriter writer = new PackedDataSetWriter(new FileOutputStream(f), compress)) {
+            for (int i = 0; i < list.size(); i++)
+                assertEquals(i, writer.write(list.get(i)));
+        }
+        return f;
+    }
+
+    private static void assertSame(DataSet expected, DataSet actual) {
+        assertEquals(expected.getFeatures(), actual.getFeatures());
+        assertEquals(expected.getLabels(), actual.getLabels());
+        assertEquals(expected.getFeaturesMaskArray(), actual.getFeaturesMaskArray());
+        assertEquals(expected.getLabelsMaskArray(), actual.getLabelsMaskArray());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<DataSet> list = dataSets();
+        for (boolean compress : new boolean[] {false, true}) {
+            File f = write(list, compress);
+            try (PackedDataSetReader reader = new PackedDataSetReader(f)) {
+                assertEquals(list.size(), reader.numBlocks());
+
+                long total = 0;
+                for (int i = list.size() - 1; i >= 0; i--) {
+                    assertEquals(list.get(i).numExamples(), reader.numExamples(i));
+                    assertSame(list.get(i), reader.get(i));
+                    total += list.get(i).numExamples();
+                }
+                assertEquals(total, reader.totalExamples());
+
+                int i = 0;
+                for (DataSet ds : reader)
+                    assertSame(list.get(i++), ds);
+                assertEquals(list.size(), i);
+            }
+        }
+
+        //Arrays are copied out of the mapped file: they can be modified without affecting later reads
+        File f = write(list, false);
+        try (PackedDataSetReader reader = new PackedDataSetReader(f)) {
+            reader.get(0).getFeatures().addi(1.0);
+            assertSame(list.get(0), reader.get(0));
+        }
+
+        File uncompressed = write(list, false);
+        File compressed = write(list, true);
+        assertTrue(compressed.length() < uncompressed.length());
+    }
+
+    @Test
+    public void testDataTypes() throws Exception {
+        DataBuffer.Type initial = Nd4j.dataType();
+        try {
+            DataTypeUtil.setDTypeForContext(DataBuffer.Type.FLOAT);
+            List<DataSet> floatList = dataSets();
+            File floatFile = write(floatList, false);
+
+            DataTypeUtil.setDTypeForContext(DataBuffer.Type.DOUBLE);
+            List<DataSet> doubleList = dataSets();
+            File doubleFile = write(doubleList, false);
+            try (PackedDataSetReader floatReader = new PackedDataSetReader(floatFile);
+                            PackedDataSetReader doubleReader = new PackedDataSetReader(doubleFile)) {
+                for (int i = 0; i < doubleList.size(); i++) {
+                    assertSame(doubleList.get(i), doubleReader.get(i));
+                    //Stored floats are converted to the current data type
+                    DataSet converted = floatReader.get(i);
+                    assertEquals(DataBuffer.Type.DOUBLE, converted.getFeatures().data().dataType());
+                    assertTrue(doubleList.get(i).getFeatures().equalsWithEps(converted.getFeatures(), 1e-6));
+                }
+            }
+        } finally {
+            DataTypeUtil.setDTypeForContext(initial);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotPacked() throws Exception {
+        File f = testDir.newFile();
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            new DataSet(Nd4j.rand(3, 4), Nd4j.rand(3, 2)).save(out);
+        }
+        new PackedDataSetReader(f);
+    }
+
+    @Test
+    public void testPaths() {
+        String file = "/tmp/dir/dataset_0abc_1.dspack";
+        String ref = PackedDataSetFormat.blockReference(file, 7);
+
+        assertTrue(PackedDataSetFormat.isPacked(file));
+        assertFalse(PackedDataSetFormat.isBlockReference(file));
+        assertEquals(-1, PackedDataSetFormat.blockIndex(file));
+
+        assertTrue(PackedDataSetFormat.isPacked(ref));
+        assertTrue(PackedDataSetFormat.isBlockReference(ref));
+        assertEquals(7, PackedDataSetFormat.blockIndex(ref));
+        assertEquals(file, PackedDataSetFormat.filePath(ref));
+
+        assertFalse(PackedDataSetFormat.isPacked("/tmp/dir/dataset_0abc_1.bin"));
+        assertFalse(PackedDataSetFormat.isPacked("/tmp/a#b.dspack/dataset_1.bin"));
+    }
+}
@@ -857,6 +857,47 @@ public class EvalTest {
 
     }
 
+    @Test
+    public void testAddCounts() {
+        Nd4j.getRandom().setSeed(12345);
+        int nClasses = 4;
+        Evaluation expected = new Evaluation(nClasses);
+        Random r = new Random(12345);
+        int[][] counts = new int[nClasses][nClasses];
+        for (int i = 0; i < 200; i++) {
+            int actual = r.nextInt(nClasses);
+            int predicted = r.nextInt(10) < 6 ? actual : r.nextInt(nClasses);
+            expected.eval(predicted, actual);
+            counts[actual][predicted]++;
+        }
+
+        int[] actualIdx = new int[nClasses * nClasses];
+        int[] predictedIdx = new int[nClasses * nClasses];
+        int[] countsFlat = new int[nClasses * nClasses];
+        for (int i = 0; i < nClasses; i++) {
+            for (int j = 0; j < nClasses; j++) {
+                actualIdx[i * nClasses + j] = i;
+                predictedIdx[i * nClasses + j] = j;
+                countsFlat[i * nClasses + j] = counts[i][j];
+            }
+        }
+
+        Evaluation e = new Evaluation();
+        e.addCounts(nClasses, actualIdx, predictedIdx, countsFlat, 0, 0);
+
+        assertEquals(expected.getNumRowCounter(), e.getNumRowCounter(), 0.0);
+        assertEquals(expected.getConfusionMatrix(), e.getConfusionMatrix());
+        assertEquals(expected.accuracy(), e.accuracy(), 1e-10);
+        for (int i = 0; i < nClasses; i++) {
+            assertEquals(expected.truePositives().get(i), e.truePositives().get(i));
+            assertEquals(expected.falsePositives().get(i), e.falsePositives().get(i));
+            assertEquals(expected.trueNegatives().get(i), e.trueNegatives().get(i));
+            assertEquals(expected.falseNegatives().get(i), e.falseNegatives().get(i));
+            assertEquals(expected.f1(i), e.f1(i), 1e-10);
+        }
+        assertEquals(expected.stats(), e.stats());
+    }
+
     private static void apply(Evaluation e, int nTimes, INDArray predicted, INDArray actual){
         for( int i=0; i<nTimes; i++ ){
             e.eval(actual, predicted);
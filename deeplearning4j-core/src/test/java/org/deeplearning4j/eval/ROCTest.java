@@ -567,4 +567,47 @@ public class ROCTest {
         r.eval(one, Nd4j.create(new double[]{0.66}));
         assertEquals(0.79165, r.calculateAUCPR(), 1e-4);
     }
+
+    @Test
+    public void testAddCounts() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray labels = Nd4j.rand(100, 1).gti(0.5);
+        INDArray predictions = Nd4j.rand(100, 1);
+
+        int steps = 20;
+        ROC expected = new ROC(steps);
+        expected.eval(labels, predictions);
+
+        long[] tp = new long[steps + 1];
+        long[] fp = new long[steps + 1];
+        for (int i = 0; i <= steps; i++) {
+            ROC.CountsForThreshold c = expected.getCounts().get(i * (1.0 / steps));
+            tp[i] = c.getCountTruePositive();
+            fp[i] = c.getCountFalsePositive();
+        }
+
+        ROC roc = new ROC(steps);
+        roc.addCounts(expected.getCountActualPositive(), expected.getCountActualNegative(), tp, fp);
+        assertEquals(expected, roc);
+        assertEquals(expected.calculateAUC(), roc.calculateAUC(), 1e-10);
+
+        ROCMultiClass expectedMultiClass = new ROCMultiClass(steps);
+        INDArray multiLabels = Nd4j.hstack(labels, labels.rsub(1.0));
+        expectedMultiClass.eval(multiLabels, Nd4j.hstack(predictions, predictions.rsub(1.0)));
+
+        long[][] tpMulti = new long[2][steps + 1];
+        long[][] fpMulti = new long[2][steps + 1];
+        for (int c = 0; c < 2; c++) {
+            for (int i = 0; i <= steps; i++) {
+                ROC.CountsForThreshold counts = expectedMultiClass.getCounts().get(c).get(i * (1.0 / steps));
+                tpMulti[c][i] = counts.getCountTruePositive();
+                fpMulti[c][i] = counts.getCountFalsePositive();
+            }
+        }
+        ROCMultiClass rocMultiClass = new ROCMultiClass(steps);
+        rocMultiClass.addCounts(expectedMultiClass.getCountActualPositive(),
+                        expectedMultiClass.getCountActualNegative(), tpMulti, fpMulti);
+        assertEquals(expectedMultiClass, rocMultiClass);
+        assertEquals(expected.calculateAUC(), rocMultiClass.calculateAUC(0), 1e-10);
+    }
 }
@@ -0,0 +1,113 @@
+package org.deeplearning4j.nn.sparse;
+
+import org.deeplearning4j.nn.api.OptimizationAlgorithm;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.Updater;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CSRMatrixTest {
+
+    private static INDArray randomSparseDense(int rows, int columns, double density, long seed) {
+        Random r = new Random(seed);
+        INDArray arr = Nd4j.zeros(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (r.nextDouble() < density)
+                    arr.putScalar(i, j, r.nextInt(5) + 1);
+            }
+        }
+        return arr;
+    }
+
+    @Test
+    public void testConversionAndOps() {
+        INDArray dense = randomSparseDense(7, 20, 0.2, 12345);
+        //Include an empty row
+        dense.getRow(3).assign(0);
+        CSRMatrix sparse = CSRMatrix.fromDense(dense);
+
+        assertEquals(7, sparse.getRows());
+        assertEquals(20, sparse.getColumns());
+        assertEquals(dense.neq(0).sumNumber().intValue(), sparse.nnz());
+        assertEquals(dense, sparse.toDense());
+        assertEquals(dense.get(NDArrayIndex.interval(2, 5), NDArrayIndex.all()), sparse.getRows(2, 5).toDense());
+
+        for (char order : new char[] {'c', 'f'}) {
+            INDArray w = Nd4j.rand(order, 20, 4);
+            assertEquals(dense.mmul(w), sparse.mmul(w));
+
+            INDArray delta = Nd4j.rand(order, 7, 4);
+            INDArray result = Nd4j.create(new int[] {20, 4}, order).assign(5.0);
+            sparse.transposeMmul(delta, result);
+            assertEquals(dense.transpose().mmul(delta), result);
+        }
+
+        //Views
+        INDArray w = Nd4j.rand(30, 10).get(NDArrayIndex.interval(5, 25), NDArrayIndex.interval(3, 7));
+        assertEquals(dense.mmul(w), sparse.mmul(w));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidColumnIndex() {
+        new CSRMatrix(1, 3, new int[] {0, 1}, new int[] {3}, new float[] {1.0f});
+    }
+
+    @Test
+    public void testSparseFitMatchesDense() {
+        int nIn = 30;
+        int nOut = 3;
+        int minibatch = 10;
+        INDArray features = randomSparseDense(minibatch, nIn, 0.1, 12345);
+        INDArray labels = Nd4j.zeros(minibatch, nOut);
+        for (int i = 0; i < minibatch; i++)
+            labels.putScalar(i, i % nOut, 1.0);
+        CSRMatrix sparseFeatures = CSRMatrix.fromDense(features);
+
+        for (boolean hidden : new boolean[] {true, false}) {
+            NeuralNetConfiguration.ListBuilder builder = new NeuralNetConfiguration.Builder()
+                            .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT).iterations(1)
+                            .learningRate(0.1).updater(Updater.SGD).seed(12345).weightInit(WeightInit.XAVIER).list();
+            if (hidden) {
+                builder.layer(0, new DenseLayer.Builder().nIn(nIn).nOut(8).activation(Activation.TANH).build())
+                                .layer(1, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(8)
+                                                .nOut(nOut).activation(Activation.SOFTMAX).build());
+            } else {
+                builder.layer(0, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(nIn).nOut(nOut)
+                                .activation(Activation.SOFTMAX).build());
+            }
+            MultiLayerConfiguration conf = builder.build();
+
+            MultiLayerNetwork denseNet = new MultiLayerNetwork(conf);
+            denseNet.init();
+            MultiLayerNetwork sparseNet = new MultiLayerNetwork(conf.clone());
+            sparseNet.init();
+            sparseNet.setParams(denseNet.params().dup());
+
+            assertTrue(denseNet.output(features).equalsWithEps(sparseNet.output(sparseFeatures), 1e-5));
+
+            for (int i = 0; i < 5; i++) {
+                denseNet.fit(features, labels);
+                sparseNet.fit(sparseFeatures, labels);
+            }
+            assertTrue(denseNet.params().equalsWithEps(sparseNet.params(), 1e-4));
+            assertTrue(denseNet.output(features).equalsWithEps(sparseNet.output(sparseFeatures), 1e-4));
+
+            //Sparse input is cleared after use: dense input can be used again
+            assertTrue(denseNet.output(features).equalsWithEps(sparseNet.output(features), 1e-4));
+        }
+    }
+}
@@ -31,8 +31,11 @@ import org.nd4j.linalg.io.ClassPathResource;
 
 import java.io.File;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by agibsonccc on 10/1/14.
@@ -110,4 +113,63 @@ public class BarnesHutTsneTest {
         assertEquals(perplexity, b.getPerplexity(), DELTA);
         assertEquals(minGain, b.minGain, DELTA);
     }
+
+    @Test
+    public void testSymmetrized() {
+        BarnesHutTsne b = new BarnesHutTsne.Builder().build();
+        // 3 points, row 2 doesn't point to row 0
+        INDArray rowP = Nd4j.create(new double[] {0, 2, 4, 5});
+        INDArray colP = Nd4j.create(new double[] {2, 1, 0, 2, 1});
+        INDArray valP = Nd4j.create(new double[] {0.25, 0.75, 0.5, 0.5, 1.0});
+
+        INDArray sym = b.symmetrized(rowP, colP, valP);
+        // row 0: (1 -> (0.75 + 0.5) / 2), (2 -> 0.25 / 2); row 1: 0, 2; row 2: 0, 1
+        assertEquals(6, sym.length());
+        assertEquals(0.625, sym.getDouble(0), 1e-6);
+        assertEquals(0.125, sym.getDouble(1), 1e-6);
+        assertEquals(0.625, sym.getDouble(2), 1e-6);
+        assertEquals(0.75, sym.getDouble(3), 1e-6);
+        assertEquals(0.125, sym.getDouble(4), 1e-6);
+        assertEquals(0.75, sym.getDouble(5), 1e-6);
+    }
+
+    @Test
+    public void testFitBlobs() {
+        Nd4j.getRandom().setSeed(123);
+        Random random = new Random(123);
+        double[][] points = new double[200][10];
+        for (int i = 0; i < points.length; i++)
+            for (int j = 0; j < 10; j++)
+                points[i][j] = random.nextGaussian() + (i < 100 ? 0 : 20);
+
+        BarnesHutTsne b = new BarnesHutTsne.Builder().similarityFunction("euclidean").invertDistanceMetric(false)
+                        .perplexity(10).setMaxIter(200).stopLyingIteration(100).learningRate(200).theta(0.5)
+                        .workers(2).build();
+        b.fit(Nd4j.create(points));
+
+        INDArray y = b.getData();
+        assertEquals(200, y.rows());
+        assertEquals(2, y.columns());
+        double[] values = y.dup().data().asDouble();
+        for (double value : values)
+            assertFalse(Double.isNaN(value) || Double.isInfinite(value));
+
+        // points of the same blob are closer to their own centroid
+        double[][] centroids = new double[2][2];
+        for (int i = 0; i < 200; i++)
+            for (int d = 0; d < 2; d++)
+                centroids[i / 100][d] += values[i * 2 + d] / 100;
+        int correct = 0;
+        for (int i = 0; i < 200; i++) {
+            double own = 0.0, other = 0.0;
+            for (int d = 0; d < 2; d++) {
+                own += Math.pow(values[i * 2 + d] - centroids[i / 100][d], 2);
+                other += Math.pow(values[i * 2 + d] - centroids[1 - i / 100][d], 2);
+            }
+            if (own < other)
+                correct++;
+        }
+        assertTrue(correct > 190);
+        assertTrue(b.score() >= 0.0);
+    }
 }
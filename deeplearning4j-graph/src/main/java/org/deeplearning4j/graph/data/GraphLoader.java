@@ -4,21 +4,35 @@ import org.deeplearning4j.graph.api.Edge;
 import org.deeplearning4j.graph.api.Vertex;
 import org.deeplearning4j.graph.data.impl.DelimitedEdgeLineProcessor;
 import org.deeplearning4j.graph.data.impl.WeightedEdgeLineProcessor;
+import org.deeplearning4j.graph.exception.ParseException;
+import org.deeplearning4j.graph.graph.CSRGraph;
 import org.deeplearning4j.graph.graph.Graph;
 import org.deeplearning4j.graph.vertexfactory.StringVertexFactory;
 import org.deeplearning4j.graph.vertexfactory.VertexFactory;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /** Utility methods for loading graphs
  *
  */
 public class GraphLoader {
 
+    /** Minimum file size per thread when loading edge list files in parallel */
+    private static final long MIN_BYTES_PER_THREAD = 1 << 16;
+
     private GraphLoader() {}
 
     /** Simple method for loading an undirected graph, where the graph is represented by a edge list with one edge
@@ -172,4 +186,180 @@ public class GraphLoader {
 
         return graph;
     }
+
+    /** Load a (possibly very large) graph from an edge list file into a {@link CSRGraph}, parsing the file in parallel.<br>
+     * Each line of the file is of the form {@code fromIndex<delim>toIndex} (unweighted) or
+     * {@code fromIndex<delim>toIndex<delim>edgeWeight} (weighted), where the vertex indexes are in range 0 to
+     * numVertices-1 inclusive. Empty lines are skipped. The file is split into numThreads ranges of roughly equal size,
+     * which are parsed concurrently into primitive arrays.<br>
+     * Multiple edges between the same pair of vertices are kept.
+     * @param path Path to the edge list file
+     * @param numVertices The number of vertices in the graph
+     * @param delim The delimiter used in the file (typically: "," or " " etc)
+     * @param directed whether the edges should be treated as directed (true) or undirected (false)
+     * @param weighted whether each line contains an edge weight
+     * @param numThreads Number of threads to use to parse the file
+     * @param ignoreLinesStartingWith Starting characters for comment lines. May be null. For example: "//" or "#"
+     * @return The graph, with vertices created by a {@link StringVertexFactory}
+     * @throws IOException if file cannot be read
+     */
+    public static CSRGraph<String> loadCSRGraphEdgeListFile(String path, int numVertices, final String delim,
+                    final boolean directed, final boolean weighted, int numThreads,
+                    final String... ignoreLinesStartingWith) throws IOException {
+        final File file = new File(path);
+        long length = file.length();
+        if (numThreads <= 0)
+            throw new IllegalArgumentException("Invalid number of threads: " + numThreads);
+        numThreads = (int) Math.max(1, Math.min(numThreads, length / MIN_BYTES_PER_THREAD));
+
+        List<EdgeChunk> chunks = new ArrayList<>(numThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<EdgeChunk>> futures = new ArrayList<>(numThreads);
+            for (int i = 0; i < numThreads; i++) {
+                final long start = length * i / numThreads;
+                final long end = length * (i + 1) / numThreads;
+                futures.add(executor.submit(new Callable<EdgeChunk>() {
+                    @Override
+                    public EdgeChunk call() throws Exception {
+                        return parseEdgeListRange(file, start, end, delim, weighted, ignoreLinesStartingWith);
+                    }
+                }));
+            }
+            for (Future<EdgeChunk> f : futures)
+                chunks.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading graph", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdown();
+        }
+
+        List<int[]> from = new ArrayList<>(chunks.size());
+        List<int[]> to = new ArrayList<>(chunks.size());
+        List<float[]> weights = (weighted ? new ArrayList<float[]>(chunks.size()) : null);
+        int[] numEdges = new int[chunks.size()];
+        for (int i = 0; i < numEdges.length; i++) {
+            EdgeChunk c = chunks.get(i);
+            from.add(c.from);
+            to.add(c.to);
+            if (weighted)
+                weights.add(c.weights);
+            numEdges[i] = c.size;
+        }
+        chunks = null;
+        return CSRGraph.fromEdges(numVertices, from, to, weights, numEdges, directed, new StringVertexFactory());
+    }
+
+    /** Edges parsed from one range of an edge list file */
+    private static class EdgeChunk {
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private float[] weights;
+        private int size;
+
+        private EdgeChunk(boolean weighted) {
+            if (weighted)
+                weights = new float[1024];
+        }
+
+        private void add(int f, int t, float w) {
+            if (size == from.length) {
+                int newLength = from.length + (from.length >> 1);
+                from = Arrays.copyOf(from, newLength);
+                to = Arrays.copyOf(to, newLength);
+                if (weights != null)
+                    weights = Arrays.copyOf(weights, newLength);
+            }
+            from[size] = f;
+            to[size] = t;
+            if (weights != null)
+                weights[size] = w;
+            size++;
+        }
+    }
+
+    /** Parse the lines starting in byte range [start, end) of the file. A line belongs to the range its first byte is
+     * in: if start is not at the beginning of a line, the partial first line is skipped (it is parsed by the previous
+     * range) */
+    private static EdgeChunk parseEdgeListRange(File file, long start, long end, String delim, boolean weighted,
+                    String[] ignoreLinesStartingWith) throws IOException {
+        EdgeChunk chunk = new EdgeChunk(weighted);
+        try (FileInputStream fis = new FileInputStream(file)) {
+            long pos = Math.max(0, start - 1);
+            fis.getChannel().position(pos);
+
+            byte[] buffer = new byte[1 << 16];
+            byte[] line = new byte[256];
+            int lineLength = 0;
+            long lineStart = pos;
+            boolean skipFirst = start > 0;
+            int n;
+            boolean done = false;
+            while (!done && (n = fis.read(buffer)) > 0) {
+                for (int k = 0; k < n; k++, pos++) {
+                    byte b = buffer[k];
+                    if (b != '\n') {
+                        if (lineLength == line.length)
+                            line = Arrays.copyOf(line, 2 * line.length);
+                        line[lineLength++] = b;
+                        continue;
+                    }
+                    if (skipFirst) {
+                        //Partial line belonging to the previous range (or, if byte start-1 is '\n', an empty line)
+                        skipFirst = false;
+                    } else {
+                        processEdgeLine(chunk, line, lineLength, delim, weighted, ignoreLinesStartingWith);
+                    }
+                    lineLength = 0;
+                    lineStart = pos + 1;
+                    if (lineStart >= end) {
+                        done = true;
+                        break;
+                    }
+                }
+            }
+            //Last line of the file, without a trailing newline
+            if (!done && !skipFirst && lineStart < end)
+                processEdgeLine(chunk, line, lineLength, delim, weighted, ignoreLinesStartingWith);
+        }
+        return chunk;
+    }
+
+    private static void processEdgeLine(EdgeChunk chunk, byte[] bytes, int length, String delim, boolean weighted,
+                    String[] ignoreLinesStartingWith) {
+        if (length > 0 && bytes[length - 1] == '\r')
+            length--;
+        if (length == 0)
+            return;
+        String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        if (ignoreLinesStartingWith != null) {
+            for (String s : ignoreLinesStartingWith) {
+                if (line.startsWith(s))
+                    return;
+            }
+        }
+
+        int d1 = line.indexOf(delim);
+        int d2 = (d1 < 0 ? -1 : line.indexOf(delim, d1 + delim.length()));
+        boolean valid = d1 > 0 && (weighted ? d2 > 0 && line.indexOf(delim, d2 + delim.length()) < 0 : d2 < 0);
+        if (!valid)
+            throw new ParseException("Invalid line: expected format \"0" + delim + "1" + (weighted ? delim + "weight" : "")
+                            + "\"; received \"" + line + "\"");
+        try {
+            int from = Integer.parseInt(line.substring(0, d1));
+            int to = Integer.parseInt(line.substring(d1 + delim.length(), weighted ? d2 : line.length()));
+            float w = (weighted ? Float.parseFloat(line.substring(d2 + delim.length())) : 1.0f);
+            chunk.add(from, to, w);
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid line: \"" + line + "\"", e);
+        }
+    }
 }
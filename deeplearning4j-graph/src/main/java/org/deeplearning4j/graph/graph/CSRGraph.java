@@ -0,0 +1,375 @@
+package org.deeplearning4j.graph.graph;
+
+import org.deeplearning4j.graph.api.BaseGraph;
+import org.deeplearning4j.graph.api.Edge;
+import org.deeplearning4j.graph.api.IGraph;
+import org.deeplearning4j.graph.api.Vertex;
+import org.deeplearning4j.graph.exception.NoEdgesException;
+import org.deeplearning4j.graph.vertexfactory.VertexFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Immutable graph in compressed sparse row (CSR) format, for large graphs.<br>
+ * Unlike {@link Graph}, no object is stored per edge or per vertex: the edges out of vertex i are stored as the
+ * primitive array entries offsets[i] (inclusive) to offsets[i+1] (exclusive) of the neighbour (and optionally, weight)
+ * arrays. Vertex objects are created on demand by a {@link VertexFactory}, and edge objects are only created by
+ * {@link #getEdgesOut(int)}.<br>
+ * All edges are either directed or undirected; undirected edges are stored in both directions. Multiple edges between
+ * the same pair of vertices are allowed.<br>
+ * For weighted graphs, an alias table (Walker's alias method) is precomputed for the edges out of each vertex, so that
+ * {@link #weightedRandomConnectedVertexIndex(int, Random)} samples a neighbour with probability proportional to the edge
+ * weight in O(1), independent of the vertex degree.<br>
+ * CSRGraphs are created using {@link #fromEdges(int, int[], int[], float[], int, boolean, VertexFactory)} or loaded with
+ * {@link org.deeplearning4j.graph.data.GraphLoader#loadCSRGraphEdgeListFile(String, int, String, boolean, boolean, int, String...)}
+ * @param <V> Type parameter for vertices (type of objects attached to each vertex)
+ */
+public class CSRGraph<V> extends BaseGraph<V, Float> {
+    /** Minimum number of vertices per thread when building alias tables in parallel */
+    private static final int MIN_VERTICES_PER_THREAD = 100000;
+
+    private final int numVertices;
+    private final boolean directed;
+    private final VertexFactory<V> vertexFactory;
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final float[] weights;
+    //Alias tables: for edge index j (offsets[i] <= j < offsets[i+1]), aliasProb[j] is the probability of keeping j,
+    //otherwise edge offsets[i] + alias[j] is selected
+    private final float[] aliasProb;
+    private final int[] alias;
+
+    /**
+     * @param offsets       Length numVertices+1: the edges out of vertex i are at indices offsets[i] to offsets[i+1]-1
+     * @param neighbours    Target vertex for each edge
+     * @param weights       Weight of each edge, or null for an unweighted graph
+     * @param directed      Whether the edges are directed
+     * @param vertexFactory Vertex factory, used to create vertices for a given index
+     */
+    public CSRGraph(int[] offsets, int[] neighbours, float[] weights, boolean directed,
+                    VertexFactory<V> vertexFactory) {
+        if (offsets.length < 2)
+            throw new IllegalArgumentException("Invalid offsets: graph must have at least one vertex");
+        int numEdges = offsets[offsets.length - 1];
+        if (neighbours.length < numEdges || (weights != null && weights.length < numEdges))
+            throw new IllegalArgumentException("Invalid CSR arrays: offsets specify " + numEdges
+                            + " edges; neighbours length = " + neighbours.length + ", weights length = "
+                            + (weights == null ? "-" : String.valueOf(weights.length)));
+        this.numVertices = offsets.length - 1;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.weights = weights;
+        this.directed = directed;
+        this.vertexFactory = vertexFactory;
+
+        if (weights != null) {
+            aliasProb = new float[numEdges];
+            alias = new int[numEdges];
+            buildAliasTables();
+        } else {
+            aliasProb = null;
+            alias = null;
+        }
+    }
+
+    /** Create a CSRGraph from edge arrays. Edges out of each vertex are stored in the order they appear in the arrays.
+     * @param numVertices   Number of vertices in the graph
+     * @param from          Source vertex of each edge
+     * @param to            Target vertex of each edge
+     * @param weights       Weight of each edge, or null for an unweighted graph
+     * @param numEdges      Number of edges: the first numEdges entries of the edge arrays are used
+     * @param directed      If false: edges are undirected, and are stored in both directions
+     * @param vertexFactory Vertex factory, used to create vertices for a given index
+     */
+    public static <V> CSRGraph<V> fromEdges(int numVertices, int[] from, int[] to, float[] weights, int numEdges,
+                    boolean directed, VertexFactory<V> vertexFactory) {
+        return fromEdges(numVertices, Collections.singletonList(from), Collections.singletonList(to),
+                        weights == null ? null : Collections.singletonList(weights), new int[] {numEdges},
+                        directed, vertexFactory);
+    }
+
+    /** As per {@link #fromEdges(int, int[], int[], float[], int, boolean, VertexFactory)}, for edges split across
+     * multiple arrays (for example, one set of arrays per loader thread)
+     * @param numEdges Number of edges in each set of arrays
+     */
+    public static <V> CSRGraph<V> fromEdges(int numVertices, List<int[]> from, List<int[]> to, List<float[]> weights,
+                    int[] numEdges, boolean directed, VertexFactory<V> vertexFactory) {
+        if (numVertices <= 0)
+            throw new IllegalArgumentException("Invalid number of vertices: " + numVertices);
+        long totalArcs = 0;
+        int[] degrees = new int[numVertices];
+        for (int c = 0; c < numEdges.length; c++) {
+            int[] f = from.get(c);
+            int[] t = to.get(c);
+            for (int i = 0; i < numEdges[c]; i++) {
+                if (f[i] < 0 || f[i] >= numVertices || t[i] < 0 || t[i] >= numVertices)
+                    throw new IllegalArgumentException("Invalid edge: " + f[i] + (directed ? "->" : "--") + t[i]
+                                    + ", from/to indexes out of range (numVertices = " + numVertices + ")");
+                degrees[f[i]]++;
+                if (!directed)
+                    degrees[t[i]]++;
+            }
+            totalArcs += directed ? numEdges[c] : 2L * numEdges[c];
+        }
+        if (totalArcs > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many edges for CSRGraph: " + totalArcs + " (stored) edges");
+
+        int[] offsets = new int[numVertices + 1];
+        for (int i = 0; i < numVertices; i++)
+            offsets[i + 1] = offsets[i] + degrees[i];
+
+        //Reuse the degree array as the insertion position for each vertex
+        int[] position = degrees;
+        System.arraycopy(offsets, 0, position, 0, numVertices);
+        int[] neighbours = new int[(int) totalArcs];
+        float[] w = (weights == null ? null : new float[(int) totalArcs]);
+        for (int c = 0; c < numEdges.length; c++) {
+            int[] f = from.get(c);
+            int[] t = to.get(c);
+            float[] cw = (weights == null ? null : weights.get(c));
+            for (int i = 0; i < numEdges[c]; i++) {
+                int p = position[f[i]]++;
+                neighbours[p] = t[i];
+                if (w != null)
+                    w[p] = cw[i];
+                if (!directed) {
+                    p = position[t[i]]++;
+                    neighbours[p] = f[i];
+                    if (w != null)
+                        w[p] = cw[i];
+                }
+            }
+        }
+
+        return new CSRGraph<>(offsets, neighbours, w, directed, vertexFactory);
+    }
+
+    /** @return Total number of edges stored. Undirected edges are stored (and counted) in both directions */
+    public int numStoredEdges() {
+        return offsets[numVertices];
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    @Override
+    public int numVertices() {
+        return numVertices;
+    }
+
+    @Override
+    public Vertex<V> getVertex(int idx) {
+        if (idx < 0 || idx >= numVertices)
+            throw new IllegalArgumentException("Invalid index: " + idx);
+        return vertexFactory.create(idx);
+    }
+
+    @Override
+    public List<Vertex<V>> getVertices(int[] indexes) {
+        List<Vertex<V>> out = new ArrayList<>(indexes.length);
+        for (int i : indexes)
+            out.add(getVertex(i));
+        return out;
+    }
+
+    @Override
+    public List<Vertex<V>> getVertices(int from, int to) {
+        if (to < from || from < 0 || to >= numVertices)
+            throw new IllegalArgumentException("Invalid range: from=" + from + ", to=" + to);
+        List<Vertex<V>> out = new ArrayList<>(to - from + 1);
+        for (int i = from; i <= to; i++)
+            out.add(getVertex(i));
+        return out;
+    }
+
+    /** Not supported: CSRGraph is immutable */
+    @Override
+    public void addEdge(Edge<Float> edge) {
+        throw new UnsupportedOperationException("CSRGraph is immutable: edges cannot be added");
+    }
+
+    @Override
+    public List<Edge<Float>> getEdgesOut(int vertex) {
+        checkVertex(vertex);
+        List<Edge<Float>> out = new ArrayList<>(offsets[vertex + 1] - offsets[vertex]);
+        for (int j = offsets[vertex]; j < offsets[vertex + 1]; j++)
+            out.add(new Edge<>(vertex, neighbours[j], weights == null ? null : weights[j], directed));
+        return out;
+    }
+
+    @Override
+    public int getVertexDegree(int vertex) {
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
+    @Override
+    public Vertex<V> getRandomConnectedVertex(int vertex, Random rng) throws NoEdgesException {
+        return vertexFactory.create(randomConnectedVertexIndex(vertex, rng));
+    }
+
+    /** As per {@link #getRandomConnectedVertex(int, Random)}, but returns the index of the vertex without creating a
+     * Vertex object. Sampling is done uniformly at random, ignoring any edge weights
+     */
+    public int randomConnectedVertexIndex(int vertex, Random rng) throws NoEdgesException {
+        int degree = checkHasEdges(vertex);
+        return neighbours[offsets[vertex] + rng.nextInt(degree)];
+    }
+
+    /** Randomly sample a vertex connected to a given vertex, with probability proportional to the weight of the
+     * connecting edge. O(1), using the precomputed alias tables. For unweighted graphs, sampling is uniform.
+     * @param vertex vertex to randomly sample from
+     * @param rng Random number generator to use
+     * @return Index of a vertex connected to the specified vertex
+     * @throws NoEdgesException if the vertex has no (outgoing) edges
+     */
+    public int weightedRandomConnectedVertexIndex(int vertex, Random rng) throws NoEdgesException {
+        int degree = checkHasEdges(vertex);
+        int first = offsets[vertex];
+        int j = first + rng.nextInt(degree);
+        if (aliasProb != null && rng.nextFloat() >= aliasProb[j])
+            j = first + alias[j];
+        return neighbours[j];
+    }
+
+    @Override
+    public List<Vertex<V>> getConnectedVertices(int vertex) {
+        checkVertex(vertex);
+        List<Vertex<V>> list = new ArrayList<>(getVertexDegree(vertex));
+        for (int j = offsets[vertex]; j < offsets[vertex + 1]; j++)
+            list.add(vertexFactory.create(neighbours[j]));
+        return list;
+    }
+
+    @Override
+    public int[] getConnectedVertexIndices(int vertex) {
+        checkVertex(vertex);
+        return Arrays.copyOfRange(neighbours, offsets[vertex], offsets[vertex + 1]);
+    }
+
+    private void checkVertex(int vertex) {
+        if (vertex < 0 || vertex >= numVertices)
+            throw new IllegalArgumentException("Invalid vertex index: " + vertex);
+    }
+
+    private int checkHasEdges(int vertex) {
+        checkVertex(vertex);
+        int degree = offsets[vertex + 1] - offsets[vertex];
+        if (degree == 0)
+            throw new NoEdgesException("Cannot generate random connected vertex: vertex " + vertex
+                            + " has no outgoing/undirected edges");
+        return degree;
+    }
+
+    private void buildAliasTables() {
+        int nThreads = Math.min(Runtime.getRuntime().availableProcessors(),
+                        Math.max(1, numVertices / MIN_VERTICES_PER_THREAD));
+        if (nThreads <= 1) {
+            buildAliasTables(0, numVertices);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(nThreads);
+            int perThread = numVertices / nThreads;
+            for (int t = 0; t < nThreads; t++) {
+                final int from = t * perThread;
+                final int to = (t == nThreads - 1 ? numVertices : from + perThread);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        buildAliasTables(from, to);
+                    }
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building alias tables", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error building alias tables", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Build the alias tables (Vose's method) for vertices [fromVertex, toVertex) */
+    private void buildAliasTables(int fromVertex, int toVertex) {
+        int maxDegree = 0;
+        for (int i = fromVertex; i < toVertex; i++)
+            maxDegree = Math.max(maxDegree, getVertexDegree(i));
+        double[] scaled = new double[maxDegree];
+        int[] small = new int[maxDegree];
+        int[] large = new int[maxDegree];
+
+        for (int i = fromVertex; i < toVertex; i++) {
+            int first = offsets[i];
+            int degree = offsets[i + 1] - first;
+            if (degree == 0)
+                continue;
+
+            double total = 0.0;
+            for (int k = 0; k < degree; k++) {
+                float w = weights[first + k];
+                if (w < 0 || Float.isNaN(w) || Float.isInfinite(w))
+                    throw new IllegalArgumentException("Invalid edge weight " + w + " for edge " + i
+                                    + (directed ? "->" : "--") + neighbours[first + k]
+                                    + ": weights must be finite and non-negative");
+                total += w;
+            }
+
+            int nSmall = 0;
+            int nLarge = 0;
+            for (int k = 0; k < degree; k++) {
+                //All weights zero: sample uniformly
+                scaled[k] = (total > 0 ? weights[first + k] * degree / total : 1.0);
+                if (scaled[k] < 1.0)
+                    small[nSmall++] = k;
+                else
+                    large[nLarge++] = k;
+            }
+
+            while (nSmall > 0 && nLarge > 0) {
+                int s = small[--nSmall];
+                int l = large[--nLarge];
+                aliasProb[first + s] = (float) scaled[s];
+                alias[first + s] = l;
+                scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+                if (scaled[l] < 1.0)
+                    small[nSmall++] = l;
+                else
+                    large[nLarge++] = l;
+            }
+            //Remaining entries have probability 1 (up to numerical error)
+            while (nLarge > 0) {
+                int l = large[--nLarge];
+                aliasProb[first + l] = 1.0f;
+                alias[first + l] = l;
+            }
+            while (nSmall > 0) {
+                int s = small[--nSmall];
+                aliasProb[first + s] = 1.0f;
+                alias[first + s] = s;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CSRGraph(numVertices=" + numVertices + ",numStoredEdges=" + numStoredEdges() + ",directed=" + directed
+                        + ",weighted=" + isWeighted() + ")";
+    }
+}
@@ -0,0 +1,230 @@
+package org.deeplearning4j.graph.models.embeddings;
+
+import org.apache.commons.math3.util.FastMath;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** In-memory lookup table for vector representations of the vertices in a graph, trained with negative sampling
+ * (instead of the hierarchical softmax used by {@link InMemoryGraphLookupTable}).<br>
+ * Vertex ('input') vectors and context ('output') vectors are stored in primitive float arrays, one row of
+ * vectorSize values per vertex, and are updated in place by {@link #iterate(int, int)}. As in the original word2vec
+ * implementation, updates from multiple threads are applied without any locking (Hogwild-style asynchronous SGD).<br>
+ * Negative samples are drawn from a unigram table, in which each vertex appears with frequency proportional to
+ * degree^0.75.
+ */
+public class NegativeSamplingGraphLookupTable implements GraphVectorLookupTable {
+    public static final int DEFAULT_TABLE_SIZE = 10000000;
+    public static final double DEFAULT_POWER = 0.75;
+
+    private static final int EXP_TABLE_SIZE = 1000;
+    private static final float MAX_EXP = 6;
+
+    protected final int nVertices;
+    protected final int vectorSize;
+    protected final int negative;
+    protected volatile float learningRate;
+    protected final float[] vertexVectors;
+    protected final float[] contextVectors;
+    protected final int[] table;
+    protected final float[] expTable;
+
+    private final long seed;
+    private final AtomicLong threadSeeds = new AtomicLong();
+    private final ThreadLocal<Random> rng = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random(seed + threadSeeds.getAndIncrement());
+        }
+    };
+    private final ThreadLocal<float[]> errorBuffer = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[vectorSize];
+        }
+    };
+
+    /**
+     * @param vertexDegrees Degree of each vertex, used for the unigram table
+     * @param vectorSize    Size of the vertex vectors
+     * @param negative      Number of negative samples per (vertex, context vertex) pair
+     * @param learningRate  Learning rate
+     * @param seed          Random seed, for initialization and sampling
+     */
+    public NegativeSamplingGraphLookupTable(int[] vertexDegrees, int vectorSize, int negative, double learningRate,
+                    long seed) {
+        this(vertexDegrees, vectorSize, negative, learningRate, seed, DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * @param tableSize Size of the unigram table for negative sampling
+     * @see #NegativeSamplingGraphLookupTable(int[], int, int, double, long)
+     */
+    public NegativeSamplingGraphLookupTable(int[] vertexDegrees, int vectorSize, int negative, double learningRate,
+                    long seed, int tableSize) {
+        if (negative <= 0)
+            throw new IllegalArgumentException("Number of negative samples must be positive: got " + negative);
+        if (tableSize <= 0)
+            throw new IllegalArgumentException("Invalid unigram table size: " + tableSize);
+        if ((long) vertexDegrees.length * vectorSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many parameters for NegativeSamplingGraphLookupTable: "
+                            + vertexDegrees.length + " vertices with vector size " + vectorSize);
+        this.nVertices = vertexDegrees.length;
+        this.vectorSize = vectorSize;
+        this.negative = negative;
+        this.learningRate = (float) learningRate;
+        this.seed = seed;
+        this.vertexVectors = new float[nVertices * vectorSize];
+        this.contextVectors = new float[nVertices * vectorSize];
+        this.table = makeTable(vertexDegrees, tableSize, DEFAULT_POWER);
+
+        expTable = new float[EXP_TABLE_SIZE];
+        for (int i = 0; i < expTable.length; i++) {
+            double tmp = FastMath.exp((i / (double) expTable.length * 2 - 1) * MAX_EXP);
+            expTable[i] = (float) (tmp / (tmp + 1.0));
+        }
+
+        resetWeights();
+    }
+
+    private static int[] makeTable(int[] degrees, int tableSize, double power) {
+        int[] table = new int[tableSize];
+        double total = 0.0;
+        for (int d : degrees)
+            total += Math.pow(d, power);
+
+        if (total <= 0) {
+            //No edges: sample uniformly
+            for (int i = 0; i < tableSize; i++)
+                table[i] = (int) ((long) i * degrees.length / tableSize);
+            return table;
+        }
+
+        int vertex = 0;
+        double cumulative = Math.pow(degrees[0], power) / total;
+        for (int i = 0; i < tableSize; i++) {
+            table[i] = vertex;
+            if (i / (double) tableSize > cumulative && vertex < degrees.length - 1) {
+                vertex++;
+                cumulative += Math.pow(degrees[vertex], power) / total;
+            }
+        }
+        return table;
+    }
+
+    public int getNegative() {
+        return negative;
+    }
+
+    /** Unigram table used for negative sampling. Do not modify */
+    public int[] getTable() {
+        return table;
+    }
+
+    @Override
+    public int vectorSize() {
+        return vectorSize;
+    }
+
+    /** Randomly initialize the vertex vectors, and set the context vectors to zero */
+    @Override
+    public void resetWeights() {
+        Random r = new Random(seed);
+        for (int i = 0; i < vertexVectors.length; i++)
+            vertexVectors[i] = (r.nextFloat() - 0.5f) / vectorSize;
+        Arrays.fill(contextVectors, 0.0f);
+    }
+
+    /** Skip-gram update with negative sampling for the given pair of vertices: the context vector for the second
+     * vertex (positive sample) and for each negative sample are updated, followed by the vector of the first vertex.
+     * May be called concurrently from multiple threads, without synchronization */
+    @Override
+    public void iterate(int first, int second) {
+        float[] syn0 = vertexVectors;
+        float[] syn1 = contextVectors;
+        float lr = learningRate;
+        float[] error = errorBuffer.get();
+        Random r = rng.get();
+        Arrays.fill(error, 0.0f);
+
+        int l1 = first * vectorSize;
+        for (int d = 0; d <= negative; d++) {
+            int target;
+            float label;
+            if (d == 0) {
+                target = second;
+                label = 1.0f;
+            } else {
+                target = table[r.nextInt(table.length)];
+                if (target == second)
+                    continue;
+                label = 0.0f;
+            }
+            int l2 = target * vectorSize;
+
+            float dot = 0.0f;
+            for (int k = 0; k < vectorSize; k++)
+                dot += syn0[l1 + k] * syn1[l2 + k];
+
+            float g;
+            if (dot >= MAX_EXP) {
+                g = (label - 1.0f) * lr;
+            } else if (dot <= -MAX_EXP) {
+                g = label * lr;
+            } else {
+                int idx = (int) ((dot + MAX_EXP) * (EXP_TABLE_SIZE / MAX_EXP / 2));
+                g = (label - expTable[Math.min(idx, EXP_TABLE_SIZE - 1)]) * lr;
+            }
+
+            for (int k = 0; k < vectorSize; k++)
+                error[k] += g * syn1[l2 + k];
+            for (int k = 0; k < vectorSize; k++)
+                syn1[l2 + k] += g * syn0[l1 + k];
+        }
+
+        for (int k = 0; k < vectorSize; k++)
+            syn0[l1 + k] += error[k];
+    }
+
+    /** Calculate the probability (sigmoid of the dot product of the vertex and context vectors) that the second
+     * vertex is in the context of the first vertex */
+    public double calculateProb(int first, int second) {
+        double dot = 0.0;
+        for (int k = 0; k < vectorSize; k++)
+            dot += vertexVectors[first * vectorSize + k] * contextVectors[second * vectorSize + k];
+        return 1.0 / (1.0 + FastMath.exp(-dot));
+    }
+
+    /** Returns a copy of the vector for the vertex with index idx */
+    @Override
+    public INDArray getVector(int idx) {
+        float[] vec = new float[vectorSize];
+        System.arraycopy(vertexVectors, idx * vectorSize, vec, 0, vectorSize);
+        return Nd4j.create(vec);
+    }
+
+    /** Returns a copy of the context ('output') vector for the vertex with index idx */
+    public INDArray getContextVector(int idx) {
+        float[] vec = new float[vectorSize];
+        System.arraycopy(contextVectors, idx * vectorSize, vec, 0, vectorSize);
+        return Nd4j.create(vec);
+    }
+
+    /** Returns a copy of all vertex vectors, as a [nVertices, vectorSize] matrix */
+    public INDArray getVertexVectors() {
+        return Nd4j.create(vertexVectors, new int[] {nVertices, vectorSize}, 'c');
+    }
+
+    @Override
+    public void setLearningRate(double learningRate) {
+        this.learningRate = (float) learningRate;
+    }
+
+    @Override
+    public int getNumVertices() {
+        return nVertices;
+    }
+}
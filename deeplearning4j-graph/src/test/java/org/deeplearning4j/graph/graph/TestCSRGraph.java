@@ -0,0 +1,179 @@
+package org.deeplearning4j.graph.graph;
+
+import org.deeplearning4j.graph.api.Edge;
+import org.deeplearning4j.graph.api.IVertexSequence;
+import org.deeplearning4j.graph.api.NoEdgeHandling;
+import org.deeplearning4j.graph.data.GraphLoader;
+import org.deeplearning4j.graph.exception.NoEdgesException;
+import org.deeplearning4j.graph.iterator.RandomWalkIterator;
+import org.deeplearning4j.graph.iterator.WeightedRandomWalkIterator;
+import org.deeplearning4j.graph.vertexfactory.StringVertexFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestCSRGraph {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void testFromEdges() {
+        //Undirected: 0--1, 0--2, 1--2, 3 has no edges
+        int[] from = {0, 0, 1};
+        int[] to = {1, 2, 2};
+        CSRGraph<String> graph = CSRGraph.fromEdges(4, from, to, null, 3, false, new StringVertexFactory());
+
+        assertEquals(4, graph.numVertices());
+        assertEquals(6, graph.numStoredEdges());
+        assertFalse(graph.isWeighted());
+        assertArrayEquals(new int[] {1, 2}, graph.getConnectedVertexIndices(0));
+        assertArrayEquals(new int[] {0, 2}, graph.getConnectedVertexIndices(1));
+        assertArrayEquals(new int[] {0, 1}, graph.getConnectedVertexIndices(2));
+        assertEquals(0, graph.getVertexDegree(3));
+        assertEquals("2", graph.getVertex(2).getValue());
+
+        List<Edge<Float>> edges = graph.getEdgesOut(2);
+        assertEquals(Arrays.asList(new Edge<Float>(2, 0, null, false), new Edge<Float>(2, 1, null, false)), edges);
+
+        Random r = new Random(12345);
+        for (int i = 0; i < 20; i++) {
+            int v = graph.randomConnectedVertexIndex(0, r);
+            assertTrue(v == 1 || v == 2);
+        }
+
+        try {
+            graph.getRandomConnectedVertex(3, r);
+            fail("Expected exception");
+        } catch (NoEdgesException e) {
+            //OK
+        }
+
+        //Directed
+        graph = CSRGraph.fromEdges(4, from, to, null, 3, true, new StringVertexFactory());
+        assertEquals(3, graph.numStoredEdges());
+        assertArrayEquals(new int[] {1, 2}, graph.getConnectedVertexIndices(0));
+        assertArrayEquals(new int[] {2}, graph.getConnectedVertexIndices(1));
+        assertEquals(0, graph.getVertexDegree(2));
+    }
+
+    @Test
+    public void testAliasSampling() {
+        //Vertex 0 has edges to 1..4 with weights 1, 2, 3, 4 (and a zero weight edge to 5)
+        int[] from = {0, 0, 0, 0, 0, 1, 2, 3, 4, 5};
+        int[] to = {1, 2, 3, 4, 5, 0, 0, 0, 0, 0};
+        float[] weights = {1, 2, 3, 4, 0, 1, 1, 1, 1, 0};
+        CSRGraph<String> graph = CSRGraph.fromEdges(6, from, to, weights, from.length, true, new StringVertexFactory());
+        assertTrue(graph.isWeighted());
+
+        int n = 200000;
+        int[] counts = new int[6];
+        Random r = new Random(12345);
+        for (int i = 0; i < n; i++)
+            counts[graph.weightedRandomConnectedVertexIndex(0, r)]++;
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[5]);
+        for (int i = 1; i <= 4; i++)
+            assertEquals(i / 10.0, counts[i] / (double) n, 0.01);
+
+        //All zero weights: uniform
+        assertEquals(0, graph.weightedRandomConnectedVertexIndex(5, r));
+    }
+
+    @Test
+    public void testWalks() {
+        //Weighted cycle: each vertex i -> i+1 with weight 1 and i -> i+2 with weight 0
+        int nVertices = 10;
+        int[] from = new int[2 * nVertices];
+        int[] to = new int[2 * nVertices];
+        float[] weights = new float[2 * nVertices];
+        for (int i = 0; i < nVertices; i++) {
+            from[2 * i] = i;
+            to[2 * i] = (i + 1) % nVertices;
+            weights[2 * i] = 1.0f;
+            from[2 * i + 1] = i;
+            to[2 * i + 1] = (i + 2) % nVertices;
+            weights[2 * i + 1] = 0.0f;
+        }
+        CSRGraph<String> graph = CSRGraph.fromEdges(nVertices, from, to, weights, from.length, true,
+                        new StringVertexFactory());
+
+        WeightedRandomWalkIterator<String> iter = new WeightedRandomWalkIterator<>(graph, 5, 12345);
+        int count = 0;
+        while (iter.hasNext()) {
+            IVertexSequence<String> seq = iter.next();
+            int prev = seq.next().vertexID();
+            while (seq.hasNext()) {
+                int curr = seq.next().vertexID();
+                assertEquals((prev + 1) % nVertices, curr);
+                prev = curr;
+            }
+            count++;
+        }
+        assertEquals(nVertices, count);
+
+        RandomWalkIterator<String> rIter = new RandomWalkIterator<>(graph, 5, 12345);
+        while (rIter.hasNext()) {
+            IVertexSequence<String> seq = rIter.next();
+            int prev = seq.next().vertexID();
+            while (seq.hasNext()) {
+                int curr = seq.next().vertexID();
+                assertTrue(curr == (prev + 1) % nVertices || curr == (prev + 2) % nVertices);
+                prev = curr;
+            }
+        }
+
+        //Disconnected vertex: self loop
+        CSRGraph<String> g2 = CSRGraph.fromEdges(3, new int[] {0}, new int[] {1}, new float[] {1.0f}, 1, true,
+                        new StringVertexFactory());
+        iter = new WeightedRandomWalkIterator<>(g2, 3, 12345, NoEdgeHandling.SELF_LOOP_ON_DISCONNECTED);
+        while (iter.hasNext()) {
+            IVertexSequence<String> seq = iter.next();
+            assertEquals(4, seq.sequenceLength());
+        }
+    }
+
+    @Test
+    public void testParallelLoading() throws Exception {
+        int nVertices = 5000;
+        int nEdges = 40000;
+        File f = testDir.newFile("edges.txt");
+        Random r = new Random(12345);
+        int[] from = new int[nEdges];
+        int[] to = new int[nEdges];
+        float[] weights = new float[nEdges];
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(f))) {
+            bw.write("//Comment line\n");
+            for (int i = 0; i < nEdges; i++) {
+                from[i] = r.nextInt(nVertices);
+                to[i] = r.nextInt(nVertices);
+                weights[i] = r.nextInt(100) / 4.0f;
+                bw.write(from[i] + "," + to[i] + "," + weights[i] + (i % 7 == 0 ? "\r\n" : "\n"));
+                if (i % 1000 == 0)
+                    bw.write("\n");
+            }
+        }
+        assertTrue(f.length() > 4 * 65536);
+
+        CSRGraph<String> expected = CSRGraph.fromEdges(nVertices, from, to, weights, nEdges, false,
+                        new StringVertexFactory());
+        for (int nThreads : new int[] {1, 4, 7}) {
+            CSRGraph<String> graph = GraphLoader.loadCSRGraphEdgeListFile(f.getAbsolutePath(), nVertices, ",", false,
+                            true, nThreads, "//");
+            assertEquals(2 * nEdges, graph.numStoredEdges());
+            for (int i = 0; i < nVertices; i++) {
+                assertArrayEquals(expected.getConnectedVertexIndices(i), graph.getConnectedVertexIndices(i));
+                assertEquals(expected.getEdgesOut(i), graph.getEdgesOut(i));
+            }
+        }
+    }
+}
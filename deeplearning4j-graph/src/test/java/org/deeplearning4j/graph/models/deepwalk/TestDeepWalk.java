@@ -10,6 +10,7 @@ import org.deeplearning4j.graph.iterator.RandomWalkIterator;
 import org.deeplearning4j.graph.iterator.parallel.GraphWalkIteratorProvider;
 import org.deeplearning4j.graph.iterator.parallel.WeightedRandomWalkGraphIteratorProvider;
 import org.deeplearning4j.graph.models.GraphVectors;
+import org.deeplearning4j.graph.models.embeddings.NegativeSamplingGraphLookupTable;
 import org.deeplearning4j.graph.models.loader.GraphVectorSerializer;
 import org.deeplearning4j.graph.vertexfactory.StringVertexFactory;
 import org.junit.Test;
@@ -213,6 +214,49 @@ public class TestDeepWalk {
             System.out.println(deepWalk.getVertexVector(i));
     }
 
+    @Test
+    public void testDeepWalkNegativeSampling() {
+        //Two disconnected cliques of 6 vertices: vertices in the same clique should end up with similar vectors
+        int cliqueSize = 6;
+        Graph<String, String> graph = new Graph<>(2 * cliqueSize, false, new StringVertexFactory());
+        for (int c = 0; c < 2; c++) {
+            for (int i = 0; i < cliqueSize; i++) {
+                for (int j = i + 1; j < cliqueSize; j++) {
+                    graph.addEdge(c * cliqueSize + i, c * cliqueSize + j, null, false);
+                }
+            }
+        }
+
+        DeepWalk<String, String> deepWalk = new DeepWalk.Builder<String, String>().vectorSize(20).windowSize(2)
+                        .negativeSample(5).learningRate(0.025).seed(12345).build();
+        deepWalk.initialize(graph);
+        assertTrue(deepWalk.lookupTable() instanceof NegativeSamplingGraphLookupTable);
+
+        //Unigram table: all vertices have the same degree
+        int[] counts = new int[2 * cliqueSize];
+        for (int v : ((NegativeSamplingGraphLookupTable) deepWalk.lookupTable()).getTable())
+            counts[v]++;
+        int tableSize = NegativeSamplingGraphLookupTable.DEFAULT_TABLE_SIZE;
+        for (int c : counts)
+            assertEquals(1.0 / counts.length, c / (double) tableSize, 1e-3);
+
+        for (int i = 0; i < 50; i++)
+            deepWalk.fit(graph, 10);
+
+        for (int i = 0; i < 2 * cliqueSize; i++) {
+            for (int j = 0; j < 2 * cliqueSize; j++) {
+                if (i == j)
+                    continue;
+                boolean sameClique = (i / cliqueSize) == (j / cliqueSize);
+                double sim = deepWalk.similarity(i, j);
+                if (sameClique)
+                    assertTrue(i + "," + j + ": " + sim, sim > 0.5);
+                else
+                    assertTrue(i + "," + j + ": " + sim, sim < 0.5);
+            }
+        }
+    }
+
     @Test
     public void testDeepWalkWeightedParallel() throws IOException {
 
@@ -0,0 +1,21 @@
+package org.deeplearning4j.nearestneighbor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Vectors to be added to the index.
+ * Vectors are passed either as json array of vectors, or as base64 encoded ndarray (one vector per row).
+ * If ids are omitted, new ids are assigned. Existing vectors with the same ids are replaced.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearestNeighborsAddRequest implements Serializable {
+    private int[] ids;
+    private double[][] vectors;
+    private String ndarray;
+}
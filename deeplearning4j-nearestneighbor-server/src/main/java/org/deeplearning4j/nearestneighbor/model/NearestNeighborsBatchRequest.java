@@ -0,0 +1,20 @@
+package org.deeplearning4j.nearestneighbor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Batch of arbitrary query vectors.
+ * Queries are passed either as json array of vectors, or as base64 encoded ndarray (one query per row)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearestNeighborsBatchRequest implements Serializable {
+    private int k;
+    private double[][] vectors;
+    private String ndarray;
+}
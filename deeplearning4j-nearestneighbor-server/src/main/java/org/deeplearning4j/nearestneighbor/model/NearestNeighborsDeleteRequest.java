@@ -0,0 +1,17 @@
+package org.deeplearning4j.nearestneighbor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Ids of vectors to be deleted from the index
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearestNeighborsDeleteRequest implements Serializable {
+    private int[] ids;
+}
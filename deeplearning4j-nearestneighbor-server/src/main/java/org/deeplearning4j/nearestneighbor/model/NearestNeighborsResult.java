@@ -12,5 +12,9 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class NearestNeighborsResult {
     private int index;
+    private double distance;
 
+    public NearestNeighborsResult(int index) {
+        this.index = index;
+    }
 }
@@ -0,0 +1,27 @@
+package org.deeplearning4j.nearestneighbor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of search metrics. Latencies are per query, in microseconds.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchMetricsResult implements Serializable {
+    private long requests;
+    private long queries;
+    private long errors;
+    private double queriesPerSecond;
+    private double recentQueriesPerSecond;
+    private double meanLatency;
+    private long p50Latency;
+    private long p99Latency;
+    private long maxLatency;
+}
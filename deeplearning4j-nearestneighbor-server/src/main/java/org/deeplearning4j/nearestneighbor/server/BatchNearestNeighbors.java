@@ -0,0 +1,106 @@
+package org.deeplearning4j.nearestneighbor.server;
+
+import org.deeplearning4j.clustering.vptree.MutableVPTree;
+import org.deeplearning4j.nearestneighbor.model.NearestNeighborsResult;
+import org.deeplearning4j.nearestneighbor.model.NearstNeighborsResults;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs k-NN queries for arbitrary vectors against {@link MutableVPTree}.
+ * Queries of a batch are executed in parallel on a fixed thread pool, since index search is thread-safe.
+ */
+public class BatchNearestNeighbors {
+    private final MutableVPTree index;
+    private final ExecutorService executor;
+    private final SearchMetrics metrics;
+
+    public BatchNearestNeighbors(MutableVPTree index, int threads, SearchMetrics metrics) {
+        this.index = index;
+        this.metrics = metrics;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private int counter = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "NearestNeighbors search thread " + counter++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Looks for k nearest neighbours of single vector
+     *
+     * @param query query vector
+     * @param k number of neighbours
+     * @return
+     */
+    public NearstNeighborsResults search(INDArray query, int k) {
+        long time = System.nanoTime();
+
+        List<Integer> ids = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        index.search(query, k, ids, distances);
+
+        List<NearestNeighborsResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++)
+            results.add(new NearestNeighborsResult(ids.get(i), distances.get(i)));
+
+        if (metrics != null)
+            metrics.onQuery(System.nanoTime() - time);
+
+        return NearstNeighborsResults.builder().results(results).build();
+    }
+
+    /**
+     * Looks for k nearest neighbours of each row of queries matrix, in parallel.
+     * Results are returned in the same order as queries.
+     *
+     * @param queries query vectors, one per row
+     * @param k number of neighbours
+     * @return
+     */
+    public List<NearstNeighborsResults> searchBatch(INDArray queries, final int k) {
+        List<Future<NearstNeighborsResults>> futures = new ArrayList<>(queries.rows());
+        for (int i = 0; i < queries.rows(); i++) {
+            final INDArray query = queries.getRow(i);
+            futures.add(executor.submit(new Callable<NearstNeighborsResults>() {
+                @Override
+                public NearstNeighborsResults call() throws Exception {
+                    return search(query, k);
+                }
+            }));
+        }
+
+        List<NearstNeighborsResults> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<NearstNeighborsResults> future : futures)
+                results.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+
+        return results;
+    }
+
+    public MutableVPTree getIndex() {
+        return index;
+    }
+
+    /**
+     * Stops search threads
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -28,8 +28,8 @@ public class NearestNeighbor {
             List<DataPoint> add = new ArrayList<>();
             List<Double> distances = new ArrayList<>();
             tree.search(new DataPoint(record.getInputIndex(), input), record.getK(), add, distances);
-            for(DataPoint dataPoint : add) {
-                results.add(new NearestNeighborsResult(dataPoint.getIndex()));
+            for (int i = 0; i < add.size(); i++) {
+                results.add(new NearestNeighborsResult(add.get(i).getIndex(), distances.get(i)));
             }
         }
 
@@ -3,12 +3,13 @@ package org.deeplearning4j.nearestneighbor.server;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
-import org.apache.commons.io.FileUtils;
 import org.datavec.api.transform.TransformProcess;
 import org.deeplearning4j.clustering.sptree.DataPoint;
+import org.deeplearning4j.clustering.vptree.MutableVPTree;
 import org.deeplearning4j.clustering.vptree.VPTree;
 import org.deeplearning4j.nearestneighbor.model.*;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.serde.base64.Nd4jBase64;
 import play.Mode;
 import play.libs.Json;
@@ -18,6 +19,7 @@ import play.server.Server;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import static play.mvc.Controller.request;
 import static play.mvc.Results.badRequest;
@@ -32,6 +34,16 @@ import static play.mvc.Results.ok;
  * which (based on the input schema) will automatically
  * have their values transformed.
  *
+ * Routes:
+ * /knn - k nearest neighbors of an existing point, by index
+ * /knnbatch - k nearest neighbors for a batch of arbitrary vectors, searched in parallel
+ * /add - adds vectors to the index, or replaces existing ones
+ * /delete - deletes vectors from the index
+ * /metrics - request counters, throughput and latency
+ *
+ * Added vectors are searched with brute force till the tree gets rebuilt in background,
+ * deleted vectors are filtered out of results till then.
+ *
  * @author Adam Gibson
  */
 public class NearestNeighborsServer {
@@ -43,8 +55,23 @@ public class NearestNeighborsServer {
     private String similarityFunction = "euclidean";
     @Parameter(names = {"--invert"}, arity = 1)
     private boolean invert = false;
+    @Parameter(names = {"--pointsFormat"}, arity = 1, description = "Points file format: base64, binary or raw")
+    private String pointsFormat = PointsLoader.FORMAT_BASE64;
+    @Parameter(names = {"--dimensions"}, arity = 1, description = "Number of columns, required for raw format")
+    private int dimensions = 0;
+    @Parameter(names = {"--searchThreads"}, arity = 1)
+    private int searchThreads = Runtime.getRuntime().availableProcessors();
+    @Parameter(names = {"--devMode"}, arity = 1)
+    private boolean devMode = false;
+    @Parameter(names = {"--maxBufferSize"}, arity = 1, description = "Number of added vectors that triggers tree rebuild")
+    private int maxBufferSize = 4096;
+    @Parameter(names = {"--rebuildRatio"}, arity = 1, description = "Fraction of deleted vectors that triggers tree rebuild")
+    private double rebuildRatio = 0.2;
 
     private Server server;
+    private MutableVPTree index;
+    private BatchNearestNeighbors searcher;
+    private final SearchMetrics metrics = new SearchMetrics();
 
     public void runMain(String[] args) throws Exception {
         JCommander jcmdr = new JCommander(this);
@@ -63,43 +90,185 @@ public class NearestNeighborsServer {
             System.exit(1);
         }
 
-        String json = FileUtils.readFileToString(new File(ndarrayPath));
-        INDArray points = Nd4jBase64.fromBase64(json);
+        final INDArray points = PointsLoader.load(new File(ndarrayPath), pointsFormat, dimensions);
 
 
-        VPTree tree = new VPTree(points,similarityFunction,invert);
+        index = new MutableVPTree.Builder().similarityFunction(similarityFunction).invert(invert)
+                .maxBufferSize(maxBufferSize).rebuildRatio(rebuildRatio).points(points).build();
+        searcher = new BatchNearestNeighbors(index, searchThreads, metrics);
 
 
         RoutingDsl routingDsl = new RoutingDsl();
         //return the host information for a given id
         routingDsl.POST("/knn").routeTo(FunctionUtil.function0((() -> {
+            metrics.onRequest();
             try {
                 NearestNeighborRequest record = Json.fromJson(request().body().asJson(), NearestNeighborRequest.class);
-                NearestNeighbor nearestNeighbor = NearestNeighbor.builder()
-                        .points(points).record(record).tree(tree).build();
                 if (record == null)
                     return badRequest();
-                NearstNeighborsResults results = NearstNeighborsResults.builder().results(nearestNeighbor.search()).build();
+
+                INDArray input = index.getVector(record.getInputIndex());
+                if (input == null)
+                    return badRequest();
+
+                NearstNeighborsResults results = searcher.search(input, record.getK());
+                return ok(Json.toJson(results));
+
+            } catch (Exception e) {
+                metrics.onError();
+                e.printStackTrace();
+                return internalServerError();
+            }
+        })));
+
+        //k nearest neighbors for a batch of arbitrary vectors
+        routingDsl.POST("/knnbatch").routeTo(FunctionUtil.function0((() -> {
+            metrics.onRequest();
+            try {
+                NearestNeighborsBatchRequest record =
+                        Json.fromJson(request().body().asJson(), NearestNeighborsBatchRequest.class);
+                if (record == null || record.getK() <= 0)
+                    return badRequest();
+
+                INDArray queries;
+                if (record.getNdarray() != null)
+                    queries = Nd4jBase64.fromBase64(record.getNdarray());
+                else if (record.getVectors() != null && record.getVectors().length > 0)
+                    queries = Nd4j.create(record.getVectors());
+                else
+                    return badRequest();
+
+                if (queries.isVector())
+                    queries = queries.reshape(1, queries.length());
+
+                if (queries.columns() != index.getDimension())
+                    return badRequest();
+
+                NearestNeighborsBatchResults results = NearestNeighborsBatchResults.builder()
+                        .results(searcher.searchBatch(queries, record.getK())).build();
                 return ok(Json.toJson(results));
 
             } catch (Exception e) {
+                metrics.onError();
                 e.printStackTrace();
                 return internalServerError();
             }
         })));
 
+        //adds new vectors, or replaces existing ones
+        routingDsl.POST("/add").routeTo(FunctionUtil.function0((() -> {
+            metrics.onRequest();
+            try {
+                NearestNeighborsAddRequest record =
+                        Json.fromJson(request().body().asJson(), NearestNeighborsAddRequest.class);
+                if (record == null)
+                    return badRequest();
+
+                INDArray vectors;
+                if (record.getNdarray() != null)
+                    vectors = Nd4jBase64.fromBase64(record.getNdarray());
+                else if (record.getVectors() != null && record.getVectors().length > 0)
+                    vectors = Nd4j.create(record.getVectors());
+                else
+                    return badRequest();
+
+                if (vectors.isVector())
+                    vectors = vectors.reshape(1, vectors.length());
+
+                if (vectors.columns() != index.getDimension()
+                        || (record.getIds() != null && record.getIds().length != vectors.rows()))
+                    return badRequest();
+
+                int[] ids;
+                if (record.getIds() == null) {
+                    ids = index.add(vectors);
+                } else {
+                    for (int id : record.getIds())
+                        if (id < 0)
+                            return badRequest();
 
-        server = Server.forRouter(routingDsl.build(), Mode.DEV, port);
+                    ids = record.getIds();
+                    index.insert(ids, vectors);
+                }
+
+                return ok(Json.toJson(NearestNeighborsUpdateResult.builder().ids(ids).size(index.size()).build()));
+
+            } catch (Exception e) {
+                metrics.onError();
+                e.printStackTrace();
+                return internalServerError();
+            }
+        })));
+
+        //deletes vectors by id, unknown ids are ignored
+        routingDsl.POST("/delete").routeTo(FunctionUtil.function0((() -> {
+            metrics.onRequest();
+            try {
+                NearestNeighborsDeleteRequest record =
+                        Json.fromJson(request().body().asJson(), NearestNeighborsDeleteRequest.class);
+                if (record == null || record.getIds() == null)
+                    return badRequest();
+
+                // single call for the whole request, so the index is rebalanced once
+                List<Integer> deleted = new ArrayList<>();
+                index.delete(record.getIds(), deleted);
+
+                int[] ids = new int[deleted.size()];
+                for (int i = 0; i < ids.length; i++)
+                    ids[i] = deleted.get(i);
+
+                return ok(Json.toJson(NearestNeighborsUpdateResult.builder().ids(ids).size(index.size()).build()));
+
+            } catch (Exception e) {
+                metrics.onError();
+                e.printStackTrace();
+                return internalServerError();
+            }
+        })));
+
+        //latency and throughput metrics
+        routingDsl.GET("/metrics").routeTo(FunctionUtil.function0((() -> ok(Json.toJson(metrics.snapshot())))));
+
+
+        // production mode refuses to start without application secret. we don't use sessions, so random one is fine
+        if (!devMode && System.getProperty("play.crypto.secret") == null)
+            System.setProperty("play.crypto.secret", UUID.randomUUID().toString());
+
+        server = Server.forRouter(routingDsl.build(), devMode ? Mode.DEV : Mode.PROD, port);
 
 
     }
 
+    /**
+     * Returns search metrics of this server
+     *
+     * @return
+     */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns k-NN index served by this server
+     *
+     * @return
+     */
+    public MutableVPTree getIndex() {
+        return index;
+    }
+
     /**
      * Stop the server
      */
     public void stop() {
         if (server != null)
             server.stop();
+
+        if (searcher != null)
+            searcher.shutdown();
+
+        if (index != null)
+            index.shutdown();
     }
 
     public static void main(String[] args) throws Exception {
@@ -0,0 +1,118 @@
+package org.deeplearning4j.nearestneighbor.server;
+
+import org.apache.commons.io.FileUtils;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.serde.base64.Nd4jBase64;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Loads points for {@link NearestNeighborsServer} from one of supported formats:
+ * <ul>
+ *     <li>base64 - ndarray serialized with Nd4jBase64, as json string</li>
+ *     <li>binary - ndarray saved with Nd4j.saveBinary()</li>
+ *     <li>raw - raw little-endian float32 matrix, row by row, without header. Number of columns has to be provided.</li>
+ * </ul>
+ */
+public class PointsLoader {
+    public static final String FORMAT_BASE64 = "base64";
+    public static final String FORMAT_BINARY = "binary";
+    public static final String FORMAT_RAW = "raw";
+
+    private PointsLoader() {}
+
+    /**
+     * Loads points from file in specified format
+     *
+     * @param file source file
+     * @param format one of base64, binary, raw
+     * @param columns number of columns, used for raw format only
+     * @return points, one per row
+     * @throws IOException
+     */
+    public static INDArray load(File file, String format, int columns) throws IOException {
+        switch (format) {
+            case FORMAT_BASE64:
+                return Nd4jBase64.fromBase64(FileUtils.readFileToString(file));
+            case FORMAT_BINARY:
+                return Nd4j.readBinary(file);
+            case FORMAT_RAW:
+                return loadRaw(file, columns);
+            default:
+                throw new IllegalArgumentException("Unknown points format: [" + format + "]");
+        }
+    }
+
+    /**
+     * Reads raw float32 matrix. File contents are copied once, from the file straight into the (off-heap) buffer of
+     * the returned array, without an intermediate heap array.
+     * Please note: the returned points are a copy, and aren't backed by the file.
+     *
+     * @param file source file
+     * @param columns number of columns
+     * @return
+     * @throws IOException
+     */
+    public static INDArray loadRaw(File file, int columns) throws IOException {
+        if (columns <= 0)
+            throw new IllegalArgumentException("Number of columns should be positive for raw format");
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long length = channel.size();
+            if (length % (4L * columns) != 0)
+                throw new IllegalStateException("File length [" + length + "] isn't a multiple of row size ["
+                                + (4L * columns) + "]");
+
+            if (length / 4 > Integer.MAX_VALUE)
+                throw new IllegalStateException("File is too large: [" + length + "] bytes");
+
+            int rows = (int) (length / (4L * columns));
+            INDArray points = Nd4j.createUninitialized(new int[] {rows, columns}, 'c');
+            DataBuffer buffer = points.data();
+            boolean isFloat = buffer.dataType() == DataBuffer.Type.FLOAT;
+            FloatBuffer target = isFloat ? buffer.asNioFloat() : null;
+
+            // single mapping is limited to 2GB, so large files are read chunk by chunk
+            long chunk = (Integer.MAX_VALUE / (4L * columns)) * 4L * columns;
+            long position = 0;
+            for (long offset = 0; offset < length; offset += chunk) {
+                long size = Math.min(chunk, length - offset);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                FloatBuffer floats = mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+                if (isFloat) {
+                    target.put(floats);
+                } else {
+                    while (floats.hasRemaining())
+                        buffer.put(position++, floats.get());
+                }
+            }
+
+            return points;
+        }
+    }
+
+    /**
+     * Writes points as raw float32 matrix, readable by loadRaw()
+     *
+     * @param points points, one per row
+     * @param file target file
+     * @throws IOException
+     */
+    public static void writeRaw(INDArray points, File file) throws IOException {
+        float[] data = points.dup('c').data().asFloat();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            raf.setLength(data.length * 4L);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, data.length * 4L);
+            mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(data);
+            mapped.force();
+        }
+    }
+}
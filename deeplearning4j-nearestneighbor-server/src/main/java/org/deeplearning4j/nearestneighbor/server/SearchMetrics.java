@@ -0,0 +1,106 @@
+package org.deeplearning4j.nearestneighbor.server;
+
+import org.deeplearning4j.nearestneighbor.model.SearchMetricsResult;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free search metrics: request/query counters, throughput and latency histogram.
+ * Latencies are accumulated into power-of-two buckets (in microseconds), so percentiles are approximate.
+ */
+public class SearchMetrics {
+    private static final int BUCKETS = 40;
+    // recent throughput is measured over this number of seconds
+    private static final int WINDOW = 10;
+
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicLong requests = new AtomicLong(0);
+    private final AtomicLong queries = new AtomicLong(0);
+    private final AtomicLong errors = new AtomicLong(0);
+    private final AtomicLong totalLatency = new AtomicLong(0);
+    private final AtomicLong maxLatency = new AtomicLong(0);
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    // per-second query counters, ring buffer indexed by second
+    private final AtomicLongArray secondCounts = new AtomicLongArray(WINDOW + 1);
+    private final AtomicLongArray secondStamps = new AtomicLongArray(WINDOW + 1);
+
+    public void onRequest() {
+        requests.incrementAndGet();
+    }
+
+    public void onError() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Records single query
+     *
+     * @param latencyNanos query latency, in nanoseconds
+     */
+    public void onQuery(long latencyNanos) {
+        queries.incrementAndGet();
+
+        long micros = Math.max(0, latencyNanos / 1000);
+        totalLatency.addAndGet(micros);
+        histogram.incrementAndGet(bucket(micros));
+
+        long max;
+        while (micros > (max = maxLatency.get()))
+            if (maxLatency.compareAndSet(max, micros))
+                break;
+
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % secondCounts.length());
+        long stamp = secondStamps.get(slot);
+        if (stamp != second && secondStamps.compareAndSet(slot, stamp, second))
+            secondCounts.set(slot, 0);
+        secondCounts.incrementAndGet(slot);
+    }
+
+    private static int bucket(long micros) {
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private long percentile(double fraction, long total) {
+        if (total == 0)
+            return 0;
+
+        long threshold = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= threshold)
+                return i == 0 ? 0 : (1L << i) - 1;
+        }
+        return maxLatency.get();
+    }
+
+    /**
+     * Returns current metrics values
+     *
+     * @return
+     */
+    public SearchMetricsResult snapshot() {
+        long totalQueries = queries.get();
+        double uptime = Math.max(1, System.currentTimeMillis() - startTime) / 1000.0;
+
+        // current second isn't complete yet, so it's excluded from recent throughput
+        long currentSecond = System.currentTimeMillis() / 1000;
+        long recent = 0;
+        for (int i = 0; i < secondCounts.length(); i++) {
+            long stamp = secondStamps.get(i);
+            if (stamp < currentSecond && stamp >= currentSecond - WINDOW)
+                recent += secondCounts.get(i);
+        }
+
+        return SearchMetricsResult.builder().requests(requests.get()).queries(totalQueries).errors(errors.get())
+                        .queriesPerSecond(totalQueries / uptime)
+                        .recentQueriesPerSecond(recent / (double) Math.min(WINDOW, Math.max(1, (long) uptime)))
+                        .meanLatency(totalQueries == 0 ? 0.0 : totalLatency.get() / (double) totalQueries)
+                        .p50Latency(percentile(0.5, totalQueries)).p99Latency(percentile(0.99, totalQueries))
+                        .maxLatency(maxLatency.get()).build();
+    }
+}
@@ -0,0 +1,79 @@
+package org.deeplearning4j.nearestneighbor.server;
+
+import org.deeplearning4j.clustering.vptree.MutableVPTree;
+import org.deeplearning4j.nearestneighbor.model.NearstNeighborsResults;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.util.DataTypeUtil;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchNearestNeighborsTest {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void testRawPoints() throws Exception {
+        INDArray points = Nd4j.rand(100, 7);
+        File file = testDir.newFile("points.bin");
+        PointsLoader.writeRaw(points, file);
+
+        DataBuffer.Type initial = Nd4j.dataType();
+        try {
+            for (DataBuffer.Type type : new DataBuffer.Type[] {DataBuffer.Type.FLOAT, DataBuffer.Type.DOUBLE}) {
+                DataTypeUtil.setDTypeForContext(type);
+                INDArray restored = PointsLoader.load(file, PointsLoader.FORMAT_RAW, 7);
+                assertEquals(type, restored.data().dataType());
+                assertEquals(100, restored.rows());
+                assertEquals(7, restored.columns());
+                for (int i = 0; i < points.length(); i++)
+                    assertEquals(points.getDouble(i), restored.getDouble(i), 1e-6);
+            }
+        } finally {
+            DataTypeUtil.setDTypeForContext(initial);
+        }
+    }
+
+    @Test
+    public void testBinaryPoints() throws Exception {
+        INDArray points = Nd4j.rand(10, 3);
+        File file = testDir.newFile("points.nd4j");
+        Nd4j.saveBinary(points, file);
+
+        assertEquals(points, PointsLoader.load(file, PointsLoader.FORMAT_BINARY, 0));
+    }
+
+    @Test
+    public void testBatchSearch() throws Exception {
+        INDArray points = Nd4j.rand(1000, 5);
+        MutableVPTree index = new MutableVPTree(points, "euclidean", false);
+        SearchMetrics metrics = new SearchMetrics();
+        BatchNearestNeighbors searcher = new BatchNearestNeighbors(index, 4, metrics);
+
+        try {
+            // every point is the nearest neighbour of itself
+            List<NearstNeighborsResults> results = searcher.searchBatch(points.get(NDArrayIndex.interval(0, 50), NDArrayIndex.all()),
+                            3);
+            assertEquals(50, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(3, results.get(i).getResults().size());
+                // invert = false, so nearest result is the last one
+                assertEquals(i, results.get(i).getResults().get(2).getIndex());
+                assertEquals(0.0, results.get(i).getResults().get(2).getDistance(), 1e-5);
+            }
+
+            assertEquals(50, metrics.snapshot().getQueries());
+        } finally {
+            searcher.shutdown();
+        }
+    }
+}
@@ -8,9 +8,7 @@ import org.apache.commons.io.FileUtils;
 import org.datavec.api.transform.TransformProcess;
 import org.datavec.api.transform.schema.Schema;
 
-import org.deeplearning4j.nearestneighbor.model.NearestNeighborRequest;
-import org.deeplearning4j.nearestneighbor.model.NearestNeighborsResult;
-import org.deeplearning4j.nearestneighbor.model.NearstNeighborsResults;
+import org.deeplearning4j.nearestneighbor.model.*;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -24,6 +22,7 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by agibsonccc on 1/22/17.
@@ -88,4 +87,63 @@ public class NearestNeighborsServerTest {
 
     }
 
+    @Test
+    public void testBatchServer() throws Exception {
+        NearestNeighborsBatchRequest request = new NearestNeighborsBatchRequest();
+        request.setK(2);
+        request.setVectors(new double[][] {{1, 2, 3, 4.1}, {3, 4, 5, 6.5}});
+        NearestNeighborsBatchResults results = Unirest.post("http://localhost:9050/knnbatch")
+                .header("accept", "application/json").header("Content-Type", "application/json").body(request)
+                .asObject(NearestNeighborsBatchResults.class).getBody();
+
+        assertEquals(2, results.getResults().size());
+        for (NearstNeighborsResults result : results.getResults())
+            assertEquals(2, result.getResults().size());
+
+        // results are ordered farthest first, since server runs with invert = false
+        assertEquals(0, results.getResults().get(0).getResults().get(1).getIndex());
+        assertEquals(0.1, results.getResults().get(0).getResults().get(1).getDistance(), 1e-5);
+        assertEquals(2, results.getResults().get(1).getResults().get(1).getIndex());
+
+        SearchMetricsResult metrics = Unirest.get("http://localhost:9050/metrics").header("accept", "application/json")
+                .asObject(SearchMetricsResult.class).getBody();
+        assertTrue(metrics.getQueries() >= 2);
+        assertTrue(metrics.getRequests() >= 1);
+    }
+
+    @Test
+    public void testAddDelete() throws Exception {
+        // far away from the other points, so concurrently running tests aren't affected
+        NearestNeighborsAddRequest add = new NearestNeighborsAddRequest();
+        add.setVectors(new double[][] {{100, 100, 100, 100}});
+        NearestNeighborsUpdateResult added = Unirest.post("http://localhost:9050/add").header("accept", "application/json")
+                .header("Content-Type", "application/json").body(add)
+                .asObject(NearestNeighborsUpdateResult.class).getBody();
+
+        assertEquals(1, added.getIds().length);
+        int id = added.getIds()[0];
+        assertTrue(id >= 3);
+
+        NearestNeighborsBatchRequest query = new NearestNeighborsBatchRequest();
+        query.setK(1);
+        query.setVectors(new double[][] {{99, 99, 99, 99}});
+        NearestNeighborsBatchResults results = Unirest.post("http://localhost:9050/knnbatch")
+                .header("accept", "application/json").header("Content-Type", "application/json").body(query)
+                .asObject(NearestNeighborsBatchResults.class).getBody();
+        assertEquals(id, results.getResults().get(0).getResults().get(0).getIndex());
+
+        NearestNeighborsDeleteRequest delete = new NearestNeighborsDeleteRequest(new int[] {id, 12345});
+        NearestNeighborsUpdateResult deleted = Unirest.post("http://localhost:9050/delete")
+                .header("accept", "application/json").header("Content-Type", "application/json").body(delete)
+                .asObject(NearestNeighborsUpdateResult.class).getBody();
+        assertEquals(1, deleted.getIds().length);
+        assertEquals(id, deleted.getIds()[0]);
+        assertEquals(3, deleted.getSize());
+
+        results = Unirest.post("http://localhost:9050/knnbatch").header("accept", "application/json")
+                .header("Content-Type", "application/json").body(query)
+                .asObject(NearestNeighborsBatchResults.class).getBody();
+        assertEquals(2, results.getResults().get(0).getResults().get(0).getIndex());
+    }
+
 }
@@ -57,6 +57,16 @@ public abstract class TokenizerBase {
 
     protected EnumMap<ViterbiNode.Type, Dictionary> dictionaryMap = new EnumMap<>(ViterbiNode.Type.class);
 
+    /**
+     * Lattice reused by all texts tokenized on a thread, so that building and searching the lattice does not allocate
+     */
+    private final ThreadLocal<ViterbiArrayLattice> lattices = new ThreadLocal<ViterbiArrayLattice>() {
+        @Override
+        protected ViterbiArrayLattice initialValue() {
+            return new ViterbiArrayLattice();
+        }
+    };
+
     protected void configure(Builder builder) {
 
         builder.loadDictionaries();
@@ -206,19 +216,23 @@ public abstract class TokenizerBase {
      * @return list of Token
      */
     private <T extends TokenBase> List<T> createTokenList(int offset, String text) {
-        ArrayList<T> result = new ArrayList<>();
-
-        ViterbiLattice lattice = viterbiBuilder.build(text);
-        List<ViterbiNode> bestPath = viterbiSearcher.search(lattice);
-
-        for (ViterbiNode node : bestPath) {
-            int wordId = node.getWordId();
-            if (node.getType() == ViterbiNode.Type.KNOWN && wordId == -1) { // Do not include BOS/EOS
+        ViterbiArrayLattice lattice = lattices.get();
+        viterbiBuilder.build(text, lattice);
+        viterbiSearcher.search(lattice);
+
+        int pathLength = lattice.getPathLength();
+        ArrayList<T> result = new ArrayList<>(pathLength);
+
+        for (int i = 0; i < pathLength; i++) {
+            int node = lattice.getPathNode(i);
+            int wordId = lattice.getWordId(node);
+            ViterbiNode.Type type = lattice.getType(node);
+            if (type == ViterbiNode.Type.KNOWN && wordId == -1) { // Do not include BOS/EOS
                 continue;
             }
             @SuppressWarnings("unchecked")
-            T token = (T) tokenFactory.createToken(wordId, node.getSurface(), node.getType(),
-                            offset + node.getStartIndex(), dictionaryMap.get(node.getType()));
+            T token = (T) tokenFactory.createToken(wordId, lattice.getSurface(node), type,
+                            offset + lattice.getStartIndex(node), dictionaryMap.get(type));
             result.add(token);
         }
 
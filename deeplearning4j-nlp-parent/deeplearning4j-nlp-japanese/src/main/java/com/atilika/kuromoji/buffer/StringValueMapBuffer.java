@@ -41,6 +41,13 @@ public class StringValueMapBuffer {
         buffer = ByteBufferIO.read(is);
     }
 
+    /**
+     * @param buffer  string value map contents, for example a view of a memory-mapped file
+     */
+    public StringValueMapBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
     private static int getMetaDataSize() {
         return INTEGER_BYTES;
     }
@@ -86,7 +93,16 @@ public class StringValueMapBuffer {
 
     private String getString(int address) {
         int length = buffer.getShort(address);
-        return new String(buffer.array(), address + SHORT_BYTES, length, StandardCharsets.UTF_8);
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + address + SHORT_BYTES, length,
+                            StandardCharsets.UTF_8);
+        }
+        // Direct or memory-mapped buffer: absolute gets only, as the buffer may be shared by multiple threads
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(address + SHORT_BYTES + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     public void write(OutputStream os) throws IOException {
@@ -16,32 +16,78 @@
  */
 package com.atilika.kuromoji.buffer;
 
+import com.atilika.kuromoji.io.ByteBufferIO;
 import com.atilika.kuromoji.io.IntegerArrayIO;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
 public class WordIdMap {
 
-    private final int[] indices;
+    private final IntBuffer indices;
 
-    private final int[] wordIds;
+    private final IntBuffer wordIds;
 
     private final int[] empty = new int[] {};
 
     public WordIdMap(InputStream input) throws IOException {
-        indices = IntegerArrayIO.readArray(input);
-        wordIds = IntegerArrayIO.readArray(input);
+        indices = IntBuffer.wrap(IntegerArrayIO.readArray(input));
+        wordIds = IntBuffer.wrap(IntegerArrayIO.readArray(input));
+    }
+
+    public WordIdMap(IntBuffer indices, IntBuffer wordIds) {
+        this.indices = indices;
+        this.wordIds = wordIds;
+    }
+
+    /**
+     * Memory-maps a word id map written by {@link com.atilika.kuromoji.compile.WordIdMapCompiler}
+     *
+     * @param file  word id map file
+     * @return word id map backed by the mapped file
+     * @throws IOException if the file can't be mapped
+     */
+    public static WordIdMap map(File file) throws IOException {
+        ByteBuffer mapped = ByteBufferIO.map(file);
+        IntBuffer indices = IntegerArrayIO.sliceArray(mapped, 0);
+        IntBuffer wordIds = IntegerArrayIO.sliceArray(mapped, (1 + indices.capacity()) * (Integer.SIZE / Byte.SIZE));
+        return new WordIdMap(indices, wordIds);
     }
 
     public int[] lookUp(int sourceId) {
-        int index = indices[sourceId];
+        int index = indices.get(sourceId);
 
         if (index == -1) {
             return empty;
         }
 
-        return Arrays.copyOfRange(wordIds, index + 1, index + 1 + wordIds[index]);
+        int[] result = new int[wordIds.get(index)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = wordIds.get(index + 1 + i);
+        }
+        return result;
+    }
+
+    /**
+     * @param sourceId  source id (double array trie index)
+     * @return number of word ids for the source id
+     */
+    public int lookUpCount(int sourceId) {
+        int index = indices.get(sourceId);
+        return index == -1 ? 0 : wordIds.get(index);
+    }
+
+    /**
+     * Returns a single word id for the source id, without copying the word ids for the source id to a new array
+     *
+     * @param sourceId  source id (double array trie index)
+     * @param i  position of the word id, between 0 and {@link #lookUpCount(int)} (exclusive)
+     * @return word id
+     */
+    public int lookUp(int sourceId, int i) {
+        return wordIds.get(indices.get(sourceId) + 1 + i);
     }
 }
@@ -22,6 +22,7 @@ import com.atilika.kuromoji.util.KuromojiBinFilesFetcher;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -50,6 +51,21 @@ public class ConnectionCosts {
         return read(resolver.resolve(CONNECTION_COSTS_FILENAME));
     }
 
+    /**
+     * Creates connection costs backed by a memory-mapped connection costs file, instead of reading the file into
+     * the heap
+     *
+     * @param file  connection costs file
+     * @return connection costs, not null
+     * @throws IOException if the file can't be mapped
+     */
+    public static ConnectionCosts map(File file) throws IOException {
+        ByteBuffer mapped = ByteBufferIO.map(file);
+        int size = mapped.getInt(0);
+        ShortBuffer costs = ByteBufferIO.slice(mapped, Integer.SIZE / Byte.SIZE).asShortBuffer();
+        return new ConnectionCosts(size, costs);
+    }
+
     private static ConnectionCosts read(InputStream input) throws IOException {
         DataInputStream dataInput = new DataInputStream(new BufferedInputStream(input));
 
@@ -0,0 +1,84 @@
+/*-*
+ * Copyright © 2010-2015 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.dict;
+
+import com.atilika.kuromoji.trie.DoubleArrayTrie;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The large compiled dictionaries (double array trie, connection costs and token info dictionary) memory-mapped from
+ * a dictionary directory, and shared process-wide
+ * <p>
+ * The dictionaries are mapped once per directory, on the first call to {@link #getInstance(File)}. The mapped
+ * dictionaries are read-only and only use absolute buffer reads, so every tokenizer in the process can use the same
+ * instance: creating further tokenizers costs neither startup time nor heap for these dictionaries, and the pages of
+ * the dictionary files are shared through the OS page cache.
+ * <p>
+ * The character definitions and unknown word dictionary are small, and may be modified by a tokenizer (see
+ * {@link CharacterDefinitions#setCategories(char, String[])}), so they are not shared.
+ */
+public class MappedDictionaries {
+
+    private static final Map<String, MappedDictionaries> instances = new HashMap<>();
+
+    private final DoubleArrayTrie doubleArrayTrie;
+    private final ConnectionCosts connectionCosts;
+    private final TokenInfoDictionary tokenInfoDictionary;
+
+    private MappedDictionaries(File directory) throws IOException {
+        doubleArrayTrie = DoubleArrayTrie.map(dictionaryFile(directory, DoubleArrayTrie.DOUBLE_ARRAY_TRIE_FILENAME));
+        connectionCosts = ConnectionCosts.map(dictionaryFile(directory, ConnectionCosts.CONNECTION_COSTS_FILENAME));
+        tokenInfoDictionary = TokenInfoDictionary.map(directory);
+    }
+
+    private static File dictionaryFile(File directory, String filename) {
+        return new File(directory, new File(filename).getName());
+    }
+
+    /**
+     * Returns the shared dictionaries for a directory, mapping them on first use
+     *
+     * @param directory  directory containing the compiled dictionary files
+     * @return shared dictionaries, not null
+     * @throws IOException if the dictionary files can't be mapped
+     */
+    public static synchronized MappedDictionaries getInstance(File directory) throws IOException {
+        String key = directory.getCanonicalPath();
+        MappedDictionaries dictionaries = instances.get(key);
+        if (dictionaries == null) {
+            dictionaries = new MappedDictionaries(directory);
+            instances.put(key, dictionaries);
+        }
+        return dictionaries;
+    }
+
+    public DoubleArrayTrie getDoubleArrayTrie() {
+        return doubleArrayTrie;
+    }
+
+    public ConnectionCosts getConnectionCosts() {
+        return connectionCosts;
+    }
+
+    public TokenInfoDictionary getTokenInfoDictionary() {
+        return tokenInfoDictionary;
+    }
+}
@@ -20,12 +20,15 @@ import com.atilika.kuromoji.buffer.BufferEntry;
 import com.atilika.kuromoji.buffer.StringValueMapBuffer;
 import com.atilika.kuromoji.buffer.TokenInfoBuffer;
 import com.atilika.kuromoji.buffer.WordIdMap;
+import com.atilika.kuromoji.io.ByteBufferIO;
 import com.atilika.kuromoji.util.DictionaryEntryLineParser;
 import com.atilika.kuromoji.util.ResourceResolver;
 import com.atilika.kuromoji.util.StringUtils;
 import com.atilika.kuromoji.util.KuromojiBinFilesFetcher;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class TokenInfoDictionary implements Dictionary {
 
@@ -57,6 +60,14 @@ public class TokenInfoDictionary implements Dictionary {
         return wordIdMap.lookUp(sourceId);
     }
 
+    public int lookupWordIdCount(int sourceId) {
+        return wordIdMap.lookUpCount(sourceId);
+    }
+
+    public int lookupWordId(int sourceId, int i) {
+        return wordIdMap.lookUp(sourceId, i);
+    }
+
     @Override
     public int getLeftId(int wordId) {
         return tokenInfoBuffer.lookupTokenInfo(wordId, LEFT_ID);
@@ -167,6 +178,27 @@ public class TokenInfoDictionary implements Dictionary {
         return dictionary;
     }
 
+    /**
+     * Creates a token info dictionary backed by memory-mapped dictionary files, instead of reading the files into the
+     * heap. The dictionary is read-only and can be shared by any number of tokenizers
+     *
+     * @param directory  directory containing the compiled dictionary files
+     * @return token info dictionary, not null
+     * @throws IOException if the dictionary files can't be mapped
+     */
+    public static TokenInfoDictionary map(File directory) throws IOException {
+        TokenInfoDictionary dictionary = new TokenInfoDictionary();
+        dictionary.tokenInfoBuffer = new TokenInfoBuffer(mapBuffer(directory, TOKEN_INFO_DICTIONARY_FILENAME));
+        dictionary.stringValues = new StringValueMapBuffer(mapBuffer(directory, FEATURE_MAP_FILENAME));
+        dictionary.posValues = new StringValueMapBuffer(mapBuffer(directory, POS_MAP_FILENAME));
+        dictionary.wordIdMap = WordIdMap.map(new File(directory, new File(TARGETMAP_FILENAME).getName()));
+        return dictionary;
+    }
+
+    private static ByteBuffer mapBuffer(File directory, String filename) throws IOException {
+        return ByteBufferIO.slice(ByteBufferIO.map(new File(directory, new File(filename).getName())), 0);
+    }
+
     private void setup(ResourceResolver resolver) throws IOException {
         tokenInfoBuffer = new TokenInfoBuffer(resolver.resolve(TOKEN_INFO_DICTIONARY_FILENAME));
         stringValues = new StringValueMapBuffer(resolver.resolve(FEATURE_MAP_FILENAME));
@@ -19,11 +19,14 @@ package com.atilika.kuromoji.io;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
 public class ByteBufferIO {
 
+    private static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+
     public static ByteBuffer read(InputStream input) throws IOException {
         DataInputStream dataInput = new DataInputStream(new BufferedInputStream(input));
 
@@ -37,6 +40,48 @@ public class ByteBufferIO {
         return buffer;
     }
 
+    /**
+     * Memory-maps a file read-only. The returned buffer does not use heap memory for the file contents, and can be
+     * shared by multiple threads as long as only absolute get methods are used on it
+     *
+     * @param file  file to map
+     * @return read-only buffer with the contents of the file
+     * @throws IOException if the file can't be mapped
+     */
+    public static ByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Returns a view of a buffer stored with {@link #write(OutputStream, ByteBuffer)} at the given position of a
+     * (usually memory-mapped) buffer, without copying it
+     *
+     * @param source  buffer containing the stored buffer
+     * @param position  position of the stored buffer (its size field) in source
+     * @return view of the stored buffer
+     */
+    public static ByteBuffer slice(ByteBuffer source, int position) {
+        int size = source.getInt(position);
+        return slice(source, position + INT_BYTES, size);
+    }
+
+    /**
+     * Returns a view of length bytes of the source buffer, starting at the given position, without copying them
+     *
+     * @param source  source buffer
+     * @param position  position of the first byte
+     * @param length  number of bytes
+     * @return view of the bytes
+     */
+    public static ByteBuffer slice(ByteBuffer source, int position, int length) {
+        ByteBuffer duplicate = source.duplicate();
+        duplicate.limit(position + length);
+        duplicate.position(position);
+        return duplicate.slice();
+    }
+
     public static void write(OutputStream output, ByteBuffer buffer) throws IOException {
         DataOutputStream dataOutput = new DataOutputStream(new BufferedOutputStream(output));
 
@@ -44,6 +44,19 @@ public class IntegerArrayIO {
         return array;
     }
 
+    /**
+     * Returns a view of an array stored with {@link #writeArray(OutputStream, int[])} at the given position of a
+     * (usually memory-mapped) buffer, without copying it. The stored array takes 4 + 4 * capacity() bytes
+     *
+     * @param source  buffer containing the stored array
+     * @param position  position of the stored array (its length field) in source
+     * @return view of the stored array
+     */
+    public static IntBuffer sliceArray(ByteBuffer source, int position) {
+        int length = source.getInt(position);
+        return ByteBufferIO.slice(source, position + INT_BYTES, length * INT_BYTES).asIntBuffer();
+    }
+
     public static void writeArray(OutputStream output, int[] array) throws IOException {
         DataOutputStream dataOutput = new DataOutputStream(output);
         int length = array.length;
@@ -21,10 +21,12 @@ import com.atilika.kuromoji.dict.*;
 import com.atilika.kuromoji.ipadic.compile.DictionaryEntry;
 import com.atilika.kuromoji.trie.DoubleArrayTrie;
 import com.atilika.kuromoji.util.FileResourceResolver;
+import com.atilika.kuromoji.util.KuromojiBinFilesFetcher;
 import com.atilika.kuromoji.util.SimpleResourceResolver;
 import com.atilika.kuromoji.viterbi.TokenFactory;
 import com.atilika.kuromoji.viterbi.ViterbiNode;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -100,6 +102,8 @@ public class Tokenizer extends TokenizerBase {
 
         private boolean nakaguroSplit = false;
 
+        private boolean memoryMapDictionaries = false;
+
         /**
          * Creates a default builder
          */
@@ -186,6 +190,26 @@ public class Tokenizer extends TokenizerBase {
             return this;
         }
 
+        /**
+         * Memory-map the dictionaries, and share them with all other tokenizers created with this option
+         * <p>
+         * By default, every tokenizer reads its own copy of the dictionaries into the heap. With this option, the large
+         * dictionaries (double array trie, connection costs and token info dictionary) are memory-mapped from the
+         * dictionary files the first time a tokenizer is built, and shared by all tokenizers in the process built with
+         * this option. Further tokenizers are then created with almost no startup time or heap usage, which is useful
+         * when many tokenizers are created, for example by worker threads or Spark executors.
+         * <p>
+         * This feature is off by default.
+         *
+         * @param memoryMap  predicate to indicate memory-mapped, shared dictionaries
+         * @return this builder, not null
+         * @see MappedDictionaries
+         */
+        public Builder memoryMapDictionaries(boolean memoryMap) {
+            this.memoryMapDictionaries = memoryMap;
+            return this;
+        }
+
         /**
          * Creates the custom tokenizer instance
          *
@@ -208,9 +232,17 @@ public class Tokenizer extends TokenizerBase {
             resolver = new FileResourceResolver();
 
             try {
-                doubleArrayTrie = DoubleArrayTrie.newInstance(resolver);
-                connectionCosts = ConnectionCosts.newInstance(resolver);
-                tokenInfoDictionary = TokenInfoDictionary.newInstance(resolver);
+                if (memoryMapDictionaries) {
+                    MappedDictionaries shared =
+                                    MappedDictionaries.getInstance(new File(KuromojiBinFilesFetcher.getRootPath()));
+                    doubleArrayTrie = shared.getDoubleArrayTrie();
+                    connectionCosts = shared.getConnectionCosts();
+                    tokenInfoDictionary = shared.getTokenInfoDictionary();
+                } else {
+                    doubleArrayTrie = DoubleArrayTrie.newInstance(resolver);
+                    connectionCosts = ConnectionCosts.newInstance(resolver);
+                    tokenInfoDictionary = TokenInfoDictionary.newInstance(resolver);
+                }
                 characterDefinitions = CharacterDefinitions.newInstance(resolver);
 
                 if (nakaguroSplit) {
@@ -17,6 +17,7 @@
 package com.atilika.kuromoji.trie;
 
 import com.atilika.kuromoji.compile.ProgressLog;
+import com.atilika.kuromoji.io.ByteBufferIO;
 import com.atilika.kuromoji.util.ResourceResolver;
 import com.atilika.kuromoji.util.KuromojiBinFilesFetcher;
 
@@ -136,6 +137,33 @@ public class DoubleArrayTrie {
         return trie;
     }
 
+    /**
+     * Memory-map a stored double array trie, instead of reading it into the heap. The trie is read-only, and can be
+     * shared by multiple threads
+     *
+     * @param file  file to map the double array trie from
+     * @return double array trie, not null
+     * @throws IOException if the file can't be mapped
+     */
+    public static DoubleArrayTrie map(File file) throws IOException {
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        ByteBuffer mapped = ByteBufferIO.map(file);
+
+        // Layout as written by write(): compact flag (1 byte), base/check size, tail size, base, check, tail
+        trie.compact = mapped.get(0) != 0;
+        int baseCheckSize = mapped.getInt(1);
+        int tailSize = mapped.getInt(5);
+        int position = 9;
+
+        trie.baseBuffer = ByteBufferIO.slice(mapped, position, baseCheckSize * 4).asIntBuffer();
+        position += baseCheckSize * 4;
+        trie.checkBuffer = ByteBufferIO.slice(mapped, position, baseCheckSize * 4).asIntBuffer();
+        position += baseCheckSize * 4;
+        trie.tailBuffer = ByteBufferIO.slice(mapped, position, tailSize * 2).asCharBuffer();
+
+        return trie;
+    }
+
     /**
      * Construct double array trie which is equivalent to input trie
      *
@@ -210,11 +238,27 @@ public class DoubleArrayTrie {
     }
 
     public int lookup(String key, int index, int j) {
+        return lookup(key, index, j, key.length());
+    }
+
+    /**
+     * Look up the characters text[start, end) without creating a substring, returning the same value as
+     * {@code lookup(text.subSequence(start, end).toString())}
+     *
+     * @param text  text containing the key
+     * @param start  index of the first character of the key in text
+     * @param end  index after the last character of the key in text
+     * @return index if it is a complete match. 0 if it is a prefix match. negative value if it doesn't match
+     */
+    public int lookupRange(CharSequence text, int start, int end) {
+        return lookup(text, 0, start, end);
+    }
+
+    private int lookup(CharSequence key, int index, int j, int keyLength) {
         int base = 1;
         if (index != 0) {
             base = baseBuffer.get(index);
         }
-        int keyLength = key.length();
         for (int i = j; i < keyLength; i++) {
             int previous = index;
             if (compact) {
@@ -237,7 +281,7 @@ public class DoubleArrayTrie {
             }
 
             if (base >= TAIL_OFFSET) { // If base is bigger than TAIL_OFFSET, start processing "tail"
-                return matchTail(base, index, key.substring(i + 1));
+                return matchTail(base, index, key, i + 1, keyLength);
             }
 
         }
@@ -259,14 +303,16 @@ public class DoubleArrayTrie {
      * @param base
      * @param index
      * @param key
+     * @param start  index of the first character of the remaining key
+     * @param end  index after the last character of the remaining key
      * @return index if it is complete match. 0 if it is prefix match. negative value if it doesn't match
      */
-    private int matchTail(int base, int index, String key) {
+    private int matchTail(int base, int index, CharSequence key, int start, int end) {
         int positionInTailArr = base - TAIL_OFFSET;
 
-        int keyLength = key.length();
+        int keyLength = end - start;
         for (int i = 0; i < keyLength; i++) {
-            if (key.charAt(i) != tailBuffer.get(positionInTailArr + i)) {
+            if (key.charAt(start + i) != tailBuffer.get(positionInTailArr + i)) {
                 return -1;
             }
         }
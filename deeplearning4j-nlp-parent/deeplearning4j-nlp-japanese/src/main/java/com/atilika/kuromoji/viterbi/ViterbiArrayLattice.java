@@ -0,0 +1,360 @@
+/*-*
+ * Copyright © 2010-2015 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.viterbi;
+
+import java.util.Arrays;
+
+/**
+ * Viterbi lattice stored in primitive arrays, as an alternative to {@link ViterbiLattice}
+ * <p>
+ * Nodes are identified by an int index, and their word id, connection ids, costs and back-pointer are held in
+ * parallel arrays. The surface of a node is not materialized; it is stored as a range of the text the lattice was
+ * built from. The nodes starting and ending at each lattice index are kept as linked lists in insertion order.
+ * <p>
+ * A lattice is meant to be reused for many texts by calling {@link #reset(String)}: once its arrays have grown to
+ * fit the longest text seen, building and searching the lattice does not allocate any memory.
+ * <p>
+ * This class is not thread safe; use one instance per thread
+ */
+public class ViterbiArrayLattice {
+
+    private static final ViterbiNode.Type[] TYPES = ViterbiNode.Type.values();
+    private static final int INITIAL_NODE_CAPACITY = 256;
+    private static final int INITIAL_DIMENSION = 64;
+
+    private String text;
+    private int dimension;
+    private int size;
+    private int bos = -1;
+    private int eos = -1;
+
+    // node data
+    private int[] wordIds = new int[INITIAL_NODE_CAPACITY];
+    private int[] leftIds = new int[INITIAL_NODE_CAPACITY];
+    private int[] rightIds = new int[INITIAL_NODE_CAPACITY];
+    private int[] wordCosts = new int[INITIAL_NODE_CAPACITY];
+    private int[] pathCosts = new int[INITIAL_NODE_CAPACITY];
+    private int[] leftNodes = new int[INITIAL_NODE_CAPACITY];
+    private int[] startIndices = new int[INITIAL_NODE_CAPACITY];
+    private int[] surfaceStarts = new int[INITIAL_NODE_CAPACITY];
+    private int[] surfaceLengths = new int[INITIAL_NODE_CAPACITY];
+    private byte[] types = new byte[INITIAL_NODE_CAPACITY];
+    private int[] nextStart = new int[INITIAL_NODE_CAPACITY];
+    private int[] nextEnd = new int[INITIAL_NODE_CAPACITY];
+
+    // first and last node starting/ending at each lattice index, -1 if none
+    private int[] startHeads = new int[INITIAL_DIMENSION];
+    private int[] startTails = new int[INITIAL_DIMENSION];
+    private int[] endHeads = new int[INITIAL_DIMENSION];
+    private int[] endTails = new int[INITIAL_DIMENSION];
+
+    // best path: nodes prepended while backtracking (in backtracking order), then EOS, then appended nodes
+    private int[] prependedPath = new int[INITIAL_DIMENSION];
+    private int prependedLength;
+    private int[] appendedPath = new int[INITIAL_DIMENSION];
+    private int appendedLength;
+
+    /**
+     * Clears the lattice and prepares it for the given text. The lattice dimension is the text length + 2
+     *
+     * @param text  text the lattice is built from
+     */
+    public void reset(String text) {
+        this.text = text;
+        this.dimension = text.length() + 2;
+        this.size = 0;
+        this.bos = -1;
+        this.eos = -1;
+        this.prependedLength = 0;
+        this.appendedLength = 0;
+
+        if (startHeads.length < dimension) {
+            int newLength = Math.max(dimension, startHeads.length * 2);
+            startHeads = new int[newLength];
+            startTails = new int[newLength];
+            endHeads = new int[newLength];
+            endTails = new int[newLength];
+        }
+        Arrays.fill(startHeads, 0, dimension, -1);
+        Arrays.fill(startTails, 0, dimension, -1);
+        Arrays.fill(endHeads, 0, dimension, -1);
+        Arrays.fill(endTails, 0, dimension, -1);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * @return number of nodes in the lattice, including detached nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    public void addBos() {
+        bos = newNode(-1, 0, 0, 0, -1, 0, 0, ViterbiNode.Type.KNOWN);
+        link(bos, 0, 1);
+    }
+
+    public void addEos() {
+        eos = newNode(-1, 0, 0, 0, dimension - 1, 0, 0, ViterbiNode.Type.KNOWN);
+        link(eos, dimension - 1, 0);
+    }
+
+    public int getBos() {
+        return bos;
+    }
+
+    public int getEos() {
+        return eos;
+    }
+
+    /**
+     * Adds a node to the lattice
+     *
+     * @param wordId  word id
+     * @param leftId  left connection id
+     * @param rightId  right connection id
+     * @param wordCost  word cost
+     * @param startIndex  start index reported for the node's token
+     * @param type  node type
+     * @param start  lattice index the node starts at. The surface of the node starts at text index start - 1
+     * @param end  lattice index the node ends at
+     * @return index of the new node
+     */
+    public int addNode(int wordId, int leftId, int rightId, int wordCost, int startIndex, ViterbiNode.Type type,
+                    int start, int end) {
+        int node = newNode(wordId, leftId, rightId, wordCost, startIndex, start - 1, end - start, type);
+        link(node, start, end);
+        return node;
+    }
+
+    /**
+     * Adds a node that is not connected to the lattice, for nodes created while backtracking the best path
+     *
+     * @return index of the new node
+     */
+    public int addDetachedNode(int wordId, int leftId, int rightId, int wordCost, int startIndex,
+                    ViterbiNode.Type type, int surfaceStart, int surfaceLength) {
+        return newNode(wordId, leftId, rightId, wordCost, startIndex, surfaceStart, surfaceLength, type);
+    }
+
+    private int newNode(int wordId, int leftId, int rightId, int wordCost, int startIndex, int surfaceStart,
+                    int surfaceLength, ViterbiNode.Type type) {
+        if (size == wordIds.length) {
+            growNodes();
+        }
+        int node = size++;
+        wordIds[node] = wordId;
+        leftIds[node] = leftId;
+        rightIds[node] = rightId;
+        wordCosts[node] = wordCost;
+        pathCosts[node] = 0;
+        leftNodes[node] = -1;
+        startIndices[node] = startIndex;
+        surfaceStarts[node] = surfaceStart;
+        surfaceLengths[node] = surfaceLength;
+        types[node] = (byte) type.ordinal();
+        nextStart[node] = -1;
+        nextEnd[node] = -1;
+        return node;
+    }
+
+    private void link(int node, int start, int end) {
+        if (startHeads[start] == -1) {
+            startHeads[start] = node;
+        } else {
+            nextStart[startTails[start]] = node;
+        }
+        startTails[start] = node;
+
+        if (endHeads[end] == -1) {
+            endHeads[end] = node;
+        } else {
+            nextEnd[endTails[end]] = node;
+        }
+        endTails[end] = node;
+    }
+
+    private void growNodes() {
+        int newLength = wordIds.length * 2;
+        wordIds = Arrays.copyOf(wordIds, newLength);
+        leftIds = Arrays.copyOf(leftIds, newLength);
+        rightIds = Arrays.copyOf(rightIds, newLength);
+        wordCosts = Arrays.copyOf(wordCosts, newLength);
+        pathCosts = Arrays.copyOf(pathCosts, newLength);
+        leftNodes = Arrays.copyOf(leftNodes, newLength);
+        startIndices = Arrays.copyOf(startIndices, newLength);
+        surfaceStarts = Arrays.copyOf(surfaceStarts, newLength);
+        surfaceLengths = Arrays.copyOf(surfaceLengths, newLength);
+        types = Arrays.copyOf(types, newLength);
+        nextStart = Arrays.copyOf(nextStart, newLength);
+        nextEnd = Arrays.copyOf(nextEnd, newLength);
+    }
+
+    /**
+     * @return first node starting at the lattice index, or -1 if there is none
+     */
+    public int firstStartingAt(int index) {
+        return startHeads[index];
+    }
+
+    /**
+     * @return node starting at the same lattice index as the given node and added after it, or -1 if there is none
+     */
+    public int nextStartingAt(int node) {
+        return nextStart[node];
+    }
+
+    /**
+     * @return first node ending at the lattice index, or -1 if there is none
+     */
+    public int firstEndingAt(int index) {
+        return endHeads[index];
+    }
+
+    /**
+     * @return node ending at the same lattice index as the given node and added after it, or -1 if there is none
+     */
+    public int nextEndingAt(int node) {
+        return nextEnd[node];
+    }
+
+    public int getWordId(int node) {
+        return wordIds[node];
+    }
+
+    public int getLeftId(int node) {
+        return leftIds[node];
+    }
+
+    public int getRightId(int node) {
+        return rightIds[node];
+    }
+
+    public int getWordCost(int node) {
+        return wordCosts[node];
+    }
+
+    public int getPathCost(int node) {
+        return pathCosts[node];
+    }
+
+    public void setPathCost(int node, int pathCost) {
+        pathCosts[node] = pathCost;
+    }
+
+    /**
+     * @return best left node found thus far, or -1 if there is none
+     */
+    public int getLeftNode(int node) {
+        return leftNodes[node];
+    }
+
+    public void setLeftNode(int node, int leftNode) {
+        leftNodes[node] = leftNode;
+    }
+
+    public int getStartIndex(int node) {
+        return startIndices[node];
+    }
+
+    public ViterbiNode.Type getType(int node) {
+        return TYPES[types[node]];
+    }
+
+    /**
+     * @return index of the first character of the node's surface in the text
+     */
+    public int getSurfaceStart(int node) {
+        return surfaceStarts[node];
+    }
+
+    public int getSurfaceLength(int node) {
+        return surfaceLengths[node];
+    }
+
+    /**
+     * Creates the surface string of the node
+     *
+     * @param node  node index
+     * @return surface
+     */
+    public String getSurface(int node) {
+        if (node == bos) {
+            return "BOS";
+        }
+        if (node == eos) {
+            return "EOS";
+        }
+        return text.substring(surfaceStarts[node], surfaceStarts[node] + surfaceLengths[node]);
+    }
+
+    /**
+     * Clears the best path
+     */
+    public void clearPath() {
+        prependedLength = 0;
+        appendedLength = 0;
+    }
+
+    /**
+     * Adds a node in front of the nodes added thus far with this method
+     */
+    public void prependToPath(int node) {
+        if (prependedLength == prependedPath.length) {
+            prependedPath = Arrays.copyOf(prependedPath, prependedLength * 2);
+        }
+        prependedPath[prependedLength++] = node;
+    }
+
+    /**
+     * Adds a node after EOS and all nodes added thus far with this method
+     */
+    public void appendToPath(int node) {
+        if (appendedLength == appendedPath.length) {
+            appendedPath = Arrays.copyOf(appendedPath, appendedLength * 2);
+        }
+        appendedPath[appendedLength++] = node;
+    }
+
+    /**
+     * @return number of nodes in the best path, including BOS and EOS
+     */
+    public int getPathLength() {
+        return prependedLength + 1 + appendedLength;
+    }
+
+    /**
+     * @param i  position in the best path
+     * @return node at position i of the best path
+     */
+    public int getPathNode(int i) {
+        if (i < prependedLength) {
+            return prependedPath[prependedLength - 1 - i];
+        }
+        if (i == prependedLength) {
+            return eos;
+        }
+        return appendedPath[i - prependedLength - 1];
+    }
+}
@@ -105,6 +105,50 @@ public class ViterbiBuilder {
         return lattice;
     }
 
+    /**
+     * Build lattice from input text into a reusable array lattice
+     * <p>
+     * The lattice built is identical to the one built by {@link #build(String)}, but no substrings or node objects
+     * are created while building it
+     *
+     * @param text  source text for the lattice
+     * @param lattice  lattice to build into. It is reset before building
+     */
+    public void build(String text, ViterbiArrayLattice lattice) {
+        int textLength = text.length();
+        lattice.reset(text);
+
+        lattice.addBos();
+
+        int unknownWordEndIndex = -1; // index of the last character of unknown word
+
+        for (int startIndex = 0; startIndex < textLength; startIndex++) {
+            // If no token ends where current token starts, skip this index
+            if (lattice.firstEndingAt(startIndex + 1) != -1) {
+
+                boolean found = processIndex(lattice, text, startIndex);
+
+                // In the case of normal mode, it doesn't process unknown word greedily.
+                if (searchMode || unknownWordEndIndex <= startIndex) {
+
+                    int[] categories = characterDefinitions.lookupCategories(text.charAt(startIndex));
+
+                    for (int i = 0; i < categories.length; i++) {
+                        int category = categories[i];
+                        unknownWordEndIndex = processUnknownWord(category, i, lattice, text, unknownWordEndIndex,
+                                        startIndex, found);
+                    }
+                }
+            }
+        }
+
+        if (useUserDictionary) {
+            processUserDictionary(text, lattice);
+        }
+
+        lattice.addEos();
+    }
+
     private boolean processIndex(ViterbiLattice lattice, int startIndex, String suffix) {
         boolean found = false;
         for (int endIndex = 1; endIndex < suffix.length() + 1; endIndex++) {
@@ -167,6 +211,139 @@ public class ViterbiBuilder {
         return unknownWordEndIndex;
     }
 
+    private boolean processIndex(ViterbiArrayLattice lattice, String text, int startIndex) {
+        boolean found = false;
+        for (int endIndex = 1; endIndex < text.length() - startIndex + 1; endIndex++) {
+            int result = trie.lookupRange(text, startIndex, startIndex + endIndex);
+
+            if (result > 0) { // Found match in double array trie
+                found = true; // Don't produce unknown word starting from this index
+                int count = dictionary.lookupWordIdCount(result);
+                for (int i = 0; i < count; i++) {
+                    int wordId = dictionary.lookupWordId(result, i);
+                    lattice.addNode(wordId, dictionary.getLeftId(wordId), dictionary.getRightId(wordId),
+                                    dictionary.getWordCost(wordId), startIndex, ViterbiNode.Type.KNOWN,
+                                    startIndex + 1, startIndex + 1 + endIndex);
+                }
+            } else if (result < 0) { // If result is less than zero, continue to next position
+                break;
+            }
+        }
+        return found;
+    }
+
+    private int processUnknownWord(int category, int i, ViterbiArrayLattice lattice, String text,
+                    int unknownWordEndIndex, int startIndex, boolean found) {
+        int unknownWordLength = 0;
+        int[] definition = characterDefinitions.lookupDefinition(category);
+
+        if (definition[CharacterDefinitions.INVOKE] == 1 || found == false) {
+            unknownWordLength = 1;
+            if (definition[CharacterDefinitions.GROUP] != 0) {
+                for (int j = startIndex + 1; j < text.length(); j++) {
+                    int[] categories = characterDefinitions.lookupCategories(text.charAt(j));
+
+                    if (categories == null) {
+                        break;
+                    }
+
+                    if (i < categories.length && category == categories[i]) {
+                        unknownWordLength++;
+                    } else {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (unknownWordLength > 0) {
+            int[] wordIds = unknownDictionary.lookupWordIds(category); // characters in input text are supposed to be the same
+
+            for (int wordId : wordIds) {
+                lattice.addNode(wordId, unknownDictionary.getLeftId(wordId), unknownDictionary.getRightId(wordId),
+                                unknownDictionary.getWordCost(wordId), startIndex, ViterbiNode.Type.UNKNOWN,
+                                startIndex + 1, startIndex + 1 + unknownWordLength);
+            }
+            unknownWordEndIndex = startIndex + unknownWordLength;
+        }
+
+        return unknownWordEndIndex;
+    }
+
+    private void processUserDictionary(final String text, ViterbiArrayLattice lattice) {
+        List<UserDictionary.UserDictionaryMatch> matches = userDictionary.findUserDictionaryMatches(text);
+
+        for (UserDictionary.UserDictionaryMatch match : matches) {
+            int wordId = match.getWordId();
+            int index = match.getMatchStartIndex();
+            int length = match.getMatchLength();
+
+            int nodeStartIndex = index + 1;
+            int nodeEndIndex = nodeStartIndex + length;
+
+            lattice.addNode(wordId, userDictionary.getLeftId(wordId), userDictionary.getRightId(wordId),
+                            userDictionary.getWordCost(wordId), index, ViterbiNode.Type.USER, nodeStartIndex,
+                            nodeEndIndex);
+
+            if (lattice.firstEndingAt(nodeStartIndex) == -1) {
+                repairBrokenLatticeBefore(lattice, index);
+            }
+
+            if (lattice.firstStartingAt(nodeEndIndex) == -1) {
+                repairBrokenLatticeAfter(lattice, nodeEndIndex);
+            }
+        }
+    }
+
+    private void repairBrokenLatticeBefore(ViterbiArrayLattice lattice, int index) {
+        for (int startIndex = index; startIndex > 0; startIndex--) {
+            int first = lattice.firstStartingAt(startIndex);
+            if (first != -1) {
+                int length = index + 1 - startIndex;
+                int glueBase = -1;
+                for (int node = first; node != -1; node = lattice.nextStartingAt(node)) {
+                    if (isAcceptableCandidate(length, lattice, glueBase, node)) {
+                        glueBase = node;
+                    }
+                }
+                if (glueBase != -1) {
+                    addGlueNode(lattice, glueBase, startIndex, startIndex + length);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void repairBrokenLatticeAfter(ViterbiArrayLattice lattice, int nodeEndIndex) {
+        for (int endIndex = nodeEndIndex + 1; endIndex < lattice.getDimension(); endIndex++) {
+            int first = lattice.firstEndingAt(endIndex);
+            if (first != -1) {
+                int length = nodeEndIndex + 1 - endIndex;
+                int glueBase = -1;
+                for (int node = first; node != -1; node = lattice.nextEndingAt(node)) {
+                    if (isAcceptableCandidate(length, lattice, glueBase, node)) {
+                        glueBase = node;
+                    }
+                }
+                if (glueBase != -1) {
+                    addGlueNode(lattice, glueBase, nodeEndIndex, endIndex);
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean isAcceptableCandidate(int targetLength, ViterbiArrayLattice lattice, int glueBase, int candidate) {
+        int candidateLength = lattice.getSurfaceLength(candidate);
+        return (glueBase == -1 || candidateLength < lattice.getSurfaceLength(glueBase))
+                        && candidateLength >= targetLength;
+    }
+
+    private void addGlueNode(ViterbiArrayLattice lattice, int glueBase, int start, int end) {
+        lattice.addNode(lattice.getWordId(glueBase), lattice.getLeftId(glueBase), lattice.getRightId(glueBase),
+                        lattice.getWordCost(glueBase), start, ViterbiNode.Type.INSERTED, start, end);
+    }
+
     /**
      * Find token(s) in input text and set found token(s) in arrays as normal tokens
      *
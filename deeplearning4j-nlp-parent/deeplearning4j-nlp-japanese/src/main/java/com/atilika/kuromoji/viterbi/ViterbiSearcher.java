@@ -65,6 +65,101 @@ public class ViterbiSearcher {
         return result;
     }
 
+    /**
+     * Find best path from an array lattice. The same path as {@link #search(ViterbiLattice)} is found, and stored in
+     * the lattice (see {@link ViterbiArrayLattice#getPathNode(int)}) rather than in a new list
+     *
+     * @param lattice the lattice built by {@link ViterbiBuilder#build(String, ViterbiArrayLattice)}
+     */
+    public void search(ViterbiArrayLattice lattice) {
+        calculatePathCosts(lattice);
+        backtrackBestPath(lattice);
+    }
+
+    private void calculatePathCosts(ViterbiArrayLattice lattice) {
+        boolean penalize = mode == TokenizerBase.Mode.SEARCH || mode == TokenizerBase.Mode.EXTENDED;
+        int eos = lattice.getEos();
+
+        for (int i = 1; i < lattice.getDimension(); i++) {
+            int firstLeftNode = lattice.firstEndingAt(i);
+            if (firstLeftNode == -1) {
+                continue;
+            }
+
+            for (int node = lattice.firstStartingAt(i); node != -1; node = lattice.nextStartingAt(node)) {
+                int backwardConnectionId = lattice.getLeftId(node);
+                int cost = lattice.getWordCost(node);
+                if (penalize && node != eos) {
+                    cost += getPenaltyCost(lattice.getText(), lattice.getSurfaceStart(node),
+                                    lattice.getSurfaceLength(node));
+                }
+                int leastPathCost = DEFAULT_COST;
+
+                for (int leftNode = firstLeftNode; leftNode != -1; leftNode = lattice.nextEndingAt(leftNode)) {
+                    int pathCost = lattice.getPathCost(leftNode)
+                                    + costs.get(lattice.getRightId(leftNode), backwardConnectionId) + cost;
+
+                    if (pathCost < leastPathCost) {
+                        leastPathCost = pathCost;
+                        lattice.setPathCost(node, leastPathCost);
+                        lattice.setLeftNode(node, leftNode);
+                    }
+                }
+            }
+        }
+    }
+
+    private int getPenaltyCost(String text, int start, int length) {
+        int pathCost = 0;
+
+        if (length > kanjiPenaltyLengthTreshold) {
+            if (isKanjiOnly(text, start, start + length)) { // Process only Kanji keywords
+                pathCost += (length - kanjiPenaltyLengthTreshold) * kanjiPenalty;
+            } else if (length > otherPenaltyLengthThreshold) {
+                pathCost += (length - otherPenaltyLengthThreshold) * otherPenalty;
+            }
+        }
+        return pathCost;
+    }
+
+    private boolean isKanjiOnly(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (Character.UnicodeBlock.of(text.charAt(i)) != Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void backtrackBestPath(ViterbiArrayLattice lattice) {
+        lattice.clearPath();
+        int node = lattice.getEos();
+
+        while (true) {
+            int leftNode = lattice.getLeftNode(node);
+
+            if (leftNode == -1) {
+                break;
+            }
+            // Extended mode converts unknown word into unigram nodes
+            if (mode == TokenizerBase.Mode.EXTENDED && lattice.getType(leftNode) == ViterbiNode.Type.UNKNOWN) {
+                int unigramWordId = 0;
+                int surfaceStart = lattice.getSurfaceStart(leftNode);
+                for (int i = 0; i < lattice.getSurfaceLength(leftNode); i++) {
+                    int uniGramNode = lattice.addDetachedNode(unigramWordId,
+                                    unknownDictionary.getLeftId(unigramWordId),
+                                    unknownDictionary.getRightId(unigramWordId),
+                                    unknownDictionary.getWordCost(unigramWordId), lattice.getStartIndex(leftNode) + i,
+                                    ViterbiNode.Type.UNKNOWN, surfaceStart + i, 1);
+                    lattice.appendToPath(uniGramNode);
+                }
+            } else {
+                lattice.prependToPath(leftNode);
+            }
+            node = leftNode;
+        }
+    }
+
     private ViterbiNode[][] calculatePathCosts(ViterbiLattice lattice) {
         ViterbiNode[][] startIndexArr = lattice.getStartIndexArr();
         ViterbiNode[][] endIndexArr = lattice.getEndIndexArr();
@@ -16,8 +16,12 @@
  */
 package com.atilika.kuromoji.buffer;
 
+import com.atilika.kuromoji.io.ByteBufferIO;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.TreeMap;
 
 import static org.junit.Assert.assertEquals;
@@ -38,4 +42,25 @@ public class StringValueMapBufferTest {
         assertEquals("hello", values.get(1));
         assertEquals("日本", values.get(2));
     }
+
+    @Test
+    public void testMappedMap() throws Exception {
+        TreeMap<Integer, String> input = new TreeMap<>();
+
+        input.put(0, "Bye");
+        input.put(1, "hello");
+        input.put(2, "日本");
+
+        File file = File.createTempFile("kuromoji-stringvaluemap-", ".bin");
+        file.deleteOnExit();
+        OutputStream output = new FileOutputStream(file);
+        new StringValueMapBuffer(input).write(output);
+        output.close();
+
+        StringValueMapBuffer values = new StringValueMapBuffer(ByteBufferIO.slice(ByteBufferIO.map(file), 0));
+
+        assertEquals("Bye", values.get(0));
+        assertEquals("hello", values.get(1));
+        assertEquals("日本", values.get(2));
+    }
 }
@@ -31,9 +31,11 @@ public class ConnectionCostsCompilerTest {
 
     private static ConnectionCosts connectionCosts;
 
+    private static File costsFile;
+
     @BeforeClass
     public static void setUp() throws IOException {
-        File costsFile = File.createTempFile("kuromoji-connectioncosts-", ".bin");
+        costsFile = File.createTempFile("kuromoji-connectioncosts-", ".bin");
         costsFile.deleteOnExit();
 
         String costs = "" + "3 3\n" + "0 0 1\n" + "0 1 2\n" + "0 2 3\n" + "1 0 4\n" + "1 1 5\n" + "1 2 6\n" + "2 0 7\n"
@@ -64,4 +66,16 @@ public class ConnectionCostsCompilerTest {
             }
         }
     }
+
+    @Test
+    public void testMappedCosts() throws IOException {
+        ConnectionCosts mapped = ConnectionCosts.map(costsFile);
+        int cost = 1;
+
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(cost++, mapped.get(i, j));
+            }
+        }
+    }
 }
@@ -59,5 +59,21 @@ public class WordIdMapCompilerTest {
         assertEquals("[1, 2, 3]", Arrays.toString(wordIds.lookUp(3)));
         assertEquals("[0]", Arrays.toString(wordIds.lookUp(10)));
         assertEquals("[]", Arrays.toString(wordIds.lookUp(1)));
+
+        assertEquals(3, wordIds.lookUpCount(3));
+        assertEquals(1, wordIds.lookUpCount(10));
+        assertEquals(0, wordIds.lookUpCount(1));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, wordIds.lookUp(3, i));
+        }
+        assertEquals(0, wordIds.lookUp(10, 0));
+        input.close();
+
+        WordIdMap mapped = WordIdMap.map(file);
+        assertEquals("[1, 2, 3]", Arrays.toString(mapped.lookUp(3)));
+        assertEquals("[0]", Arrays.toString(mapped.lookUp(10)));
+        assertEquals("[]", Arrays.toString(mapped.lookUp(1)));
+        assertEquals(3, mapped.lookUpCount(3));
+        assertEquals(2, mapped.lookUp(3, 1));
     }
 }
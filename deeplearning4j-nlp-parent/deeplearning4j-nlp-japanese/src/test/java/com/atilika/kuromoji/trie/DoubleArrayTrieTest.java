@@ -35,6 +35,27 @@ public class DoubleArrayTrieTest {
         testSimpleTrie(false);
     }
 
+    @Test
+    public void testMappedTrie() throws IOException {
+        for (boolean compact : new boolean[] {false, true}) {
+            File file = File.createTempFile("kuromoji-doublearraytrie-", ".bin");
+            file.deleteOnExit();
+
+            DoubleArrayTrie doubleArrayTrie = new DoubleArrayTrie(compact);
+            doubleArrayTrie.build(makeTrie());
+            OutputStream output = new FileOutputStream(file);
+            doubleArrayTrie.write(output);
+            output.close();
+
+            DoubleArrayTrie mapped = DoubleArrayTrie.map(file);
+            for (String key : new String[] {"a", "ab", "abc", "abd", "abcd", "あ", "あああ", "あいう", "あいうえ", "xyz"}) {
+                assertEquals(key, doubleArrayTrie.lookup(key), mapped.lookup(key));
+            }
+            assertTrue(mapped.lookup("abc") > 0);
+            assertTrue(mapped.lookup("あいう") > 0);
+        }
+    }
+
     private void testSimpleTrie(boolean compact) throws IOException {
         Trie trie = makeTrie();
         File costsFile = File.createTempFile("kuromoji-doublearraytrie-", ".bin");
@@ -55,6 +76,26 @@ public class DoubleArrayTrieTest {
         assertTrue(doubleArrayTrie.lookup("xyz") < 0);
     }
 
+    @Test
+    public void testLookupRange() throws IOException {
+        for (boolean compact : new boolean[] {false, true}) {
+            DoubleArrayTrie doubleArrayTrie = new DoubleArrayTrie(compact);
+            doubleArrayTrie.build(makeTrie());
+
+            // Every range of the text must give the same result as looking up the corresponding substring
+            String text = "xabcabdあああいうab";
+            for (int start = 0; start < text.length(); start++) {
+                for (int end = start + 1; end <= text.length(); end++) {
+                    assertEquals(text.substring(start, end),
+                                    doubleArrayTrie.lookup(text.substring(start, end)),
+                                    doubleArrayTrie.lookupRange(text, start, end));
+                }
+            }
+            assertTrue(doubleArrayTrie.lookupRange(text, 1, 4) > 0);
+            assertTrue(doubleArrayTrie.lookupRange(new StringBuilder(text), 9, 12) > 0);
+        }
+    }
+
     private Trie makeTrie() {
         Trie trie = new Trie();
         trie.add("abc");
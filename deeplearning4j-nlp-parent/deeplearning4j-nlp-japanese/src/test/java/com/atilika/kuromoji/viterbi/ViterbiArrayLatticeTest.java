@@ -0,0 +1,219 @@
+/*-*
+ * Copyright © 2010-2015 Atilika Inc. and contributors (see CONTRIBUTORS.md)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  A copy of the
+ * License is distributed with this work in the LICENSE.md file.  You may
+ * also obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atilika.kuromoji.viterbi;
+
+import com.atilika.kuromoji.TokenizerBase;
+import com.atilika.kuromoji.compile.CharacterDefinitionsCompiler;
+import com.atilika.kuromoji.compile.UnknownDictionaryCompiler;
+import com.atilika.kuromoji.dict.CharacterDefinitions;
+import com.atilika.kuromoji.dict.ConnectionCosts;
+import com.atilika.kuromoji.dict.TokenInfoDictionary;
+import com.atilika.kuromoji.dict.UnknownDictionary;
+import com.atilika.kuromoji.dict.UserDictionary;
+import com.atilika.kuromoji.io.IntegerArrayIO;
+import com.atilika.kuromoji.io.StringArrayIO;
+import com.atilika.kuromoji.trie.DoubleArrayTrie;
+import com.atilika.kuromoji.trie.Trie;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class ViterbiArrayLatticeTest {
+
+    private static final String[] WORDS = {"関西", "国際", "空港", "関西国際空港", "西国", "に", "行", "行った", "った", "日本",
+                    "経済", "新聞", "新聞社", "東京", "東京都", "です", "アイ", "イウ", "ab", "abc", "1", "12"};
+
+    private static final String CHARACTERS = "abc123アイウあいう漢字・、。 ";
+
+    private static final int NUM_CONNECTION_IDS = 1400;
+
+    private static DoubleArrayTrie trie;
+    private static TokenInfoDictionary tokenInfoDictionary;
+    private static UnknownDictionary unknownDictionary;
+    private static UserDictionary userDictionary;
+    private static UserDictionary katakanaUserDictionary;
+    private static ConnectionCosts connectionCosts;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        File charDef = File.createTempFile("kuromoji-chardef-", ".bin");
+        charDef.deleteOnExit();
+
+        CharacterDefinitionsCompiler charDefCompiler =
+                        new CharacterDefinitionsCompiler(new BufferedOutputStream(new FileOutputStream(charDef)));
+        charDefCompiler.readCharacterDefinition(new BufferedInputStream(getResource("char.def")), "euc-jp");
+        charDefCompiler.compile();
+
+        File unkDef = File.createTempFile("kuromoji-unkdef-", ".bin");
+        unkDef.deleteOnExit();
+
+        UnknownDictionaryCompiler unkDefCompiler = new UnknownDictionaryCompiler(
+                        charDefCompiler.makeCharacterCategoryMap(), new FileOutputStream(unkDef));
+        unkDefCompiler.readUnknownDefinition(new BufferedInputStream(getResource("unk.def")), "euc-jp");
+        unkDefCompiler.compile();
+
+        InputStream charDefInput = new BufferedInputStream(new FileInputStream(charDef));
+        CharacterDefinitions characterDefinitions = new CharacterDefinitions(
+                        IntegerArrayIO.readSparseArray2D(charDefInput), IntegerArrayIO.readSparseArray2D(charDefInput),
+                        StringArrayIO.readArray(charDefInput));
+        charDefInput.close();
+
+        InputStream unkDefInput = new BufferedInputStream(new FileInputStream(unkDef));
+        int[][] costs = IntegerArrayIO.readArray2D(unkDefInput);
+        int[][] references = IntegerArrayIO.readArray2D(unkDefInput);
+        String[][] features = StringArrayIO.readArray2D(unkDefInput);
+        unkDefInput.close();
+
+        unknownDictionary = new UnknownDictionary(characterDefinitions, references, costs, features);
+        userDictionary = new UserDictionary(getResource("userdict.txt"), 9, 7, 0);
+        // Entries starting and ending inside runs of katakana, where the lattice has to be repaired with glue nodes
+        String katakanaEntries = "イウア,イウア,イウア,カスタム名詞\nウアイウ,ウア イウ,ウア イウ,カスタム名詞\n";
+        katakanaUserDictionary = new UserDictionary(
+                        new ByteArrayInputStream(katakanaEntries.getBytes(StandardCharsets.UTF_8)), 9, 7, 0);
+
+        Trie t = new Trie();
+        for (String word : WORDS) {
+            t.add(word);
+        }
+        trie = new DoubleArrayTrie(false);
+        trie.build(t);
+
+        Random r = new Random(12345);
+        tokenInfoDictionary = new RandomTokenInfoDictionary(trie, r);
+
+        ShortBuffer connections = ShortBuffer.allocate(NUM_CONNECTION_IDS * NUM_CONNECTION_IDS);
+        for (int i = 0; i < connections.capacity(); i++) {
+            connections.put(i, (short) (r.nextInt(2000) - 500));
+        }
+        connectionCosts = new ConnectionCosts(NUM_CONNECTION_IDS, connections);
+    }
+
+    @Test
+    public void testSamePathAsObjectLattice() {
+        Random r = new Random(12345);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            StringBuilder sb = new StringBuilder();
+            int pieces = r.nextInt(20);
+            for (int j = 0; j < pieces; j++) {
+                if (r.nextBoolean()) {
+                    sb.append(WORDS[r.nextInt(WORDS.length)]);
+                } else if (r.nextInt(4) == 0) {
+                    sb.append(r.nextBoolean() ? "日本経済新聞" : "関西国際空港");
+                } else {
+                    sb.append(CHARACTERS.charAt(r.nextInt(CHARACTERS.length())));
+                }
+            }
+            texts.add(sb.toString());
+        }
+        texts.add("関西国際空港に行った");
+        texts.add("大日本経済新聞社");
+        texts.add("アイウアイ");
+        texts.add("アイウアイウアイ関西国際空港");
+
+        List<Integer> penalties = Arrays.asList(2, 3000, 7, 1700);
+        for (TokenizerBase.Mode mode : TokenizerBase.Mode.values()) {
+            for (UserDictionary userDict : new UserDictionary[] {null, userDictionary, katakanaUserDictionary}) {
+                ViterbiBuilder builder =
+                                new ViterbiBuilder(trie, tokenInfoDictionary, unknownDictionary, userDict, mode);
+                ViterbiSearcher searcher = new ViterbiSearcher(mode, connectionCosts, unknownDictionary, penalties);
+
+                // The same lattice is reused for all texts
+                ViterbiArrayLattice lattice = new ViterbiArrayLattice();
+                for (String text : texts) {
+                    List<ViterbiNode> expected = searcher.search(builder.build(text));
+
+                    builder.build(text, lattice);
+                    searcher.search(lattice);
+
+                    String msg = mode + ", " + (userDict != null) + ": " + text;
+                    assertEquals(msg, expected.size(), lattice.getPathLength());
+                    for (int i = 0; i < expected.size(); i++) {
+                        ViterbiNode node = expected.get(i);
+                        int arrayNode = lattice.getPathNode(i);
+                        assertEquals(msg, node.getWordId(), lattice.getWordId(arrayNode));
+                        assertEquals(msg, node.getSurface(), lattice.getSurface(arrayNode));
+                        assertEquals(msg, node.getType(), lattice.getType(arrayNode));
+                        assertEquals(msg, node.getStartIndex(), lattice.getStartIndex(arrayNode));
+                        assertEquals(msg, node.getLeftId(), lattice.getLeftId(arrayNode));
+                        assertEquals(msg, node.getWordCost(), lattice.getWordCost(arrayNode));
+                    }
+                }
+            }
+        }
+    }
+
+    private static InputStream getResource(String resource) {
+        return ViterbiArrayLatticeTest.class.getClassLoader().getResourceAsStream(resource);
+    }
+
+    /**
+     * Token info dictionary with one to three entries for each surface in the trie, with random ids and costs
+     */
+    private static class RandomTokenInfoDictionary extends TokenInfoDictionary {
+        private final Map<Integer, int[]> wordIds = new HashMap<>();
+        private final List<int[]> entries = new ArrayList<>();
+
+        private RandomTokenInfoDictionary(DoubleArrayTrie trie, Random r) {
+            for (String word : WORDS) {
+                int[] ids = new int[1 + r.nextInt(3)];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = entries.size();
+                    entries.add(new int[] {r.nextInt(NUM_CONNECTION_IDS), r.nextInt(NUM_CONNECTION_IDS),
+                                    r.nextInt(8000) - 1000});
+                }
+                wordIds.put(trie.lookup(word), ids);
+            }
+        }
+
+        @Override
+        public int[] lookupWordIds(int sourceId) {
+            return wordIds.get(sourceId);
+        }
+
+        @Override
+        public int lookupWordIdCount(int sourceId) {
+            return wordIds.get(sourceId).length;
+        }
+
+        @Override
+        public int lookupWordId(int sourceId, int i) {
+            return wordIds.get(sourceId)[i];
+        }
+
+        @Override
+        public int getLeftId(int wordId) {
+            return entries.get(wordId)[0];
+        }
+
+        @Override
+        public int getRightId(int wordId) {
+            return entries.get(wordId)[1];
+        }
+
+        @Override
+        public int getWordCost(int wordId) {
+            return entries.get(wordId)[2];
+        }
+    }
+}
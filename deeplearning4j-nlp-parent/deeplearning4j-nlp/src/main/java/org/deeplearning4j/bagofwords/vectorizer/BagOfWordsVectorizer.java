@@ -83,6 +83,11 @@ public class BagOfWordsVectorizer extends BaseTextVectorizer {
         return input;
     }
 
+    @Override
+    protected double wordWeight(String word, long wordCount, long documentLength) {
+        return vocabCache.wordFrequency(word);
+    }
+
     /**
      * @param input the text to vectorize
      * @param label the label of the text
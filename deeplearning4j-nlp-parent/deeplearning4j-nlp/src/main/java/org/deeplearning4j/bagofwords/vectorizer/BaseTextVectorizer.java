@@ -8,14 +8,20 @@ import org.deeplearning4j.models.word2vec.VocabWord;
 import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
 import org.deeplearning4j.models.word2vec.wordstore.VocabConstructor;
 import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.deeplearning4j.nn.sparse.CSRMatrix;
 import org.deeplearning4j.text.documentiterator.LabelAwareIterator;
 import org.deeplearning4j.text.documentiterator.LabelsSource;
 import org.deeplearning4j.text.invertedindex.InvertedIndex;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
 
+import org.nd4j.linalg.api.ndarray.INDArray;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author raver119@gmail.com
@@ -68,4 +74,102 @@ public abstract class BaseTextVectorizer implements TextVectorizer {
     public long numWordsEncountered() {
         return vocabCache.totalWordOccurrences();
     }
+
+    /**
+     * Weight of a word in a document, as used by {@link #transformSparse(List)}: the same value as
+     * {@link #transform(List)} puts in the word's column
+     *
+     * @param word           word, present in the vocabulary
+     * @param wordCount      number of occurrences of the word in the document
+     * @param documentLength number of tokens in the document
+     */
+    protected abstract double wordWeight(String word, long wordCount, long documentLength);
+
+    /**
+     * Transforms a batch of documents to a sparse matrix, with one row per document and one column per word in the
+     * vocabulary. Only the words present in each document are stored, so memory and time are proportional to the
+     * document lengths rather than to the vocabulary size.<br>
+     * Documents are tokenized and vectorized in parallel, unless parallel tokenization was disabled.
+     *
+     * @param documents documents to transform
+     * @return [documents.size(), vocabulary size] sparse matrix
+     */
+    public CSRMatrix transformSparse(final List<String> documents) {
+        final int[][] indices = new int[documents.size()][];
+        final float[][] values = new float[documents.size()][];
+
+        int numThreads = isParallel ? Math.min(Runtime.getRuntime().availableProcessors(), documents.size()) : 1;
+        if (numThreads <= 1) {
+            for (int i = 0; i < documents.size(); i++) {
+                transformSparse(tokenizerFactory.create(documents.get(i)).getTokens(), i, indices, values);
+            }
+        } else {
+            final AtomicInteger next = new AtomicInteger(0);
+            ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            try {
+                List<Future<?>> futures = new ArrayList<>(numThreads);
+                for (int t = 0; t < numThreads; t++) {
+                    futures.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            int i;
+                            while ((i = next.getAndIncrement()) < documents.size()) {
+                                transformSparse(tokenizerFactory.create(documents.get(i)).getTokens(), i, indices,
+                                                values);
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        return CSRMatrix.fromRows(vocabCache.numWords(), indices, values);
+    }
+
+    /**
+     * Transforms a batch of documents to a dense matrix, with one row per document. Equivalent to, but faster than,
+     * stacking {@link #transform(String)} for each document.
+     *
+     * @param documents documents to transform
+     * @return [documents.size(), vocabulary size] matrix
+     * @see #transformSparse(List)
+     */
+    public INDArray transformBatch(List<String> documents) {
+        return transformSparse(documents).toDense();
+    }
+
+    private void transformSparse(List<String> tokens, int row, int[][] indices, float[][] values) {
+        int[] wordIndices = new int[tokens.size()];
+        int n = 0;
+        for (String token : tokens) {
+            int idx = vocabCache.indexOf(token);
+            if (idx >= 0)
+                wordIndices[n++] = idx;
+        }
+        Arrays.sort(wordIndices, 0, n);
+
+        int[] rowIndices = new int[n];
+        float[] rowValues = new float[n];
+        int unique = 0;
+        for (int i = 0; i < n;) {
+            int j = i;
+            while (j < n && wordIndices[j] == wordIndices[i])
+                j++;
+            rowIndices[unique] = wordIndices[i];
+            rowValues[unique++] = (float) wordWeight(vocabCache.wordAtIndex(wordIndices[i]), j - i, tokens.size());
+            i = j;
+        }
+        indices[row] = Arrays.copyOf(rowIndices, unique);
+        values[row] = Arrays.copyOf(rowValues, unique);
+    }
 }
@@ -125,6 +125,11 @@ public class TfidfVectorizer extends BaseTextVectorizer {
         return ret;
     }
 
+    @Override
+    protected double wordWeight(String word, long wordCount, long documentLength) {
+        return tfidfWord(word, wordCount, documentLength);
+    }
+
     public double tfidfWord(String word, long wordCount, long documentLength) {
         //log.info("word: {}; TF: {}; IDF: {}", word, tfForWord(wordCount, documentLength), idfForWord(word));
         return MathUtils.tfidf(tfForWord(wordCount, documentLength), idfForWord(word));
@@ -19,7 +19,6 @@ import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.factory.Nd4j;
-import org.nd4j.linalg.indexing.INDArrayIndex;
 import org.nd4j.linalg.indexing.NDArrayIndex;
 
 import java.util.*;
@@ -50,7 +49,7 @@ public class CnnSentenceDataSetIterator implements DataSetIterator {
         RemoveWord, UseUnknownVector
     }
 
-    private static final String UNKNOWN_WORD_SENTINEL = "UNKNOWN_WORD_SENTINEL";
+    private static final int UNKNOWN_WORD_INDEX = -1;
 
     private LabeledSentenceProvider sentenceProvider = null;
     private WordVectors wordVectors;
@@ -66,6 +65,8 @@ public class CnnSentenceDataSetIterator implements DataSetIterator {
     private int numClasses;
     private Map<String, Integer> labelClassMap;
     private INDArray unknown;
+    private INDArray vectorTable;
+    private int unknownIndex = -1;
 
     private int cursor = 0;
 
@@ -93,57 +94,90 @@ public class CnnSentenceDataSetIterator implements DataSetIterator {
         }
         if (unknownWordHandling == UnknownWordHandling.UseUnknownVector) {
             if (useNormalizedWordVectors) {
-                wordVectors.getWordVectorMatrixNormalized(wordVectors.getUNK());
+                unknown = wordVectors.getWordVectorMatrixNormalized(wordVectors.getUNK());
             } else {
-                wordVectors.getWordVectorMatrix(wordVectors.getUNK());
+                unknown = wordVectors.getWordVectorMatrix(wordVectors.getUNK());
             }
         }
 
         this.wordVectorSize = wordVectors.getWordVector(wordVectors.vocab().wordAtIndex(0)).length;
+        if (unknownWordHandling == UnknownWordHandling.UseUnknownVector && unknown == null) {
+            //No vector for unknown words in the WordVectors instance: use zeros
+            unknown = Nd4j.create(1, wordVectorSize);
+        }
+
+        //Word vectors are gathered in bulk from the lookup table's weights, where available
+        try {
+            this.vectorTable = wordVectors.lookupTable() == null ? null : wordVectors.lookupTable().getWeights();
+        } catch (UnsupportedOperationException e) {
+            this.vectorTable = null;
+        }
+        if (unknown != null && vectorTable != null) {
+            unknownIndex = wordVectors.vocab().indexOf(wordVectors.getUNK());
+        }
     }
 
     /**
      * Generally used post training time to load a single sentence for predictions
      */
     public INDArray loadSingleSentence(String sentence) {
-        List<String> tokens = tokenizeSentence(sentence);
+        int[] tokens = tokenizeSentence(sentence);
+        int length = (maxSentenceLength > 0 ? Math.min(maxSentenceLength, tokens.length) : tokens.length);
 
-        int[] featuresShape = new int[] {1, 1, 0, 0};
-        if (sentencesAlongHeight) {
-            featuresShape[2] = Math.min(maxSentenceLength, tokens.size());
-            featuresShape[3] = wordVectorSize;
-        } else {
-            featuresShape[2] = wordVectorSize;
-            featuresShape[3] = Math.min(maxSentenceLength, tokens.size());
+        INDArray vectors = gatherVectors(tokens, length);
+        INDArray features = vectors.reshape('c', 1, 1, length, wordVectorSize);
+        if (!sentencesAlongHeight) {
+            features = features.permute(0, 1, 3, 2).dup('c');
         }
+        return features;
+    }
 
-        INDArray features = Nd4j.create(featuresShape);
-        int length = (sentencesAlongHeight ? featuresShape[2] : featuresShape[3]);
-        for (int i = 0; i < length; i++) {
-            INDArray vector = getVector(tokens.get(i));
+    /**
+     * Get the word vectors for the first {@code count} tokens, as rows of a [count, wordVectorSize] matrix. Where
+     * possible, this is one bulk gather of rows from the lookup table's weights, instead of one lookup and copy per
+     * word.
+     */
+    private INDArray gatherVectors(int[] tokens, int count) {
+        if (vectorTable == null) {
+            //Word vectors not backed by a lookup table: look up each word separately
+            INDArray out = Nd4j.create(count, wordVectorSize);
+            for (int i = 0; i < count; i++) {
+                out.putRow(i, getVector(tokens[i]));
+            }
+            return out;
+        }
 
-            INDArrayIndex[] indices = new INDArrayIndex[4];
-            indices[0] = NDArrayIndex.point(0);
-            indices[1] = NDArrayIndex.point(0);
-            if (sentencesAlongHeight) {
-                indices[2] = NDArrayIndex.point(i);
-                indices[3] = NDArrayIndex.all();
+        int[] rows = new int[count];
+        boolean anyUnknown = false;
+        for (int i = 0; i < count; i++) {
+            if (tokens[i] == UNKNOWN_WORD_INDEX) {
+                rows[i] = (unknownIndex >= 0 ? unknownIndex : 0);
+                anyUnknown |= unknownIndex < 0;
             } else {
-                indices[2] = NDArrayIndex.all();
-                indices[3] = NDArrayIndex.point(i);
+                rows[i] = tokens[i];
             }
-
-            features.put(indices, vector);
         }
 
-        return features;
+        INDArray out = Nd4j.pullRows(vectorTable, 1, rows, 'c');
+        if (useNormalizedWordVectors) {
+            out.diviColumnVector(out.norm2(1));
+        }
+        if (anyUnknown) {
+            //Unknown vector isn't a row of the lookup table
+            for (int i = 0; i < count; i++) {
+                if (tokens[i] == UNKNOWN_WORD_INDEX)
+                    out.putRow(i, unknown);
+            }
+        }
+        return out;
     }
 
-    private INDArray getVector(String word) {
+    private INDArray getVector(int token) {
         INDArray vector;
-        if (unknownWordHandling == UnknownWordHandling.UseUnknownVector && word == UNKNOWN_WORD_SENTINEL) { //Yes, this *should* be using == for the sentinel String here
+        if (token == UNKNOWN_WORD_INDEX) {
             vector = unknown;
         } else {
+            String word = wordVectors.vocab().wordAtIndex(token);
             if (useNormalizedWordVectors) {
                 vector = wordVectors.getWordVectorMatrixNormalized(word);
             } else {
@@ -153,23 +187,29 @@ public class CnnSentenceDataSetIterator implements DataSetIterator {
         return vector;
     }
 
-    private List<String> tokenizeSentence(String sentence) {
+    /**
+     * Tokenize the sentence, and map each token to its index in the vocabulary (or {@link #UNKNOWN_WORD_INDEX})
+     */
+    private int[] tokenizeSentence(String sentence) {
         Tokenizer t = tokenizerFactory.create(sentence);
 
-        List<String> tokens = new ArrayList<>();
+        int[] tokens = new int[16];
+        int count = 0;
         while (t.hasMoreTokens()) {
             String token = t.nextToken();
-            if (!wordVectors.hasWord(token)) {
-                switch (unknownWordHandling) {
-                    case RemoveWord:
-                        continue;
-                    case UseUnknownVector:
-                        token = UNKNOWN_WORD_SENTINEL;
+            int index = wordVectors.vocab().indexOf(token);
+            if (index < 0) {
+                if (unknownWordHandling == UnknownWordHandling.RemoveWord) {
+                    continue;
                 }
+                index = UNKNOWN_WORD_INDEX;
             }
-            tokens.add(token);
+            if (count == tokens.length) {
+                tokens = Arrays.copyOf(tokens, 2 * count);
+            }
+            tokens[count++] = index;
         }
-        return tokens;
+        return Arrays.copyOf(tokens, count);
     }
 
     public Map<String, Integer> getLabelClassMap() {
@@ -207,14 +247,13 @@ public class CnnSentenceDataSetIterator implements DataSetIterator {
         }
 
 
-        List<Pair<List<String>, String>> tokenizedSentences = new ArrayList<>(num);
+        List<Pair<int[], String>> tokenizedSentences = new ArrayList<>(num);
         int maxLength = -1;
-        int minLength = Integer.MAX_VALUE; //Track to we know if we can skip mask creation for "all same length" case
         for (int i = 0; i < num && sentenceProvider.hasNext(); i++) {
             Pair<String, String> p = sentenceProvider.nextSentence();
-            List<String> tokens = tokenizeSentence(p.getFirst());
+            int[] tokens = tokenizeSentence(p.getFirst());
 
-            maxLength = Math.max(maxLength, tokens.size());
+            maxLength = Math.max(maxLength, tokens.length);
             tokenizedSentences.add(new Pair<>(tokens, p.getSecond()));
         }
 
@@ -236,53 +275,44 @@ public class CnnSentenceDataSetIterator implements DataSetIterator {
             labels.putScalar(i, labelIdx, 1.0);
         }
 
-        int[] featuresShape = new int[4];
-        featuresShape[0] = currMinibatchSize;
-        featuresShape[1] = 1;
-        if (sentencesAlongHeight) {
-            featuresShape[2] = maxLength;
-            featuresShape[3] = wordVectorSize;
-        } else {
-            featuresShape[2] = wordVectorSize;
-            featuresShape[3] = maxLength;
-        }
-
-        INDArray features = Nd4j.create(featuresShape);
+        //Map the whole minibatch to word indices, computing the mask in the same pass
+        int[] lengths = new int[currMinibatchSize];
+        int[] allTokens = new int[currMinibatchSize * maxLength];
+        float[] mask = new float[currMinibatchSize * maxLength];
+        int totalTokens = 0;
         for (int i = 0; i < currMinibatchSize; i++) {
-            List<String> currSentence = tokenizedSentences.get(i).getFirst();
-
-            for (int j = 0; j < currSentence.size() && j < maxSentenceLength; j++) {
-                INDArray vector = getVector(currSentence.get(j));
-
-                INDArrayIndex[] indices = new INDArrayIndex[4];
-                //TODO REUSE
-                indices[0] = NDArrayIndex.point(i);
-                indices[1] = NDArrayIndex.point(0);
-                if (sentencesAlongHeight) {
-                    indices[2] = NDArrayIndex.point(j);
-                    indices[3] = NDArrayIndex.all();
-                } else {
-                    indices[2] = NDArrayIndex.all();
-                    indices[3] = NDArrayIndex.point(j);
-                }
-
-                features.put(indices, vector);
-            }
+            int[] currSentence = tokenizedSentences.get(i).getFirst();
+            lengths[i] = Math.min(currSentence.length, maxLength);
+            System.arraycopy(currSentence, 0, allTokens, totalTokens, lengths[i]);
+            Arrays.fill(mask, i * maxLength, i * maxLength + lengths[i], 1.0f);
+            totalTokens += lengths[i];
         }
 
-        INDArray featuresMask = null;
-        if (minLength != maxLength) {
-            featuresMask = Nd4j.create(currMinibatchSize, maxLength);
-
+        //Gather all word vectors at once, then place each sentence's vectors as one contiguous block
+        INDArray features;
+        if (totalTokens > 0 && totalTokens == currMinibatchSize * maxLength) {
+            //No padding: the gathered vectors are the features
+            features = gatherVectors(allTokens, totalTokens).reshape('c', currMinibatchSize, 1, maxLength,
+                            wordVectorSize);
+        } else {
+            features = Nd4j.create(new int[] {currMinibatchSize, 1, maxLength, wordVectorSize}, 'c');
+            INDArray vectors = (totalTokens > 0 ? gatherVectors(allTokens, totalTokens) : null);
+            INDArray features2d = features.reshape('c', currMinibatchSize * maxLength, wordVectorSize);
+            int offset = 0;
             for (int i = 0; i < currMinibatchSize; i++) {
-                int sentenceLength = tokenizedSentences.get(i).getFirst().size();
-                if (sentenceLength >= maxLength) {
-                    featuresMask.getRow(i).assign(1.0);
-                } else {
-                    featuresMask.get(NDArrayIndex.point(i), NDArrayIndex.interval(0, sentenceLength)).assign(1.0);
+                if (lengths[i] > 0) {
+                    features2d.get(NDArrayIndex.interval(i * maxLength, i * maxLength + lengths[i]), NDArrayIndex.all())
+                                    .assign(vectors.get(NDArrayIndex.interval(offset, offset + lengths[i]),
+                                                    NDArrayIndex.all()));
                 }
+                offset += lengths[i];
             }
         }
+        if (!sentencesAlongHeight) {
+            features = features.permute(0, 1, 3, 2).dup('c');
+        }
+
+        INDArray featuresMask = Nd4j.create(mask, new int[] {currMinibatchSize, maxLength}, 'c');
 
         DataSet ds = new DataSet(features, labels, featuresMask, null);
 
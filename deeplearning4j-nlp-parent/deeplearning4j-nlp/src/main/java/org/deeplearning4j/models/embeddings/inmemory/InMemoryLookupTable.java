@@ -34,6 +34,7 @@ import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.rng.Random;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.learning.legacy.AdaGrad;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +80,16 @@ public class InMemoryLookupTable<T extends SequenceElement> implements WeightLoo
     @Setter
     protected Long tableId;
 
+    // storage with spare rows, allocated by expandWeights(). syn0, syn1 and syn1Neg are views over its first rows then
+    protected transient INDArray syn0Storage, syn1Storage, syn1NegStorage;
+
+    /**
+     * Defines how many spare rows are reserved by expandWeights(), relative to the vocabulary size
+     */
+    @Getter
+    @Setter
+    protected double reserveFactor = 1.5;
+
     public InMemoryLookupTable() {}
 
     public InMemoryLookupTable(VocabCache<T> vocab, int vectorLength, boolean useAdaGrad, double lr, Random gen,
@@ -145,6 +156,86 @@ public class InMemoryLookupTable<T extends SequenceElement> implements WeightLoo
         initNegative();
     }
 
+    /**
+     * This method grows weights after new elements were appended to vocabulary, i.e. by VocabConstructor.buildIncrementalVocabulary().
+     * Existing rows are kept as is, new syn0 rows are initialized randomly, new syn1/syn1Neg rows are zero-initialized.
+     * Negative sampling table is rebuilt against updated frequencies.
+     *
+     * Weights are allocated with spare rows (see reserveFactor), so while reserved capacity isn't exceeded,
+     * weights grow in place, without copying existing rows.
+     */
+    public void expandWeights() {
+        expandWeights(false);
+    }
+
+    /**
+     * Same as {@link #expandWeights()}, but also resets syn1 when Huffman codes were rebuilt:
+     * syn1 rows belong to inner nodes of the Huffman tree, and after rebuild existing rows don't match new codes anymore.
+     *
+     * @param huffmanRebuilt TRUE if Huffman codes were rebuilt over updated vocabulary
+     */
+    public synchronized void expandWeights(boolean huffmanRebuilt) {
+        if (syn0 == null) {
+            resetWeights(false);
+            return;
+        }
+
+        int numWords = vocab.numWords();
+        int oldRows = syn0.rows();
+
+        if (numWords > oldRows) {
+            if (this.rng == null)
+                this.rng = Nd4j.getRandom();
+
+            syn0Storage = reserve(syn0Storage, syn0, numWords);
+            syn0 = syn0Storage.get(NDArrayIndex.interval(0, numWords), NDArrayIndex.all());
+            syn0.get(NDArrayIndex.interval(oldRows, numWords), NDArrayIndex.all()).assign(
+                            Nd4j.rand(new int[] {numWords - oldRows, vectorLength}, rng).subi(0.5).divi(vectorLength));
+
+            if (syn1 != null) {
+                syn1Storage = reserve(syn1Storage, syn1, numWords);
+                syn1 = syn1Storage.get(NDArrayIndex.interval(0, numWords), NDArrayIndex.all());
+            }
+
+            if (syn1Neg != null) {
+                syn1NegStorage = reserve(syn1NegStorage, syn1Neg, numWords);
+                syn1Neg = syn1NegStorage.get(NDArrayIndex.interval(0, numWords), NDArrayIndex.all());
+            }
+
+            log.info("Weights expanded from [{}] to [{}] rows, reserved capacity: [{}] rows", oldRows, numWords,
+                            syn0Storage.rows());
+        }
+
+        if ((syn1 == null) && useHS) {
+            log.info("Initializing syn1...");
+            syn1 = Nd4j.create(syn0.shape());
+        } else if (syn1 != null && huffmanRebuilt) {
+            log.warn("Huffman codes were rebuilt, resetting syn1 weights");
+            syn1.assign(0.0);
+        }
+
+        if (negative > 0) {
+            if (syn1Neg == null)
+                initNegative();
+            else
+                makeTable(table != null ? table.length() : Math.max(expTable.length, 100000), 0.75);
+        }
+    }
+
+    /**
+     * Returns storage with at least numWords rows, with current rows at the top of it.
+     * Current rows are copied only if new storage has to be allocated.
+     */
+    private INDArray reserve(INDArray storage, INDArray current, int numWords) {
+        if (storage != null && storage.data() == current.data() && storage.rows() >= numWords)
+            return storage;
+
+        int capacity = Math.max(numWords, (int) (numWords * reserveFactor));
+        INDArray result = Nd4j.zeros(capacity, vectorLength);
+        result.get(NDArrayIndex.interval(0, current.rows()), NDArrayIndex.all()).assign(current);
+        return result;
+    }
+
     private List<String> fitTnseAndGetLabels(final BarnesHutTsne tsne, final int numWords) {
         INDArray array = Nd4j.create(numWords, vectorLength);
         List<String> labels = new ArrayList<>();
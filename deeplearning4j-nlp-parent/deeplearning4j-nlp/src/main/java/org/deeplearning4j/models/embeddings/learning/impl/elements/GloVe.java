@@ -142,7 +142,7 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
             //if (shuffle)
             //Collections.shuffle(coList);
 
-            Iterator<Pair<Pair<T, T>, Double>> pairs = coOccurrences.iterator();
+            AbstractCoOccurrences<T>.PairsIterator pairs = coOccurrences.iterator();
 
             List<GloveCalculationsThread> threads = new ArrayList<>();
             for (int x = 0; x < workers; x++) {
@@ -229,12 +229,12 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
         private final int threadId;
         private final int epochId;
         //        private final AbstractCoOccurrences<T> coOccurrences;
-        private final Iterator<Pair<Pair<T, T>, Double>> coList;
+        private final AbstractCoOccurrences<T>.PairsIterator coList;
 
         private final AtomicLong pairsCounter;
         private final Counter<Integer> errorCounter;
 
-        public GloveCalculationsThread(int epochId, int threadId, @NonNull Iterator<Pair<Pair<T, T>, Double>> pairs,
+        public GloveCalculationsThread(int epochId, int threadId, @NonNull AbstractCoOccurrences<T>.PairsIterator pairs,
                         @NonNull AtomicLong pairsCounter, @NonNull Counter<Integer> errorCounter) {
             this.epochId = epochId;
             this.threadId = threadId;
@@ -253,15 +253,9 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
             //            int startPosition = threadId * (coList.size() / workers);
             //            int stopPosition = (threadId + 1) *  (coList.size() / workers);
             //            log.info("Total size: [" + coList.size() + "], thread start: [" + startPosition + "], thread stop: [" + stopPosition + "]");
-            while (coList.hasNext()) {
-
-                // now we fetch pairs into batch
-                List<Pair<Pair<T, T>, Double>> pairs = new ArrayList<>();
-                int cnt = 0;
-                while (coList.hasNext() && cnt < batchSize) {
-                    pairs.add(coList.next());
-                    cnt++;
-                }
+            List<Pair<Pair<T, T>, Double>> pairs = new ArrayList<>();
+            // iterator is shared between threads, so batch is taken atomically
+            while (coList.drainTo(pairs, batchSize) > 0) {
 
                 if (shuffle)
                     Collections.shuffle(pairs);
@@ -289,6 +283,7 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
                     }
                 }
 
+                pairs.clear();
             }
         }
     }
@@ -0,0 +1,451 @@
+package org.deeplearning4j.models.embeddings.learning.impl.elements;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+/**
+ * CPU-only word2vec kernel, operating directly on syn0/syn1/syn1Neg memory, the same way original word2vec C code does.
+ * Updates are applied without any synchronization (Hogwild), so multiple training threads can share the same kernel.
+ *
+ * All per-element data (Huffman codes, negative sampling table, subsampling probabilities, sigmoid table) is precomputed into primitive arrays once,
+ * so training loop doesn't allocate anything per (word, context) pair.
+ *
+ * PLEASE NOTE: Kernel is available only for CPU backend and FLOAT data type, use isAvailable() to check that.
+ */
+@Slf4j
+public class HogwildKernel {
+    protected static final double MAX_EXP = 6;
+
+    private final FloatBuffer syn0;
+    private final FloatBuffer syn1;
+    private final FloatBuffer syn1Neg;
+
+    private final float[] expTable;
+    private final float expScale;
+    private final int[] negTable;
+
+    private final int[][] points;
+    private final byte[][] codes;
+    private final float[] keepProbability;
+
+    private final int vectorLength;
+    private final int numWords;
+    private final int negative;
+    private final boolean useHS;
+
+    private final ThreadLocal<ThreadState> state = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState(vectorLength);
+        }
+    };
+
+    /**
+     * Per-thread scratch space and random state
+     */
+    public static class ThreadState {
+        protected final float[] neu1;
+        protected final float[] neu1e;
+        protected int[] indexes = new int[1024];
+        protected int[] context = new int[64];
+        protected long random;
+
+        protected ThreadState(int vectorLength) {
+            this.neu1 = new float[vectorLength];
+            this.neu1e = new float[vectorLength];
+        }
+
+        /**
+         * Advances word2vec LCG, and returns its new state
+         */
+        public long nextRandom() {
+            random = random * 25214903917L + 11;
+            return random;
+        }
+
+        public void setRandom(long random) {
+            this.random = random;
+        }
+
+        public long getRandom() {
+            return random;
+        }
+
+        protected int[] indexes(int length) {
+            if (indexes.length < length)
+                indexes = new int[length];
+            return indexes;
+        }
+
+        protected int[] context(int length) {
+            if (context.length < length)
+                context = new int[length];
+            return context;
+        }
+    }
+
+    protected <T extends SequenceElement> HogwildKernel(@NonNull VocabCache<T> vocabCache,
+                    @NonNull InMemoryLookupTable<T> lookupTable, @NonNull VectorsConfiguration configuration) {
+        this.vectorLength = lookupTable.layerSize();
+        this.numWords = vocabCache.numWords();
+        this.negative = lookupTable.getSyn1Neg() != null ? (int) configuration.getNegative() : 0;
+        this.useHS = configuration.isUseHierarchicSoftmax() && lookupTable.getSyn1() != null;
+
+        this.syn0 = lookupTable.getSyn0().data().asNioFloat();
+        this.syn1 = useHS ? lookupTable.getSyn1().data().asNioFloat() : null;
+        this.syn1Neg = negative > 0 ? lookupTable.getSyn1Neg().data().asNioFloat() : null;
+
+        double[] exp = lookupTable.getExpTable();
+        this.expTable = new float[exp.length];
+        for (int i = 0; i < exp.length; i++)
+            expTable[i] = (float) exp[i];
+        this.expScale = (float) (exp.length / MAX_EXP / 2.0);
+
+        if (negative > 0) {
+            INDArray table = lookupTable.getTable();
+            this.negTable = new int[table.length()];
+            for (int i = 0; i < negTable.length; i++)
+                negTable[i] = table.getInt(i);
+        } else
+            this.negTable = new int[0];
+
+        this.points = new int[numWords][];
+        this.codes = new byte[numWords][];
+        this.keepProbability = new float[numWords];
+
+        double sampling = configuration.getSampling();
+        double totalWords = vocabCache.totalWordOccurrences();
+        for (int i = 0; i < numWords; i++) {
+            T element = vocabCache.elementAtIndex(i);
+            if (element == null) {
+                points[i] = new int[0];
+                codes[i] = new byte[0];
+                keepProbability[i] = 0.0f;
+                continue;
+            }
+
+            int codeLength = useHS ? element.getCodeLength() : 0;
+            points[i] = new int[codeLength];
+            codes[i] = new byte[codeLength];
+            List<Integer> elementPoints = element.getPoints();
+            List<Byte> elementCodes = element.getCodes();
+            for (int p = 0; p < codeLength; p++) {
+                int point = elementPoints.get(p);
+                // invalid points are masked out the same way SkipGram does
+                points[i][p] = point >= 0 && point < numWords ? point : -1;
+                codes[i][p] = elementCodes.get(p);
+            }
+
+            if (sampling > 0 && element.getElementFrequency() > 0) {
+                double frequency = element.getElementFrequency();
+                keepProbability[i] = (float) ((Math.sqrt(frequency / (sampling * totalWords)) + 1)
+                                * (sampling * totalWords) / frequency);
+            } else
+                keepProbability[i] = 1.0f;
+        }
+    }
+
+    /**
+     * This method checks, if HogwildKernel can be used with specified lookup table
+     *
+     * @param lookupTable
+     * @return
+     */
+    public static boolean isAvailable(InMemoryLookupTable<?> lookupTable) {
+        String backend = Nd4j.getExecutioner().getEnvironmentInformation().getProperty("backend");
+        if (backend != null && !backend.equals("CPU"))
+            return false;
+
+        return isDirectFloat(lookupTable.getSyn0()) && (lookupTable.getSyn1() == null || isDirectFloat(lookupTable.getSyn1()))
+                        && (lookupTable.getSyn1Neg() == null || isDirectFloat(lookupTable.getSyn1Neg()));
+    }
+
+    private static boolean isDirectFloat(INDArray array) {
+        // views over leading rows of larger storage (see InMemoryLookupTable.expandWeights()) are fine too
+        return array.data().dataType() == DataBuffer.Type.FLOAT && array.ordering() == 'c' && array.offset() == 0
+                        && array.rank() == 2 && array.stride(1) == 1 && array.stride(0) == array.columns()
+                        && array.data().asNioFloat().isDirect();
+    }
+
+    public static <T extends SequenceElement> HogwildKernel create(@NonNull VocabCache<T> vocabCache,
+                    @NonNull InMemoryLookupTable<T> lookupTable, @NonNull VectorsConfiguration configuration) {
+        return new HogwildKernel(vocabCache, lookupTable, configuration);
+    }
+
+    /**
+     * Returns scratch state for current thread
+     *
+     * @return
+     */
+    public ThreadState getState() {
+        return state.get();
+    }
+
+    /**
+     * This method converts sequence to array of vocabulary indexes, applying subsampling if needed.
+     * Elements unknown to vocabulary are skipped.
+     *
+     * @param sequence
+     * @param state
+     * @return number of indexes written into state.indexes
+     */
+    public <T extends SequenceElement> int digitize(@NonNull Sequence<T> sequence, @NonNull ThreadState state) {
+        List<T> elements = sequence.getElements();
+        int[] indexes = state.indexes(elements.size());
+        int length = 0;
+        for (int i = 0; i < elements.size(); i++) {
+            T element = elements.get(i);
+            if (element == null)
+                continue;
+
+            int index = element.getIndex();
+            if (index < 0 || index >= numWords)
+                continue;
+
+            float keep = keepProbability[index];
+            if (keep < 1.0f) {
+                if (keep <= 0.0f)
+                    continue;
+
+                if (keep < (state.nextRandom() & 0xFFFF) / 65536.0f)
+                    continue;
+            }
+
+            indexes[length++] = index;
+        }
+        return length;
+    }
+
+    /**
+     * Trains all (word, context) pairs of digitized sequence with SkipGram
+     *
+     * @param state thread state, with indexes filled by digitize()
+     * @param length number of indexes
+     * @param window window size
+     * @param alpha learning rate
+     */
+    public void skipGramSequence(@NonNull ThreadState state, int length, int window, float alpha) {
+        int[] indexes = state.indexes;
+        for (int i = 0; i < length; i++) {
+            int b = (int) ((state.nextRandom() & Long.MAX_VALUE) % window);
+            int word = indexes[i];
+
+            for (int a = b; a < window * 2 + 1 - b; a++) {
+                if (a == window)
+                    continue;
+
+                int c = i - window + a;
+                if (c < 0 || c >= length)
+                    continue;
+
+                int lastWord = indexes[c];
+                if (lastWord == word)
+                    continue;
+
+                skipGram(state, word, lastWord, alpha);
+            }
+        }
+    }
+
+    /**
+     * Trains all windows of digitized sequence with CBOW
+     *
+     * @param state thread state, with indexes filled by digitize()
+     * @param length number of indexes
+     * @param window window size
+     * @param alpha learning rate
+     */
+    public void cbowSequence(@NonNull ThreadState state, int length, int window, float alpha) {
+        int[] indexes = state.indexes;
+        int[] context = state.context(window * 2);
+        for (int i = 0; i < length; i++) {
+            int b = (int) ((state.nextRandom() & Long.MAX_VALUE) % window);
+
+            int cw = 0;
+            for (int a = b; a < window * 2 + 1 - b; a++) {
+                if (a == window)
+                    continue;
+
+                int c = i - window + a;
+                if (c < 0 || c >= length)
+                    continue;
+
+                context[cw++] = indexes[c];
+            }
+
+            if (cw > 0)
+                cbow(state, indexes[i], context, cw, alpha);
+        }
+    }
+
+    /**
+     * Single SkipGram step: syn0 row of lastWord is trained to predict word
+     *
+     * @param state
+     * @param word predicted element
+     * @param lastWord context element, its syn0 row will be updated
+     * @param alpha
+     */
+    public void skipGram(@NonNull ThreadState state, int word, int lastWord, float alpha) {
+        float[] neu1e = state.neu1e;
+        int l1 = lastWord * vectorLength;
+
+        for (int x = 0; x < vectorLength; x++)
+            neu1e[x] = 0.0f;
+
+        if (useHS)
+            hierarchicSoftmax(syn0, l1, null, word, neu1e, alpha);
+
+        if (negative > 0)
+            negativeSampling(state, syn0, l1, null, word, neu1e, alpha);
+
+        for (int x = 0; x < vectorLength; x++)
+            syn0.put(l1 + x, syn0.get(l1 + x) + neu1e[x]);
+    }
+
+    /**
+     * Single CBOW step: mean of context syn0 rows is trained to predict word
+     *
+     * @param state
+     * @param word predicted element
+     * @param context context elements
+     * @param contextLength number of context elements
+     * @param alpha
+     */
+    public void cbow(@NonNull ThreadState state, int word, int[] context, int contextLength, float alpha) {
+        float[] neu1 = state.neu1;
+        float[] neu1e = state.neu1e;
+
+        for (int x = 0; x < vectorLength; x++) {
+            neu1[x] = 0.0f;
+            neu1e[x] = 0.0f;
+        }
+
+        for (int c = 0; c < contextLength; c++) {
+            int l1 = context[c] * vectorLength;
+            for (int x = 0; x < vectorLength; x++)
+                neu1[x] += syn0.get(l1 + x);
+        }
+
+        float norm = 1.0f / contextLength;
+        for (int x = 0; x < vectorLength; x++)
+            neu1[x] *= norm;
+
+        if (useHS)
+            hierarchicSoftmax(null, 0, neu1, word, neu1e, alpha);
+
+        if (negative > 0)
+            negativeSampling(state, null, 0, neu1, word, neu1e, alpha);
+
+        for (int c = 0; c < contextLength; c++) {
+            int l1 = context[c] * vectorLength;
+            for (int x = 0; x < vectorLength; x++)
+                syn0.put(l1 + x, syn0.get(l1 + x) + neu1e[x]);
+        }
+    }
+
+    /**
+     * Input vector is either syn0 row at offset l1, or dense array if buffer is null
+     */
+    private float dot(FloatBuffer buffer, int l1, float[] input, FloatBuffer weights, int l2) {
+        float f = 0.0f;
+        if (buffer != null) {
+            for (int x = 0; x < vectorLength; x++)
+                f += buffer.get(l1 + x) * weights.get(l2 + x);
+        } else {
+            for (int x = 0; x < vectorLength; x++)
+                f += input[x] * weights.get(l2 + x);
+        }
+        return f;
+    }
+
+    private void update(FloatBuffer buffer, int l1, float[] input, FloatBuffer weights, int l2, float[] neu1e,
+                    float g) {
+        if (buffer != null) {
+            for (int x = 0; x < vectorLength; x++) {
+                float w = weights.get(l2 + x);
+                neu1e[x] += g * w;
+                weights.put(l2 + x, w + g * buffer.get(l1 + x));
+            }
+        } else {
+            for (int x = 0; x < vectorLength; x++) {
+                float w = weights.get(l2 + x);
+                neu1e[x] += g * w;
+                weights.put(l2 + x, w + g * input[x]);
+            }
+        }
+    }
+
+    private void hierarchicSoftmax(FloatBuffer buffer, int l1, float[] input, int word, float[] neu1e,
+                    float alpha) {
+        int[] wordPoints = points[word];
+        byte[] wordCodes = codes[word];
+        for (int d = 0; d < wordPoints.length; d++) {
+            if (wordPoints[d] < 0)
+                continue;
+
+            int l2 = wordPoints[d] * vectorLength;
+            float f = dot(buffer, l1, input, syn1, l2);
+            if (f <= -MAX_EXP || f >= MAX_EXP)
+                continue;
+
+            int idx = (int) ((f + MAX_EXP) * expScale);
+            if (idx >= expTable.length)
+                continue;
+
+            float g = (1.0f - wordCodes[d] - expTable[idx]) * alpha;
+            update(buffer, l1, input, syn1, l2, neu1e, g);
+        }
+    }
+
+    private void negativeSampling(ThreadState state, FloatBuffer buffer, int l1, float[] input, int word,
+                    float[] neu1e, float alpha) {
+        for (int d = 0; d <= negative; d++) {
+            int target;
+            float label;
+            if (d == 0) {
+                target = word;
+                label = 1.0f;
+            } else {
+                long next = state.nextRandom();
+                target = negTable[(int) (((next >>> 16) & Long.MAX_VALUE) % negTable.length)];
+                if (target <= 0 || target >= numWords)
+                    target = (int) ((next & Long.MAX_VALUE) % (numWords - 1)) + 1;
+                if (target == word)
+                    continue;
+                label = 0.0f;
+            }
+
+            int l2 = target * vectorLength;
+            float f = dot(buffer, l1, input, syn1Neg, l2);
+            float g;
+            if (f > MAX_EXP)
+                g = (label - 1.0f) * alpha;
+            else if (f < -MAX_EXP)
+                g = label * alpha;
+            else {
+                int idx = (int) ((f + MAX_EXP) * expScale);
+                if (idx >= expTable.length)
+                    idx = expTable.length - 1;
+                g = (label - expTable[idx]) * alpha;
+            }
+
+            update(buffer, l1, input, syn1Neg, l2, neu1e, g);
+        }
+    }
+
+    public int getVectorLength() {
+        return vectorLength;
+    }
+}
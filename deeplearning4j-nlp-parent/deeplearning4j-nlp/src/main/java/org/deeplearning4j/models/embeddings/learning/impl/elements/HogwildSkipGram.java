@@ -0,0 +1,78 @@
+package org.deeplearning4j.models.embeddings.learning.impl.elements;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Skip-Gram implementation, that updates syn0/syn1/syn1Neg in place with HogwildKernel, instead of building and executing Aggregate batches.
+ * If kernel isn't available (i.e. CUDA backend or DOUBLE data type), it silently falls back to SkipGram.
+ *
+ * Usage: SequenceVectors.Builder.elementsLearningAlgorithm(new HogwildSkipGram<T>())
+ */
+@Slf4j
+public class HogwildSkipGram<T extends SequenceElement> extends SkipGram<T> {
+    protected HogwildKernel kernel;
+
+    /**
+     * Dummy construction is required for reflection
+     */
+    public HogwildSkipGram() {
+
+    }
+
+    @Override
+    public String getCodeName() {
+        return "HogwildSkipGram";
+    }
+
+    @Override
+    public void configure(@NonNull VocabCache<T> vocabCache, @NonNull WeightLookupTable<T> lookupTable,
+                    @NonNull VectorsConfiguration configuration) {
+        super.configure(vocabCache, lookupTable, configuration);
+
+        if (lookupTable instanceof InMemoryLookupTable
+                        && HogwildKernel.isAvailable((InMemoryLookupTable<T>) lookupTable)) {
+            this.kernel = HogwildKernel.create(vocabCache, (InMemoryLookupTable<T>) lookupTable, configuration);
+        } else {
+            log.warn("HogwildKernel isn't available for current backend/data type, falling back to SkipGram");
+            this.kernel = null;
+        }
+    }
+
+    /**
+     * Learns sequence using SkipGram algorithm
+     *
+     * @param sequence
+     * @param nextRandom
+     * @param learningRate
+     */
+    @Override
+    public double learnSequence(@NonNull Sequence<T> sequence, @NonNull AtomicLong nextRandom, double learningRate) {
+        if (kernel == null)
+            return super.learnSequence(sequence, nextRandom, learningRate);
+
+        int currentWindow = window;
+
+        if (variableWindows != null && variableWindows.length != 0) {
+            currentWindow = variableWindows[RandomUtils.nextInt(variableWindows.length)];
+        }
+
+        HogwildKernel.ThreadState state = kernel.getState();
+        state.setRandom(nextRandom.get());
+
+        int length = kernel.digitize(sequence, state);
+        kernel.skipGramSequence(state, length, currentWindow, (float) learningRate);
+
+        nextRandom.set(state.getRandom());
+
+        return 0.0;
+    }
+}
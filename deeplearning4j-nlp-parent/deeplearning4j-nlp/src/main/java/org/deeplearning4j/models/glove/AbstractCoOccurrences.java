@@ -2,35 +2,33 @@ package org.deeplearning4j.models.glove;
 
 import lombok.NonNull;
 import org.deeplearning4j.berkeley.Pair;
-import org.deeplearning4j.models.glove.count.*;
+import org.deeplearning4j.models.glove.count.CoOccurrenceCountTable;
+import org.deeplearning4j.models.glove.count.SortedRunMerger;
+import org.deeplearning4j.models.glove.count.SortedRunWriter;
 import org.deeplearning4j.models.sequencevectors.interfaces.SequenceIterator;
 import org.deeplearning4j.models.sequencevectors.iterators.FilteredSequenceIterator;
 import org.deeplearning4j.models.sequencevectors.iterators.SynchronizedSequenceIterator;
 import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
 import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
 import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
-import org.deeplearning4j.text.sentenceiterator.BasicLineIterator;
-import org.deeplearning4j.text.sentenceiterator.PrefetchingSentenceIterator;
-import org.deeplearning4j.text.sentenceiterator.SentenceIterator;
-import org.deeplearning4j.text.sentenceiterator.SynchronizedSentenceIterator;
 import org.nd4j.linalg.factory.Nd4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class implements building cooccurrence map for abstract training corpus.
- * However it's performance rather low, due to exsessive IO that happens in ShadowCopyThread
  *
- * PLEASE NOTE: Current implementation involves massive IO, and it should be rewritter as soon as ND4j gets sparse arrays support
+ * Each calculator thread accumulates weights in its own primitive hash table, keyed by packed pair of vocabulary indexes.
+ * As soon as table reaches its share of memory budget, it's dumped to disk as sorted binary run, and reused.
+ * Once corpus is processed, all runs are k-way merged into single sorted target file, so memory use is bounded by budget, and IO is sequential.
  *
  * @author raver119@gmail.com
  */
@@ -41,24 +39,29 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
     protected VocabCache<T> vocabCache;
     protected SequenceIterator<T> sequenceIterator;
 
-    // please note, we need enough room for ShadowCopy thread, that's why -1 there
     protected int workers = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
 
-    // target file, where text with cooccurrencies should be saved
+    // target file, where sorted binary cooccurrence records should be saved
     protected File targetFile;
 
-    protected ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // directory used for intermediate runs, system temp directory is used if null
+    protected File tempDirectory;
 
-    protected long memory_threshold = 0;
+    protected int mergeFanIn = 64;
 
-    private ShadowCopyThread shadowThread;
+    protected long memory_threshold = 0;
 
-    //    private Counter<Integer> sentenceOccurrences = Util.parallelCounter();
-    //private CounterMap<T, T> coOccurrenceCounts = Util.parallelCounterMap();
-    private volatile CountMap<T> coOccurrenceCounts = new CountMap<>();
-    //private Counter<Integer> occurrenceAllocations = Util.parallelCounter();
-    //private List<Pair<T, T>> coOccurrences;
+    private final List<File> runs = Collections.synchronizedList(new ArrayList<File>());
+    private final List<CoOccurrencesCalculatorThread> calculators = new ArrayList<>();
     private AtomicLong processedSequences = new AtomicLong(0);
+    private long numberOfPairs = -1;
+
+    // number of records per block of the lookup index
+    protected static final int LOOKUP_BLOCK_SIZE = 1024;
+
+    // lookup state for getCoOccurrenceCount(): first key of each block of target file, and channel used for positional reads
+    private transient long[] lookupIndex;
+    private transient FileChannel lookupChannel;
 
 
     protected static final Logger logger = LoggerFactory.getLogger(AbstractCoOccurrences.class);
@@ -67,28 +70,115 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
     private AbstractCoOccurrences() {}
 
     /**
-     * This method returns cooccurrence distance weights for two SequenceElements
+     * This method returns cooccurrence distance weights for two SequenceElements.
+     * Lookup is available only after fit() call: on first lookup, the target file is opened and the first key of each block of records is read into memory.
+     * After that, each lookup is a binary search over that index, followed by single positional read of one block.
      *
      * @param element1
      * @param element2
      * @return distance weight
      */
     public double getCoOccurrenceCount(@NonNull T element1, @NonNull T element2) {
-        return coOccurrenceCounts.getCount(element1, element2);
+        if (numberOfPairs <= 0)
+            return 0.0;
+
+        long key = CoOccurrenceCountTable.pack(element1.getIndex(), element2.getIndex());
+        try {
+            long[] index = getLookupIndex();
+
+            // last block, which first key is <= key
+            int low = 0;
+            int high = index.length - 1;
+            int block = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (index[mid] <= key) {
+                    block = mid;
+                    low = mid + 1;
+                } else
+                    high = mid - 1;
+            }
+            if (block < 0)
+                return 0.0;
+
+            long first = (long) block * LOOKUP_BLOCK_SIZE;
+            int records = (int) Math.min(LOOKUP_BLOCK_SIZE, numberOfPairs - first);
+            ByteBuffer buffer = read(first * SortedRunWriter.RECORD_SIZE, records * SortedRunWriter.RECORD_SIZE);
+
+            int l = 0;
+            int h = records - 1;
+            while (l <= h) {
+                int mid = (l + h) >>> 1;
+                long midKey = buffer.getLong(mid * SortedRunWriter.RECORD_SIZE);
+                if (midKey < key) {
+                    l = mid + 1;
+                } else if (midKey > key) {
+                    h = mid - 1;
+                } else
+                    return buffer.getDouble(mid * SortedRunWriter.RECORD_SIZE + 8);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return 0.0;
+    }
+
+    private synchronized long[] getLookupIndex() throws IOException {
+        if (lookupIndex == null) {
+            lookupChannel = FileChannel.open(targetFile.toPath(), StandardOpenOption.READ);
+
+            int blocks = (int) ((numberOfPairs + LOOKUP_BLOCK_SIZE - 1) / LOOKUP_BLOCK_SIZE);
+            long[] index = new long[blocks];
+            for (int i = 0; i < blocks; i++)
+                index[i] = read((long) i * LOOKUP_BLOCK_SIZE * SortedRunWriter.RECORD_SIZE, 8).getLong(0);
+            lookupIndex = index;
+        }
+        return lookupIndex;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        // positional reads don't change channel position, so they are safe to use from multiple threads
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (lookupChannel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Unexpected end of cooccurrences file: " + targetFile.getAbsolutePath());
+        }
+        return buffer;
+    }
+
+    private synchronized void closeLookup() {
+        lookupIndex = null;
+        if (lookupChannel != null) {
+            try {
+                lookupChannel.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close cooccurrences file", e);
+            }
+            lookupChannel = null;
+        }
     }
 
     /**
-     * This method returns estimated memory footrpint, based on current CountMap content
+     * This method returns number of unique pairs found, or -1 if fit() wasn't called yet
+     *
+     * @return
+     */
+    public long getNumberOfPairs() {
+        return numberOfPairs;
+    }
+
+    /**
+     * This method returns estimated memory footprint of calculator threads tables
      * @return
      */
     protected long getMemoryFootprint() {
-        // TODO: implement this method. It should return approx. memory used by appropriate CountMap
-        try {
-            lock.readLock().lock();
-            return ((long) coOccurrenceCounts.size()) * 24L * 5L;
-        } finally {
-            lock.readLock().unlock();
+        long footprint = 0;
+        synchronized (calculators) {
+            for (CoOccurrencesCalculatorThread thread : calculators)
+                footprint += thread.getMemoryFootprint();
         }
+        return footprint;
     }
 
     /**
@@ -100,77 +190,158 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
     }
 
     public void fit() {
-        shadowThread = new ShadowCopyThread();
-        shadowThread.start();
+        // target file is going to be rewritten, so lookup index isn't valid anymore
+        closeLookup();
 
         // we should reset iterator before counting cooccurrences
         sequenceIterator.reset();
 
-        List<CoOccurrencesCalculatorThread> threads = new ArrayList<>();
-        for (int x = 0; x < workers; x++) {
-            threads.add(x, new CoOccurrencesCalculatorThread(x, new FilteredSequenceIterator<>(
-                            new SynchronizedSequenceIterator<>(sequenceIterator), vocabCache), processedSequences));
-            threads.get(x).start();
+        /*
+            each table gets equal share of memory budget. 64 bytes per entry covers open-addressing slack,
+            table growth and keys sorting before spill
+         */
+        long perThreadBudget = getMemoryThreshold() / workers;
+        int maxEntries = (int) Math.max(1024L, Math.min(Integer.MAX_VALUE / 4, perThreadBudget / 64L));
+        logger.debug("Memory budget per thread: [{}] bytes, max entries before spill: [{}]", perThreadBudget,
+                        maxEntries);
+
+        AtomicReference<Throwable> exception = new AtomicReference<>();
+        synchronized (calculators) {
+            calculators.clear();
+            for (int x = 0; x < workers; x++) {
+                calculators.add(new CoOccurrencesCalculatorThread(x, new FilteredSequenceIterator<>(
+                                new SynchronizedSequenceIterator<>(sequenceIterator), vocabCache), processedSequences,
+                                maxEntries, exception));
+            }
         }
 
-        for (int x = 0; x < workers; x++) {
+        for (CoOccurrencesCalculatorThread thread : calculators)
+            thread.start();
+
+        for (CoOccurrencesCalculatorThread thread : calculators) {
             try {
-                threads.get(x).join();
+                thread.join();
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
 
-        shadowThread.finish();
-        logger.info("CoOccurrences map was built.");
+        if (exception.get() != null)
+            throw new RuntimeException(exception.get());
+
+        synchronized (calculators) {
+            calculators.clear();
+        }
+
+        try {
+            List<File> allRuns;
+            synchronized (runs) {
+                allRuns = new ArrayList<>(runs);
+                runs.clear();
+            }
+
+            logger.info("Merging {} sorted runs...", allRuns.size());
+            numberOfPairs = new SortedRunMerger(mergeFanIn, tempDirectory).merge(allRuns, targetFile);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        logger.info("CoOccurrences map was built: [{}] pairs", numberOfPairs);
     }
 
     /**
+     *  This method returns iterator with elements pairs and their weights, sorted by elements indexes. Resulting iterator is safe to use in multi-threaded environment.
      *
-     *  This method returns iterator with elements pairs and their weights. Resulting iterator is safe to use in multi-threaded environment.
-     *
-     * Developer's note: thread safety on received iterator is delegated to PrefetchedSentenceIterator
+     *  PLEASE NOTE: if multiple threads share this iterator, other thread might fetch the last pair between hasNext() and next() calls,
+     *  and next() will throw NoSuchElementException then. Use {@link PairsIterator#poll()} or {@link PairsIterator#drainTo(List, int)} instead, they are atomic.
      * @return
      */
-    public Iterator<Pair<Pair<T, T>, Double>> iterator() {
-        final SentenceIterator iterator;
+    public PairsIterator iterator() {
+        final DataInputStream stream;
 
         try {
-            iterator = new SynchronizedSentenceIterator(
-                            new PrefetchingSentenceIterator.Builder(new BasicLineIterator(targetFile))
-                                            .setFetchSize(500000).build());
-
+            stream = new DataInputStream(new BufferedInputStream(new FileInputStream(targetFile), 1024 * 1024));
         } catch (Exception e) {
             logger.error("Target file was not found on last stage!");
             throw new RuntimeException(e);
         }
-        return new Iterator<Pair<Pair<T, T>, Double>>() {
-            /*
-                    iterator should be built on top of current text file with all pairs
-             */
 
-            @Override
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
+        return new PairsIterator(stream, Math.max(0, numberOfPairs));
+    }
+
+    /**
+     * Iterator over cooccurrence pairs, sorted by elements indexes, that can be shared between threads
+     */
+    public class PairsIterator implements Iterator<Pair<Pair<T, T>, Double>> {
+        private final DataInputStream stream;
+        private final long total;
+        private long position = 0;
+
+        protected PairsIterator(@NonNull DataInputStream stream, long total) {
+            this.stream = stream;
+            this.total = total;
+        }
+
+        @Override
+        public synchronized boolean hasNext() {
+            return position < total;
+        }
+
+        @Override
+        public synchronized Pair<Pair<T, T>, Double> next() {
+            Pair<Pair<T, T>, Double> pair = poll();
+            if (pair == null)
+                throw new NoSuchElementException();
+            return pair;
+        }
 
-            @Override
-            public Pair<Pair<T, T>, Double> next() {
-                String line = iterator.nextSentence();
-                String[] strings = line.split(" ");
+        /**
+         * This method atomically checks for the next pair and takes it
+         *
+         * @return next pair, or null if there's no more pairs
+         */
+        public synchronized Pair<Pair<T, T>, Double> poll() {
+            if (position >= total)
+                return null;
 
-                T element1 = vocabCache.elementAtIndex(Integer.valueOf(strings[0]));
-                T element2 = vocabCache.elementAtIndex(Integer.valueOf(strings[1]));
-                Double weight = Double.valueOf(strings[2]);
+            try {
+                long key = stream.readLong();
+                double weight = stream.readDouble();
+                position++;
+
+                if (position >= total)
+                    stream.close();
+
+                T element1 = vocabCache.elementAtIndex(CoOccurrenceCountTable.first(key));
+                T element2 = vocabCache.elementAtIndex(CoOccurrenceCountTable.second(key));
 
                 return new Pair<>(new Pair<>(element1, element2), weight);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
             }
+        }
 
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException("remove() method can't be supported on read-only interface");
+        /**
+         * This method atomically takes up to maxPairs next pairs, and adds them to target list
+         *
+         * @param target list for taken pairs
+         * @param maxPairs maximum number of pairs to take
+         * @return number of pairs taken, 0 if there's no more pairs
+         */
+        public synchronized int drainTo(@NonNull List<Pair<Pair<T, T>, Double>> target, int maxPairs) {
+            int cnt = 0;
+            Pair<Pair<T, T>, Double> pair;
+            while (cnt < maxPairs && (pair = poll()) != null) {
+                target.add(pair);
+                cnt++;
             }
-        };
+            return cnt;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove() method can't be supported on read-only interface");
+        }
     }
 
     public static class Builder<T extends SequenceElement> {
@@ -182,6 +353,8 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
         protected int workers = Runtime.getRuntime().availableProcessors();
         protected File target;
         protected long maxmemory = Runtime.getRuntime().maxMemory();
+        protected File tempDirectory;
+        protected int mergeFanIn = 64;
 
         public Builder() {
 
@@ -230,7 +403,7 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
         }
 
         /**
-         * Path to save cooccurrence map after construction.
+         * Path to save cooccurrence map after construction. Map is saved as sorted binary records: packed indexes pair (long) followed by weight (double).
          * If targetFile is not specified, temporary file will be used.
          *
          * @param path
@@ -242,7 +415,7 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
         }
 
         /**
-         * Path to save cooccurrence map after construction.
+         * Path to save cooccurrence map after construction. Map is saved as sorted binary records: packed indexes pair (long) followed by weight (double).
          * If targetFile is not specified, temporary file will be used.
          *
          * @param file
@@ -253,6 +426,30 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
             return this;
         }
 
+        /**
+         * Directory used to store intermediate sorted runs.
+         * If tempDirectory is not specified, system temporary directory will be used.
+         *
+         * @param directory
+         * @return
+         */
+        public Builder<T> tempDirectory(@NonNull File directory) {
+            this.tempDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Maximum number of sorted runs merged at once. If more runs were spilled, they'll be merged in multiple passes.
+         * Default value: 64
+         *
+         * @param fanIn
+         * @return
+         */
+        public Builder<T> mergeFanIn(int fanIn) {
+            this.mergeFanIn = fanIn;
+            return this;
+        }
+
         public AbstractCoOccurrences<T> build() {
             AbstractCoOccurrences<T> ret = new AbstractCoOccurrences<>();
             ret.sequenceIterator = this.sequenceIterator;
@@ -260,6 +457,8 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
             ret.vocabCache = this.vocabCache;
             ret.symmetric = this.symmetric;
             ret.workers = this.workers;
+            ret.tempDirectory = this.tempDirectory;
+            ret.mergeFanIn = this.mergeFanIn;
 
             if (this.maxmemory < 1) {
                 this.maxmemory = Runtime.getRuntime().maxMemory();
@@ -289,358 +488,96 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
 
         private final SequenceIterator<T> iterator;
         private final AtomicLong sequenceCounter;
+        private final AtomicReference<Throwable> exception;
+        private final int maxEntries;
+        private final CoOccurrenceCountTable table;
         private int threadId;
 
         public CoOccurrencesCalculatorThread(int threadId, @NonNull SequenceIterator<T> iterator,
-                        @NonNull AtomicLong sequenceCounter) {
+                        @NonNull AtomicLong sequenceCounter, int maxEntries,
+                        @NonNull AtomicReference<Throwable> exception) {
             this.iterator = iterator;
             this.sequenceCounter = sequenceCounter;
             this.threadId = threadId;
+            this.maxEntries = maxEntries;
+            this.exception = exception;
+            this.table = new CoOccurrenceCountTable(Math.min(maxEntries, 1 << 16));
 
             this.setName("CoOccurrencesCalculatorThread " + threadId);
         }
 
+        public long getMemoryFootprint() {
+            return table.memoryFootprint();
+        }
+
         @Override
         public void run() {
-            while (iterator.hasMoreSequences()) {
-                Sequence<T> sequence = iterator.nextSequence();
-
-                List<String> tokens = new ArrayList<>(sequence.asLabels());
-                //            logger.info("Tokens size: " + tokens.size());
-                for (int x = 0; x < sequence.getElements().size(); x++) {
-                    int wordIdx = vocabCache.indexOf(tokens.get(x));
-                    if (wordIdx < 0) {
-                        continue;
+            try {
+                int[] indexes = new int[0];
+                while (iterator.hasMoreSequences()) {
+                    Sequence<T> sequence = iterator.nextSequence();
+
+                    // we resolve vocabulary indexes once per sequence
+                    List<T> elements = sequence.getElements();
+                    if (indexes.length < elements.size())
+                        indexes = new int[elements.size()];
+
+                    for (int x = 0; x < elements.size(); x++) {
+                        T element = vocabCache.wordFor(elements.get(x).getLabel());
+                        indexes[x] = element == null || element.getLabel().equals(Glove.DEFAULT_UNK) ? -1
+                                        : element.getIndex();
                     }
-                    String w1 = vocabCache.wordFor(tokens.get(x)).getLabel();
-
-                    // THIS iS SAFE TO REMOVE, NO CHANCE WE'll HAVE UNK WORD INSIDE SEQUENCE
-                    /*if(w1.equals(Glove.UNK))
-                        continue;
-                    */
-
-                    int windowStop = Math.min(x + windowSize + 1, tokens.size());
-                    for (int j = x; j < windowStop; j++) {
-                        int otherWord = vocabCache.indexOf(tokens.get(j));
-                        if (otherWord < 0) {
-                            continue;
-                        }
-                        String w2 = vocabCache.wordFor(tokens.get(j)).getLabel();
 
-                        if (w2.equals(Glove.DEFAULT_UNK) || otherWord == wordIdx) {
+                    for (int x = 0; x < elements.size(); x++) {
+                        int wordIdx = indexes[x];
+                        if (wordIdx < 0)
                             continue;
-                        }
 
+                        int windowStop = Math.min(x + windowSize + 1, elements.size());
+                        for (int j = x; j < windowStop; j++) {
+                            int otherWord = indexes[j];
+                            if (otherWord < 0 || otherWord == wordIdx)
+                                continue;
 
-                        T tokenX = vocabCache.wordFor(tokens.get(x));
-                        T tokenJ = vocabCache.wordFor(tokens.get(j));
-                        double nWeight = 1.0 / (j - x + Nd4j.EPS_THRESHOLD);
-
-                        while (getMemoryFootprint() >= getMemoryThreshold()) {
-                            try {
-                                shadowThread.invoke();
-                                /*lock.readLock().lock();
-                                int size = coOccurrenceCounts.size();
-                                lock.readLock().unlock();
-                                */
-                                if (threadId == 0) {
-                                    logger.debug("Memory consuimption > threshold: {footrpint: [" + getMemoryFootprint()
-                                                    + "], threshold: [" + getMemoryThreshold() + "] }");
-                                }
-                                Thread.sleep(10000);
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            } finally {
+                            double nWeight = 1.0 / (j - x + Nd4j.EPS_THRESHOLD);
 
-                            }
-                        }
-                        /*
-                        if (getMemoryFootprint() == 0) {
-                            logger.info("Zero size!");
-                        }
-                        */
-
-                        try {
-                            lock.readLock().lock();
                             if (wordIdx < otherWord) {
-                                coOccurrenceCounts.incrementCount(tokenX, tokenJ, nWeight);
-                                if (symmetric) {
-                                    coOccurrenceCounts.incrementCount(tokenJ, tokenX, nWeight);
-                                }
+                                table.add(CoOccurrenceCountTable.pack(wordIdx, otherWord), nWeight);
+                                if (symmetric)
+                                    table.add(CoOccurrenceCountTable.pack(otherWord, wordIdx), nWeight);
                             } else {
-                                coOccurrenceCounts.incrementCount(tokenJ, tokenX, nWeight);
-
-                                if (symmetric) {
-                                    coOccurrenceCounts.incrementCount(tokenX, tokenJ, nWeight);
-                                }
+                                table.add(CoOccurrenceCountTable.pack(otherWord, wordIdx), nWeight);
+                                if (symmetric)
+                                    table.add(CoOccurrenceCountTable.pack(wordIdx, otherWord), nWeight);
                             }
-                        } finally {
-                            lock.readLock().unlock();
                         }
-                    }
-                }
-
-                sequenceCounter.incrementAndGet();
-            }
-        }
-    }
-
-    /**
-     * This class is designed to provide shadow copy functionality for CoOccurence maps, since with proper corpus size you can't fit such a map into memory
-     *
-     */
-    private class ShadowCopyThread extends Thread implements Runnable {
-
-        private AtomicBoolean isFinished = new AtomicBoolean(false);
-        private AtomicBoolean isTerminate = new AtomicBoolean(false);
-        private AtomicBoolean isInvoked = new AtomicBoolean(false);
-        private AtomicBoolean shouldInvoke = new AtomicBoolean(false);
-
-        // file that contains resuts from previous runs
-        private File[] tempFiles;
-        private RoundCount counter;
-
-        public ShadowCopyThread() {
-            try {
-
-                counter = new RoundCount(1);
-                tempFiles = new File[2];
-
-                tempFiles[0] = File.createTempFile("aco", "tmp");
-                tempFiles[1] = File.createTempFile("aco", "tmp");
-
-                tempFiles[0].deleteOnExit();
-                tempFiles[1].deleteOnExit();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-
-            this.setName("ACO ShadowCopy thread");
-        }
-
-        @Override
-        public void run() {
-            /*
-                  Basic idea is pretty simple: run quetly, untill memory gets filled up to some high volume.
-                  As soon as this happens - execute shadow copy.
-            */
-            while (!isFinished.get() && !isTerminate.get()) {
-                // check used memory. if memory use below threshold - sleep for a while. if above threshold - invoke copier
-
-                if (getMemoryFootprint() > getMemoryThreshold() || (shouldInvoke.get() && !isInvoked.get())) {
-                    // we'll just invoke copier, nothing else
-                    shouldInvoke.compareAndSet(true, false);
-                    invokeBlocking();
-                } else {
-                    try {
-                        /*
-                               commented and left here for future debugging purposes, if needed
-                        
-                                //lock.readLock().lock();
-                                //int size = coOccurrenceCounts.size();
-                                //lock.readLock().unlock();
-                                //logger.info("Current memory situation: {size: [" +size+ "], footprint: [" + getMemoryFootprint()+"], threshold: ["+ getMemoryThreshold() +"]}");
-                         */
-                        Thread.sleep(1000);
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            }
-        }
-
-        /**
-         * This methods advises shadow copy process to start
-         */
-        public void invoke() {
-            shouldInvoke.compareAndSet(false, true);
-        }
 
-        /**
-         * This methods dumps cooccurrence map into save file.
-         * Please note: this method is synchronized and will block, until complete
-         */
-        public synchronized void invokeBlocking() {
-            if (getMemoryFootprint() < getMemoryThreshold() && !isFinished.get()) {
-                return;
-            }
-
-            int numberOfLinesSaved = 0;
-
-            isInvoked.set(true);
-
-            logger.debug("Memory purge started.");
-
-            /*
-                Basic plan:
-                    1. Open temp file
-                    2. Read that file line by line
-                    3. For each read line do synchronization in memory > new file direction
-             */
-
-            counter.tick();
-
-            CountMap<T> localMap;
-            try {
-                // in any given moment there's going to be only 1 WriteLock, due to invokeBlocking() being synchronized call
-                lock.writeLock().lock();
-
-
-
-                // obtain local copy of CountMap
-                localMap = coOccurrenceCounts;
-
-                // set new CountMap, and release write lock
-                coOccurrenceCounts = new CountMap<>();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            } finally {
-                lock.writeLock().unlock();
-            }
-
-            try {
-
-                File file = null;
-                if (!isFinished.get()) {
-                    file = tempFiles[counter.previous()];
-                } else
-                    file = targetFile;
-
-
-                //    PrintWriter pw = new PrintWriter(file);
-
-                int linesRead = 0;
-
-                logger.debug("Saving to: [" + counter.get() + "], Reading from: [" + counter.previous() + "]");
-                CoOccurenceReader<T> reader =
-                                new BinaryCoOccurrenceReader<>(tempFiles[counter.previous()], vocabCache, localMap);
-                CoOccurrenceWriter<T> writer = (isFinished.get()) ? new ASCIICoOccurrenceWriter<T>(targetFile)
-                                : new BinaryCoOccurrenceWriter<T>(tempFiles[counter.get()]);
-                while (reader.hasMoreObjects()) {
-                    CoOccurrenceWeight<T> line = reader.nextObject();
-
-                    if (line != null) {
-                        writer.writeObject(line);
-                        numberOfLinesSaved++;
-                        linesRead++;
+                        if (table.size() >= maxEntries)
+                            spill();
                     }
-                }
-                reader.finish();
 
-                logger.debug("Lines read: [" + linesRead + "]");
-
-                //now, we can dump the rest of elements, which were not presented in existing dump
-                Iterator<Pair<T, T>> iterator = localMap.getPairIterator();
-                while (iterator.hasNext()) {
-                    Pair<T, T> pair = iterator.next();
-                    double mWeight = localMap.getCount(pair);
-                    CoOccurrenceWeight<T> object = new CoOccurrenceWeight<>();
-                    object.setElement1(pair.getFirst());
-                    object.setElement2(pair.getSecond());
-                    object.setWeight(mWeight);
-
-                    writer.writeObject(object);
-
-                    numberOfLinesSaved++;
-                    //      if (numberOfLinesSaved % 100000 == 0) logger.info("Lines saved: [" + numberOfLinesSaved +"]");
+                    sequenceCounter.incrementAndGet();
                 }
 
-                writer.finish();
-
-                /*
-                SentenceIterator sIterator =  new PrefetchingSentenceIterator.Builder(new BasicLineIterator(tempFiles[counter.get()]))
-                        .setFetchSize(500000)
-                        .build();
-                
-                
-                int linesRead = 0;
-                while (sIterator.hasNext()) {
-                    //List<Writable> list = new ArrayList<>(reader.next());
-                    String sentence = sIterator.nextSentence();
-                    if (sentence == null || sentence.isEmpty()) continue;
-                    String[] strings = sentence.split(" ");
-                
-                
-                    // first two elements are integers - vocab indexes
-                    //T element1 = vocabCache.wordFor(vocabCache.wordAtIndex(list.get(0).toInt()));
-                    //T element2 = vocabCache.wordFor(vocabCache.wordAtIndex(list.get(1).toInt()));
-                    T element1 = vocabCache.elementAtIndex(Integer.valueOf(strings[0]));
-                    T element2 = vocabCache.elementAtIndex(Integer.valueOf(strings[1]));
-                
-                    // getting third element, previously stored weight
-                    double sWeight = Double.valueOf(strings[2]);  // list.get(2).toDouble();
-                
-                    // now, since we have both elements ready, we can check this pair against inmemory map
-                        double mWeight = localMap.getCount(element1, element2);
-                        if (mWeight <= 0) {
-                            // this means we have no such pair in memory, so we'll do nothing to sWeight
-                        } else {
-                            // since we have new weight value in memory, we should update sWeight value before moving it off memory
-                            sWeight += mWeight;
-                
-                            // original pair can be safely removed from CountMap
-                            localMap.removePair(element1,element2);
-                        }
-                
-                        StringBuilder builder = new StringBuilder().append(element1.getIndex()).append(" ").append(element2.getIndex()).append(" ").append(sWeight);
-                        pw.println(builder.toString());
-                        numberOfLinesSaved++;
-                        linesRead++;
-                
-                   // if (numberOfLinesSaved % 100000 == 0) logger.info("Lines saved: [" + numberOfLinesSaved +"]");
-                  //  if (linesRead % 100000 == 0) logger.info("Lines read: [" + linesRead +"]");
-                }
-                */
-                /*
-                logger.info("Lines read: [" + linesRead + "]");
-                
-                //now, we can dump the rest of elements, which were not presented in existing dump
-                Iterator<Pair<T, T>> iterator = localMap.getPairIterator();
-                while (iterator.hasNext()) {
-                    Pair<T, T> pair = iterator.next();
-                    double mWeight = localMap.getCount(pair);
-                
-                    StringBuilder builder = new StringBuilder().append(pair.getFirst().getIndex()).append(" ").append(pair.getFirst().getIndex()).append(" ").append(mWeight);
-                    pw.println(builder.toString());
-                    numberOfLinesSaved++;
-                
-                              //      if (numberOfLinesSaved % 100000 == 0) logger.info("Lines saved: [" + numberOfLinesSaved +"]");
-                }
-                
-                pw.flush();
-                pw.close();
-                
-                */
-
-                // just a hint for gc
-                localMap = null;
-                //sIterator.finish();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+                spill();
+            } catch (Throwable t) {
+                exception.compareAndSet(null, t);
             }
-
-            logger.info("Number of word pairs saved so far: [" + numberOfLinesSaved + "]");
-            isInvoked.set(false);
         }
 
-        /**
-         * This method provides soft finish ability for shadow copy process.
-         * Please note: it's blocking call, since it requires for final merge.
-         */
-        public void finish() {
-            if (this.isFinished.get()) {
+        protected void spill() throws IOException {
+            if (table.size() == 0)
                 return;
-            }
 
-            this.isFinished.set(true);
-            invokeBlocking();
-        }
+            File file = File.createTempFile("aco", ".run", tempDirectory);
+            file.deleteOnExit();
 
-        /**
-         * This method provides hard fiinish ability for shadow copy process
-         */
-        public void terminate() {
-            this.isTerminate.set(true);
+            long records = SortedRunWriter.spill(table, file);
+            runs.add(file);
+            table.clear();
+
+            if (threadId == 0)
+                logger.debug("Spilled [{}] pairs to disk, total runs so far: [{}]", records, runs.size());
         }
     }
 }
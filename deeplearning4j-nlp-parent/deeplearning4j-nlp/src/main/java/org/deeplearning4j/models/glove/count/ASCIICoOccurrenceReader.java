@@ -12,7 +12,11 @@ import java.io.PrintWriter;
 
 /**
  * @author raver119@gmail.com
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
+@Deprecated
 public class ASCIICoOccurrenceReader<T extends SequenceElement> implements CoOccurenceReader<T> {
     private File file;
     private PrintWriter writer;
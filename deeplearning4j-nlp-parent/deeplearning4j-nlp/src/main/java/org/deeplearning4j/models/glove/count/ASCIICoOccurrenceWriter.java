@@ -10,7 +10,11 @@ import java.io.PrintWriter;
 
 /**
  * @author raver119@gmail.com
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
+@Deprecated
 public class ASCIICoOccurrenceWriter<T extends SequenceElement> implements CoOccurrenceWriter<T> {
 
     private File file;
@@ -22,7 +22,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Binary implementation of CoOccurenceReader interface, used to provide off-memory storage for cooccurrence maps generated for GloVe
  *
  * @author raver119@gmail.com
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
+@Deprecated
 public class BinaryCoOccurrenceReader<T extends SequenceElement> implements CoOccurenceReader<T> {
     private VocabCache<T> vocabCache;
     private InputStream inputStream;
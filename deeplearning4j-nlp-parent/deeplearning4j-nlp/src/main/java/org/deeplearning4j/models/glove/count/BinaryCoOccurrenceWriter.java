@@ -12,7 +12,11 @@ import java.io.FileOutputStream;
 
 /**
  * @author raver119@gmail.com
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
+@Deprecated
 public class BinaryCoOccurrenceWriter<T extends SequenceElement> implements CoOccurrenceWriter<T> {
     private File file;
     private DataOutputStream outputStream;
@@ -4,7 +4,11 @@ import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
 
 /**
  * Created by raver on 24.12.2015.
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
+@Deprecated
 public interface CoOccurenceReader<T extends SequenceElement> {
     /*
         Storage->Memory merging part
@@ -0,0 +1,159 @@
+package org.deeplearning4j.models.glove.count;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table mapping packed pair of vocabulary indexes to cooccurrence weight.
+ * Used instead of CountMap by cooccurrence calculator threads: there's no boxing, and each thread owns its own table.
+ *
+ * PLEASE NOTE: This class is NOT thread-safe
+ */
+public class CoOccurrenceCountTable {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // key 0 is valid (pair 0:0), so we keep separate occupancy flags
+    private long[] keys;
+    private double[] weights;
+    private boolean[] used;
+
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public CoOccurrenceCountTable(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        weights = new double[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        size = 0;
+    }
+
+    /**
+     * Packs two vocabulary indexes into single long key. Sorting packed keys gives (index1, index2) ordering.
+     */
+    public static long pack(int index1, int index2) {
+        return (((long) index1) << 32) | (index2 & 0xFFFFFFFFL);
+    }
+
+    public static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int second(long key) {
+        return (int) key;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Adds weight to specified pair
+     *
+     * @param key packed pair
+     * @param weight
+     */
+    public void add(long key, double weight) {
+        int idx = mix(key) & mask;
+        while (used[idx]) {
+            if (keys[idx] == key) {
+                weights[idx] += weight;
+                return;
+            }
+            idx = (idx + 1) & mask;
+        }
+
+        used[idx] = true;
+        keys[idx] = key;
+        weights[idx] = weight;
+
+        if (++size > resizeThreshold)
+            grow();
+    }
+
+    /**
+     * Returns weight for specified pair, or 0.0 if pair is absent
+     *
+     * @param key packed pair
+     * @return
+     */
+    public double get(long key) {
+        int idx = mix(key) & mask;
+        while (used[idx]) {
+            if (keys[idx] == key)
+                return weights[idx];
+            idx = (idx + 1) & mask;
+        }
+        return 0.0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldWeights = weights;
+        boolean[] oldUsed = used;
+
+        allocate(oldKeys.length << 1);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i])
+                continue;
+
+            int idx = mix(oldKeys[i]) & mask;
+            while (used[idx])
+                idx = (idx + 1) & mask;
+
+            used[idx] = true;
+            keys[idx] = oldKeys[i];
+            weights[idx] = oldWeights[i];
+            size++;
+        }
+    }
+
+    /**
+     * Returns all keys stored in this table, in ascending order
+     *
+     * @return
+     */
+    public long[] sortedKeys() {
+        long[] result = new long[size];
+        int pos = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i])
+                result[pos++] = keys[i];
+        }
+
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Removes all entries. Storage is kept, so table can be reused without reallocation.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns approximate number of bytes used by this table
+     *
+     * @return
+     */
+    public long memoryFootprint() {
+        return keys.length * 17L;
+    }
+}
@@ -7,8 +7,12 @@ import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
  * Simple POJO holding pairs of elements and their respective weights, used in GloVe -> CoOccurrence
  *
  * @author raver119@gmail.com
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
 @Data
+@Deprecated
 public class CoOccurrenceWeight<T extends SequenceElement> {
     private T element1;
     private T element2;
@@ -4,7 +4,11 @@ import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
 
 /**
  * Created by fartovii on 25.12.15.
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
+@Deprecated
 public interface CoOccurrenceWriter<T extends SequenceElement> {
 
     /**
@@ -14,7 +14,11 @@ import java.util.concurrent.ConcurrentHashMap;
  * WORK IN PROGRESS, PLEASE DO NOT USE
  *
  * @author raver119@gmail.com
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
+@Deprecated
 public class CountMap<T extends SequenceElement> {
     private volatile Map<Pair<T, T>, AtomicDouble> backingMap = new ConcurrentHashMap<>();
 
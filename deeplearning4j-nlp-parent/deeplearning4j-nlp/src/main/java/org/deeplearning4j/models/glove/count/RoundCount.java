@@ -6,7 +6,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * Simple circular counter, that circulates within 0...Limit, both inclusive
  *
  * @author raver119@gmail.com
+ *
+ * @deprecated No longer used: AbstractCoOccurrences counts cooccurrences in {@link CoOccurrenceCountTable}, and stores
+ * them as sorted binary records (see {@link SortedRunWriter}). Will be removed in future releases.
  */
+@Deprecated
 public class RoundCount {
 
     private int limit = 0;
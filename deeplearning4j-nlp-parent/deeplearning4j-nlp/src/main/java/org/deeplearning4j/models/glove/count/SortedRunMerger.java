@@ -0,0 +1,117 @@
+package org.deeplearning4j.models.glove.count;
+
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * K-way merge for sorted cooccurrence runs. Weights of equal keys are summed up.
+ * If number of runs exceeds fan-in, runs are merged in multiple passes, so number of simultaneously opened files stays bounded.
+ */
+public class SortedRunMerger {
+    private static final Logger log = LoggerFactory.getLogger(SortedRunMerger.class);
+
+    private final int fanIn;
+    private final File tempDirectory;
+
+    public SortedRunMerger(int fanIn, File tempDirectory) {
+        if (fanIn < 2)
+            throw new IllegalStateException("Merge fan-in should be at least 2");
+
+        this.fanIn = fanIn;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Merges all runs into target file. Source runs are deleted afterwards.
+     *
+     * @param runs sorted runs
+     * @param target file to save merged run to
+     * @return number of records in target file
+     */
+    public long merge(@NonNull List<File> runs, @NonNull File target) throws IOException {
+        List<File> current = new ArrayList<>(runs);
+        int pass = 0;
+        while (current.size() > fanIn) {
+            List<File> next = new ArrayList<>();
+            for (int i = 0; i < current.size(); i += fanIn) {
+                List<File> group = current.subList(i, Math.min(i + fanIn, current.size()));
+                if (group.size() == 1) {
+                    next.add(group.get(0));
+                    continue;
+                }
+
+                File intermediate = File.createTempFile("aco_merge", ".run", tempDirectory);
+                intermediate.deleteOnExit();
+                mergeGroup(group, intermediate);
+                next.add(intermediate);
+            }
+            current = next;
+            pass++;
+        }
+
+        long records = mergeGroup(current, target);
+        log.debug("Merged {} runs into [{}] records, using {} intermediate passes", runs.size(), records, pass);
+        return records;
+    }
+
+    protected long mergeGroup(List<File> group, File target) throws IOException {
+        PriorityQueue<SortedRunReader> queue =
+                        new PriorityQueue<>(Math.max(1, group.size()), new Comparator<SortedRunReader>() {
+                            @Override
+                            public int compare(SortedRunReader o1, SortedRunReader o2) {
+                                return Long.compare(o1.getKey(), o2.getKey());
+                            }
+                        });
+
+        List<SortedRunReader> readers = new ArrayList<>();
+        try (SortedRunWriter writer = new SortedRunWriter(target)) {
+            for (File file : group) {
+                SortedRunReader reader = new SortedRunReader(file);
+                readers.add(reader);
+                if (reader.next())
+                    queue.add(reader);
+            }
+
+            boolean hasCurrent = false;
+            long currentKey = 0;
+            double currentWeight = 0.0;
+            while (!queue.isEmpty()) {
+                SortedRunReader reader = queue.poll();
+                if (hasCurrent && reader.getKey() == currentKey) {
+                    currentWeight += reader.getWeight();
+                } else {
+                    if (hasCurrent)
+                        writer.write(currentKey, currentWeight);
+
+                    currentKey = reader.getKey();
+                    currentWeight = reader.getWeight();
+                    hasCurrent = true;
+                }
+
+                if (reader.next())
+                    queue.add(reader);
+            }
+
+            if (hasCurrent)
+                writer.write(currentKey, currentWeight);
+
+            return writer.getNumberOfRecords();
+        } finally {
+            for (SortedRunReader reader : readers)
+                reader.close();
+
+            for (File file : group) {
+                if (!file.equals(target))
+                    file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.deeplearning4j.models.glove.count;
+
+import lombok.NonNull;
+
+import java.io.*;
+
+/**
+ * Sequential reader for binary run files produced by SortedRunWriter
+ */
+public class SortedRunReader implements Closeable {
+    private final DataInputStream inputStream;
+    private long remaining;
+
+    private long key;
+    private double weight;
+
+    public SortedRunReader(@NonNull File file) throws IOException {
+        this.remaining = file.length() / SortedRunWriter.RECORD_SIZE;
+        this.inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1024 * 1024));
+    }
+
+    /**
+     * Advances reader to the next record
+     *
+     * @return false if there's no more records available
+     */
+    public boolean next() throws IOException {
+        if (remaining <= 0)
+            return false;
+
+        key = inputStream.readLong();
+        weight = inputStream.readDouble();
+        remaining--;
+        return true;
+    }
+
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
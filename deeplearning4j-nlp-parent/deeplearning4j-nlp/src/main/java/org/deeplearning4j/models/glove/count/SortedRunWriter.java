@@ -0,0 +1,63 @@
+package org.deeplearning4j.models.glove.count;
+
+import lombok.NonNull;
+
+import java.io.*;
+
+/**
+ * Writes cooccurrence records into binary run file.
+ * Each record is packed pair of vocabulary indexes (long) followed by weight (double), and records are expected to come in ascending key order.
+ */
+public class SortedRunWriter implements Closeable {
+    public static final int RECORD_SIZE = 16;
+
+    private final File file;
+    private final DataOutputStream outputStream;
+    private long lastKey = Long.MIN_VALUE;
+    private long numberOfRecords = 0;
+
+    public SortedRunWriter(@NonNull File file) throws IOException {
+        this.file = file;
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024));
+    }
+
+    public void write(long key, double weight) throws IOException {
+        if (numberOfRecords > 0 && key <= lastKey)
+            throw new IllegalStateException("Records should be written in ascending key order");
+
+        outputStream.writeLong(key);
+        outputStream.writeDouble(weight);
+        lastKey = key;
+        numberOfRecords++;
+    }
+
+    public long getNumberOfRecords() {
+        return numberOfRecords;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+
+    /**
+     * This method dumps content of specified table into new run file, sorted by key
+     *
+     * @param table
+     * @param file
+     * @return number of records written
+     */
+    public static long spill(@NonNull CoOccurrenceCountTable table, @NonNull File file) throws IOException {
+        long[] keys = table.sortedKeys();
+        try (SortedRunWriter writer = new SortedRunWriter(file)) {
+            for (long key : keys)
+                writer.write(key, table.get(key));
+
+            return writer.getNumberOfRecords();
+        }
+    }
+}
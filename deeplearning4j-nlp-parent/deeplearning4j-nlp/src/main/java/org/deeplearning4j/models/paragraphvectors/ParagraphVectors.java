@@ -877,6 +877,12 @@ public class ParagraphVectors extends Word2Vec {
             return this;
         }
 
+        @Override
+        public Builder sequencerThreads(int numThreads) {
+            super.sequencerThreads(numThreads);
+            return this;
+        }
+
         @Override
         public ParagraphVectors build() {
             presetTables();
@@ -948,6 +954,7 @@ public class ParagraphVectors extends Word2Vec {
             ret.unknownElement = this.unknownElement;
             ret.seed = this.seed;
             ret.enableScavenger = this.enableScavenger;
+            ret.sequencerThreads = this.sequencerThreads;
 
             ret.trainElementsVectors = this.trainElementsVectors;
             ret.trainSequenceVectors = this.trainSequenceVectors;
@@ -36,9 +36,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -70,6 +69,7 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
     protected transient boolean configured = false;
 
     protected boolean enableScavenger = false;
+    protected int sequencerThreads = 0;
 
 
     @Setter
@@ -195,7 +195,6 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
 
         Nd4j.getRandom().setSeed(configuration.getSeed());
 
-        AtomicLong timeSpent = new AtomicLong(0);
         if (!trainElementsVectors && !trainSequenceVectors)
             throw new IllegalStateException(
                             "You should define at least one training goal 'trainElementsRepresentation' or 'trainSequenceRepresentation'");
@@ -270,6 +269,55 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
 
         initLearners();
 
+        trainEpochs(vocab.totalWordOccurrences());
+    }
+
+    /**
+     * This method trains existing model on new corpus only: vocabulary is updated with elements from current SequenceIterator,
+     * weights are expanded for new elements, and training is performed over new corpus.
+     * Elements already present in vocabulary keep their indexes, and their weights are updated, not reset.
+     * With hierarchic softmax Huffman codes are rebuilt over whole vocabulary, so syn1 weights are reset and trained from scratch.
+     *
+     * PLEASE NOTE: Model should be trained with fit() before, and InMemoryLookupTable is required.
+     */
+    public void fitIncrementally() {
+        if (vocab == null || vocab.numWords() == 0 || !(lookupTable instanceof InMemoryLookupTable))
+            throw new IllegalStateException("Incremental training requires model trained with InMemoryLookupTable");
+
+        if (iterator == null)
+            throw new IllegalStateException("You can't fit() data without SequenceIterator defined");
+
+        if (!trainElementsVectors && !trainSequenceVectors)
+            throw new IllegalStateException(
+                            "You should define at least one training goal 'trainElementsRepresentation' or 'trainSequenceRepresentation'");
+
+        if (this.stopWords == null)
+            this.stopWords = new ArrayList<>();
+
+        long occurrencesBefore = vocab.totalWordOccurrences();
+
+        VocabConstructor<T> constructor = new VocabConstructor.Builder<T>().addSource(iterator, minWordFrequency)
+                        .setTargetVocabCache(vocab).fetchLabels(trainSequenceVectors).setStopWords(stopWords)
+                        .build();
+        constructor.buildIncrementalVocabulary(configuration.isUseHierarchicSoftmax());
+
+        ((InMemoryLookupTable<T>) lookupTable).expandWeights(configuration.isUseHierarchicSoftmax());
+
+        // learning algorithms hold references to weights and vocabulary-derived tables, so they have to be configured again
+        configured = false;
+        initLearners();
+
+        // learning rate decay is calculated over new corpus only
+        trainEpochs(Math.max(1, vocab.totalWordOccurrences() - occurrencesBefore));
+    }
+
+    /**
+     * This method runs training loop over current SequenceIterator
+     *
+     * @param totalWordsCount number of words in corpus, used for learning rate decay
+     */
+    protected void trainEpochs(long totalWordsCount) {
+        AtomicLong timeSpent = new AtomicLong(0);
         log.info("Starting learning process...");
         timeSpent.set(System.currentTimeMillis());
         if (this.stopWords == null)
@@ -286,17 +334,12 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             final AtomicLong timer = new AtomicLong(System.currentTimeMillis());
             final List<VectorCalculationsThread> threads = new ArrayList<>();
             for (int x = 0; x < workers; x++) {
-                threads.add(x, new VectorCalculationsThread(x, currentEpoch, wordsCounter, vocab.totalWordOccurrences(),
+                threads.add(x, new VectorCalculationsThread(x, currentEpoch, wordsCounter, totalWordsCount,
                                 linesCounter, sequencer, timer));
                 threads.get(x).start();
             }
 
-            try {
-                sequencer.join();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-
+            // training threads stop at the end of data, or abort the sequencer if they fail
             for (int x = 0; x < workers; x++) {
                 try {
                     threads.get(x).join();
@@ -305,6 +348,19 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
                 }
             }
 
+            try {
+                sequencer.join();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+
+            // reader or digitizer failure comes first, since it also stops training threads
+            if (sequencer.failure != null)
+                throw sequencer.failure;
+            for (VectorCalculationsThread thread : threads)
+                if (thread.failure != null)
+                    throw thread.failure;
+
             // TODO: fix this to non-exclusive termination
             if (trainElementsVectors && elementsLearningAlgorithm != null
                             && (!trainSequenceVectors || sequenceLearningAlgorithm == null)
@@ -400,6 +456,7 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
         protected String STOP = configuration.getSTOP();
 
         protected boolean enableScavenger = false;
+        protected int sequencerThreads = 0;
 
         // defaults values for learning algorithms are set here
         protected ElementsLearningAlgorithm<T> elementsLearningAlgorithm = new SkipGram<>();
@@ -911,6 +968,18 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
             return this;
         }
 
+        /**
+         * Sets number of threads used to convert sequences from the iterator to vocabulary elements during training,
+         * in parallel with the worker threads. Default value: 0, for one thread per 4 workers.
+         *
+         * @param numThreads
+         * @return
+         */
+        public Builder<T> sequencerThreads(int numThreads) {
+            this.sequencerThreads = numThreads;
+            return this;
+        }
+
         /**
          * Build SequenceVectors instance with defined settings/options
          * @return
@@ -958,6 +1027,7 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
 
             vectors.existingModel = this.existingVectors;
             vectors.enableScavenger = this.enableScavenger;
+            vectors.sequencerThreads = this.sequencerThreads;
 
             this.configuration.setLearningRate(this.learningRate);
             this.configuration.setLayersSize(layerSize);
@@ -986,107 +1056,190 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
     }
 
     /**
-     * This class is used to fetch data from iterator in background thread, and convert it to List<VocabularyWord>
+     * This class is used to fetch data from iterator in background thread, and convert it to Sequences of vocabulary
+     * elements.
+     *
+     * The sequencer thread reads sequences from the iterator, and hands them out in blocks of batchSize to a pool of
+     * digitizer threads. Those rebuild the sequences from the vocabulary (skipping stop words and unknown elements) in
+     * parallel, and queue the digitized blocks for VectorCalculationsThreads. All waiting is done by blocking on the
+     * queues, so a training thread gets its next block as soon as one is ready.
      *
      * It becomes very usefull if text processing pipeline behind iterator is complex, and we're not loading data from simple text file with whitespaces as separator.
      * Since this method allows you to hide preprocessing latency in background.
-     *
-     * This mechanics will be change to PrefetchingSentenceIterator wrapper.
      */
     protected class AsyncSequencer extends Thread implements Runnable {
         private final SequenceIterator<T> iterator;
-        private final LinkedBlockingQueue<Sequence<T>> buffer;
-        //     private final AtomicLong linesCounter;
-        private final int limitUpper;
-        private final int limitLower;
-        private AtomicBoolean isRunning = new AtomicBoolean(true);
-        private AtomicLong nextRandom;
-        private Collection<String> stopList;
+        private final BlockingQueue<List<Sequence<T>>> rawBlocks;
+        private final BlockingQueue<List<Sequence<T>>> blocks;
+        // end of data marker, compared by reference
+        private final List<Sequence<T>> endMarker = new ArrayList<>(0);
+        private final Thread[] digitizers;
+        private final AtomicInteger activeDigitizers;
+        private final Set<String> stopList;
+        private volatile RuntimeException failure;
+        private volatile boolean aborted;
 
         public AsyncSequencer(SequenceIterator<T> iterator, @NonNull Collection<String> stopList) {
             this.iterator = iterator;
-            //            this.linesCounter = linesCounter;
             this.setName("AsyncSequencer thread");
-            this.nextRandom = new AtomicLong(workers + 1);
             this.iterator.reset();
-            this.stopList = stopList;
+            this.stopList = new HashSet<>(stopList);
             this.setDaemon(true);
 
-            limitLower = workers * batchSize;
-            limitUpper = workers * batchSize * 2;
-
-            this.buffer = new LinkedBlockingQueue<>(limitUpper);
+            int numDigitizers = sequencerThreads > 0 ? sequencerThreads : Math.max(1, workers / 4);
+            this.rawBlocks = new LinkedBlockingQueue<>(numDigitizers * 2);
+            this.blocks = new LinkedBlockingQueue<>(Math.max(2, workers * 2));
+            this.activeDigitizers = new AtomicInteger(numDigitizers);
+            this.digitizers = new Thread[numDigitizers];
+            for (int x = 0; x < numDigitizers; x++) {
+                digitizers[x] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        digitize();
+                    }
+                });
+                digitizers[x].setName("AsyncSequencer digitizer thread " + x);
+                digitizers[x].setDaemon(true);
+            }
         }
 
         @Override
         public void run() {
-            isRunning.set(true);
-            while (this.iterator.hasMoreSequences()) {
-
-                // if buffered level is below limitLower, we're going to fetch limitUpper number of strings from fetcher
-                if (buffer.size() < limitLower) {
-                    update();
-                    AtomicInteger linesLoaded = new AtomicInteger(0);
-                    while (linesLoaded.getAndIncrement() < limitUpper && this.iterator.hasMoreSequences()) {
-                        Sequence<T> document = this.iterator.nextSequence();
-
-                        /*
-                            We can't hope/assume that underlying iterator contains synchronized elements
-                            That's why we're going to rebuild sequence from vocabulary
-                          */
-                        Sequence<T> newSequence = new Sequence<>();
-
-                        if (document.getSequenceLabel() != null) {
-                            T newLabel = vocab.wordFor(document.getSequenceLabel().getLabel());
-                            if (newLabel != null)
-                                newSequence.setSequenceLabel(newLabel);
-                        }
-
-                        for (T element : document.getElements()) {
-                            if (stopList.contains(element.getLabel()))
-                                continue;
-                            T realElement = vocab.wordFor(element.getLabel());
+            update();
+            for (Thread digitizer : digitizers) {
+                digitizer.start();
+            }
 
-                            // please note: this serquence element CAN be absent in vocab, due to minFreq or stopWord or whatever else
-                            if (realElement != null) {
-                                newSequence.addElement(realElement);
-                            } else if (useUnknown && unknownElement != null) {
-                                newSequence.addElement(unknownElement);
-                            }
-                        }
+            try {
+                List<Sequence<T>> block = new ArrayList<>(batchSize);
+                while (!aborted && this.iterator.hasMoreSequences()) {
+                    block.add(this.iterator.nextSequence());
+                    if (block.size() >= batchSize) {
+                        rawBlocks.put(block);
+                        block = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!block.isEmpty())
+                    rawBlocks.put(block);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                // interrupted iterator can fail after abort, training failure is reported instead
+                if (!aborted)
+                    failure = e;
+            } finally {
+                for (int x = 0; x < digitizers.length; x++) {
+                    putUninterruptibly(rawBlocks, endMarker);
+                }
+            }
+        }
 
-                        // due to subsampling and null words, new sequence size CAN be 0, so there's no need to insert empty sequence into processing chain
+        private void digitize() {
+            try {
+                while (!aborted) {
+                    List<Sequence<T>> rawBlock = rawBlocks.take();
+                    if (rawBlock == endMarker)
+                        break;
+
+                    List<Sequence<T>> block = new ArrayList<>(rawBlock.size());
+                    for (Sequence<T> document : rawBlock) {
+                        Sequence<T> newSequence = digitize(document);
+                        // due to null words, new sequence size CAN be 0, so there's no need to insert empty sequence into processing chain
                         if (!newSequence.getElements().isEmpty())
-                            try {
-                                buffer.put(newSequence);
-                            } catch (InterruptedException e) {
-                                //
-                            }
-
-                        linesLoaded.incrementAndGet();
-                    }
-                } else {
-                    try {
-                        Thread.sleep(50);
-                    } catch (Exception e) {
-                        e.printStackTrace();
+                            block.add(newSequence);
                     }
+                    if (!block.isEmpty())
+                        blocks.put(block);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                if (!aborted)
+                    failure = e;
+            } finally {
+                // last digitizer to finish signals the end of data to the training threads
+                if (activeDigitizers.decrementAndGet() == 0)
+                    putUninterruptibly(blocks, endMarker);
             }
-            isRunning.set(false);
         }
 
-        public boolean hasMoreLines() {
-            // statement order does matter here, since there's possible race condition
-            return !buffer.isEmpty() || isRunning.get();
+        private Sequence<T> digitize(Sequence<T> document) {
+            /*
+                We can't hope/assume that underlying iterator contains synchronized elements
+                That's why we're going to rebuild sequence from vocabulary
+              */
+            Sequence<T> newSequence = new Sequence<>();
+
+            if (document.getSequenceLabel() != null) {
+                T newLabel = vocab.wordFor(document.getSequenceLabel().getLabel());
+                if (newLabel != null)
+                    newSequence.setSequenceLabel(newLabel);
+            }
+
+            for (T element : document.getElements()) {
+                if (stopList.contains(element.getLabel()))
+                    continue;
+                T realElement = vocab.wordFor(element.getLabel());
+
+                // please note: this serquence element CAN be absent in vocab, due to minFreq or stopWord or whatever else
+                if (realElement != null) {
+                    newSequence.addElement(realElement);
+                } else if (useUnknown && unknownElement != null) {
+                    newSequence.addElement(unknownElement);
+                }
+            }
+            return newSequence;
         }
 
-        public Sequence<T> nextSentence() {
+        private void putUninterruptibly(BlockingQueue<List<Sequence<T>>> queue, List<Sequence<T>> block) {
+            boolean interrupted = false;
+            // once aborted, nothing consumes the queues anymore
+            while (!aborted) {
+                try {
+                    queue.put(block);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        /**
+         * Stops reading and digitizing, and makes {@link #nextBlock()} return null in all training threads.
+         * Used when training fails, so the remaining data isn't read for nothing.
+         */
+        public void abort() {
+            aborted = true;
+            this.interrupt();
+            for (Thread digitizer : digitizers)
+                digitizer.interrupt();
+            blocks.clear();
+            blocks.offer(endMarker);
+        }
+
+        /**
+         * Returns the next block of digitized sequences, waiting until one is available.
+         * Reader or digitizer failure ends the data as well, and is rethrown by fit() once all threads are done.
+         *
+         * @return block of at most batchSize non-empty sequences, or null if there's no more data
+         */
+        public List<Sequence<T>> nextBlock() {
+            List<Sequence<T>> block;
             try {
-                return buffer.poll(3L, TimeUnit.SECONDS);
-            } catch (Exception e) {
+                block = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (block == endMarker || aborted) {
+                // put the marker back, so other training threads are stopped as well. Producers are done at this point,
+                // so there's room for it
+                blocks.offer(endMarker);
                 return null;
             }
+            return block;
         }
     }
 
@@ -1109,6 +1262,7 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
         private final AtomicLong nextRandom;
         private final AtomicLong timer;
         private final long startTime;
+        private volatile RuntimeException failure;
 
         /*
                 Long constructors suck, so this should be reduced to something reasonable later
@@ -1130,27 +1284,14 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
         @Override
         public void run() {
             Nd4j.getAffinityManager().getDeviceForCurrentThread();
-            while (digitizer.hasMoreLines()) {
-                try {
-                    // get current sentence as list of VocabularyWords
-                    List<Sequence<T>> sequences = new ArrayList<>();
-                    for (int x = 0; x < batchSize; x++) {
-                        if (digitizer.hasMoreLines()) {
-                            Sequence<T> sequence = digitizer.nextSentence();
-                            if (sequence != null) {
-                                sequences.add(sequence);
-                            }
-                        }
-                    }
+            List<Sequence<T>> sequences;
+            try {
+                while ((sequences = digitizer.nextBlock()) != null) {
                     /*
                             TODO: investigate, if fix needed here to become iteration-dependent, not line-position
                       */
                     double alpha = 0.025;
 
-                    if (sequences.isEmpty()) {
-                        continue;
-                    }
-
                     // getting back number of iterations
                     for (int i = 0; i < numIterations; i++) {
 
@@ -1201,17 +1342,18 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
                     }
 
 
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
                 }
-            }
-
-            if (trainElementsVectors) {
-                elementsLearningAlgorithm.finish();
-            }
+            } catch (RuntimeException e) {
+                failure = e;
+                digitizer.abort();
+            } finally {
+                if (trainElementsVectors) {
+                    elementsLearningAlgorithm.finish();
+                }
 
-            if (trainSequenceVectors) {
-                sequenceLearningAlgorithm.finish();
+                if (trainSequenceVectors) {
+                    sequenceLearningAlgorithm.finish();
+                }
             }
         }
     }
@@ -9,6 +9,8 @@ import org.deeplearning4j.models.sequencevectors.interfaces.SequenceIterator;
 import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
 import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
 import org.deeplearning4j.models.word2vec.Huffman;
+import org.deeplearning4j.models.word2vec.wordstore.counting.ElementCountTable;
+import org.deeplearning4j.models.word2vec.wordstore.counting.ShardedVocabCounter;
 import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
 import org.deeplearning4j.text.invertedindex.InvertedIndex;
 import org.slf4j.Logger;
@@ -41,6 +43,9 @@ public class VocabConstructor<T extends SequenceElement> {
     private boolean enableScavenger = false;
     private T unk;
     private boolean allowParallelBuilder = true;
+    private boolean useShardedCounter = false;
+    private int countingThreads = Runtime.getRuntime().availableProcessors();
+    private int pruningThreshold = 0;
 
     protected static final Logger log = LoggerFactory.getLogger(VocabConstructor.class);
 
@@ -158,6 +163,72 @@ public class VocabConstructor<T extends SequenceElement> {
     }
 
 
+    /**
+     * This method updates target vocabulary with elements from all sources passed through builder, without building it from scratch.
+     * Indexes of elements already present in vocabulary are preserved, their counters are increased,
+     * and new elements passing minWordFrequency are appended to the end of vocabulary.
+     *
+     * Please note: this method expects target vocabulary to be built already
+     *
+     * @param updateHuffmanTree if TRUE, Huffman codes will be rebuilt over updated vocabulary. Element indexes are NOT changed.
+     * @return
+     */
+    public VocabCache<T> buildIncrementalVocabulary(boolean updateHuffmanTree) {
+        if (cache == null || cache.numWords() == 0)
+            throw new IllegalStateException("Incremental vocabulary update requires existing target VocabCache");
+
+        int numWordsBefore = cache.numWords();
+        long occurrencesBefore = cache.totalWordOccurrences();
+        AtomicLong parsedCount = new AtomicLong(0);
+
+        for (VocabSource<T> source : sources) {
+            SequenceIterator<T> iterator = source.getIterator();
+            iterator.reset();
+
+            AbstractCache<T> tempHolder = new AbstractCache.Builder<T>().build();
+            countSharded(iterator, tempHolder, parsedCount);
+
+            cache.incrementTotalDocCount(tempHolder.totalNumberOfDocs());
+
+            for (T element : tempHolder.vocabWords()) {
+                T existing = cache.tokenFor(element.getStorageId());
+                if (existing != null) {
+                    // addToken() merges counters into existing element
+                    cache.addToken(element);
+                    continue;
+                }
+
+                if (element.getElementFrequency() < source.getMinWordFrequency() && !element.isSpecial()
+                                && !element.isLabel())
+                    continue;
+
+                element.setIndex(cache.numWords());
+                cache.addToken(element);
+                cache.addWordToIndex(element.getIndex(), element.getLabel());
+
+                // backward compatibility code
+                cache.putVocabWord(element.getLabel());
+            }
+        }
+
+        if (updateHuffmanTree) {
+            for (T element : cache.vocabWords()) {
+                element.getCodes().clear();
+                element.getPoints().clear();
+            }
+
+            // we don't call applyIndexes here: existing weights are bound to current indexes
+            Huffman huffman = new Huffman(cache.vocabWords());
+            huffman.build();
+        }
+
+        log.info("Vocabulary updated: [{}] new elements added, [{}] elements total, [{}] new occurrences",
+                        cache.numWords() - numWordsBefore, cache.numWords(),
+                        cache.totalWordOccurrences() - occurrencesBefore);
+
+        return cache;
+    }
+
     /**
      * This method scans all sources passed through builder, and returns all words as vocab.
      * If TargetVocabCache was set during instance creation, it'll be filled too.
@@ -200,7 +271,11 @@ public class VocabConstructor<T extends SequenceElement> {
 
             AbstractCache<T> tempHolder = new AbstractCache.Builder<T>().build();
 
-
+            if (useShardedCounter) {
+                countSharded(iterator, tempHolder, parsedCount);
+                filterAndImport(source, tempHolder, topHolder, parsedCount);
+                continue;
+            }
 
             List<Long> timesHasNext = new ArrayList<>();
             List<Long> timesNext = new ArrayList<>();
@@ -292,19 +367,7 @@ public class VocabConstructor<T extends SequenceElement> {
             }
 
 
-            // apply minWordFrequency set for this source
-            log.debug("Vocab size before truncation: [" + tempHolder.numWords() + "],  NumWords: ["
-                            + tempHolder.totalWordOccurrences() + "], sequences parsed: [" + seqCount.get()
-                            + "], counter: [" + parsedCount.get() + "]");
-            if (source.getMinWordFrequency() > 0) {
-                filterVocab(tempHolder, source.getMinWordFrequency());
-            }
-
-            log.debug("Vocab size after truncation: [" + tempHolder.numWords() + "],  NumWords: ["
-                            + tempHolder.totalWordOccurrences() + "], sequences parsed: [" + seqCount.get()
-                            + "], counter: [" + parsedCount.get() + "]");
-            // at this moment we're ready to transfer
-            topHolder.importVocabulary(tempHolder);
+            filterAndImport(source, tempHolder, topHolder, parsedCount);
         }
 
         // at this moment, we have vocabulary full of words, and we have to reset counters before transfer everything back to VocabCache
@@ -374,6 +437,90 @@ public class VocabConstructor<T extends SequenceElement> {
         return cache;
     }
 
+    /**
+     * This method applies minWordFrequency set for specified source, and transfers results into target holder
+     */
+    protected void filterAndImport(VocabSource<T> source, AbstractCache<T> tempHolder, AbstractCache<T> topHolder,
+                    AtomicLong parsedCount) {
+        // apply minWordFrequency set for this source
+        log.debug("Vocab size before truncation: [" + tempHolder.numWords() + "],  NumWords: ["
+                        + tempHolder.totalWordOccurrences() + "], sequences parsed: [" + seqCount.get()
+                        + "], counter: [" + parsedCount.get() + "]");
+        if (source.getMinWordFrequency() > 0) {
+            filterVocab(tempHolder, source.getMinWordFrequency());
+        }
+
+        log.debug("Vocab size after truncation: [" + tempHolder.numWords() + "],  NumWords: ["
+                        + tempHolder.totalWordOccurrences() + "], sequences parsed: [" + seqCount.get()
+                        + "], counter: [" + parsedCount.get() + "]");
+        // at this moment we're ready to transfer
+        topHolder.importVocabulary(tempHolder);
+    }
+
+    /**
+     * This method counts elements of all sequences from specified iterator using ShardedVocabCounter:
+     * each counting thread updates its own primitive table, and tables are merged into tempHolder once iterator is exhausted.
+     *
+     * Labels and InvertedIndex are handled on the caller thread, since they're updated once per sequence.
+     */
+    protected void countSharded(SequenceIterator<T> iterator, AbstractCache<T> tempHolder, AtomicLong parsedCount) {
+        ShardedVocabCounter<T> counter = new ShardedVocabCounter.Builder<T>().workers(countingThreads)
+                        .stopWords(stopWords).pruningThreshold(pruningThreshold).build();
+        counter.start();
+
+        long lastTime = System.currentTimeMillis();
+        long lastElements = parsedCount.get();
+        while (iterator.hasMoreSequences()) {
+            Sequence<T> document = iterator.nextSequence();
+
+            seqCount.incrementAndGet();
+            parsedCount.addAndGet(document.size());
+            tempHolder.incrementTotalDocCount();
+
+            if (fetchLabels && document.getSequenceLabels() != null) {
+                for (T labelWord : document.getSequenceLabels()) {
+                    if (!tempHolder.hasToken(labelWord.getLabel())) {
+                        labelWord.setSpecial(true);
+                        labelWord.markAsLabel(true);
+                        labelWord.setElementFrequency(1);
+
+                        tempHolder.addToken(labelWord);
+                    }
+                }
+            }
+
+            if (index != null) {
+                if (document.getSequenceLabel() != null) {
+                    index.addWordsToDoc(index.numDocuments(), document.getElements(), document.getSequenceLabel());
+                } else {
+                    index.addWordsToDoc(index.numDocuments(), document.getElements());
+                }
+            }
+
+            counter.submit(document);
+
+            if (seqCount.get() % 100000 == 0) {
+                long currentTime = System.currentTimeMillis();
+                double seconds = Math.max(1, currentTime - lastTime) / (double) 1000;
+                double elPerSec = (parsedCount.get() - lastElements) / seconds;
+                log.info("Sequences checked: [{}]; Words/sec: {};", seqCount.get(), String.format("%.2f", elPerSec));
+                lastTime = currentTime;
+                lastElements = parsedCount.get();
+            }
+        }
+
+        ElementCountTable<T> table = counter.finish();
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (!table.isOccupied(slot))
+                continue;
+
+            T element = table.elementAt(slot);
+            element.setElementFrequency(table.countAt(slot));
+            element.setSequencesCount(table.sequencesAt(slot));
+            tempHolder.addToken(element);
+        }
+    }
+
     protected void filterVocab(AbstractCache<T> cache, int minWordFrequency) {
         int numWords = cache.numWords();
         LinkedBlockingQueue<String> labelsToRemove = new LinkedBlockingQueue<>();
@@ -400,6 +547,9 @@ public class VocabConstructor<T extends SequenceElement> {
         private boolean enableScavenger = false;
         private T unk;
         private boolean allowParallelBuilder = true;
+        private boolean useShardedCounter = false;
+        private int countingThreads = Runtime.getRuntime().availableProcessors();
+        private int pruningThreshold = 0;
 
         public Builder() {
 
@@ -424,6 +574,46 @@ public class VocabConstructor<T extends SequenceElement> {
             return this;
         }
 
+        /**
+         * This method enables lock-free vocabulary counting: each thread counts elements into its own primitive hash table,
+         * and tables are merged once all sequences are processed. Scavenger isn't used in this mode, use setPruningThreshold() instead.
+         *
+         * Default value: false
+         *
+         * @param reallyUse
+         * @return
+         */
+        public Builder<T> useShardedCounter(boolean reallyUse) {
+            this.useShardedCounter = reallyUse;
+            return this;
+        }
+
+        /**
+         * This method sets number of counting threads used with sharded counter
+         *
+         * @param numThreads
+         * @return
+         */
+        public Builder<T> setCountingThreads(int numThreads) {
+            this.countingThreads = numThreads;
+            return this;
+        }
+
+        /**
+         * This method enables Count-Min pruning for rare elements, used with sharded counter:
+         * elements are counted exactly only after their estimated frequency reaches specified threshold,
+         * so rare elements never get into counting tables. Frequencies of other elements become approximate.
+         *
+         * Default value: 0, pruning is disabled
+         *
+         * @param threshold
+         * @return
+         */
+        public Builder<T> setPruningThreshold(int threshold) {
+            this.pruningThreshold = threshold;
+            return this;
+        }
+
         /**
          * Defines, if adaptive gradients should be created during vocabulary mastering
          *
@@ -519,6 +709,9 @@ public class VocabConstructor<T extends SequenceElement> {
             constructor.enableScavenger = this.enableScavenger;
             constructor.unk = this.unk;
             constructor.allowParallelBuilder = this.allowParallelBuilder;
+            constructor.useShardedCounter = this.useShardedCounter;
+            constructor.countingThreads = this.countingThreads;
+            constructor.pruningThreshold = this.pruningThreshold;
 
             return constructor;
         }
@@ -0,0 +1,87 @@
+package org.deeplearning4j.models.word2vec.wordstore.counting;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free Count-Min sketch over long keys.
+ * Used as admission filter for rare elements: frequencies are estimated here, until element is frequent enough to get into exact counting tables.
+ *
+ * Estimates are never lower then real frequency, and overestimation is bounded by width of the sketch.
+ */
+public class CountMinSketch {
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final long[] seeds;
+    private final AtomicIntegerArray table;
+
+    /**
+     * @param depth number of hash functions used
+     * @param width number of counters per hash function, will be rounded up to power of 2
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 1)
+            throw new IllegalStateException("CountMinSketch depth and width should be positive values");
+
+        int w = 1;
+        while (w < width)
+            w <<= 1;
+
+        this.depth = depth;
+        this.width = w;
+        this.mask = w - 1;
+        this.table = new AtomicIntegerArray(depth * w);
+        this.seeds = new long[depth];
+
+        Random random = new Random(119);
+        for (int i = 0; i < depth; i++)
+            seeds[i] = random.nextLong() | 1L;
+    }
+
+    private int slot(int row, long key) {
+        long h = (key ^ seeds[row]) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return row * width + ((int) (h ^ (h >>> 32)) & mask);
+    }
+
+    /**
+     * Increments counters for specified key, and returns frequency estimation after increment
+     *
+     * @param key
+     * @return
+     */
+    public int incrementAndEstimate(long key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int value = table.incrementAndGet(slot(row, key));
+            if (value < estimate)
+                estimate = value;
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns frequency estimation for specified key
+     *
+     * @param key
+     * @return
+     */
+    public int estimate(long key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int value = table.get(slot(row, key));
+            if (value < estimate)
+                estimate = value;
+        }
+        return estimate;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
@@ -0,0 +1,219 @@
+package org.deeplearning4j.models.word2vec.wordstore.counting;
+
+import lombok.NonNull;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+
+/**
+ * Open-addressing hash table, that maps SequenceElement storageId to element frequency and number of sequences element was observed in.
+ * Keys and counters are stored in primitive arrays, and the only object reference kept per entry is the first element instance seen for that key.
+ *
+ * PLEASE NOTE: This class is NOT thread-safe, it's designed to be owned by single counting thread, and merged afterwards.
+ */
+public class ElementCountTable<T extends SequenceElement> {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] counts;
+    private long[] sequences;
+    private long[] lastSequence;
+    private Object[] elements;
+
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public ElementCountTable() {
+        this(1 << 16);
+    }
+
+    /**
+     * @param expectedSize number of unique elements expected, table will grow if this number is exceeded
+     */
+    public ElementCountTable(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new long[capacity];
+        sequences = new long[capacity];
+        lastSequence = new long[capacity];
+        elements = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        size = 0;
+    }
+
+    protected static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns slot index for specified key, or -1 if key isn't present in this table
+     *
+     * @param key
+     * @return
+     */
+    public int find(long key) {
+        int idx = mix(key) & mask;
+        while (elements[idx] != null) {
+            if (keys[idx] == key)
+                return idx;
+            idx = (idx + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Increments frequency of the element by specified value.
+     * Number of sequences is incremented only once per sequenceId, so sequences should be fed in order.
+     *
+     * @param key storageId of the element
+     * @param element element instance, that'll be stored if key wasn't seen before
+     * @param count frequency increment
+     * @param sequenceId id of the sequence this element was observed in
+     */
+    public void increment(long key, @NonNull T element, long count, long sequenceId) {
+        int idx = mix(key) & mask;
+        while (elements[idx] != null) {
+            if (keys[idx] == key) {
+                incrementAt(idx, count, sequenceId);
+                return;
+            }
+            idx = (idx + 1) & mask;
+        }
+
+        insert(idx, key, element, count, 1, sequenceId);
+    }
+
+    /**
+     * Increments counters of already occupied slot, as returned by find(key)
+     *
+     * @param slot
+     * @param count
+     * @param sequenceId
+     */
+    public void incrementAt(int slot, long count, long sequenceId) {
+        counts[slot] += count;
+        if (lastSequence[slot] != sequenceId) {
+            lastSequence[slot] = sequenceId;
+            sequences[slot]++;
+        }
+    }
+
+    /**
+     * Adds precomputed counters for specified key.
+     *
+     * @param key storageId of the element
+     * @param element element instance, that'll be stored if key wasn't seen before
+     * @param count frequency increment
+     * @param sequencesCount number of sequences increment
+     */
+    public void add(long key, @NonNull T element, long count, long sequencesCount) {
+        int idx = mix(key) & mask;
+        while (elements[idx] != null) {
+            if (keys[idx] == key) {
+                counts[idx] += count;
+                sequences[idx] += sequencesCount;
+                return;
+            }
+            idx = (idx + 1) & mask;
+        }
+
+        insert(idx, key, element, count, sequencesCount, -1L);
+    }
+
+    private void insert(int idx, long key, T element, long count, long sequencesCount, long sequenceId) {
+        keys[idx] = key;
+        elements[idx] = element;
+        counts[idx] = count;
+        sequences[idx] = sequencesCount;
+        lastSequence[idx] = sequenceId;
+
+        if (++size > resizeThreshold)
+            grow();
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        long[] oldSequences = sequences;
+        long[] oldLast = lastSequence;
+        Object[] oldElements = elements;
+
+        allocate(oldKeys.length << 1);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldElements[i] == null)
+                continue;
+
+            int idx = mix(oldKeys[i]) & mask;
+            while (elements[idx] != null)
+                idx = (idx + 1) & mask;
+
+            keys[idx] = oldKeys[i];
+            elements[idx] = oldElements[i];
+            counts[idx] = oldCounts[i];
+            sequences[idx] = oldSequences[i];
+            lastSequence[idx] = oldLast[i];
+            size++;
+        }
+    }
+
+    /**
+     * Merges all counters from other table into this one
+     *
+     * @param other
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(@NonNull ElementCountTable<T> other) {
+        for (int i = 0; i < other.capacity(); i++) {
+            if (other.elements[i] != null)
+                add(other.keys[i], (T) other.elements[i], other.counts[i], other.sequences[i]);
+        }
+    }
+
+    /**
+     * Returns number of unique elements stored in this table
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns number of slots in this table. Use it together with isOccupied(slot) to iterate over entries.
+     *
+     * @return
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    public boolean isOccupied(int slot) {
+        return elements[slot] != null;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T elementAt(int slot) {
+        return (T) elements[slot];
+    }
+
+    public long countAt(int slot) {
+        return counts[slot];
+    }
+
+    public long sequencesAt(int slot) {
+        return sequences[slot];
+    }
+}
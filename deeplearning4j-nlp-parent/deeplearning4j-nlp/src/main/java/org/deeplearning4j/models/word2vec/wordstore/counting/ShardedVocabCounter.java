@@ -0,0 +1,302 @@
+package org.deeplearning4j.models.word2vec.wordstore.counting;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class counts SequenceElements frequencies using multiple threads.
+ * Each thread owns its own ElementCountTable, so there's no shared state updated per element, and tables are merged once counting is finished.
+ * Sequences are handed over to counting threads in batches, through bounded blocking queue, so there's no sleep-based coordination involved.
+ *
+ * Optionally, shared CountMinSketch can be used to prune rare elements: element gets into exact counting table only after its estimated frequency reaches pruning threshold.
+ * Frequencies reported for such elements are approximate.
+ *
+ * Usage: start(), submit() sequences, finish().
+ */
+@Slf4j
+public class ShardedVocabCounter<T extends SequenceElement> {
+    private final int numWorkers;
+    private final int batchSize;
+    private final int expectedVocabSize;
+    private final Set<String> stopWords;
+    private final int pruningThreshold;
+    private final CountMinSketch sketch;
+    // keys already moved to exact counting, so only one thread gets credit for occurrences seen by the sketch
+    private final Set<Long> promoted;
+
+    private final BlockingQueue<List<Sequence<T>>> queue;
+    private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+    private List<CountingThread> threads;
+    private List<Sequence<T>> currentBatch;
+
+    // poison pill used to stop counting threads
+    private final List<Sequence<T>> terminator = Collections.emptyList();
+
+    protected ShardedVocabCounter(Builder<T> builder) {
+        this.numWorkers = builder.numWorkers;
+        this.batchSize = builder.batchSize;
+        this.expectedVocabSize = builder.expectedVocabSize;
+        this.stopWords = builder.stopWords == null || builder.stopWords.isEmpty() ? null
+                        : new HashSet<>(builder.stopWords);
+        this.pruningThreshold = builder.pruningThreshold;
+        this.sketch = builder.pruningThreshold > 1 ? new CountMinSketch(builder.sketchDepth, builder.sketchWidth)
+                        : null;
+        this.promoted = sketch == null ? null : Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        this.queue = new ArrayBlockingQueue<>(numWorkers * 4);
+    }
+
+    /**
+     * Starts counting threads
+     */
+    public void start() {
+        if (threads != null)
+            throw new IllegalStateException("ShardedVocabCounter was already started");
+
+        threads = new ArrayList<>();
+        currentBatch = new ArrayList<>(batchSize);
+        for (int i = 0; i < numWorkers; i++) {
+            CountingThread thread = new CountingThread(i);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * Queues sequence for counting. This method will block if counting threads are behind.
+     *
+     * @param sequence
+     */
+    public void submit(@NonNull Sequence<T> sequence) {
+        if (threads == null)
+            throw new IllegalStateException("ShardedVocabCounter wasn't started");
+
+        currentBatch.add(sequence);
+        if (currentBatch.size() >= batchSize)
+            flush();
+    }
+
+    private void flush() {
+        if (currentBatch.isEmpty())
+            return;
+
+        checkException();
+
+        try {
+            queue.put(currentBatch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        currentBatch = new ArrayList<>(batchSize);
+    }
+
+    private void checkException() {
+        if (exception.get() != null)
+            throw new RuntimeException("Vocabulary counting failed", exception.get());
+    }
+
+    /**
+     * Waits till all queued sequences are counted, and returns merged table with all counters.
+     *
+     * @return
+     */
+    public ElementCountTable<T> finish() {
+        if (threads == null)
+            throw new IllegalStateException("ShardedVocabCounter wasn't started");
+
+        flush();
+
+        try {
+            for (int i = 0; i < threads.size(); i++)
+                queue.put(terminator);
+
+            for (CountingThread thread : threads)
+                thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        checkException();
+
+        // we merge everything into the largest table, to avoid excessive rehashing
+        ElementCountTable<T> result = threads.get(0).table;
+        for (CountingThread thread : threads) {
+            if (thread.table.size() > result.size())
+                result = thread.table;
+        }
+
+        for (CountingThread thread : threads) {
+            if (thread.table != result)
+                result.merge(thread.table);
+        }
+
+        log.debug("Counting finished: {} threads, {} unique elements", threads.size(), result.size());
+        threads = null;
+
+        return result;
+    }
+
+    private class CountingThread extends Thread implements Runnable {
+        private final ElementCountTable<T> table;
+        private long localSequenceId;
+
+        public CountingThread(int threadId) {
+            this.table = new ElementCountTable<>(Math.max(16, expectedVocabSize / numWorkers));
+            this.setName("VocabCounter thread " + threadId);
+            this.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                List<Sequence<T>> batch;
+                try {
+                    batch = queue.take();
+                } catch (InterruptedException e) {
+                    exception.compareAndSet(null, e);
+                    return;
+                }
+
+                if (batch == terminator)
+                    return;
+
+                // if something went wrong, we just drain the queue, so producer won't block forever
+                if (exception.get() != null)
+                    continue;
+
+                try {
+                    for (Sequence<T> sequence : batch)
+                        count(sequence);
+                } catch (Throwable t) {
+                    exception.compareAndSet(null, t);
+                }
+            }
+        }
+
+        protected void count(Sequence<T> sequence) {
+            // sequence ids are local for each thread, since each table is updated by single thread only
+            long sequenceId = ++localSequenceId;
+
+            for (T element : sequence.getElements()) {
+                String label = element.getLabel();
+                if (label == null || label.isEmpty())
+                    continue;
+
+                if (stopWords != null && stopWords.contains(label))
+                    continue;
+
+                long key = element.getStorageId();
+                int slot = table.find(key);
+                if (slot >= 0) {
+                    table.incrementAt(slot, 1, sequenceId);
+                    continue;
+                }
+
+                if (sketch == null) {
+                    table.increment(key, element, 1, sequenceId);
+                } else {
+                    int estimate = sketch.incrementAndEstimate(key);
+                    if (estimate < pruningThreshold)
+                        continue;
+
+                    /*
+                        thread that promotes element gets all occurrences counted so far, others just add their own.
+                        estimate can skip the threshold due to concurrent increments or sketch collisions,
+                        so promotion is decided by the shared set instead of exact estimate value
+                     */
+                    table.increment(key, element, promoted.add(key) ? estimate : 1, sequenceId);
+                }
+            }
+        }
+    }
+
+    public static class Builder<T extends SequenceElement> {
+        protected int numWorkers = Runtime.getRuntime().availableProcessors();
+        protected int batchSize = 256;
+        protected int expectedVocabSize = 1 << 18;
+        protected Collection<String> stopWords;
+        protected int pruningThreshold = 0;
+        protected int sketchDepth = 4;
+        protected int sketchWidth = 1 << 22;
+
+        public Builder() {
+
+        }
+
+        /**
+         * Number of counting threads
+         *
+         * @param numWorkers
+         * @return
+         */
+        public Builder<T> workers(int numWorkers) {
+            this.numWorkers = Math.max(1, numWorkers);
+            return this;
+        }
+
+        /**
+         * Number of sequences passed to counting thread at once
+         *
+         * @param batchSize
+         * @return
+         */
+        public Builder<T> batchSize(int batchSize) {
+            this.batchSize = Math.max(1, batchSize);
+            return this;
+        }
+
+        /**
+         * Expected number of unique elements. Used to presize counting tables.
+         *
+         * @param vocabSize
+         * @return
+         */
+        public Builder<T> expectedVocabSize(int vocabSize) {
+            this.expectedVocabSize = vocabSize;
+            return this;
+        }
+
+        public Builder<T> stopWords(Collection<String> stopWords) {
+            this.stopWords = stopWords;
+            return this;
+        }
+
+        /**
+         * If threshold > 1, elements will be counted exactly only after their estimated frequency reaches this threshold.
+         *
+         * @param threshold
+         * @return
+         */
+        public Builder<T> pruningThreshold(int threshold) {
+            this.pruningThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Defines CountMinSketch dimensions, used for pruning.
+         *
+         * @param depth number of hash functions
+         * @param width number of counters per hash function
+         * @return
+         */
+        public Builder<T> sketchSize(int depth, int width) {
+            this.sketchDepth = depth;
+            this.sketchWidth = width;
+            return this;
+        }
+
+        public ShardedVocabCounter<T> build() {
+            return new ShardedVocabCounter<>(this);
+        }
+    }
+}
@@ -22,6 +22,8 @@ package org.deeplearning4j.bagofwords.vectorizer;
 import org.datavec.api.util.ClassPathResource;
 import org.deeplearning4j.models.word2vec.VocabWord;
 import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.nn.sparse.CSRMatrix;
+import org.deeplearning4j.text.sentenceiterator.CollectionSentenceIterator;
 import org.deeplearning4j.text.sentenceiterator.labelaware.LabelAwareFileSentenceIterator;
 import org.deeplearning4j.text.sentenceiterator.labelaware.LabelAwareSentenceIterator;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
@@ -41,8 +43,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeNotNull;
 
 /**
@@ -138,5 +142,33 @@ public class BagOfWordsVectorizerTest {
         assertEquals(array, dataSet.getFeatureMatrix());
     }
 
-
+    @Test
+    public void testSparseTransform() {
+        List<String> corpus = Arrays.asList("the quick brown fox jumps over the lazy dog", "the dog sleeps",
+                        "a quick brown dog", "foxes and dogs and cats");
+        BagOfWordsVectorizer vectorizer = new BagOfWordsVectorizer.Builder().setMinWordFrequency(1)
+                        .setStopWords(new ArrayList<String>()).setTokenizerFactory(new DefaultTokenizerFactory())
+                        .setIterator(new CollectionSentenceIterator(corpus)).build();
+        vectorizer.fit();
+        VocabCache<VocabWord> cache = vectorizer.getVocabCache();
+
+        List<String> documents = Arrays.asList("the dog sleeps", "the the the fox", "unknown words only");
+        CSRMatrix sparse = vectorizer.transformSparse(documents);
+        INDArray batch = sparse.toDense();
+        assertEquals(3, sparse.getRows());
+        assertEquals(cache.numWords(), sparse.getColumns());
+        assertArrayEquals(new int[] {0, 3, 5, 5}, sparse.getRowPointers());
+
+        //Weights are the raw corpus counts, whatever the document frequency or length
+        assertEquals(3.0, batch.getDouble(0, cache.indexOf("the")), 1e-5);
+        assertEquals(3.0, batch.getDouble(0, cache.indexOf("dog")), 1e-5);
+        assertEquals(1.0, batch.getDouble(0, cache.indexOf("sleeps")), 1e-5);
+
+        //Repeated words are stored once, with the same count
+        assertEquals(3.0, batch.getDouble(1, cache.indexOf("the")), 1e-5);
+        assertEquals(1.0, batch.getDouble(1, cache.indexOf("fox")), 1e-5);
+
+        for (int i = 0; i < documents.size(); i++)
+            assertTrue(vectorizer.transform(documents.get(i)).equalsWithEps(batch.getRow(i), 1e-5));
+    }
 }
@@ -21,6 +21,8 @@ package org.deeplearning4j.bagofwords.vectorizer;
 import org.datavec.api.util.ClassPathResource;
 import org.deeplearning4j.models.word2vec.VocabWord;
 import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.nn.sparse.CSRMatrix;
+import org.deeplearning4j.text.sentenceiterator.CollectionSentenceIterator;
 import org.deeplearning4j.text.sentenceiterator.labelaware.LabelAwareFileSentenceIterator;
 import org.deeplearning4j.text.sentenceiterator.labelaware.LabelAwareSentenceIterator;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
@@ -35,8 +37,11 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeNotNull;
 
 /**
@@ -118,5 +123,37 @@ public class TfidfVectorizerTest {
         assertEquals(vector, dataSet.getFeatureMatrix());
     }
 
-
+    @Test
+    public void testSparseTransform() {
+        List<String> corpus = Arrays.asList("the quick brown fox jumps over the lazy dog", "the dog sleeps",
+                        "a quick brown dog", "foxes and dogs and cats");
+        TfidfVectorizer vectorizer = new TfidfVectorizer.Builder().setMinWordFrequency(1)
+                        .setStopWords(new ArrayList<String>()).setTokenizerFactory(new DefaultTokenizerFactory())
+                        .setIterator(new CollectionSentenceIterator(corpus)).build();
+        vectorizer.fit();
+        VocabCache<VocabWord> cache = vectorizer.getVocabCache();
+
+        List<String> documents = Arrays.asList("the dog sleeps", "the the dog", "unknown words only");
+        CSRMatrix sparse = vectorizer.transformSparse(documents);
+        INDArray batch = sparse.toDense();
+        assertEquals(3, sparse.getRows());
+        assertEquals(cache.numWords(), sparse.getColumns());
+        assertArrayEquals(new int[] {0, 3, 5, 5}, sparse.getRowPointers());
+
+        //Same term frequency, so weights are ordered by idf: "sleeps" is in 1 of 4 documents, "the" in 2, "dog" in 3
+        double sleeps = batch.getDouble(0, cache.indexOf("sleeps"));
+        double the = batch.getDouble(0, cache.indexOf("the"));
+        double dog = batch.getDouble(0, cache.indexOf("dog"));
+        assertEquals(Math.log10(4.0) / 3, sleeps, 1e-5);
+        assertEquals(Math.log10(2.0) / 3, the, 1e-5);
+        assertEquals(Math.log10(4.0 / 3) / 3, dog, 1e-5);
+        assertTrue(sleeps > the && the > dog);
+
+        //Term frequency is relative to the document length
+        assertEquals(2 * Math.log10(2.0) / 3, batch.getDouble(1, cache.indexOf("the")), 1e-5);
+        assertEquals(Math.log10(4.0 / 3) / 3, batch.getDouble(1, cache.indexOf("dog")), 1e-5);
+
+        for (int i = 0; i < documents.size(); i++)
+            assertTrue(vectorizer.transform(documents.get(i)).equalsWithEps(batch.getRow(i), 1e-5));
+    }
 }
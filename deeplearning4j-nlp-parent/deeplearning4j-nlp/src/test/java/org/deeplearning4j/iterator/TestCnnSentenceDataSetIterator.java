@@ -2,8 +2,11 @@ package org.deeplearning4j.iterator;
 
 import org.datavec.api.util.ClassPathResource;
 import org.deeplearning4j.iterator.provider.CollectionLabeledSentenceProvider;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
 import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
 import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.api.DataSet;
@@ -114,4 +117,81 @@ public class TestCnnSentenceDataSetIterator {
             assertEquals(sub2, s2F);
         }
     }
+
+    @Test
+    public void testSentenceIteratorInMemoryVectors() {
+        String[] words = {"UNK", "the", "cat", "sat", "on", "mat", "a", "dog"};
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < words.length; i++) {
+            cache.addToken(new VocabWord(1.0, words[i]));
+            cache.addWordToIndex(i, words[i]);
+        }
+        InMemoryLookupTable<VocabWord> table = (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<
+                        VocabWord>().vectorLength(5).cache(cache).seed(12345).build();
+        table.resetWeights(true);
+        WordVectors w2v = WordVectorSerializer.fromTableAndVocab(table, cache);
+
+        List<String> sentences = Arrays.asList("the cat sat on the mat", "a dog", "the xyz dog sat", "xyz",
+                        "a dog sat on the cat mat a dog");
+        List<String> labels = Arrays.asList("A", "B", "A", "B", "A");
+        int maxLength = 7;
+
+        for (CnnSentenceDataSetIterator.UnknownWordHandling unknown : CnnSentenceDataSetIterator.UnknownWordHandling
+                        .values()) {
+            for (boolean normalized : new boolean[] {true, false}) {
+                for (boolean alongHeight : new boolean[] {true, false}) {
+                    LabeledSentenceProvider p = new CollectionLabeledSentenceProvider(sentences, labels, null);
+                    CnnSentenceDataSetIterator dsi = new CnnSentenceDataSetIterator.Builder().sentenceProvider(p)
+                                    .wordVectors(w2v).maxSentenceLength(maxLength).minibatchSize(10)
+                                    .unknownWordHandling(unknown).useNormalizedWordVectors(normalized)
+                                    .sentencesAlongHeight(alongHeight).build();
+                    DataSet ds = dsi.next();
+                    INDArray features = ds.getFeatures();
+                    assertArrayEquals(alongHeight ? new int[] {5, 1, maxLength, 5} : new int[] {5, 1, 5, maxLength},
+                                    features.shape());
+
+                    INDArray expectedMask = Nd4j.create(5, maxLength);
+                    for (int i = 0; i < sentences.size(); i++) {
+                        int j = 0;
+                        for (String word : sentences.get(i).split(" ")) {
+                            if (j >= maxLength)
+                                break;
+                            boolean known = cache.containsWord(word);
+                            if (!known && unknown == CnnSentenceDataSetIterator.UnknownWordHandling.RemoveWord)
+                                continue;
+                            String w = known ? word : "UNK";
+                            INDArray expected = normalized ? w2v.getWordVectorMatrixNormalized(w)
+                                            : w2v.getWordVectorMatrix(w);
+                            INDArray actual = alongHeight
+                                            ? features.get(NDArrayIndex.point(i), NDArrayIndex.point(0),
+                                                            NDArrayIndex.point(j), NDArrayIndex.all())
+                                            : features.get(NDArrayIndex.point(i), NDArrayIndex.point(0),
+                                                            NDArrayIndex.all(), NDArrayIndex.point(j));
+                            assertEquals(expected, actual);
+                            expectedMask.putScalar(i, j, 1.0);
+                            j++;
+                        }
+                        //Padding is zero
+                        for (int k = j; k < maxLength; k++) {
+                            INDArray padding = alongHeight
+                                            ? features.get(NDArrayIndex.point(i), NDArrayIndex.point(0),
+                                                            NDArrayIndex.point(k), NDArrayIndex.all())
+                                            : features.get(NDArrayIndex.point(i), NDArrayIndex.point(0),
+                                                            NDArrayIndex.all(), NDArrayIndex.point(k));
+                            assertEquals(0.0, padding.norm1Number().doubleValue(), 0.0);
+                        }
+                    }
+                    assertEquals(expectedMask, ds.getFeaturesMaskArray());
+
+                    INDArray single = dsi.loadSingleSentence(sentences.get(0));
+                    INDArray sub = alongHeight
+                                    ? features.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.all(),
+                                                    NDArrayIndex.interval(0, 6), NDArrayIndex.all())
+                                    : features.get(NDArrayIndex.interval(0, 0, true), NDArrayIndex.all(),
+                                                    NDArrayIndex.all(), NDArrayIndex.interval(0, 6));
+                    assertEquals(sub, single);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package org.deeplearning4j.models.embeddings.learning.impl.elements;
+
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.learning.ElementsLearningAlgorithm;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.SequenceVectors;
+import org.deeplearning4j.models.sequencevectors.iterators.AbstractSequenceIterator;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HogwildSkipGramTest {
+
+    /**
+     * Two disjoint groups of words, each sentence is built from words of single group only
+     */
+    private static List<Sequence<VocabWord>> buildCorpus() {
+        List<Sequence<VocabWord>> sequences = new ArrayList<>();
+        Random random = new Random(119);
+        for (int i = 0; i < 2000; i++) {
+            String prefix = i % 2 == 0 ? "alpha_" : "beta_";
+            Sequence<VocabWord> sequence = new Sequence<>();
+            for (int j = 0; j < 12; j++)
+                sequence.addElement(new VocabWord(1.0, prefix + random.nextInt(10)));
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
+    private static SequenceVectors<VocabWord> train(ElementsLearningAlgorithm<VocabWord> algorithm,
+                    boolean useHS, double negative) {
+        SequenceVectors<VocabWord> vectors = new SequenceVectors.Builder<VocabWord>(new VectorsConfiguration())
+                        .minWordFrequency(1).iterate(new AbstractSequenceIterator.Builder<>(buildCorpus()).build())
+                        .layerSize(32).windowSize(4).epochs(3).workers(2).learningRate(0.025).seed(119)
+                        .useHierarchicSoftmax(useHS).negativeSample(negative).resetModel(true)
+                        .elementsLearningAlgorithm(algorithm).trainElementsRepresentation(true)
+                        .trainSequencesRepresentation(false).build();
+
+        vectors.fit();
+        return vectors;
+    }
+
+    private static void checkModel(SequenceVectors<VocabWord> vectors) {
+        assertEquals(20, vectors.getVocab().numWords());
+
+        INDArray syn0 = vectors.getLookupTable().getWeights();
+        for (int i = 0; i < syn0.length(); i++) {
+            double value = syn0.getDouble(i);
+            assertFalse(Double.isNaN(value) || Double.isInfinite(value));
+        }
+
+        double inner = vectors.similarity("alpha_1", "alpha_2");
+        double outer = vectors.similarity("alpha_1", "beta_2");
+        assertTrue("Inner similarity [" + inner + "] vs outer [" + outer + "]", inner > outer);
+    }
+
+    @Test
+    public void testHogwildSkipGramHS1() throws Exception {
+        checkModel(train(new HogwildSkipGram<VocabWord>(), true, 0));
+    }
+
+    @Test
+    public void testHogwildSkipGramNegative1() throws Exception {
+        checkModel(train(new HogwildSkipGram<VocabWord>(), false, 5));
+    }
+
+    @Test
+    public void testHogwildCBOWNegative1() throws Exception {
+        checkModel(train(new HogwildCBOW<VocabWord>(), false, 5));
+    }
+
+    @Test
+    public void testKernelAvailability1() throws Exception {
+        SequenceVectors<VocabWord> vectors = train(new HogwildSkipGram<VocabWord>(), true, 0);
+        assertTrue(HogwildKernel.isAvailable((InMemoryLookupTable<VocabWord>) vectors.getLookupTable()));
+    }
+}
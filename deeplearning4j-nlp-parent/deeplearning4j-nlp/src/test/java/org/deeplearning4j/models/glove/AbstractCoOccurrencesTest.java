@@ -3,6 +3,7 @@ package org.deeplearning4j.models.glove;
 import org.datavec.api.util.ClassPathResource;
 import org.deeplearning4j.berkeley.Pair;
 import org.deeplearning4j.models.sequencevectors.iterators.AbstractSequenceIterator;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
 import org.deeplearning4j.models.sequencevectors.transformers.impl.SentenceTransformer;
 import org.deeplearning4j.models.word2vec.VocabWord;
 import org.deeplearning4j.models.word2vec.wordstore.VocabConstructor;
@@ -13,16 +14,15 @@ import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFac
 import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
 import org.junit.Before;
 import org.junit.Test;
+import org.nd4j.linalg.factory.Nd4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author raver119@gmail.com
@@ -81,4 +81,103 @@ public class AbstractCoOccurrencesTest {
         assertEquals(16, list.size());
         assertEquals(16, cnt);
     }
+
+    @Test
+    public void testFitWithSpilling1() throws Exception {
+        List<Sequence<VocabWord>> sequences = new ArrayList<>();
+        Random random = new Random(119);
+        for (int i = 0; i < 500; i++) {
+            Sequence<VocabWord> sequence = new Sequence<>();
+            for (int j = 0; j < 30; j++)
+                sequence.addElement(new VocabWord(1.0, "word_" + random.nextInt(100)));
+            sequences.add(sequence);
+        }
+
+        AbstractCache<VocabWord> vocabCache = new AbstractCache.Builder<VocabWord>().build();
+        AbstractSequenceIterator<VocabWord> sequenceIterator =
+                        new AbstractSequenceIterator.Builder<>(sequences).build();
+
+        VocabConstructor<VocabWord> constructor = new VocabConstructor.Builder<VocabWord>()
+                        .addSource(sequenceIterator, 1).setTargetVocabCache(vocabCache).build();
+        constructor.buildJointVocabulary(false, true);
+
+        // brute-force reference
+        Map<String, Double> expected = new HashMap<>();
+        for (Sequence<VocabWord> sequence : sequences) {
+            List<VocabWord> elements = sequence.getElements();
+            for (int x = 0; x < elements.size(); x++) {
+                int idx1 = vocabCache.indexOf(elements.get(x).getLabel());
+                for (int j = x; j < Math.min(x + 6, elements.size()); j++) {
+                    int idx2 = vocabCache.indexOf(elements.get(j).getLabel());
+                    if (idx1 == idx2)
+                        continue;
+
+                    String key = Math.min(idx1, idx2) + ":" + Math.max(idx1, idx2);
+                    Double value = expected.get(key);
+                    double weight = 1.0 / (j - x + Nd4j.EPS_THRESHOLD);
+                    expected.put(key, value == null ? weight : value + weight);
+                }
+            }
+        }
+
+        AbstractCoOccurrences<VocabWord> coOccurrences = new AbstractCoOccurrences.Builder<VocabWord>()
+                        .iterate(sequenceIterator).vocabCache(vocabCache).symmetric(false).windowSize(5).workers(2)
+                        .mergeFanIn(4).build();
+
+        // tiny memory budget forces every thread to spill multiple runs
+        coOccurrences.memory_threshold = 1;
+        coOccurrences.fit();
+
+        assertEquals(expected.size(), coOccurrences.getNumberOfPairs());
+
+        Iterator<Pair<Pair<VocabWord, VocabWord>, Double>> iterator = coOccurrences.iterator();
+        int cnt = 0;
+        while (iterator.hasNext()) {
+            Pair<Pair<VocabWord, VocabWord>, Double> pair = iterator.next();
+            String key = pair.getFirst().getFirst().getIndex() + ":" + pair.getFirst().getSecond().getIndex();
+            assertEquals(expected.get(key), pair.getSecond(), 1e-3);
+            cnt++;
+        }
+        assertEquals(expected.size(), cnt);
+        try {
+            iterator.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            //OK
+        }
+
+        // pairs span multiple blocks of lookup index; absent pairs have zero weight
+        assertTrue(expected.size() > AbstractCoOccurrences.LOOKUP_BLOCK_SIZE);
+        for (int i = 0; i < vocabCache.numWords(); i++) {
+            for (int j = i + 1; j < vocabCache.numWords(); j++) {
+                Double weight = expected.get(i + ":" + j);
+                assertEquals(weight == null ? 0.0 : weight, coOccurrences.getCoOccurrenceCount(
+                                vocabCache.elementAtIndex(i), vocabCache.elementAtIndex(j)), 1e-3);
+            }
+        }
+
+        // shared iterator, drained concurrently: every pair is taken exactly once
+        final AbstractCoOccurrences<VocabWord>.PairsIterator shared = coOccurrences.iterator();
+        final AtomicInteger taken = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    List<Pair<Pair<VocabWord, VocabWord>, Double>> batch = new ArrayList<>();
+                    int n;
+                    while ((n = shared.drainTo(batch, 7)) > 0) {
+                        taken.addAndGet(n);
+                        batch.clear();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(expected.size(), taken.get());
+        assertNull(shared.poll());
+    }
 }
@@ -0,0 +1,79 @@
+package org.deeplearning4j.models.glove.count;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SortedRunMergerTest {
+
+    @Test
+    public void testCountTable1() throws Exception {
+        CoOccurrenceCountTable table = new CoOccurrenceCountTable(4);
+
+        for (int i = 0; i < 100; i++)
+            for (int j = 0; j < 10; j++)
+                table.add(CoOccurrenceCountTable.pack(i, j), 0.5);
+
+        table.add(CoOccurrenceCountTable.pack(0, 0), 1.0);
+
+        assertEquals(1000, table.size());
+        assertEquals(1.5, table.get(CoOccurrenceCountTable.pack(0, 0)), 1e-10);
+        assertEquals(0.5, table.get(CoOccurrenceCountTable.pack(99, 9)), 1e-10);
+        assertEquals(0.0, table.get(CoOccurrenceCountTable.pack(100, 9)), 1e-10);
+
+        long[] keys = table.sortedKeys();
+        assertEquals(1000, keys.length);
+        assertEquals(0, CoOccurrenceCountTable.first(keys[10]) - 1);
+        assertEquals(0, CoOccurrenceCountTable.second(keys[10]));
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(0.0, table.get(CoOccurrenceCountTable.pack(0, 0)), 1e-10);
+    }
+
+    @Test
+    public void testMerge1() throws Exception {
+        Random random = new Random(119);
+        Map<Long, Double> expected = new TreeMap<>();
+        List<File> runs = new ArrayList<>();
+
+        for (int r = 0; r < 7; r++) {
+            CoOccurrenceCountTable table = new CoOccurrenceCountTable(16);
+            for (int i = 0; i < 500; i++) {
+                long key = CoOccurrenceCountTable.pack(random.nextInt(30), random.nextInt(30));
+                double weight = random.nextDouble();
+                table.add(key, weight);
+
+                Double value = expected.get(key);
+                expected.put(key, value == null ? weight : value + weight);
+            }
+
+            File file = File.createTempFile("runtest", ".run");
+            file.deleteOnExit();
+            SortedRunWriter.spill(table, file);
+            runs.add(file);
+        }
+
+        File target = File.createTempFile("runtest", ".merged");
+        target.deleteOnExit();
+
+        // fan-in 3 forces multiple merge passes
+        long records = new SortedRunMerger(3, null).merge(runs, target);
+        assertEquals(expected.size(), records);
+
+        try (SortedRunReader reader = new SortedRunReader(target)) {
+            for (Map.Entry<Long, Double> entry : expected.entrySet()) {
+                assertTrue(reader.next());
+                assertEquals(entry.getKey().longValue(), reader.getKey());
+                assertEquals(entry.getValue(), reader.getWeight(), 1e-8);
+            }
+            assertFalse(reader.next());
+        }
+
+        for (File run : runs)
+            assertFalse(run.exists());
+    }
+}
@@ -13,6 +13,7 @@ import org.deeplearning4j.models.embeddings.learning.impl.elements.GloVe;
 import org.deeplearning4j.models.embeddings.learning.impl.elements.SkipGram;
 import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
 import org.deeplearning4j.models.embeddings.reader.impl.FlatModelUtils;
+import org.deeplearning4j.models.sequencevectors.enums.ListenerEvent;
 import org.deeplearning4j.models.sequencevectors.graph.enums.NoEdgeHandling;
 import org.deeplearning4j.models.sequencevectors.graph.enums.PopularityMode;
 import org.deeplearning4j.models.sequencevectors.graph.enums.SpreadSpectrum;
@@ -21,14 +22,19 @@ import org.deeplearning4j.models.sequencevectors.graph.primitives.Graph;
 import org.deeplearning4j.models.sequencevectors.graph.primitives.Vertex;
 import org.deeplearning4j.models.sequencevectors.graph.walkers.GraphWalker;
 import org.deeplearning4j.models.sequencevectors.graph.walkers.impl.PopularityWalker;
+import org.deeplearning4j.models.sequencevectors.interfaces.SequenceIterator;
+import org.deeplearning4j.models.sequencevectors.interfaces.VectorsListener;
 import org.deeplearning4j.models.sequencevectors.iterators.AbstractSequenceIterator;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
 import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
 import org.deeplearning4j.models.sequencevectors.transformers.impl.GraphTransformer;
 import org.deeplearning4j.models.sequencevectors.transformers.impl.SentenceTransformer;
 import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.Word2Vec;
 import org.deeplearning4j.models.word2vec.wordstore.VocabConstructor;
 import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
 import org.deeplearning4j.text.sentenceiterator.BasicLineIterator;
+import org.deeplearning4j.text.sentenceiterator.CollectionSentenceIterator;
 import org.deeplearning4j.text.tokenization.tokenizer.preprocessor.CommonPreprocessor;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
@@ -44,7 +50,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.*;
 
@@ -223,6 +232,126 @@ public class SequenceVectorsTest {
         logger.info("Nearest labels to 'day': " + labels);
     }
 
+    @Test
+    public void testParallelSequencer() throws Exception {
+        //Every sequence with at least one element left after removing stop words is trained on exactly once per epoch
+        Random r = new Random(12345);
+        String[] words = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta", "stop"};
+        List<String> sentences = new ArrayList<>();
+        int expectedLines = 0;
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = r.nextInt(8);
+            boolean trained = false;
+            for (int j = 0; j < length; j++) {
+                String word = words[r.nextInt(words.length)];
+                trained |= !word.equals("stop");
+                sb.append(word).append(' ');
+            }
+            sentences.add(sb.toString());
+            if (trained)
+                expectedLines++;
+        }
+
+        final AtomicLong lines = new AtomicLong(0);
+        VectorsListener<VocabWord> listener = new VectorsListener<VocabWord>() {
+            @Override
+            public boolean validateEvent(ListenerEvent event, long argument) {
+                if (event == ListenerEvent.LINE)
+                    lines.incrementAndGet();
+                return false;
+            }
+
+            @Override
+            public void processEvent(ListenerEvent event, SequenceVectors<VocabWord> sequenceVectors,
+                            long argument) {}
+        };
+
+        for (int sequencerThreads : new int[] {1, 4}) {
+            lines.set(0);
+            Word2Vec vectors = new Word2Vec.Builder().minWordFrequency(1).iterate(new CollectionSentenceIterator(sentences))
+                            .tokenizerFactory(new DefaultTokenizerFactory()).batchSize(7).iterations(1).epochs(2)
+                            .layerSize(10).workers(3).sequencerThreads(sequencerThreads)
+                            .stopWords(Collections.singletonList("stop"))
+                            .setVectorsListeners(Collections.<VectorsListener<VocabWord>>singletonList(listener))
+                            .build();
+            vectors.fit();
+
+            assertEquals(2 * expectedLines, lines.get());
+        }
+    }
+
+    @Test
+    public void testParallelSequencerFailure() throws Exception {
+        final List<String> sentences = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            sentences.add("alpha beta gamma delta " + (i % 10));
+
+        //Reader fails in the middle of the first epoch. Vocabulary is built beforehand, so only training reads fail
+        final AtomicLong read = new AtomicLong(-1);
+        SequenceIterator<VocabWord> iterator = new SequenceIterator<VocabWord>() {
+            private int position;
+
+            @Override
+            public boolean hasMoreSequences() {
+                return position < sentences.size();
+            }
+
+            @Override
+            public Sequence<VocabWord> nextSequence() {
+                if (read.get() >= 0 && read.incrementAndGet() == 500)
+                    throw new IllegalStateException("Reader failure");
+                Sequence<VocabWord> sequence = new Sequence<>();
+                for (String word : sentences.get(position++).split(" "))
+                    sequence.addElement(new VocabWord(1.0, word));
+                return sequence;
+            }
+
+            @Override
+            public void reset() {
+                position = 0;
+            }
+        };
+        SequenceVectors<VocabWord> sequenceVectors = new SequenceVectors.Builder<VocabWord>(new VectorsConfiguration())
+                        .minWordFrequency(1).iterate(iterator).batchSize(7).iterations(1).epochs(2).layerSize(10)
+                        .workers(3).sequencerThreads(2).resetModel(false).trainElementsRepresentation(true).build();
+        sequenceVectors.buildVocab();
+        read.set(0);
+        try {
+            sequenceVectors.fit();
+            fail("Reader failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals("Reader failure", e.getMessage());
+        }
+
+        //Training thread failure stops the other threads and the sequencer
+        final AtomicLong lines = new AtomicLong(0);
+        VectorsListener<VocabWord> listener = new VectorsListener<VocabWord>() {
+            @Override
+            public boolean validateEvent(ListenerEvent event, long argument) {
+                if (event == ListenerEvent.LINE && lines.incrementAndGet() == 300)
+                    throw new IllegalStateException("Training failure");
+                return false;
+            }
+
+            @Override
+            public void processEvent(ListenerEvent event, SequenceVectors<VocabWord> sequenceVectors,
+                            long argument) {}
+        };
+        Word2Vec vectors = new Word2Vec.Builder().minWordFrequency(1)
+                        .iterate(new CollectionSentenceIterator(sentences)).tokenizerFactory(new DefaultTokenizerFactory())
+                        .batchSize(7).iterations(1).epochs(2).layerSize(10).workers(3).sequencerThreads(2)
+                        .setVectorsListeners(Collections.<VectorsListener<VocabWord>>singletonList(listener))
+                        .build();
+        try {
+            vectors.fit();
+            fail("Training failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals("Training failure", e.getMessage());
+        }
+        assertTrue(lines.get() < 1000);
+    }
+
     @Test
     public void testElementsLearningAlgo1() throws Exception {
         SequenceVectors<VocabWord> vectors = new SequenceVectors.Builder<VocabWord>(new VectorsConfiguration())
@@ -0,0 +1,132 @@
+package org.deeplearning4j.models.word2vec;
+
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.sequencevectors.iterators.AbstractSequenceIterator;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.junit.Test;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class Word2VecIncrementalTest {
+
+    private static List<Sequence<VocabWord>> buildCorpus(long seed, String... prefixes) {
+        List<Sequence<VocabWord>> sequences = new ArrayList<>();
+        Random random = new Random(seed);
+        for (int i = 0; i < 1500; i++) {
+            String prefix = prefixes[i % prefixes.length];
+            Sequence<VocabWord> sequence = new Sequence<>();
+            for (int j = 0; j < 12; j++)
+                sequence.addElement(new VocabWord(1.0, prefix + random.nextInt(10)));
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
+    private static Word2Vec buildModel(boolean useHS, double negative) {
+        return new Word2Vec.Builder().minWordFrequency(1).layerSize(32).windowSize(4).epochs(2).workers(2)
+                        .seed(119).useHierarchicSoftmax(useHS).negativeSample(negative)
+                        .iterate(new AbstractSequenceIterator.Builder<>(buildCorpus(119, "alpha_", "beta_")).build())
+                        .build();
+    }
+
+    @Test
+    public void testIncrementalFitNegative1() throws Exception {
+        Word2Vec vec = buildModel(false, 5);
+        vec.fit();
+
+        assertEquals(20, vec.getVocab().numWords());
+
+        Map<String, Integer> indexes = new HashMap<>();
+        for (String word : vec.getVocab().words())
+            indexes.put(word, vec.getVocab().indexOf(word));
+        long occurrences = vec.getVocab().totalWordOccurrences();
+
+        vec.setSequenceIterator(new AbstractSequenceIterator.Builder<>(buildCorpus(120, "alpha_", "gamma_")).build());
+        vec.fitIncrementally();
+
+        // old elements keep their indexes, new ones are appended
+        assertEquals(30, vec.getVocab().numWords());
+        for (Map.Entry<String, Integer> entry : indexes.entrySet())
+            assertEquals(entry.getValue().intValue(), vec.getVocab().indexOf(entry.getKey()));
+
+        for (int i = 0; i < 10; i++)
+            assertTrue(vec.getVocab().indexOf("gamma_" + i) >= 20);
+
+        assertEquals(occurrences + 1500 * 12, vec.getVocab().totalWordOccurrences());
+
+        InMemoryLookupTable<VocabWord> table = (InMemoryLookupTable<VocabWord>) vec.getLookupTable();
+        assertEquals(30, table.getSyn0().rows());
+        assertEquals(30, table.getSyn1Neg().rows());
+
+        INDArray syn0 = table.getSyn0();
+        for (int i = 0; i < syn0.length(); i++)
+            assertFalse(Double.isNaN(syn0.getDouble(i)));
+
+        double inner = vec.similarity("gamma_1", "gamma_2");
+        double outer = vec.similarity("gamma_1", "beta_2");
+        assertTrue("Inner similarity [" + inner + "] vs outer [" + outer + "]", inner > outer);
+    }
+
+    @Test
+    public void testIncrementalFitHS1() throws Exception {
+        Word2Vec vec = buildModel(true, 0);
+        vec.fit();
+
+        vec.setSequenceIterator(new AbstractSequenceIterator.Builder<>(buildCorpus(120, "gamma_")).build());
+        vec.fitIncrementally();
+
+        assertEquals(30, vec.getVocab().numWords());
+        assertEquals(30, ((InMemoryLookupTable<VocabWord>) vec.getLookupTable()).getSyn1().rows());
+
+        // Huffman tree is rebuilt over whole vocabulary, all inner nodes should be within syn1
+        for (VocabWord word : vec.getVocab().vocabWords()) {
+            assertTrue(word.getCodeLength() > 0);
+            for (int p = 0; p < word.getCodeLength(); p++)
+                assertTrue(word.getPoints().get(p) < 30);
+        }
+    }
+
+    @Test
+    public void testExpandWeightsResetsSyn1() throws Exception {
+        Word2Vec vec = buildModel(true, 0);
+        vec.fit();
+
+        InMemoryLookupTable<VocabWord> table = (InMemoryLookupTable<VocabWord>) vec.getLookupTable();
+        INDArray syn0 = table.getSyn0().dup();
+        assertTrue(table.getSyn1().norm2Number().doubleValue() > 0.0);
+
+        // without new elements and without Huffman rebuild nothing changes
+        table.expandWeights();
+        assertTrue(table.getSyn1().norm2Number().doubleValue() > 0.0);
+
+        // Huffman rebuild invalidates syn1 rows, but syn0 is kept
+        table.expandWeights(true);
+        assertEquals(0.0, table.getSyn1().norm2Number().doubleValue(), 0.0);
+        assertEquals(syn0, table.getSyn0());
+    }
+
+    @Test
+    public void testExpandWeightsInPlace1() throws Exception {
+        Word2Vec vec = buildModel(false, 5);
+        vec.fit();
+
+        InMemoryLookupTable<VocabWord> table = (InMemoryLookupTable<VocabWord>) vec.getLookupTable();
+
+        vec.setSequenceIterator(new AbstractSequenceIterator.Builder<>(buildCorpus(120, "gamma_")).build());
+        vec.fitIncrementally();
+
+        assertEquals(30, table.getSyn0().rows());
+        DataBuffer storage = table.getSyn0().data();
+
+        // first expansion reserves spare rows, so next one shouldn't reallocate
+        vec.setSequenceIterator(new AbstractSequenceIterator.Builder<>(buildCorpus(121, "delta_")).build());
+        vec.fitIncrementally();
+
+        assertEquals(40, table.getSyn0().rows());
+        assertTrue(storage == table.getSyn0().data());
+    }
+}
@@ -0,0 +1,185 @@
+package org.deeplearning4j.models.word2vec.wordstore.counting;
+
+import org.deeplearning4j.models.sequencevectors.iterators.AbstractSequenceIterator;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.models.word2vec.wordstore.VocabConstructor;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ShardedVocabCounterTest {
+
+    private static List<Sequence<VocabWord>> buildSequences(int numSequences) {
+        List<Sequence<VocabWord>> sequences = new ArrayList<>();
+        Random random = new Random(12345);
+        for (int i = 0; i < numSequences; i++) {
+            Sequence<VocabWord> sequence = new Sequence<>();
+            for (int j = 0; j < 20; j++) {
+                // skewed distribution: low ids are frequent
+                int id = (int) Math.abs(random.nextGaussian() * 50);
+                sequence.addElement(new VocabWord(1.0, "word_" + id));
+            }
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
+    @Test
+    public void testElementCountTable1() throws Exception {
+        ElementCountTable<VocabWord> table = new ElementCountTable<>(4);
+
+        for (int i = 0; i < 1000; i++) {
+            VocabWord word = new VocabWord(1.0, "word_" + (i % 100));
+            table.increment(word.getStorageId(), word, 1, i / 10);
+        }
+
+        assertEquals(100, table.size());
+
+        int slot = table.find(VocabWord.getLongHash("word_7"));
+        assertTrue(slot >= 0);
+        assertEquals(10, table.countAt(slot));
+        assertEquals(10, table.sequencesAt(slot));
+        assertEquals("word_7", table.elementAt(slot).getLabel());
+
+        assertEquals(-1, table.find(VocabWord.getLongHash("word_100")));
+    }
+
+    @Test
+    public void testElementCountTableMerge1() throws Exception {
+        ElementCountTable<VocabWord> table1 = new ElementCountTable<>(16);
+        ElementCountTable<VocabWord> table2 = new ElementCountTable<>(16);
+
+        VocabWord word1 = new VocabWord(1.0, "alpha");
+        VocabWord word2 = new VocabWord(1.0, "beta");
+
+        table1.increment(word1.getStorageId(), word1, 3, 1);
+        table2.increment(word1.getStorageId(), word1, 2, 1);
+        table2.increment(word2.getStorageId(), word2, 5, 1);
+
+        table1.merge(table2);
+
+        assertEquals(2, table1.size());
+        assertEquals(5, table1.countAt(table1.find(word1.getStorageId())));
+        assertEquals(2, table1.sequencesAt(table1.find(word1.getStorageId())));
+        assertEquals(5, table1.countAt(table1.find(word2.getStorageId())));
+    }
+
+    @Test
+    public void testShardedCounter1() throws Exception {
+        List<Sequence<VocabWord>> sequences = buildSequences(5000);
+
+        Map<String, Long> expected = new HashMap<>();
+        for (Sequence<VocabWord> sequence : sequences)
+            for (VocabWord word : sequence.getElements()) {
+                Long value = expected.get(word.getLabel());
+                expected.put(word.getLabel(), value == null ? 1L : value + 1);
+            }
+
+        ShardedVocabCounter<VocabWord> counter =
+                        new ShardedVocabCounter.Builder<VocabWord>().workers(4).batchSize(7).build();
+        counter.start();
+        for (Sequence<VocabWord> sequence : sequences)
+            counter.submit(sequence);
+
+        ElementCountTable<VocabWord> table = counter.finish();
+
+        assertEquals(expected.size(), table.size());
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            int slot = table.find(VocabWord.getLongHash(entry.getKey()));
+            assertTrue(slot >= 0);
+            assertEquals(entry.getValue().longValue(), table.countAt(slot));
+        }
+    }
+
+    @Test
+    public void testShardedCounterPruning1() throws Exception {
+        List<Sequence<VocabWord>> sequences = buildSequences(5000);
+
+        Map<String, Long> expected = new HashMap<>();
+        for (Sequence<VocabWord> sequence : sequences)
+            for (VocabWord word : sequence.getElements()) {
+                Long value = expected.get(word.getLabel());
+                expected.put(word.getLabel(), value == null ? 1L : value + 1);
+            }
+
+        ShardedVocabCounter<VocabWord> counter = new ShardedVocabCounter.Builder<VocabWord>().workers(1)
+                        .pruningThreshold(10).sketchSize(4, 1 << 16).build();
+        counter.start();
+        for (Sequence<VocabWord> sequence : sequences)
+            counter.submit(sequence);
+
+        ElementCountTable<VocabWord> table = counter.finish();
+
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            int slot = table.find(VocabWord.getLongHash(entry.getKey()));
+            if (entry.getValue() < 10) {
+                assertEquals(-1, slot);
+            } else {
+                // with single thread and sparse sketch counts are exact
+                assertTrue(slot >= 0);
+                assertEquals(entry.getValue().longValue(), table.countAt(slot));
+            }
+        }
+    }
+
+    @Test
+    public void testShardedCounterPruning2() throws Exception {
+        List<Sequence<VocabWord>> sequences = buildSequences(5000);
+
+        Map<String, Long> expected = new HashMap<>();
+        for (Sequence<VocabWord> sequence : sequences)
+            for (VocabWord word : sequence.getElements()) {
+                Long value = expected.get(word.getLabel());
+                expected.put(word.getLabel(), value == null ? 1L : value + 1);
+            }
+
+        ShardedVocabCounter<VocabWord> counter = new ShardedVocabCounter.Builder<VocabWord>().workers(4).batchSize(7)
+                        .pruningThreshold(10).sketchSize(4, 1 << 16).build();
+        counter.start();
+        for (Sequence<VocabWord> sequence : sequences)
+            counter.submit(sequence);
+
+        ElementCountTable<VocabWord> table = counter.finish();
+
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            if (entry.getValue() < 10)
+                continue;
+
+            // occurrences seen before promotion are credited once, no matter which thread crossed the threshold
+            int slot = table.find(VocabWord.getLongHash(entry.getKey()));
+            assertTrue(slot >= 0);
+            assertEquals(entry.getValue().longValue(), table.countAt(slot), 4.0);
+        }
+    }
+
+    @Test
+    public void testShardedVocabConstructor1() throws Exception {
+        List<Sequence<VocabWord>> sequences = buildSequences(5000);
+
+        VocabCache<VocabWord> cacheLegacy = new AbstractCache.Builder<VocabWord>().build();
+        VocabConstructor<VocabWord> legacy = new VocabConstructor.Builder<VocabWord>()
+                        .addSource(new AbstractSequenceIterator.Builder<>(buildSequences(5000)).build(), 3)
+                        .setTargetVocabCache(cacheLegacy).build();
+        legacy.buildJointVocabulary(false, true);
+
+        VocabCache<VocabWord> cacheSharded = new AbstractCache.Builder<VocabWord>().build();
+        VocabConstructor<VocabWord> sharded = new VocabConstructor.Builder<VocabWord>()
+                        .addSource(new AbstractSequenceIterator.Builder<>(sequences).build(), 3)
+                        .setTargetVocabCache(cacheSharded).useShardedCounter(true).setCountingThreads(3).build();
+        sharded.buildJointVocabulary(false, true);
+
+        assertEquals(cacheLegacy.numWords(), cacheSharded.numWords());
+        assertEquals(cacheLegacy.totalWordOccurrences(), cacheSharded.totalWordOccurrences());
+        assertEquals(5000, cacheSharded.totalNumberOfDocs());
+
+        for (String word : cacheLegacy.words()) {
+            assertEquals(cacheLegacy.wordFrequency(word), cacheSharded.wordFrequency(word));
+            assertEquals(cacheLegacy.docAppearedIn(word), cacheSharded.docAppearedIn(word));
+        }
+    }
+}
@@ -15,14 +15,29 @@ import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.factory.Nd4j;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.LockSupport;
 
 /**
- * Async prefetching iterator wrapper for MultiDataSetIterator implementations
+ * Async prefetching iterator wrapper for DataSetIterator implementations<br>
+ * <br>
+ * By default, a single background thread fetches DataSets from the underlying iterator. With more than one prefetch
+ * thread, the underlying iterator is still only accessed by one thread at a time, but the DataSetPreProcessor of the
+ * underlying iterator (normalization, etc) is applied by the prefetch threads in parallel, each in its own workspace.
+ * DataSets are returned in the order of the underlying iterator unless unordered prefetching is requested, in which
+ * case they are returned as soon as they are ready.<br>
+ * Queue depth and the time spent waiting by the consumer and by the prefetch threads are available via
+ * {@link #getQueueDepth()}, {@link #getConsumerStallTimeMs()} and {@link #getProducerStallTimeMs()}
  *
  * @author raver119@gmail.com
  */
@@ -44,6 +59,23 @@ public class AsyncDataSetIterator implements DataSetIterator {
 
     private DataSetCallback callback;
 
+    private int numThreads = 1;
+    private boolean ordered = true;
+    private DataSetPreProcessor preProcessor;
+    private List<ParallelPrefetchThread> producers = new ArrayList<>();
+    private final Object iteratorLock = new Object();
+    private final Object deliveryLock = new Object();
+    private Semaphore permits;
+    private AtomicInteger activeProducers = new AtomicInteger(0);
+    private volatile boolean stopping = false;
+    private long nextSequence;
+    private long nextToDeliver;
+    private Map<Long, DataSet> pending = new HashMap<>();
+    private DataSet skipped = new DataSet();
+
+    private AtomicLong consumerStallNanos = new AtomicLong(0);
+    private AtomicLong producerStallNanos = new AtomicLong(0);
+
 
     public AsyncDataSetIterator(DataSetIterator baseIterator) {
         this(baseIterator, 8);
@@ -65,6 +97,20 @@ public class AsyncDataSetIterator implements DataSetIterator {
         this(baseIterator, queueSize, new LinkedBlockingQueue<DataSet>(queueSize), useWorkspace, new DefaultCallback(), deviceId);
     }
 
+    /**
+     * @param baseIterator Underlying iterator
+     * @param queueSize    Number of DataSets to prefetch
+     * @param useWorkspace Whether the prefetch threads should use workspaces
+     * @param numThreads   Number of prefetch threads
+     * @param ordered      If true: DataSets are returned in the same order as the underlying iterator. If false: in the
+     *                     order in which the prefetch threads finish them
+     */
+    public AsyncDataSetIterator(DataSetIterator baseIterator, int queueSize, boolean useWorkspace, int numThreads,
+                    boolean ordered) {
+        this(baseIterator, queueSize, new LinkedBlockingQueue<DataSet>(queueSize), useWorkspace, new DefaultCallback(),
+                        Nd4j.getAffinityManager().getDeviceForCurrentThread(), numThreads, ordered);
+    }
+
     public AsyncDataSetIterator(DataSetIterator baseIterator, int queueSize, boolean useWorkspace, DataSetCallback callback) {
         this(baseIterator, queueSize, new LinkedBlockingQueue<DataSet>(queueSize), useWorkspace, callback);
     }
@@ -78,8 +124,15 @@ public class AsyncDataSetIterator implements DataSetIterator {
     }
 
     public AsyncDataSetIterator(DataSetIterator iterator, int queueSize, BlockingQueue<DataSet> queue, boolean useWorkspace, DataSetCallback callback, Integer deviceId) {
+        this(iterator, queueSize, queue, useWorkspace, callback, deviceId, 1, true);
+    }
+
+    public AsyncDataSetIterator(DataSetIterator iterator, int queueSize, BlockingQueue<DataSet> queue,
+                    boolean useWorkspace, DataSetCallback callback, Integer deviceId, int numThreads, boolean ordered) {
         if (queueSize < 2)
             queueSize = 2;
+        if (numThreads < 1)
+            throw new IllegalArgumentException("Number of prefetch threads must be >= 1, got " + numThreads);
 
         this.deviceId = deviceId;
         this.callback = callback;
@@ -89,18 +142,98 @@ public class AsyncDataSetIterator implements DataSetIterator {
         this.backedIterator = iterator;
         this.workspaceId = "ADSI_ITER-" + java.util.UUID.randomUUID().toString();
 
+        this.numThreads = numThreads;
+        this.ordered = ordered;
+
         if (iterator.resetSupported())
             this.backedIterator.reset();
 
-        this.thread = new AsyncPrefetchThread(buffer, iterator, terminator, null);
+        if (numThreads > 1) {
+            // pre processing is the part of ETL that can run in parallel: take it over from the underlying iterator
+            this.preProcessor = iterator.getPreProcessor();
+            if (preProcessor != null)
+                iterator.setPreProcessor(null);
+        }
+
+        startThreads();
+    }
+
+    private void startThreads() {
+        if (numThreads == 1) {
+            this.thread = new AsyncPrefetchThread(buffer, backedIterator, terminator, null);
+
+            /**
+             * We want to ensure, that background thread will have the same thread->device affinity, as master thread
+             */
+            Nd4j.getAffinityManager().attachThreadToDevice(thread, deviceId);
+            thread.setDaemon(true);
+            thread.start();
+            return;
+        }
+
+        stopping = false;
+        permits = new Semaphore(prefetchSize);
+        nextSequence = 0;
+        nextToDeliver = 0;
+        pending.clear();
+        activeProducers.set(numThreads);
+        producers.clear();
+        for (int i = 0; i < numThreads; i++) {
+            ParallelPrefetchThread producer = new ParallelPrefetchThread(i);
+            Nd4j.getAffinityManager().attachThreadToDevice(producer, deviceId);
+            producers.add(producer);
+        }
+        for (ParallelPrefetchThread producer : producers)
+            producer.start();
+    }
+
+    private void stopThreads() {
+        stopping = true;
+        buffer.clear();
 
-        /**
-         * We want to ensure, that background thread will have the same thread->device affinity, as master thread
-         */
+        List<Thread> threads = new ArrayList<>();
+        if (thread != null)
+            threads.add(thread);
+        threads.addAll(producers);
 
-        Nd4j.getAffinityManager().attachThreadToDevice(thread, deviceId);
-        thread.setDaemon(true);
-        thread.start();
+        for (Thread t : threads)
+            t.interrupt();
+        try {
+            // Shutdown() should be a synchronous operation since the iterator is reset after shutdown() is
+            // called in AsyncLabelAwareIterator.reset().
+            for (Thread t : threads)
+                t.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if (thread != null)
+            this.thread.shutdown();
+        for (ParallelPrefetchThread producer : producers)
+            producer.shutdown();
+        buffer.clear();
+    }
+
+    /**
+     * @return Number of DataSets that are ready, waiting to be returned by {@link #next()}
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * @return Total time (milliseconds) that the consumer has spent waiting for the next DataSet. A large value
+     * relative to the time spent training means that ETL is the bottleneck
+     */
+    public long getConsumerStallTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(consumerStallNanos.get());
+    }
+
+    /**
+     * @return Total time (milliseconds) that the prefetch thread(s) have spent waiting for space in the queue, summed
+     * over all prefetch threads
+     */
+    public long getProducerStallTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(producerStallNanos.get());
     }
 
     /**
@@ -179,33 +312,11 @@ public class AsyncDataSetIterator implements DataSetIterator {
      */
     @Override
     public void reset() {
-        buffer.clear();
-
-        if (thread != null)
-            thread.interrupt();
-        try {
-            // Shutdown() should be a synchronous operation since the iterator is reset after shutdown() is
-            // called in AsyncLabelAwareIterator.reset().
-            if (thread != null)
-                thread.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        this.thread.shutdown();
-        buffer.clear();
-
+        stopThreads();
 
         backedIterator.reset();
         shouldWork.set(true);
-        this.thread = new AsyncPrefetchThread(buffer, backedIterator, terminator, null);
-
-        /**
-         * We want to ensure, that background thread will have the same thread->device affinity, as master thread
-         */
-        Nd4j.getAffinityManager().attachThreadToDevice(thread, deviceId);
-
-        thread.setDaemon(true);
-        thread.start();
+        startThreads();
         hasDepleted.set(false);
 
         nextElement = null;
@@ -217,20 +328,11 @@ public class AsyncDataSetIterator implements DataSetIterator {
      * PLEASE NOTE: After shutdown() call, this instance can't be used anymore
      */
     public void shutdown(){
-        buffer.clear();
+        stopThreads();
 
-        if (thread != null)
-            thread.interrupt();
-        try {
-            // Shutdown() should be a synchronous operation since the iterator is reset after shutdown() is
-            // called in AsyncLabelAwareIterator.reset().
-            if (thread != null)
-                thread.join();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        this.thread.shutdown();
-        buffer.clear();
+        // hand the pre processor back, so the underlying iterator can be used on its own again
+        if (preProcessor != null)
+            backedIterator.setPreProcessor(preProcessor);
     }
 
     /**
@@ -270,7 +372,10 @@ public class AsyncDataSetIterator implements DataSetIterator {
      */
     @Override
     public void setPreProcessor(DataSetPreProcessor preProcessor) {
-        backedIterator.setPreProcessor(preProcessor);
+        if (numThreads > 1)
+            this.preProcessor = preProcessor;
+        else
+            backedIterator.setPreProcessor(preProcessor);
     }
 
     /**
@@ -280,7 +385,7 @@ public class AsyncDataSetIterator implements DataSetIterator {
      */
     @Override
     public DataSetPreProcessor getPreProcessor() {
-        return backedIterator.getPreProcessor();
+        return numThreads > 1 ? preProcessor : backedIterator.getPreProcessor();
     }
 
     /**
@@ -313,18 +418,25 @@ public class AsyncDataSetIterator implements DataSetIterator {
                 return false;
 
 
+            long time = System.nanoTime();
             nextElement = buffer.take();
+            consumerStallNanos.addAndGet(System.nanoTime() - time);
 
             if (nextElement == terminator) {
                 hasDepleted.set(true);
-                return false;
+            } else if (permits != null) {
+                permits.release();
             }
-
-            return true;
         } catch (Exception e) {
             log.error("Premature end of loop!");
             throw new RuntimeException(e);
         }
+
+        // prefetch threads deliver the terminator on failure
+        if (throwable != null)
+            throw throwable;
+
+        return !hasDepleted.get();
     }
 
     /**
@@ -413,8 +525,11 @@ public class AsyncDataSetIterator implements DataSetIterator {
                         smth = iterator.next();
                     }
 
-                    if (smth != null)
+                    if (smth != null) {
+                        long time = System.nanoTime();
                         queue.put(smth);
+                        producerStallNanos.addAndGet(System.nanoTime() - time);
+                    }
                 }
                 queue.put(terminator);
             } catch (InterruptedException e) {
@@ -444,4 +559,129 @@ public class AsyncDataSetIterator implements DataSetIterator {
             }
         }
     }
+
+    /**
+     * One of several prefetch threads. Each thread takes the next DataSet (and its sequence number) from the
+     * underlying iterator, applies the pre processor in its own workspace, then delivers it to the queue - in
+     * sequence order if required.
+     */
+    protected class ParallelPrefetchThread extends Thread implements Runnable {
+        private AtomicBoolean isShutdown = new AtomicBoolean(false);
+        private WorkspaceConfiguration configuration = WorkspaceConfiguration.builder()
+                .minSize(10 * 1024L * 1024L)
+                .overallocationLimit(prefetchSize + 1)
+                .policyReset(ResetPolicy.ENDOFBUFFER_REACHED)
+                .policyLearning(LearningPolicy.FIRST_LOOP)
+                .policyAllocation(AllocationPolicy.OVERALLOCATE)
+                .policySpill(SpillPolicy.REALLOCATE)
+                .build();
+
+        private MemoryWorkspace workspace;
+
+        protected ParallelPrefetchThread(int threadIdx) {
+            this.setDaemon(true);
+            this.setName("ADSI prefetch thread " + threadIdx);
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (useWorkspace)
+                    workspace = Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(configuration, workspaceId);
+
+                while (shouldWork.get()) {
+                    // bounds the number of DataSets in flight (being pre processed, pending or queued)
+                    long time = System.nanoTime();
+                    permits.acquire();
+                    producerStallNanos.addAndGet(System.nanoTime() - time);
+
+                    try (MemoryWorkspace ws = useWorkspace ? workspace.notifyScopeEntered() : null) {
+                        long sequence;
+                        DataSet smth;
+                        synchronized (iteratorLock) {
+                            if (!shouldWork.get() || !backedIterator.hasNext()) {
+                                permits.release();
+                                break;
+                            }
+                            sequence = nextSequence++;
+                            smth = backedIterator.next();
+                        }
+
+                        if (smth != null && preProcessor != null)
+                            preProcessor.preProcess(smth);
+
+                        deliver(sequence, smth);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // do nothing
+                shouldWork.set(false);
+            } catch (RuntimeException e) {
+                fail(e);
+            } catch (Exception e) {
+                fail(new RuntimeException(e));
+            } finally {
+                // the last thread to finish marks the end of the data - unless this is a reset or shutdown
+                if (activeProducers.decrementAndGet() == 0 && !stopping) {
+                    synchronized (deliveryLock) {
+                        try {
+                            buffer.put(terminator);
+                        } catch (InterruptedException e) {
+                            // reset or shutdown: the consumer isn't waiting for the terminator
+                        }
+                    }
+                }
+                isShutdown.set(true);
+            }
+        }
+
+        private void fail(RuntimeException e) {
+            throwable = e;
+            shouldWork.set(false);
+            // DataSets after a failed one are never delivered in ordered mode: wake up any threads waiting for them
+            permits.release(numThreads);
+        }
+
+        private void deliver(long sequence, DataSet dataSet) throws InterruptedException {
+            synchronized (deliveryLock) {
+                if (!ordered) {
+                    put(dataSet);
+                    return;
+                }
+
+                pending.put(sequence, dataSet == null ? skipped : dataSet);
+                DataSet next;
+                while ((next = pending.remove(nextToDeliver)) != null) {
+                    nextToDeliver++;
+                    put(next == skipped ? null : next);
+                }
+            }
+        }
+
+        private void put(DataSet dataSet) throws InterruptedException {
+            if (dataSet == null) {
+                // nothing will be consumed, so the permit is released here
+                permits.release();
+                return;
+            }
+
+            // callbacks are called in delivery order, one at a time
+            if (callback != null)
+                callback.call(dataSet);
+
+            long time = System.nanoTime();
+            buffer.put(dataSet);
+            producerStallNanos.addAndGet(System.nanoTime() - time);
+        }
+
+        public void shutdown() {
+            while (!isShutdown.get())
+                LockSupport.parkNanos(100L);
+
+            if (workspace != null) {
+                log.debug("Manually destroying ADSI workspace");
+                workspace.destroyWorkspace(true);
+            }
+        }
+    }
 }
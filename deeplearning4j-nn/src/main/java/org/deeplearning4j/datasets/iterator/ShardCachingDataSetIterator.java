@@ -0,0 +1,425 @@
+package org.deeplearning4j.datasets.iterator;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.deeplearning4j.datasets.pack.PackedDataSetFormat;
+import org.deeplearning4j.datasets.pack.PackedDataSetReader;
+import org.deeplearning4j.datasets.pack.PackedDataSetWriter;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * DataSetIterator wrapper that caches the minibatches of the underlying iterator on local disk, so that the ETL work
+ * of the underlying iterator (parsing and vectorizing records, for example in RecordReaderDataSetIterator or
+ * SequenceRecordReaderDataSetIterator) is only done once, rather than once per epoch.<br>
+ * <br>
+ * On the first pass, DataSets are returned from the underlying iterator and also written to binary shard files
+ * (features, labels and masks; see {@link PackedDataSetFormat}) with up to {@code batchesPerShard} minibatches per
+ * shard. Once the first pass has been completed, subsequent passes read the minibatches back from the memory mapped
+ * shards, reading each shard sequentially. Optionally, the order of the shards is shuffled on each pass.<br>
+ * <br>
+ * Notes:<br>
+ * - Any DataSetPreProcessor set on the underlying iterator is applied before caching; one set on this iterator is
+ * applied on every pass, after reading from the cache.<br>
+ * - Example meta data is not cached.<br>
+ * - If the first pass is reset before it is complete, the partially written cache is discarded.<br>
+ * - Passes over the cache start on {@link #reset()}: once the first pass is exhausted, {@link #hasNext()} keeps
+ * returning false until the iterator is reset.
+ */
+@Slf4j
+public class ShardCachingDataSetIterator implements DataSetIterator {
+    protected static final String SHARD_PREFIX = "shard_";
+    protected static final String MANIFEST = "shards.txt";
+
+    private final DataSetIterator backedIterator;
+    private final File cacheDirectory;
+    private final int batchesPerShard;
+    private final boolean compress;
+    private final boolean shuffleShards;
+    private final Random random;
+    private DataSetPreProcessor preProcessor;
+
+    private boolean cacheComplete = false;
+    private List<File> shards = new ArrayList<>();
+
+    // first pass: writing the cache
+    private PackedDataSetWriter writer;
+    private int writerShardIdx = -1;
+    private int cachedBatches;
+    private int cachedExamples;
+
+    // later passes: reading the cache
+    private List<File> shardOrder;
+    private int shardCursor;
+    private PackedDataSetReader reader;
+    private int blockCursor;
+    private int passCursor;
+
+    protected ShardCachingDataSetIterator(Builder builder) {
+        this.backedIterator = builder.iterator;
+        this.cacheDirectory = builder.cacheDirectory;
+        this.batchesPerShard = builder.batchesPerShard;
+        this.compress = builder.compress;
+        this.shuffleShards = builder.shuffleShards;
+        this.random = new Random(builder.seed);
+
+        if (!cacheDirectory.exists() && !cacheDirectory.mkdirs())
+            throw new IllegalStateException("Could not create cache directory: " + cacheDirectory.getAbsolutePath());
+
+        if (builder.reuseExistingCache && readManifest()) {
+            log.info("Using {} existing DataSet cache shards in {}", shards.size(), cacheDirectory.getAbsolutePath());
+            cacheComplete = true;
+            startCachedPass();
+        } else {
+            deleteCache();
+        }
+    }
+
+    /**
+     * @return True if the first pass has been completed, and DataSets are now read from the cache
+     */
+    public boolean isCacheComplete() {
+        return cacheComplete;
+    }
+
+    /**
+     * @return Shard files of the cache, in the order they were written
+     */
+    public List<File> getShards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    @Override
+    public DataSet next(int num) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int totalExamples() {
+        return backedIterator.totalExamples();
+    }
+
+    @Override
+    public int inputColumns() {
+        return backedIterator.inputColumns();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return backedIterator.totalOutcomes();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return cacheComplete || backedIterator.resetSupported();
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        //All minibatches were returned, but hasNext() was not called at the end of the first pass
+        if (!cacheComplete && writer != null && !backedIterator.hasNext())
+            completeCache();
+
+        if (cacheComplete) {
+            startCachedPass();
+            return;
+        }
+
+        // first pass was not completed: start again from scratch
+        closeWriter();
+        deleteCache();
+        backedIterator.reset();
+    }
+
+    @Override
+    public int batch() {
+        return backedIterator.batch();
+    }
+
+    @Override
+    public int cursor() {
+        if (cacheComplete)
+            return passCursor;
+        return backedIterator.cursor();
+    }
+
+    @Override
+    public int numExamples() {
+        if (cacheComplete)
+            return cachedExamples;
+        return backedIterator.numExamples();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return backedIterator.getLabels();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (cacheComplete) {
+            try {
+                while (reader == null || blockCursor >= reader.numBlocks()) {
+                    closeReader();
+                    if (shardCursor >= shardOrder.size())
+                        return false;
+                    reader = new PackedDataSetReader(shardOrder.get(shardCursor++));
+                    blockCursor = 0;
+                }
+                return true;
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading DataSet cache shard", e);
+            }
+        }
+
+        if (backedIterator.hasNext())
+            return true;
+
+        completeCache();
+        return false;
+    }
+
+    @Override
+    public DataSet next() {
+        DataSet ds;
+        if (cacheComplete) {
+            if (!hasNext())
+                throw new IllegalStateException("No next element");
+            try {
+                passCursor += reader.numExamples(blockCursor);
+                ds = reader.get(blockCursor++);
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading DataSet cache shard", e);
+            }
+        } else {
+            ds = backedIterator.next();
+            if (ds != null)
+                write(ds);
+        }
+
+        if (ds != null && preProcessor != null)
+            preProcessor.preProcess(ds);
+        return ds;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes any open shard files. The cache itself is left on disk
+     */
+    public void shutdown() {
+        closeWriter();
+        closeReader();
+    }
+
+    private void write(DataSet ds) {
+        try {
+            if (writer == null || writer.numBlocks() >= batchesPerShard) {
+                closeWriter();
+                writerShardIdx++;
+                File shard = new File(cacheDirectory, SHARD_PREFIX + writerShardIdx + PackedDataSetFormat.EXTENSION);
+                writer = new PackedDataSetWriter(new FileOutputStream(shard), compress);
+                shards.add(shard);
+            }
+            writer.write(ds);
+            cachedBatches++;
+            cachedExamples += ds.numExamples();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing DataSet cache shard", e);
+        }
+    }
+
+    private void completeCache() {
+        closeWriter();
+        List<String> lines = new ArrayList<>();
+        for (File shard : shards)
+            lines.add(shard.getName());
+        try {
+            FileUtils.writeLines(new File(cacheDirectory, MANIFEST), StandardCharsets.UTF_8.name(), lines);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing DataSet cache manifest", e);
+        }
+
+        log.info("Cached {} minibatches in {} shards in {}", cachedBatches, shards.size(),
+                        cacheDirectory.getAbsolutePath());
+        cacheComplete = true;
+        //No cached pass until reset(): hasNext() keeps returning false for the rest of the first pass
+        shardOrder = Collections.emptyList();
+        shardCursor = 0;
+        passCursor = 0;
+    }
+
+    private void startCachedPass() {
+        closeReader();
+        shardOrder = new ArrayList<>(shards);
+        if (shuffleShards)
+            Collections.shuffle(shardOrder, random);
+        shardCursor = 0;
+        passCursor = 0;
+    }
+
+    private boolean readManifest() {
+        File manifest = new File(cacheDirectory, MANIFEST);
+        if (!manifest.exists())
+            return false;
+        try {
+            List<File> files = new ArrayList<>();
+            int examples = 0;
+            for (String line : FileUtils.readLines(manifest, StandardCharsets.UTF_8.name())) {
+                if (line.isEmpty())
+                    continue;
+                File shard = new File(cacheDirectory, line);
+                if (!shard.exists())
+                    return false;
+                files.add(shard);
+                //Only the index of the shard is read
+                try (PackedDataSetReader r = new PackedDataSetReader(shard)) {
+                    examples += (int) r.totalExamples();
+                }
+            }
+            shards = files;
+            cachedExamples = examples;
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not read DataSet cache manifest; cache will be rebuilt", e);
+            return false;
+        }
+    }
+
+    private void deleteCache() {
+        new File(cacheDirectory, MANIFEST).delete();
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.getName().startsWith(SHARD_PREFIX) && f.getName().endsWith(PackedDataSetFormat.EXTENSION))
+                    f.delete();
+            }
+        }
+        shards = new ArrayList<>();
+        writerShardIdx = -1;
+        cachedBatches = 0;
+        cachedExamples = 0;
+    }
+
+    private void closeWriter() {
+        if (writer == null)
+            return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing DataSet cache shard", e);
+        } finally {
+            writer = null;
+        }
+    }
+
+    private void closeReader() {
+        if (reader == null)
+            return;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("Error closing DataSet cache shard", e);
+        } finally {
+            reader = null;
+        }
+    }
+
+    public static class Builder {
+        private final DataSetIterator iterator;
+        private final File cacheDirectory;
+        private int batchesPerShard = 64;
+        private boolean compress = false;
+        private boolean shuffleShards = false;
+        private long seed = 12345;
+        private boolean reuseExistingCache = false;
+
+        /**
+         * @param iterator       Underlying iterator, whose DataSets are cached
+         * @param cacheDirectory Local directory for the cache shards
+         */
+        public Builder(@NonNull DataSetIterator iterator, @NonNull File cacheDirectory) {
+            this.iterator = iterator;
+            this.cacheDirectory = cacheDirectory;
+        }
+
+        /**
+         * Maximum number of minibatches per shard file. Default: 64
+         */
+        public Builder batchesPerShard(int batchesPerShard) {
+            if (batchesPerShard < 1)
+                throw new IllegalArgumentException("Batches per shard must be >= 1, got " + batchesPerShard);
+            this.batchesPerShard = batchesPerShard;
+            return this;
+        }
+
+        /**
+         * If true: compress the minibatches (deflate). Compressed shards are smaller, but each minibatch has to be
+         * inflated into a heap buffer before being copied into its arrays. Default: false
+         */
+        public Builder compress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        /**
+         * If true: shuffle the order of the shards on each pass after the first. Minibatches within a shard are
+         * always read in order. Default: false
+         */
+        public Builder shuffleShards(boolean shuffleShards) {
+            this.shuffleShards = shuffleShards;
+            return this;
+        }
+
+        /**
+         * Random seed for shuffling the order of the shards. Default: 12345
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * If true, and the cache directory holds a complete cache (from a previous iterator with the same directory),
+         * read from that cache straight away, without a pass over the underlying iterator. The caller is responsible
+         * for the existing cache matching the underlying iterator. Default: false (any existing cache is deleted)
+         */
+        public Builder reuseExistingCache(boolean reuseExistingCache) {
+            this.reuseExistingCache = reuseExistingCache;
+            return this;
+        }
+
+        public ShardCachingDataSetIterator build() {
+            return new ShardCachingDataSetIterator(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.deeplearning4j.datasets.pack;
+
+/**
+ * Constants and path helpers for the packed DataSet format, written by {@link PackedDataSetWriter} and read by
+ * {@link PackedDataSetReader}.<br>
+ * A packed file holds many minibatches (blocks) in one file:
+ * <pre>
+ * header:  magic (int), version (int)
+ * blocks:  one per DataSet, optionally deflate compressed
+ * index:   number of blocks (int), then per block: offset (long), stored length (int), raw length (int),
+ *          number of examples (int), compression (byte)
+ * trailer: index offset (long), magic (int)
+ * </pre>
+ * Each (decompressed) block holds features, labels, features mask and labels mask, in that order. Each array is stored
+ * as data type (byte: 0 - absent, 1 - float, 2 - double), rank (int), shape (ints) and raw c-order values, so that
+ * the values of an uncompressed block can be bulk copied from a memory mapped file into an array.
+ * <p>
+ * Individual minibatches are referenced as {@code path#blockIndex} - for example in the paths returned by Spark's
+ * BatchAndExportDataSetsFunction; a path without block index refers to all blocks in the file.
+ */
+public class PackedDataSetFormat {
+
+    public static final String EXTENSION = ".dspack";
+    public static final int MAGIC = 0x44535041; //"DSPA"
+    public static final int VERSION = 1;
+
+    public static final int HEADER_LENGTH = 8;
+    public static final int TRAILER_LENGTH = 12;
+    public static final int INDEX_ENTRY_LENGTH = 21;
+
+    public static final byte COMPRESSION_NONE = 0;
+    public static final byte COMPRESSION_DEFLATE = 1;
+
+    public static final byte TYPE_ABSENT = 0;
+    public static final byte TYPE_FLOAT = 1;
+    public static final byte TYPE_DOUBLE = 2;
+
+    private PackedDataSetFormat() {}
+
+    /**
+     * @return True if the path refers to a packed file, either as a whole or a single block in it
+     */
+    public static boolean isPacked(String path) {
+        return path != null && filePath(path).endsWith(EXTENSION);
+    }
+
+    /**
+     * @return True if the path refers to a single block of a packed file ({@code path#blockIndex})
+     */
+    public static boolean isBlockReference(String path) {
+        return isPacked(path) && path.lastIndexOf('#') > path.lastIndexOf(EXTENSION);
+    }
+
+    /**
+     * Path of the file, without block index
+     */
+    public static String filePath(String path) {
+        int idx = path.lastIndexOf('#');
+        if (idx < 0 || !path.substring(0, idx).endsWith(EXTENSION))
+            return path;
+        return path.substring(0, idx);
+    }
+
+    /**
+     * Index of the referenced block, or -1 if the path refers to the whole file
+     */
+    public static int blockIndex(String path) {
+        if (!isBlockReference(path))
+            return -1;
+        try {
+            return Integer.parseInt(path.substring(path.lastIndexOf('#') + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid block reference: " + path, e);
+        }
+    }
+
+    /**
+     * Reference to a single block in a packed file
+     */
+    public static String blockReference(String filePath, int blockIndex) {
+        return filePath + "#" + blockIndex;
+    }
+}
@@ -0,0 +1,302 @@
+package org.deeplearning4j.datasets.pack;
+
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads DataSet objects from a packed file (see {@link PackedDataSetFormat}).<br>
+ * Only the index is read when the file is opened; blocks are read on demand, in any order. Local files are memory
+ * mapped, so reading a block does not go through an intermediate file buffer. The values of an uncompressed block are
+ * copied once, from the mapped file into newly allocated minibatch arrays (via a heap array, if the stored data type
+ * differs from the Nd4j data type). Compressed blocks are first inflated into a heap buffer. The returned arrays never
+ * share memory with the file, so they can be modified (for example by a DataSetPreProcessor).
+ */
+public class PackedDataSetReader implements Closeable, Iterable<DataSet> {
+
+    /**
+     * Random access to the bytes of a packed file
+     */
+    public interface Source extends Closeable {
+
+        long length() throws IOException;
+
+        /**
+         * @return Buffer holding exactly {@code length} bytes starting at {@code offset}
+         */
+        ByteBuffer read(long offset, int length) throws IOException;
+    }
+
+    private final String path;
+    private final Source source;
+    private final long[] offsets;
+    private final int[] storedLengths;
+    private final int[] rawLengths;
+    private final int[] numExamples;
+    private final byte[] compression;
+
+    /**
+     * Opens a local file, memory mapping it
+     */
+    public PackedDataSetReader(File file) throws IOException {
+        this(file.getPath(), new MappedFileSource(file));
+    }
+
+    /**
+     * @param path   Path of the file, used in error messages
+     * @param source Source of the file bytes. It is closed by {@link #close()}
+     */
+    public PackedDataSetReader(String path, Source source) throws IOException {
+        this.path = path;
+        this.source = source;
+
+        long fileLength = source.length();
+        if (fileLength < PackedDataSetFormat.HEADER_LENGTH + PackedDataSetFormat.TRAILER_LENGTH + 4)
+            throw new IOException("Not a packed DataSet file (too short): " + path);
+
+        ByteBuffer header = source.read(0, PackedDataSetFormat.HEADER_LENGTH);
+        ByteBuffer trailer = source.read(fileLength - PackedDataSetFormat.TRAILER_LENGTH,
+                        PackedDataSetFormat.TRAILER_LENGTH);
+        if (header.getInt() != PackedDataSetFormat.MAGIC || trailer.getInt(8) != PackedDataSetFormat.MAGIC)
+            throw new IOException("Not a packed DataSet file (invalid magic number): " + path);
+        int version = header.getInt();
+        if (version != PackedDataSetFormat.VERSION)
+            throw new IOException("Unsupported packed DataSet file version " + version + ": " + path);
+
+        long indexOffset = trailer.getLong(0);
+        int indexLength = (int) (fileLength - PackedDataSetFormat.TRAILER_LENGTH - indexOffset);
+        ByteBuffer index = source.read(indexOffset, indexLength);
+        int numBlocks = index.getInt();
+        if (indexLength != 4 + numBlocks * PackedDataSetFormat.INDEX_ENTRY_LENGTH)
+            throw new IOException("Corrupted packed DataSet file (invalid index): " + path);
+
+        offsets = new long[numBlocks];
+        storedLengths = new int[numBlocks];
+        rawLengths = new int[numBlocks];
+        numExamples = new int[numBlocks];
+        compression = new byte[numBlocks];
+        for (int i = 0; i < numBlocks; i++) {
+            offsets[i] = index.getLong();
+            storedLengths[i] = index.getInt();
+            rawLengths[i] = index.getInt();
+            numExamples[i] = index.getInt();
+            compression[i] = index.get();
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int numBlocks() {
+        return offsets.length;
+    }
+
+    /**
+     * Number of examples in the block, without reading it
+     */
+    public int numExamples(int block) {
+        return numExamples[block];
+    }
+
+    /**
+     * Total number of examples in all blocks, without reading them
+     */
+    public long totalExamples() {
+        long sum = 0;
+        for (int n : numExamples)
+            sum += n;
+        return sum;
+    }
+
+    /**
+     * Reads the DataSet stored in the given block
+     */
+    public DataSet get(int block) throws IOException {
+        if (block < 0 || block >= offsets.length)
+            throw new IllegalArgumentException(
+                            "Invalid block index " + block + " for file with " + offsets.length + " blocks: " + path);
+
+        ByteBuffer buffer = source.read(offsets[block], storedLengths[block]);
+        if (compression[block] == PackedDataSetFormat.COMPRESSION_DEFLATE) {
+            buffer = inflate(buffer, rawLengths[block]);
+        } else if (compression[block] != PackedDataSetFormat.COMPRESSION_NONE) {
+            throw new IOException("Unknown compression " + compression[block] + " in block " + block + ": " + path);
+        }
+
+        INDArray features = readArray(buffer);
+        INDArray labels = readArray(buffer);
+        INDArray featuresMask = readArray(buffer);
+        INDArray labelsMask = readArray(buffer);
+        return new DataSet(features, labels, featuresMask, labelsMask);
+    }
+
+    /**
+     * Iterates over all blocks, in order
+     */
+    @Override
+    public Iterator<DataSet> iterator() {
+        return new Iterator<DataSet>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < offsets.length;
+            }
+
+            @Override
+            public DataSet next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                try {
+                    return get(next++);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private static INDArray readArray(ByteBuffer buffer) {
+        byte type = buffer.get();
+        if (type == PackedDataSetFormat.TYPE_ABSENT)
+            return null;
+
+        int[] shape = new int[buffer.getInt()];
+        int length = 1;
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = buffer.getInt();
+            length *= shape[i];
+        }
+
+        if (type == PackedDataSetFormat.TYPE_DOUBLE) {
+            if (Nd4j.dataType() == DataBuffer.Type.DOUBLE) {
+                //Single copy, straight from the file bytes into the array
+                INDArray arr = Nd4j.createUninitialized(shape, 'c');
+                arr.data().asNioDouble().put((DoubleBuffer) buffer.asDoubleBuffer().limit(length));
+                buffer.position(buffer.position() + 8 * length);
+                return arr;
+            }
+            double[] data = new double[length];
+            buffer.asDoubleBuffer().get(data);
+            buffer.position(buffer.position() + 8 * length);
+            return Nd4j.create(data, shape, 'c');
+        } else if (type == PackedDataSetFormat.TYPE_FLOAT) {
+            if (Nd4j.dataType() == DataBuffer.Type.FLOAT) {
+                INDArray arr = Nd4j.createUninitialized(shape, 'c');
+                arr.data().asNioFloat().put((FloatBuffer) buffer.asFloatBuffer().limit(length));
+                buffer.position(buffer.position() + 4 * length);
+                return arr;
+            }
+            float[] data = new float[length];
+            buffer.asFloatBuffer().get(data);
+            buffer.position(buffer.position() + 4 * length);
+            return Nd4j.create(data, shape, 'c');
+        }
+        throw new IllegalStateException("Unknown array type " + type);
+    }
+
+    private ByteBuffer inflate(ByteBuffer compressed, int rawLength) throws IOException {
+        byte[] input;
+        int inputOffset;
+        if (compressed.hasArray()) {
+            input = compressed.array();
+            inputOffset = compressed.arrayOffset() + compressed.position();
+        } else {
+            input = new byte[compressed.remaining()];
+            compressed.duplicate().get(input);
+            inputOffset = 0;
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input, inputOffset, compressed.remaining());
+            byte[] raw = new byte[rawLength];
+            int count = 0;
+            while (count < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, count, rawLength - count);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                count += n;
+            }
+            if (count != rawLength)
+                throw new IOException("Corrupted compressed block in " + path);
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted compressed block in " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Memory mapped local file. Files over 2GB are mapped block by block
+     */
+    public static class MappedFileSource implements Source {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final long length;
+        private final MappedByteBuffer mapped;
+
+        public MappedFileSource(File file) throws IOException {
+            this.file = new RandomAccessFile(file, "r");
+            this.channel = this.file.getChannel();
+            this.length = channel.size();
+            if (length <= Integer.MAX_VALUE) {
+                //Mapping stays valid after the file is closed, so no file handle is held
+                this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                this.file.close();
+            } else {
+                this.mapped = null;
+            }
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public ByteBuffer read(long offset, int length) throws IOException {
+            if (offset < 0 || offset + length > this.length)
+                throw new IOException("Read past end of file: offset " + offset + ", length " + length);
+            if (mapped == null)
+                return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+            ByteBuffer slice = mapped.duplicate();
+            slice.position((int) offset);
+            slice.limit((int) offset + length);
+            return slice.slice();
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+}
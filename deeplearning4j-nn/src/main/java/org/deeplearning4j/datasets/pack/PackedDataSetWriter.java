@@ -0,0 +1,180 @@
+package org.deeplearning4j.datasets.pack;
+
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes many DataSet objects into a single packed file (see {@link PackedDataSetFormat}).<br>
+ * Blocks are written sequentially, and the offset index is appended by {@link #close()}, so any output stream
+ * (including HDFS streams) can be used.
+ */
+public class PackedDataSetWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final DataOutputStream out;
+    private final boolean compress;
+    private final Deflater deflater;
+    private long position;
+    private boolean closed;
+
+    private final List<long[]> index = new ArrayList<>();
+
+    /**
+     * @param outputStream Stream to write to. It is closed by {@link #close()}
+     * @param compress     If true: each block is compressed with deflate. Compressed blocks are smaller, but can't be
+     *                     read without copying
+     */
+    public PackedDataSetWriter(OutputStream outputStream, boolean compress) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+        this.compress = compress;
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+
+        out.writeInt(PackedDataSetFormat.MAGIC);
+        out.writeInt(PackedDataSetFormat.VERSION);
+        position = PackedDataSetFormat.HEADER_LENGTH;
+    }
+
+    /**
+     * Appends the DataSet as a new block
+     *
+     * @return Index of the block within the file
+     */
+    public int write(DataSet dataSet) throws IOException {
+        if (closed)
+            throw new IllegalStateException("Writer is closed");
+
+        INDArray[] arrays = {dataSet.getFeatures(), dataSet.getLabels(), dataSet.getFeaturesMaskArray(),
+                        dataSet.getLabelsMaskArray()};
+
+        int rawLength = 0;
+        for (INDArray array : arrays)
+            rawLength += arrayLength(array);
+
+        ByteBuffer raw = ByteBuffer.allocate(rawLength);
+        for (INDArray array : arrays)
+            putArray(raw, array);
+
+        byte[] stored = raw.array();
+        int storedLength = rawLength;
+        byte compression = PackedDataSetFormat.COMPRESSION_NONE;
+        if (compress) {
+            byte[] compressed = deflate(stored);
+            // incompressible blocks are stored as is
+            if (compressed.length < rawLength) {
+                stored = compressed;
+                storedLength = compressed.length;
+                compression = PackedDataSetFormat.COMPRESSION_DEFLATE;
+            }
+        }
+
+        out.write(stored, 0, storedLength);
+        index.add(new long[] {position, storedLength, rawLength, dataSet.numExamples(), compression});
+        position += storedLength;
+        return index.size() - 1;
+    }
+
+    /**
+     * Number of blocks written so far
+     */
+    public int numBlocks() {
+        return index.size();
+    }
+
+    /**
+     * Number of bytes written so far (excluding the index)
+     */
+    public long bytesWritten() {
+        return position;
+    }
+
+    /**
+     * Writes the index and closes the underlying stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+
+        long indexOffset = position;
+        out.writeInt(index.size());
+        for (long[] entry : index) {
+            out.writeLong(entry[0]);
+            out.writeInt((int) entry[1]);
+            out.writeInt((int) entry[2]);
+            out.writeInt((int) entry[3]);
+            out.writeByte((int) entry[4]);
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(PackedDataSetFormat.MAGIC);
+        out.close();
+
+        if (deflater != null)
+            deflater.end();
+    }
+
+    private static int arrayLength(INDArray array) {
+        if (array == null)
+            return 1;
+        return 1 + 4 + 4 * array.rank() + (int) array.length() * (isDouble(array) ? 8 : 4);
+    }
+
+    private static boolean isDouble(INDArray array) {
+        return array.data().dataType() == DataBuffer.Type.DOUBLE;
+    }
+
+    private static void putArray(ByteBuffer buffer, INDArray array) {
+        if (array == null) {
+            buffer.put(PackedDataSetFormat.TYPE_ABSENT);
+            return;
+        }
+
+        boolean isDouble = isDouble(array);
+        buffer.put(isDouble ? PackedDataSetFormat.TYPE_DOUBLE : PackedDataSetFormat.TYPE_FLOAT);
+        int[] shape = array.shape();
+        buffer.putInt(shape.length);
+        for (int s : shape)
+            buffer.putInt(s);
+
+        // views and f-order arrays are copied to contiguous c-order buffer first
+        INDArray contiguous = array;
+        if (array.isView() || array.ordering() != 'c' || array.data().length() != array.length())
+            contiguous = array.dup('c');
+
+        int length = (int) array.length();
+        if (isDouble) {
+            buffer.asDoubleBuffer().put(contiguous.data().asDouble(), 0, length);
+            buffer.position(buffer.position() + 8 * length);
+        } else {
+            buffer.asFloatBuffer().put(contiguous.data().asFloat(), 0, length);
+            buffer.position(buffer.position() + 4 * length);
+        }
+    }
+
+    private byte[] deflate(byte[] input) {
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, input.length / 2));
+        byte[] chunk = new byte[64 * 1024];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(chunk);
+            bytes.write(chunk, 0, count);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -411,6 +411,64 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
         }
     }
 
+    /**
+     * Add confusion matrix counts that were collected elsewhere - for example, by compact accumulators in distributed
+     * evaluation. The result is the same as calling {@link #eval(int, int)} {@code counts[i]} times for each entry
+     * (actual[i], predicted[i]); true/false positive/negative counts are derived from the confusion matrix.
+     *
+     * @param nClasses         Number of classes
+     * @param actual           Actual class of each confusion matrix entry
+     * @param predicted        Predicted class of each confusion matrix entry
+     * @param counts           Count for each confusion matrix entry
+     * @param topNCorrectCount Number of examples that were correct according to top N accuracy
+     * @param topNTotalCount   Number of examples considered for top N accuracy
+     */
+    public void addCounts(int nClasses, int[] actual, int[] predicted, int[] counts, int topNCorrectCount,
+                    int topNTotalCount) {
+        if (actual.length != predicted.length || actual.length != counts.length)
+            throw new IllegalArgumentException("Actual, predicted and counts arrays must have the same length: got "
+                            + actual.length + ", " + predicted.length + " and " + counts.length);
+        if (confusion == null) {
+            if (labelsList == null || labelsList.isEmpty())
+                labelsList = createLabels(nClasses);
+            createConfusion(nClasses);
+        }
+
+        long[] actualTotal = new long[nClasses];
+        long[] predictedTotal = new long[nClasses];
+        long[] correct = new long[nClasses];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0)
+                continue;
+            confusion.add(actual[i], predicted[i], counts[i]);
+            actualTotal[actual[i]] += counts[i];
+            predictedTotal[predicted[i]] += counts[i];
+            if (actual[i] == predicted[i])
+                correct[actual[i]] += counts[i];
+            total += counts[i];
+        }
+
+        for (int c = 0; c < nClasses; c++) {
+            long tp = correct[c];
+            long fp = predictedTotal[c] - tp;
+            long fn = actualTotal[c] - tp;
+            long tn = total - tp - fp - fn;
+            if (tp > 0)
+                truePositives.incrementCount(c, tp);
+            if (fp > 0)
+                falsePositives.incrementCount(c, fp);
+            if (fn > 0)
+                falseNegatives.incrementCount(c, fn);
+            if (tn > 0)
+                trueNegatives.incrementCount(c, tn);
+        }
+
+        numRowCounter += total;
+        this.topNCorrectCount += topNCorrectCount;
+        this.topNTotalCount += topNTotalCount;
+    }
+
     public String stats() {
         return stats(false);
     }
@@ -145,6 +145,30 @@ public class ROC extends BaseEvaluation<ROC> {
         }
     }
 
+    /**
+     * Add counts that were collected elsewhere - for example, by compact accumulators in distributed evaluation
+     *
+     * @param actualPositive Number of actual positive examples
+     * @param actualNegative Number of actual negative examples
+     * @param truePositives  True positive count for each threshold; index i is for threshold i / thresholdSteps
+     * @param falsePositives False positive count for each threshold; index i is for threshold i / thresholdSteps
+     */
+    public void addCounts(long actualPositive, long actualNegative, long[] truePositives, long[] falsePositives) {
+        if (truePositives.length != thresholdSteps + 1 || falsePositives.length != thresholdSteps + 1)
+            throw new IllegalArgumentException("Expected counts for " + (thresholdSteps + 1) + " thresholds, got "
+                            + truePositives.length + " and " + falsePositives.length);
+
+        countActualPositive += actualPositive;
+        countActualNegative += actualNegative;
+
+        double step = 1.0 / thresholdSteps;
+        for (int i = 0; i <= thresholdSteps; i++) {
+            CountsForThreshold thresholdCounts = counts.get(i * step);
+            thresholdCounts.incrementTruePositive(truePositives[i]);
+            thresholdCounts.incrementFalsePositive(falsePositives[i]);
+        }
+    }
+
     /**
      * Get the ROC curve, as a set of points
      *
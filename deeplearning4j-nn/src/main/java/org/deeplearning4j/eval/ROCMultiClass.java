@@ -78,19 +78,7 @@ public class ROCMultiClass extends BaseEvaluation<ROCMultiClass> {
 
         if (countActualPositive == null) {
             //This must be the first time eval has been called...
-            int size = labels.size(1);
-            countActualPositive = new long[size];
-            countActualNegative = new long[size];
-
-            for (int i = 0; i < size; i++) {
-                Map<Double, ROC.CountsForThreshold> map = new LinkedHashMap<Double, ROC.CountsForThreshold>();
-                counts.put(i, map);
-
-                for (int j = 0; j <= thresholdSteps; j++) {
-                    double currThreshold = j * step;
-                    map.put(currThreshold, new ROC.CountsForThreshold(currThreshold));
-                }
-            }
+            initCounts(labels.size(1));
         }
 
         if (countActualPositive.length != labels.size(1)) {
@@ -144,6 +132,58 @@ public class ROCMultiClass extends BaseEvaluation<ROCMultiClass> {
         }
     }
 
+    private void initCounts(int size) {
+        double step = 1.0 / thresholdSteps;
+        countActualPositive = new long[size];
+        countActualNegative = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            Map<Double, ROC.CountsForThreshold> map = new LinkedHashMap<Double, ROC.CountsForThreshold>();
+            counts.put(i, map);
+
+            for (int j = 0; j <= thresholdSteps; j++) {
+                double currThreshold = j * step;
+                map.put(currThreshold, new ROC.CountsForThreshold(currThreshold));
+            }
+        }
+    }
+
+    /**
+     * Add counts that were collected elsewhere - for example, by compact accumulators in distributed evaluation
+     *
+     * @param actualPositive Number of actual positive examples, for each class
+     * @param actualNegative Number of actual negative examples, for each class
+     * @param truePositives  True positive counts: [class][threshold], where threshold index i is for threshold
+     *                       i / thresholdSteps
+     * @param falsePositives False positive counts: [class][threshold]
+     */
+    public void addCounts(long[] actualPositive, long[] actualNegative, long[][] truePositives,
+                    long[][] falsePositives) {
+        if (countActualPositive == null)
+            initCounts(actualPositive.length);
+        if (countActualPositive.length != actualPositive.length)
+            throw new IllegalArgumentException("Cannot add counts: number of classes does not match. Got "
+                            + actualPositive.length + " vs. expected number of classes = "
+                            + countActualPositive.length);
+
+        double step = 1.0 / thresholdSteps;
+        for (int i = 0; i < countActualPositive.length; i++) {
+            if (truePositives[i].length != thresholdSteps + 1 || falsePositives[i].length != thresholdSteps + 1)
+                throw new IllegalArgumentException("Expected counts for " + (thresholdSteps + 1)
+                                + " thresholds, got " + truePositives[i].length + " and "
+                                + falsePositives[i].length);
+            countActualPositive[i] += actualPositive[i];
+            countActualNegative[i] += actualNegative[i];
+
+            Map<Double, ROC.CountsForThreshold> map = counts.get(i);
+            for (int j = 0; j <= thresholdSteps; j++) {
+                ROC.CountsForThreshold thresholdCounts = map.get(j * step);
+                thresholdCounts.incrementTruePositive(truePositives[i][j]);
+                thresholdCounts.incrementFalsePositive(falsePositives[i][j]);
+            }
+        }
+    }
+
     /**
      * Get the ROC curve, as a set of points
      *
@@ -29,6 +29,7 @@ import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.params.DefaultParamInitializer;
 import org.deeplearning4j.nn.params.PretrainParamInitializer;
+import org.deeplearning4j.nn.sparse.CSRMatrix;
 import org.deeplearning4j.optimize.Solver;
 import org.deeplearning4j.optimize.api.ConvexOptimizer;
 import org.deeplearning4j.optimize.api.IterationListener;
@@ -64,6 +65,7 @@ public abstract class BaseLayer<LayerConfT extends org.deeplearning4j.nn.conf.la
     protected INDArray maskArray;
     protected MaskState maskState;
     protected Solver solver;
+    protected CSRMatrix sparseInput;
 
     public BaseLayer(NeuralNetConfiguration conf) {
         this.conf = conf;
@@ -101,6 +103,22 @@ public abstract class BaseLayer<LayerConfT extends org.deeplearning4j.nn.conf.la
         dropoutApplied = false;
     }
 
+    /**
+     * Set a sparse input for this layer. While set, it is used in place of the (dense) input for the forward pass
+     * and the weight gradient, which then cost time proportional to the number of non-zero input values. Dropout is
+     * not applied to a sparse input, and no epsilon is returned by {@link #backpropGradient(INDArray)}: a layer with
+     * sparse input must be the first layer of the network.
+     *
+     * @param sparseInput Sparse input, or null to use the dense input again
+     */
+    public void setSparseInput(CSRMatrix sparseInput) {
+        this.sparseInput = sparseInput;
+    }
+
+    public CSRMatrix getSparseInput() {
+        return sparseInput;
+    }
+
     @Override
     public int getIndex() {
         return index;
@@ -169,13 +187,22 @@ public abstract class BaseLayer<LayerConfT extends org.deeplearning4j.nn.conf.la
         Gradient ret = new DefaultGradient();
 
         INDArray weightGrad = gradientViews.get(DefaultParamInitializer.WEIGHT_KEY); //f order
-        Nd4j.gemm(input, delta, weightGrad, true, false, 1.0, 0.0);
+        if (sparseInput != null) {
+            sparseInput.transposeMmul(delta, weightGrad);
+        } else {
+            Nd4j.gemm(input, delta, weightGrad, true, false, 1.0, 0.0);
+        }
         INDArray biasGrad = gradientViews.get(DefaultParamInitializer.BIAS_KEY);
         delta.sum(biasGrad, 0); //biasGrad is initialized/zeroed first
 
         ret.gradientForVariable().put(DefaultParamInitializer.WEIGHT_KEY, weightGrad);
         ret.gradientForVariable().put(DefaultParamInitializer.BIAS_KEY, biasGrad);
 
+        if (sparseInput != null) {
+            //No epsilon for sparse input: as with the embedding layer, this must be the first layer
+            return new Pair<>(ret, null);
+        }
+
         INDArray epsilonNext = params.get(DefaultParamInitializer.WEIGHT_KEY).mmul(delta.transpose()).transpose();
 
         return new Pair<>(ret, epsilonNext);
@@ -374,6 +401,9 @@ public abstract class BaseLayer<LayerConfT extends org.deeplearning4j.nn.conf.la
     }
 
     public INDArray preOutput(boolean training) {
+        if (sparseInput != null) {
+            return preOutputSparse(training);
+        }
         applyDropOutIfNecessary(training);
         INDArray b = getParam(DefaultParamInitializer.BIAS_KEY);
         INDArray W = getParam(DefaultParamInitializer.WEIGHT_KEY);
@@ -404,6 +434,29 @@ public abstract class BaseLayer<LayerConfT extends org.deeplearning4j.nn.conf.la
         return ret;
     }
 
+    protected INDArray preOutputSparse(boolean training) {
+        INDArray b = getParam(DefaultParamInitializer.BIAS_KEY);
+        INDArray W = getParam(DefaultParamInitializer.WEIGHT_KEY);
+
+        if (sparseInput.getColumns() != W.rows()) {
+            throw new DL4JInvalidInputException("Sparse input size (" + sparseInput.getColumns()
+                            + " columns) is invalid: does not match layer input size (layer # inputs = " + W.size(0)
+                            + ") " + layerId());
+        }
+
+        if (conf.isUseDropConnect() && training && conf.getLayer().getDropOut() > 0) {
+            W = Dropout.applyDropConnect(this, DefaultParamInitializer.WEIGHT_KEY);
+        }
+
+        INDArray ret = sparseInput.mmul(W).addiRowVector(b);
+
+        if (maskArray != null) {
+            applyMask(ret);
+        }
+
+        return ret;
+    }
+
     protected void applyMask(INDArray to) {
         to.muliColumnVector(maskArray);
     }
@@ -513,7 +566,7 @@ public abstract class BaseLayer<LayerConfT extends org.deeplearning4j.nn.conf.la
             //input.data().destroy();
             input = null;
         }
-
+        sparseInput = null;
     }
 
     protected void applyDropOutIfNecessary(boolean training) {
@@ -156,6 +156,11 @@ public abstract class BaseOutputLayer<LayerConfT extends org.deeplearning4j.nn.c
         Pair<Gradient, INDArray> pair = getGradientsAndDelta(preOutput2d(true)); //Returns Gradient and delta^(this), not Gradient and epsilon^(this-1)
         INDArray delta = pair.getSecond();
 
+        if (sparseInput != null) {
+            //No epsilon for sparse input: this must be the first layer
+            return new Pair<>(pair.getFirst(), null);
+        }
+
         INDArray epsilonNext = params.get(DefaultParamInitializer.WEIGHT_KEY).mmul(delta.transpose()).transpose();
         return new Pair<>(pair.getFirst(), epsilonNext);
     }
@@ -186,7 +191,11 @@ public abstract class BaseOutputLayer<LayerConfT extends org.deeplearning4j.nn.c
         INDArray weightGradView = gradientViews.get(DefaultParamInitializer.WEIGHT_KEY);
         INDArray biasGradView = gradientViews.get(DefaultParamInitializer.BIAS_KEY);
 
-        Nd4j.gemm(input, delta, weightGradView, true, false, 1.0, 0.0); //Equivalent to:  weightGradView.assign(input.transpose().mmul(delta));
+        if (sparseInput != null) {
+            sparseInput.transposeMmul(delta, weightGradView);
+        } else {
+            Nd4j.gemm(input, delta, weightGradView, true, false, 1.0, 0.0); //Equivalent to:  weightGradView.assign(input.transpose().mmul(delta));
+        }
         delta.sum(biasGradView, 0); //biasGradView is initialized/zeroed first in sum op
 
         gradient.gradientForVariable().put(DefaultParamInitializer.WEIGHT_KEY, weightGradView);
@@ -35,7 +35,11 @@ import org.deeplearning4j.nn.conf.*;
 import org.deeplearning4j.nn.conf.layers.FeedForwardLayer;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.layers.BaseLayer;
+import org.deeplearning4j.nn.layers.BaseOutputLayer;
 import org.deeplearning4j.nn.layers.FrozenLayer;
+import org.deeplearning4j.nn.layers.feedforward.dense.DenseLayer;
+import org.deeplearning4j.nn.sparse.CSRMatrix;
 import org.deeplearning4j.nn.updater.MultiLayerUpdater;
 import org.deeplearning4j.nn.updater.UpdaterCreator;
 import org.deeplearning4j.nn.weights.WeightInit;
@@ -1538,6 +1542,67 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer {
         fit(data, labels, null, null);
     }
 
+    /**
+     * Fit the model on sparse features, such as bag-of-words or TF-IDF vectors. The first layer must be a feed forward
+     * layer (for example, a DenseLayer or OutputLayer) without an input preprocessor; its forward pass and weight
+     * gradient are computed from the non-zero values only.
+     *
+     * @param features the examples to classify (one example in each row)
+     * @param labels   the example labels (a binary outcome matrix)
+     * @see BaseLayer#setSparseInput(CSRMatrix)
+     */
+    public void fit(CSRMatrix features, INDArray labels) {
+        BaseLayer<?> first = sparseInputLayer();
+        first.setSparseInput(features);
+        try {
+            //Placeholder dense input: only its number of rows (the minibatch size) is used
+            fit(Nd4j.zeros(features.getRows(), 1), labels, null, null);
+        } finally {
+            first.setSparseInput(null);
+        }
+    }
+
+    /**
+     * Label the probabilities of sparse input, such as bag-of-words or TF-IDF vectors
+     *
+     * @param features the input to label (one example in each row)
+     * @param train    If true: do forward pass at training time; false: do forward pass at test time
+     * @see #fit(CSRMatrix, INDArray)
+     */
+    public INDArray output(CSRMatrix features, boolean train) {
+        BaseLayer<?> first = sparseInputLayer();
+        first.setSparseInput(features);
+        try {
+            return output(Nd4j.zeros(features.getRows(), 1), train);
+        } finally {
+            first.setSparseInput(null);
+        }
+    }
+
+    /**
+     * Label the probabilities of sparse input, at test time
+     *
+     * @see #output(CSRMatrix, boolean)
+     */
+    public INDArray output(CSRMatrix features) {
+        return output(features, false);
+    }
+
+    private BaseLayer<?> sparseInputLayer() {
+        if (layers == null)
+            init();
+        boolean supported = layers[0] instanceof DenseLayer
+                        || (layers[0] instanceof BaseOutputLayer && layers[0].type() == Type.FEED_FORWARD);
+        if (!supported) {
+            throw new IllegalStateException("Cannot use sparse input: first layer must be a feed forward layer "
+                            + "(such as DenseLayer or OutputLayer), got " + layers[0].getClass().getSimpleName());
+        }
+        if (layerWiseConfigurations.getInputPreProcess(0) != null) {
+            throw new IllegalStateException("Cannot use sparse input with an input preprocessor for the first layer");
+        }
+        return (BaseLayer<?>) layers[0];
+    }
+
     /**
      * Fit the model
      *
@@ -0,0 +1,247 @@
+package org.deeplearning4j.nn.sparse;
+
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A sparse matrix in compressed sparse row (CSR) format, for high dimensional, mostly zero features such as
+ * bag-of-words and TF-IDF vectors.<br>
+ * The column indices and values of row i are stored at positions rowPointers[i] (inclusive) to rowPointers[i+1]
+ * (exclusive) of the columnIndices and values arrays.<br>
+ * Only the operations needed to use a CSRMatrix as the input of a feed forward layer are provided: multiplication by a
+ * dense weight matrix for the forward pass ({@link #mmul(INDArray)}), and transposed multiplication for the weight
+ * gradient ({@link #transposeMmul(INDArray, INDArray)}). Both are proportional to the number of non-zero values,
+ * rather than to rows * columns.
+ *
+ * @see org.deeplearning4j.nn.layers.BaseLayer#setSparseInput(CSRMatrix)
+ */
+public class CSRMatrix implements Serializable {
+
+    private final int rows;
+    private final int columns;
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+    private final float[] values;
+
+    /**
+     * @param rows          Number of rows
+     * @param columns       Number of columns
+     * @param rowPointers   Start of each row in columnIndices and values. Length rows+1; the last value is the number
+     *                      of non-zero values
+     * @param columnIndices Column index of each non-zero value
+     * @param values        Non-zero values
+     */
+    public CSRMatrix(int rows, int columns, int[] rowPointers, int[] columnIndices, float[] values) {
+        if (rows < 0 || columns < 0)
+            throw new IllegalArgumentException("Invalid shape: [" + rows + "," + columns + "]");
+        if (rowPointers.length != rows + 1)
+            throw new IllegalArgumentException("Expected " + (rows + 1) + " row pointers for " + rows + " rows, got "
+                            + rowPointers.length);
+        if (columnIndices.length != values.length)
+            throw new IllegalArgumentException("Number of column indices (" + columnIndices.length
+                            + ") does not match number of values (" + values.length + ")");
+        if (rowPointers[0] != 0 || rowPointers[rows] != values.length)
+            throw new IllegalArgumentException("Invalid row pointers: first must be 0 and last must be the number of "
+                            + "values (" + values.length + ")");
+        for (int i = 0; i < rows; i++) {
+            if (rowPointers[i + 1] < rowPointers[i])
+                throw new IllegalArgumentException("Row pointers must be non-decreasing: row " + i);
+        }
+        for (int c : columnIndices) {
+            if (c < 0 || c >= columns)
+                throw new IllegalArgumentException("Invalid column index " + c + " for matrix with " + columns
+                                + " columns");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    /**
+     * Create a CSRMatrix from the non-zero values of each row
+     *
+     * @param columns Number of columns
+     * @param indices Column indices of the non-zero values, for each row
+     * @param values  Non-zero values, for each row. Same lengths as indices
+     */
+    public static CSRMatrix fromRows(int columns, int[][] indices, float[][] values) {
+        if (indices.length != values.length)
+            throw new IllegalArgumentException("Number of rows for indices (" + indices.length
+                            + ") and values (" + values.length + ") differ");
+        int[] rowPointers = new int[indices.length + 1];
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i].length != values[i].length)
+                throw new IllegalArgumentException("Row " + i + ": number of indices (" + indices[i].length
+                                + ") and values (" + values[i].length + ") differ");
+            rowPointers[i + 1] = rowPointers[i] + indices[i].length;
+        }
+        int nnz = rowPointers[indices.length];
+        int[] columnIndices = new int[nnz];
+        float[] vals = new float[nnz];
+        for (int i = 0; i < indices.length; i++) {
+            System.arraycopy(indices[i], 0, columnIndices, rowPointers[i], indices[i].length);
+            System.arraycopy(values[i], 0, vals, rowPointers[i], values[i].length);
+        }
+        return new CSRMatrix(indices.length, columns, rowPointers, columnIndices, vals);
+    }
+
+    /**
+     * Create a CSRMatrix from the non-zero values of a dense matrix
+     */
+    public static CSRMatrix fromDense(INDArray dense) {
+        if (dense.rank() != 2)
+            throw new IllegalArgumentException("Expected matrix, got array with shape " + Arrays.toString(dense.shape()));
+        int[][] indices = new int[dense.rows()][];
+        float[][] values = new float[dense.rows()][];
+        int[] idxBuffer = new int[dense.columns()];
+        float[] valBuffer = new float[dense.columns()];
+        for (int i = 0; i < dense.rows(); i++) {
+            int n = 0;
+            for (int j = 0; j < dense.columns(); j++) {
+                double v = dense.getDouble(i, j);
+                if (v != 0.0) {
+                    idxBuffer[n] = j;
+                    valBuffer[n++] = (float) v;
+                }
+            }
+            indices[i] = Arrays.copyOf(idxBuffer, n);
+            values[i] = Arrays.copyOf(valBuffer, n);
+        }
+        return fromRows(dense.columns(), indices, values);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /** Number of stored (non-zero) values */
+    public int nnz() {
+        return values.length;
+    }
+
+    public int[] getRowPointers() {
+        return rowPointers;
+    }
+
+    public int[] getColumnIndices() {
+        return columnIndices;
+    }
+
+    public float[] getValues() {
+        return values;
+    }
+
+    /**
+     * Get a subset of the rows, for example for a minibatch
+     *
+     * @param from First row (inclusive)
+     * @param to   Last row (exclusive)
+     */
+    public CSRMatrix getRows(int from, int to) {
+        if (from < 0 || to > rows || from > to)
+            throw new IllegalArgumentException("Invalid row range [" + from + "," + to + ") for matrix with " + rows
+                            + " rows");
+        int start = rowPointers[from];
+        int end = rowPointers[to];
+        int[] pointers = new int[to - from + 1];
+        for (int i = 0; i < pointers.length; i++)
+            pointers[i] = rowPointers[from + i] - start;
+        return new CSRMatrix(to - from, columns, pointers, Arrays.copyOfRange(columnIndices, start, end),
+                        Arrays.copyOfRange(values, start, end));
+    }
+
+    /** Convert to a dense [rows, columns] matrix */
+    public INDArray toDense() {
+        float[] dense = new float[rows * columns];
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++)
+                dense[i * columns + columnIndices[k]] += values[k];
+        }
+        return Nd4j.create(dense, new int[] {rows, columns}, 'c');
+    }
+
+    /**
+     * Matrix multiplication with a dense matrix: this * other
+     *
+     * @param other Dense matrix, with shape [columns, n]
+     * @return Dense matrix with shape [rows, n]
+     */
+    public INDArray mmul(INDArray other) {
+        if (other.rank() != 2 || other.rows() != columns)
+            throw new IllegalArgumentException("Cannot multiply sparse matrix with shape [" + rows + "," + columns
+                            + "] by array with shape " + Arrays.toString(other.shape()));
+        int n = other.columns();
+        //Note: the data buffer of a view already starts at the view's offset
+        DataBuffer buffer = other.data();
+        int rowStride = other.stride(0);
+        int colStride = other.stride(1);
+
+        float[] out = new float[rows * n];
+        double[] row = new double[n];
+        for (int i = 0; i < rows; i++) {
+            Arrays.fill(row, 0.0);
+            for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                double v = values[k];
+                long otherRow = (long) columnIndices[k] * rowStride;
+                for (int j = 0; j < n; j++)
+                    row[j] += v * buffer.getDouble(otherRow + j * colStride);
+            }
+            for (int j = 0; j < n; j++)
+                out[i * n + j] = (float) row[j];
+        }
+        return Nd4j.create(out, new int[] {rows, n}, 'c');
+    }
+
+    /**
+     * Transposed matrix multiplication with a dense matrix: this^T * other, written to result. This is the weight
+     * gradient of a layer with this matrix as input, and other as the deltas.
+     *
+     * @param other  Dense matrix, with shape [rows, n]
+     * @param result Dense matrix with shape [columns, n]. Any existing contents are overwritten
+     */
+    public void transposeMmul(INDArray other, INDArray result) {
+        if (other.rank() != 2 || other.rows() != rows)
+            throw new IllegalArgumentException("Cannot multiply transposed sparse matrix with shape [" + rows + ","
+                            + columns + "] by array with shape " + Arrays.toString(other.shape()));
+        int n = other.columns();
+        if (result.rank() != 2 || result.rows() != columns || result.columns() != n)
+            throw new IllegalArgumentException("Invalid result array shape: expected [" + columns + "," + n
+                            + "], got " + Arrays.toString(result.shape()));
+
+        //Note: the data buffer of a view already starts at the view's offset
+        DataBuffer otherBuffer = other.data();
+        int otherRowStride = other.stride(0);
+        int otherColStride = other.stride(1);
+
+        result.assign(0.0);
+        DataBuffer buffer = result.data();
+        int rowStride = result.stride(0);
+        int colStride = result.stride(1);
+
+        double[] otherRow = new double[n];
+        for (int i = 0; i < rows; i++) {
+            if (rowPointers[i] == rowPointers[i + 1])
+                continue;
+            for (int j = 0; j < n; j++)
+                otherRow[j] = otherBuffer.getDouble((long) i * otherRowStride + j * otherColStride);
+            for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++) {
+                double v = values[k];
+                long resultRow = (long) columnIndices[k] * rowStride;
+                for (int j = 0; j < n; j++) {
+                    long idx = resultRow + j * colStride;
+                    buffer.put(idx, buffer.getDouble(idx) + v * otherRow[j]);
+                }
+            }
+        }
+    }
+}
@@ -49,6 +49,7 @@ public class ParallelWrapper implements AutoCloseable {
     protected Model model;
     protected int workers = 2;
     protected int prefetchSize = 2;
+    protected int prefetchThreads = 1;
     protected int averagingFrequency = 1;
     protected Trainer[] zoo;
     private TrainerContext trainerContext = new DefaultTrainerContext();
@@ -364,8 +365,11 @@ public class ParallelWrapper implements AutoCloseable {
                //         .setNumberOfBuckets(Nd4j.getAffinityManager().getNumberOfDevices()).build();
 
 
-                iterator = new AsyncDataSetIterator(source, prefetchSize, new LinkedBlockingQueue<>(prefetchSize * workers), true, new InterleavedDataSetCallback(prefetchSize * 2));
+                iterator = new AsyncDataSetIterator(source, prefetchSize, new LinkedBlockingQueue<>(prefetchSize * workers), true, new InterleavedDataSetCallback(prefetchSize * 2),
+                                Nd4j.getAffinityManager().getDeviceForCurrentThread(), prefetchThreads, true);
 
+            } else if (prefetchThreads > 1) {
+                iterator = new AsyncDataSetIterator(source, prefetchSize, true, prefetchThreads, true);
             } else
                 iterator = new AsyncDataSetIterator(source, prefetchSize);
         }
@@ -479,6 +483,7 @@ public class ParallelWrapper implements AutoCloseable {
         protected T model;
         protected int workers = Nd4j.getAffinityManager().getNumberOfDevices();
         protected int prefetchSize = 16;
+        protected int prefetchThreads = 1;
         protected int averagingFrequency = 1;
         protected boolean reportScore = false;
         protected boolean averageUpdaters = true;
@@ -604,6 +609,25 @@ public class ParallelWrapper implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Number of threads used for background data prefetching. With more than one thread, the DataSetPreProcessor
+         * of the training iterator is applied by the prefetch threads in parallel; DataSets are still used in the
+         * order of the iterator. Only used for DataSetIterators, and if prefetching is enabled.
+         *
+         * Default value: 1
+         *
+         * @param numThreads number of prefetch threads, 1 or more
+         * @return
+         */
+        public Builder prefetchThreads(int numThreads) {
+            if (numThreads < 1)
+                throw new IllegalArgumentException("Number of prefetch threads must be >= 1, got " + numThreads);
+
+            this.prefetchThreads = numThreads;
+
+            return this;
+        }
+
         /**
          * If set to true, legacy averaging method is used. This might be used as fallback on multi-gpu systems without P2P access available.
          *
@@ -636,6 +660,7 @@ public class ParallelWrapper implements AutoCloseable {
          */
         public ParallelWrapper build() {
             ParallelWrapper wrapper = new ParallelWrapper(model, workers, prefetchSize);
+            wrapper.prefetchThreads = this.prefetchThreads;
             wrapper.averagingFrequency = this.averagingFrequency;
             wrapper.reportScore = this.reportScore;
             wrapper.averageUpdaters = this.averageUpdaters;
@@ -0,0 +1,105 @@
+package org.deeplearning4j.spark.parameterserver.encoding;
+
+import java.util.Arrays;
+
+/**
+ * Threshold encoding for sparse updates exchange.<br>
+ * Only elements of the residual with absolute value above the threshold are sent, each one as a single int:
+ * (index + 1) for positive values, and -(index + 1) for negative ones. Receiving side adds +/- threshold to each
+ * encoded element. Encoded part is subtracted from the residual, so everything which wasn't sent yet accumulates
+ * and is sent later.
+ *
+ * Based on: Strom, N. "Scalable Distributed DNN Training Using Commodity GPU Cloud Computing", 2015
+ */
+public class ThresholdEncoder {
+
+    private ThresholdEncoder() {}
+
+    /**
+     * Encodes elements of the residual with absolute value >= threshold, and subtracts encoded values from it
+     *
+     * @param residual    accumulated updates, modified in place
+     * @param threshold   encoding threshold, should be positive
+     * @param maxElements maximal number of encoded elements, remaining ones stay in the residual
+     * @return encoded elements, may be empty
+     */
+    public static int[] encode(double[] residual, double threshold, int maxElements) {
+        return encode(residual, threshold, maxElements, 0);
+    }
+
+    /**
+     * Same as {@link #encode(double[], double, int)}, but scans the residual circularly starting from the given
+     * offset. When the number of encoded elements is capped, callers should move the offset past the last encoded
+     * element (see {@link #nextOffset(int[], int, int)}), so that elements with high indices aren't starved.
+     *
+     * @param residual    accumulated updates, modified in place
+     * @param threshold   encoding threshold, should be positive
+     * @param maxElements maximal number of encoded elements, remaining ones stay in the residual
+     * @param offset      index to start scanning from
+     * @return encoded elements, may be empty
+     */
+    public static int[] encode(double[] residual, double threshold, int maxElements, int offset) {
+        if (threshold <= 0.0)
+            throw new IllegalArgumentException("Threshold should be positive, got " + threshold);
+        if (offset < 0 || (offset > 0 && offset >= residual.length))
+            throw new IllegalArgumentException(
+                            "Offset should be in range [0, " + residual.length + "), got " + offset);
+
+        int[] result = new int[Math.max(1, Math.min(maxElements, 1024))];
+        int count = 0;
+        for (int j = 0; j < residual.length && count < maxElements; j++) {
+            int i = offset + j;
+            if (i >= residual.length)
+                i -= residual.length;
+            double value = residual[i];
+            if (value >= threshold) {
+                residual[i] = value - threshold;
+                if (count == result.length)
+                    result = Arrays.copyOf(result, Math.min(maxElements, result.length * 2));
+                result[count++] = i + 1;
+            } else if (value <= -threshold) {
+                residual[i] = value + threshold;
+                if (count == result.length)
+                    result = Arrays.copyOf(result, Math.min(maxElements, result.length * 2));
+                result[count++] = -(i + 1);
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @param encoded elements returned by the last {@link #encode(double[], double, int, int)} call
+     * @param offset  offset used for that call
+     * @param length  residual length
+     * @return offset for the next call, right after the last encoded element
+     */
+    public static int nextOffset(int[] encoded, int offset, int length) {
+        if (encoded.length == 0)
+            return offset;
+        // encoded index is (index + 1), so its absolute value is already the next one
+        int next = Math.abs(encoded[encoded.length - 1]);
+        return next >= length ? 0 : next;
+    }
+
+    /**
+     * Adds encoded update to the target array
+     *
+     * @param encoded   encoded elements
+     * @param count     number of elements to decode
+     * @param threshold threshold used for encoding
+     * @param target    array to update
+     */
+    public static void decode(int[] encoded, int count, double threshold, double[] target) {
+        for (int i = 0; i < count; i++) {
+            int value = encoded[i];
+            if (value > 0)
+                target[value - 1] += threshold;
+            else
+                target[-value - 1] -= threshold;
+        }
+    }
+
+    public static void decode(int[] encoded, double threshold, double[] target) {
+        decode(encoded, encoded.length, threshold, target);
+    }
+}
@@ -0,0 +1,733 @@
+package org.deeplearning4j.spark.parameterserver.training;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.SparkContext;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.VoidFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.input.PortableDataStream;
+import org.apache.spark.storage.StorageLevel;
+import org.deeplearning4j.api.storage.Persistable;
+import org.deeplearning4j.api.storage.StatsStorageRouter;
+import org.deeplearning4j.api.storage.StatsStorageRouterProvider;
+import org.deeplearning4j.api.storage.StorageMetaData;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.optimize.api.IterationListener;
+import org.deeplearning4j.spark.api.Repartition;
+import org.deeplearning4j.spark.api.RepartitionStrategy;
+import org.deeplearning4j.spark.api.TrainingHook;
+import org.deeplearning4j.spark.api.TrainingMaster;
+import org.deeplearning4j.spark.api.WorkerConfiguration;
+import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
+import org.deeplearning4j.spark.api.worker.*;
+import org.deeplearning4j.spark.impl.graph.SparkComputationGraph;
+import org.deeplearning4j.spark.impl.graph.dataset.DataSetToMultiDataSetFn;
+import org.deeplearning4j.spark.impl.listeners.VanillaStatsStorageRouterProvider;
+import org.deeplearning4j.spark.impl.multilayer.SparkDl4jMultiLayer;
+import org.deeplearning4j.spark.parameterserver.training.aggregator.SharedTrainingAggregationTuple;
+import org.deeplearning4j.spark.parameterserver.training.aggregator.SharedTrainingElementAddFunction;
+import org.deeplearning4j.spark.parameterserver.training.aggregator.SharedTrainingElementCombineFunction;
+import org.deeplearning4j.spark.parameterserver.transport.UpdatesHub;
+import org.deeplearning4j.spark.util.SparkUtils;
+import org.deeplearning4j.spark.util.serde.StorageLevelDeserializer;
+import org.deeplearning4j.spark.util.serde.StorageLevelSerializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.shade.jackson.annotation.JsonAutoDetect;
+import org.nd4j.shade.jackson.annotation.JsonIgnoreProperties;
+import org.nd4j.shade.jackson.annotation.PropertyAccessor;
+import org.nd4j.shade.jackson.core.JsonFactory;
+import org.nd4j.shade.jackson.core.JsonProcessingException;
+import org.nd4j.shade.jackson.databind.DeserializationFeature;
+import org.nd4j.shade.jackson.databind.MapperFeature;
+import org.nd4j.shade.jackson.databind.ObjectMapper;
+import org.nd4j.shade.jackson.databind.SerializationFeature;
+import org.nd4j.shade.jackson.databind.annotation.JsonDeserialize;
+import org.nd4j.shade.jackson.databind.annotation.JsonSerialize;
+import org.nd4j.shade.jackson.dataformat.yaml.YAMLFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * SharedTrainingMaster: a {@link TrainingMaster} implementation, where executors share gradient updates
+ * instead of averaging parameters.<br>
+ * During training, each worker sends threshold-encoded sparse updates (see
+ * {@link org.deeplearning4j.spark.parameterserver.encoding.ThresholdEncoder}) to the hub running on the driver,
+ * which relays them to all other workers. Workers apply updates asynchronously, so there's no barrier between
+ * minibatches, and network traffic depends on the update sparsity instead of the model size. Values below the
+ * threshold are accumulated in the residual of each worker, and sent once they grow large enough.<br>
+ * Parameters are sent to each worker once per {@code fit} call, when it connects to the hub. Final parameters are
+ * taken from the hub, which applies every update it relays, so only updater states of the workers are averaged at
+ * the end, as in parameter averaging.
+ */
+@Data
+@JsonIgnoreProperties({"listeners", "statsStorage", "trainingHookList", "hub", "hubAddress", "sessionId",
+                "lastResults", "persisted"})
+@EqualsAndHashCode(exclude = {"listeners", "statsStorage", "trainingHookList", "hub", "hubAddress", "sessionId",
+                "lastResults", "persisted"})
+@Slf4j
+public class SharedTrainingMaster implements TrainingMaster<SharedTrainingResult, SharedTrainingWorker> {
+
+    private static ObjectMapper jsonMapper;
+    private static ObjectMapper yamlMapper;
+
+    private Integer numWorkers;
+    private int rddDataSetNumExamples;
+    private int batchSizePerWorker;
+    private int prefetchNumBatches;
+    private double threshold;
+    private double minThreshold;
+    private double maxEncodedFraction;
+    private String controllerAddress;
+    private int controllerPort;
+    private boolean collectTrainingStats;
+    private Repartition repartition;
+    private RepartitionStrategy repartitionStrategy;
+    @JsonSerialize(using = StorageLevelSerializer.class)
+    @JsonDeserialize(using = StorageLevelDeserializer.class)
+    private StorageLevel storageLevel;
+
+    private Collection<TrainingHook> trainingHookList;
+    private Collection<IterationListener> listeners;
+    private StatsStorageRouter statsStorage;
+
+    private transient UpdatesHub hub;
+    private transient String hubAddress;
+    // identifies residuals kept by executors between fit calls, see SharedTrainingWorker
+    private transient String sessionId;
+    private transient List<SharedTrainingResult> lastResults;
+    // training data persisted by this master for the current fit call, if any
+    private transient JavaRDD<?> persisted;
+
+    private SharedTrainingMaster() {
+        // no-arg constructor for Jackson
+    }
+
+    private SharedTrainingMaster(Builder builder) {
+        this.numWorkers = builder.numWorkers;
+        this.rddDataSetNumExamples = builder.rddDataSetNumExamples;
+        this.batchSizePerWorker = builder.batchSizePerWorker;
+        this.prefetchNumBatches = builder.prefetchNumBatches;
+        this.threshold = builder.threshold;
+        this.minThreshold = builder.minThreshold;
+        this.maxEncodedFraction = builder.maxEncodedFraction;
+        this.controllerAddress = builder.controllerAddress;
+        this.controllerPort = builder.controllerPort;
+        this.collectTrainingStats = builder.collectTrainingStats;
+        this.repartition = builder.repartition;
+        this.repartitionStrategy = builder.repartitionStrategy;
+        this.storageLevel = builder.storageLevel;
+        this.trainingHookList = builder.trainingHooks;
+    }
+
+    private static synchronized ObjectMapper getJsonMapper() {
+        if (jsonMapper == null) {
+            jsonMapper = getNewMapper(new JsonFactory());
+        }
+        return jsonMapper;
+    }
+
+    private static synchronized ObjectMapper getYamlMapper() {
+        if (yamlMapper == null) {
+            yamlMapper = getNewMapper(new YAMLFactory());
+        }
+        return yamlMapper;
+    }
+
+    private static ObjectMapper getNewMapper(JsonFactory jsonFactory) {
+        ObjectMapper om = new ObjectMapper(jsonFactory);
+        om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        om.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        om.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+        om.enable(SerializationFeature.INDENT_OUTPUT);
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        om.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        return om;
+    }
+
+    @Override
+    public void removeHook(TrainingHook trainingHook) {
+        if (trainingHookList == null)
+            return;
+        trainingHookList.remove(trainingHook);
+    }
+
+    @Override
+    public void addHook(TrainingHook trainingHook) {
+        if (trainingHookList == null) {
+            trainingHookList = new ArrayList<>();
+        }
+        trainingHookList.add(trainingHook);
+    }
+
+    @Override
+    public String toJson() {
+        try {
+            return getJsonMapper().writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error producing JSON representation for SharedTrainingMaster", e);
+        }
+    }
+
+    @Override
+    public String toYaml() {
+        try {
+            return getYamlMapper().writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error producing YAML representation for SharedTrainingMaster", e);
+        }
+    }
+
+    /**
+     * Create a SharedTrainingMaster instance by deserializing a JSON string that has been serialized with
+     * {@link #toJson()}
+     */
+    public static SharedTrainingMaster fromJson(String jsonStr) {
+        try {
+            return getJsonMapper().readValue(jsonStr, SharedTrainingMaster.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not parse JSON", e);
+        }
+    }
+
+    /**
+     * Create a SharedTrainingMaster instance by deserializing a YAML string that has been serialized with
+     * {@link #toYaml()}
+     */
+    public static SharedTrainingMaster fromYaml(String yamlStr) {
+        try {
+            return getYamlMapper().readValue(yamlStr, SharedTrainingMaster.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not parse YAML", e);
+        }
+    }
+
+    /**
+     * Starts the updates hub with current network parameters. Worker instances are only valid while hub is running.
+     */
+    private void startHub(JavaSparkContext sc, Model model) {
+        if (hub != null)
+            throw new IllegalStateException("Training is already running");
+        if (sessionId == null)
+            sessionId = UUID.randomUUID().toString();
+
+        try {
+            hub = new UpdatesHub(model.params().dup().data().asDouble(), controllerPort);
+        } catch (IOException e) {
+            throw new RuntimeException("Error starting updates hub", e);
+        }
+
+        if (controllerAddress == null) {
+            String address;
+            try {
+                address = InetAddress.getLocalHost().getHostAddress();
+            } catch (UnknownHostException e) {
+                address = "localhost";
+            }
+            hubAddress = sc.getConf().get("spark.driver.host", address);
+        } else {
+            hubAddress = controllerAddress;
+        }
+    }
+
+    private void stopHub() {
+        if (hub != null) {
+            hub.close();
+            hub = null;
+        }
+    }
+
+    private void endTraining() {
+        stopHub();
+        if (persisted != null) {
+            persisted.unpersist(false);
+            persisted = null;
+        }
+    }
+
+    private WorkerConfiguration getWorkerConfiguration(boolean isGraph) {
+        return new WorkerConfiguration(isGraph, rddDataSetNumExamples, batchSizePerWorker, 0, prefetchNumBatches,
+                        collectTrainingStats);
+    }
+
+    @Override
+    public SharedTrainingWorker getWorkerInstance(SparkDl4jMultiLayer network) {
+        if (hub == null)
+            startHub(network.getSparkContext(), network.getNetwork());
+
+        // parameters come from the hub, only configuration and updater state are broadcast
+        NetBroadcastTuple tuple = new NetBroadcastTuple(network.getNetwork().getLayerWiseConfigurations(), null,
+                        network.getNetwork().getUpdater().getStateViewArray());
+        Broadcast<NetBroadcastTuple> broadcast = network.getSparkContext().broadcast(tuple);
+
+        return new SharedTrainingWorker(broadcast, getWorkerConfiguration(false), sessionId, hubAddress,
+                        hub.getPort(), threshold, minThreshold, maxEncodedFraction, trainingHookList, listeners,
+                        getRouterProvider());
+    }
+
+    @Override
+    public SharedTrainingWorker getWorkerInstance(SparkComputationGraph graph) {
+        if (hub == null)
+            startHub(graph.getSparkContext(), graph.getNetwork());
+
+        NetBroadcastTuple tuple = new NetBroadcastTuple(graph.getNetwork().getConfiguration(), null,
+                        graph.getNetwork().getUpdater().getStateViewArray());
+        Broadcast<NetBroadcastTuple> broadcast = graph.getSparkContext().broadcast(tuple);
+
+        return new SharedTrainingWorker(broadcast, getWorkerConfiguration(true), sessionId, hubAddress,
+                        hub.getPort(), threshold, minThreshold, maxEncodedFraction, trainingHookList, listeners,
+                        getRouterProvider());
+    }
+
+    private <T> JavaRDD<T> repartition(JavaSparkContext sc, JavaRDD<T> trainingData, int examplesPerObject) {
+        if (numWorkers == null)
+            numWorkers = sc.defaultParallelism();
+        // data persisted by the caller is left as it is
+        if (storageLevel != null && trainingData.getStorageLevel().equals(StorageLevel.NONE())) {
+            trainingData.persist(storageLevel);
+            persisted = trainingData;
+        }
+
+        long total = trainingData.count();
+        int objectsPerWorker = (int) Math.max(1, total / numWorkers);
+        log.info("Starting shared training: {} objects of {} examples, workerMiniBatchSize={}, {} workers", total,
+                        examplesPerObject, batchSizePerWorker, numWorkers);
+        return SparkUtils.repartition(trainingData, repartition, repartitionStrategy, objectsPerWorker, numWorkers);
+    }
+
+    @Override
+    public void executeTraining(SparkDl4jMultiLayer network, JavaRDD<DataSet> trainingData) {
+        JavaRDD<DataSet> data = repartition(network.getSparkContext(), trainingData, rddDataSetNumExamples);
+        try {
+            FlatMapFunction<Iterator<DataSet>, SharedTrainingResult> function =
+                            new ExecuteWorkerFlatMap<>(getWorkerInstance(network));
+            processResults(network, null, data.mapPartitions(function));
+        } finally {
+            endTraining();
+        }
+    }
+
+    /**
+     * @deprecated Due to poor performance
+     */
+    @Override
+    @Deprecated
+    public void executeTraining(SparkDl4jMultiLayer network, JavaPairRDD<String, PortableDataStream> trainingData) {
+        JavaRDD<PortableDataStream> data =
+                        repartition(network.getSparkContext(), trainingData.values(), rddDataSetNumExamples);
+        try {
+            FlatMapFunction<Iterator<PortableDataStream>, SharedTrainingResult> function =
+                            new ExecuteWorkerPDSFlatMap<>(getWorkerInstance(network));
+            processResults(network, null, data.mapPartitions(function));
+        } finally {
+            endTraining();
+        }
+    }
+
+    @Override
+    public void executeTrainingPaths(SparkDl4jMultiLayer network, JavaRDD<String> trainingDataPaths) {
+        JavaRDD<String> data = repartition(network.getSparkContext(), trainingDataPaths, rddDataSetNumExamples);
+        try {
+            FlatMapFunction<Iterator<String>, SharedTrainingResult> function =
+                            new ExecuteWorkerPathFlatMap<>(getWorkerInstance(network));
+            processResults(network, null, data.mapPartitions(function));
+        } finally {
+            endTraining();
+        }
+    }
+
+    @Override
+    public void executeTraining(SparkComputationGraph graph, JavaRDD<DataSet> trainingData) {
+        executeTrainingMDS(graph, trainingData.map(new DataSetToMultiDataSetFn()));
+    }
+
+    /**
+     * @deprecated Due to poor performance
+     */
+    @Override
+    @Deprecated
+    public void executeTraining(SparkComputationGraph graph, JavaPairRDD<String, PortableDataStream> trainingData) {
+        JavaRDD<PortableDataStream> data =
+                        repartition(graph.getSparkContext(), trainingData.values(), rddDataSetNumExamples);
+        try {
+            FlatMapFunction<Iterator<PortableDataStream>, SharedTrainingResult> function =
+                            new ExecuteWorkerPDSFlatMap<>(getWorkerInstance(graph));
+            processResults(null, graph, data.mapPartitions(function));
+        } finally {
+            endTraining();
+        }
+    }
+
+    @Override
+    public void executeTrainingPaths(SparkComputationGraph graph, JavaRDD<String> trainingDataPaths) {
+        JavaRDD<String> data = repartition(graph.getSparkContext(), trainingDataPaths, rddDataSetNumExamples);
+        try {
+            FlatMapFunction<Iterator<String>, SharedTrainingResult> function =
+                            new ExecuteWorkerPathFlatMap<>(getWorkerInstance(graph));
+            processResults(null, graph, data.mapPartitions(function));
+        } finally {
+            endTraining();
+        }
+    }
+
+    @Override
+    public void executeTrainingPathsMDS(SparkComputationGraph graph, JavaRDD<String> trainingMultiDataSetPaths) {
+        JavaRDD<String> data = repartition(graph.getSparkContext(), trainingMultiDataSetPaths, rddDataSetNumExamples);
+        try {
+            FlatMapFunction<Iterator<String>, SharedTrainingResult> function =
+                            new ExecuteWorkerPathMDSFlatMap<>(getWorkerInstance(graph));
+            processResults(null, graph, data.mapPartitions(function));
+        } finally {
+            endTraining();
+        }
+    }
+
+    @Override
+    public void executeTrainingMDS(SparkComputationGraph graph, JavaRDD<MultiDataSet> trainingData) {
+        JavaRDD<MultiDataSet> data = repartition(graph.getSparkContext(), trainingData, rddDataSetNumExamples);
+        try {
+            FlatMapFunction<Iterator<MultiDataSet>, SharedTrainingResult> function =
+                            new ExecuteWorkerMultiDataSetFlatMap<>(getWorkerInstance(graph));
+            processResults(null, graph, data.mapPartitions(function));
+        } finally {
+            endTraining();
+        }
+    }
+
+    /**
+     * @deprecated Due to poor performance
+     */
+    @Override
+    @Deprecated
+    public void executeTrainingMDS(SparkComputationGraph graph,
+                    JavaPairRDD<String, PortableDataStream> trainingData) {
+        JavaRDD<PortableDataStream> data =
+                        repartition(graph.getSparkContext(), trainingData.values(), rddDataSetNumExamples);
+        try {
+            FlatMapFunction<Iterator<PortableDataStream>, SharedTrainingResult> function =
+                            new ExecuteWorkerPDSMDSFlatMap<>(getWorkerInstance(graph));
+            processResults(null, graph, data.mapPartitions(function));
+        } finally {
+            endTraining();
+        }
+    }
+
+    private void processResults(SparkDl4jMultiLayer network, SparkComputationGraph graph,
+                    JavaRDD<SharedTrainingResult> results) {
+        // parameters are already on the hub, only updater states need to be averaged: do it in the same pass that
+        // brings scores and counters to the driver, so that training isn't executed twice
+        SharedTrainingAggregationTuple tuple = results.treeAggregate(null, new SharedTrainingElementAddFunction(),
+                        new SharedTrainingElementCombineFunction());
+        List<SharedTrainingResult> collected =
+                        tuple == null ? Collections.<SharedTrainingResult>emptyList() : tuple.getResults();
+        lastResults = collected;
+
+        double scoreSum = 0.0;
+        int scoreCount = 0;
+        int maxMinibatches = 0;
+        for (SharedTrainingResult result : collected) {
+            if (result.getMinibatches() > 0) {
+                scoreSum += result.getScore();
+                scoreCount++;
+                maxMinibatches = Math.max(maxMinibatches, result.getMinibatches());
+            }
+        }
+
+        log.info("Completed shared training: {} updates received by hub, {} encoded elements, {} bytes",
+                        hub.getUpdatesCount(), hub.getEncodedCount(), hub.getBytesReceived());
+
+        if (scoreCount == 0) {
+            log.info("Skipping training results with no data for all executors");
+        } else {
+            double[] params = hub.getParameters();
+            INDArray updaterState = tuple.getUpdaterStateSum();
+            if (updaterState != null)
+                updaterState.divi(tuple.getAggregationsCount()); //May be null if all SGD updaters, for example
+
+            if (network != null) {
+                network.getNetwork().params().assign(Nd4j.create(params));
+                if (updaterState != null)
+                    network.getNetwork().getUpdater().setStateViewArray(null, updaterState, false);
+                network.setScore(scoreSum / scoreCount);
+
+                MultiLayerConfiguration conf = network.getNetwork().getLayerWiseConfigurations();
+                conf.setIterationCount(conf.getIterationCount() + maxMinibatches);
+            } else {
+                graph.getNetwork().params().assign(Nd4j.create(params));
+                if (updaterState != null)
+                    graph.getNetwork().getUpdater().setStateViewArray(updaterState);
+                graph.setScore(scoreSum / scoreCount);
+
+                ComputationGraphConfiguration conf = graph.getNetwork().getConfiguration();
+                conf.setIterationCount(conf.getIterationCount() + maxMinibatches);
+            }
+        }
+
+        if (statsStorage != null) {
+            for (SharedTrainingResult result : collected) {
+                Collection<StorageMetaData> meta = result.getListenerMetaData();
+                if (meta != null && meta.size() > 0)
+                    statsStorage.putStorageMetaData(meta);
+
+                Collection<Persistable> staticInfo = result.getListenerStaticInfo();
+                if (staticInfo != null && staticInfo.size() > 0)
+                    statsStorage.putStaticInfo(staticInfo);
+
+                Collection<Persistable> updates = result.getListenerUpdates();
+                if (updates != null && updates.size() > 0)
+                    statsStorage.putUpdate(updates);
+            }
+        }
+
+        Nd4j.getExecutioner().commit();
+    }
+
+    /**
+     * @return results returned by workers during the last {@code fit} call: scores and updates exchange counters
+     */
+    public List<SharedTrainingResult> getLastResults() {
+        return lastResults;
+    }
+
+    @Override
+    public void setCollectTrainingStats(boolean collectTrainingStats) {
+        this.collectTrainingStats = collectTrainingStats;
+    }
+
+    @Override
+    public boolean getIsCollectTrainingStats() {
+        return collectTrainingStats;
+    }
+
+    @Override
+    public SparkTrainingStats getTrainingStats() {
+        if (lastResults == null)
+            return null;
+
+        SparkTrainingStats stats = null;
+        for (SharedTrainingResult result : lastResults) {
+            SparkTrainingStats workerStats = result.getSparkTrainingStats();
+            if (workerStats == null)
+                continue;
+            if (stats == null)
+                stats = workerStats;
+            else
+                stats.addOtherTrainingStats(workerStats);
+        }
+        return stats;
+    }
+
+    @Override
+    public void setListeners(Collection<IterationListener> listeners) {
+        setListeners(null, listeners);
+    }
+
+    @Override
+    public void setListeners(StatsStorageRouter statsStorage, Collection<IterationListener> listeners) {
+        this.statsStorage = statsStorage;
+        this.listeners = listeners;
+    }
+
+    /**
+     * No temporary files are created, but executors keep the residuals of this training session between fit calls:
+     * they are released here (on a best effort basis: by running a small job over all workers), and the next fit call
+     * starts a new session
+     */
+    @Override
+    public boolean deleteTempFiles(JavaSparkContext sc) {
+        if (sessionId == null)
+            return true;
+
+        SharedTrainingWorker.removeResiduals(sessionId);
+        int n = numWorkers != null ? numWorkers : sc.defaultParallelism();
+        List<Integer> partitions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            partitions.add(i);
+        try {
+            sc.parallelize(partitions, n).foreachPartition(new RemoveResidualsFunction(sessionId));
+        } catch (Exception e) {
+            log.warn("Error removing residuals of training session " + sessionId, e);
+            return false;
+        } finally {
+            sessionId = null;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteTempFiles(SparkContext sc) {
+        return deleteTempFiles(new JavaSparkContext(sc));
+    }
+
+    private StatsStorageRouterProvider getRouterProvider() {
+        if (statsStorage == null)
+            return null; //Not needed
+        return new VanillaStatsStorageRouterProvider();
+    }
+
+    public static class Builder {
+        private Integer numWorkers;
+        private int rddDataSetNumExamples;
+        private int batchSizePerWorker = 16;
+        private int prefetchNumBatches = 0;
+        private double threshold = 1e-3;
+        private double minThreshold = 1e-5;
+        private double maxEncodedFraction = 0.1;
+        private String controllerAddress;
+        private int controllerPort = 0;
+        private boolean collectTrainingStats = false;
+        private Repartition repartition = Repartition.Always;
+        private RepartitionStrategy repartitionStrategy = RepartitionStrategy.Balanced;
+        private StorageLevel storageLevel = StorageLevel.MEMORY_ONLY_SER();
+        private Collection<TrainingHook> trainingHooks;
+
+        /**
+         * @param rddDataSetNumExamples Number of examples in each DataSet object in the {@code RDD<DataSet>}
+         */
+        public Builder(int rddDataSetNumExamples) {
+            this(null, rddDataSetNumExamples);
+        }
+
+        /**
+         * @param numWorkers            Number of workers (executors * threads per executor) for the cluster.
+         *                              If null, Spark default parallelism is used
+         * @param rddDataSetNumExamples Number of examples in each DataSet object in the {@code RDD<DataSet>}
+         */
+        public Builder(Integer numWorkers, int rddDataSetNumExamples) {
+            checkArgument(numWorkers == null || numWorkers > 0,
+                            "Invalid number of workers: " + numWorkers + " (must be >= 1)");
+            checkArgument(rddDataSetNumExamples > 0,
+                            "Invalid rdd data set size: " + rddDataSetNumExamples + " (must be >= 1)");
+            this.numWorkers = numWorkers;
+            this.rddDataSetNumExamples = rddDataSetNumExamples;
+        }
+
+        /**
+         * Minibatch size for each worker
+         */
+        public Builder batchSizePerWorker(int batchSizePerWorker) {
+            this.batchSizePerWorker = batchSizePerWorker;
+            return this;
+        }
+
+        /**
+         * Number of minibatches to asynchronously prefetch on each worker. 0: disable prefetching
+         */
+        public Builder workerPrefetchNumBatches(int prefetchNumBatches) {
+            this.prefetchNumBatches = prefetchNumBatches;
+            return this;
+        }
+
+        /**
+         * Initial encoding threshold: only update elements with absolute value above it are sent.
+         * Workers raise it when updates get too dense, and lower it when nothing is sent
+         */
+        public Builder updatesThreshold(double threshold) {
+            checkArgument(threshold > 0, "Threshold must be positive: " + threshold);
+            this.threshold = threshold;
+            return this;
+        }
+
+        /**
+         * Lower bound for the encoding threshold
+         */
+        public Builder minUpdatesThreshold(double minThreshold) {
+            checkArgument(minThreshold > 0, "Threshold must be positive: " + minThreshold);
+            this.minThreshold = minThreshold;
+            return this;
+        }
+
+        /**
+         * Maximal fraction of parameters sent in single update message. Remaining elements stay in the residual
+         */
+        public Builder maxEncodedFraction(double maxEncodedFraction) {
+            checkArgument(maxEncodedFraction > 0 && maxEncodedFraction <= 1.0,
+                            "Fraction must be in range (0, 1]: " + maxEncodedFraction);
+            this.maxEncodedFraction = maxEncodedFraction;
+            return this;
+        }
+
+        /**
+         * Address of the driver, which workers use to connect to the updates hub.
+         * By default, spark.driver.host is used
+         */
+        public Builder controllerAddress(String controllerAddress) {
+            this.controllerAddress = controllerAddress;
+            return this;
+        }
+
+        /**
+         * Port for the updates hub. 0 (default) means any free port
+         */
+        public Builder controllerPort(int controllerPort) {
+            this.controllerPort = controllerPort;
+            return this;
+        }
+
+        public Builder collectTrainingStats(boolean collectTrainingStats) {
+            this.collectTrainingStats = collectTrainingStats;
+            return this;
+        }
+
+        /**
+         * Set if/when repartitioning should be conducted for the training data
+         */
+        public Builder repartionData(Repartition repartition) {
+            this.repartition = repartition;
+            return this;
+        }
+
+        /**
+         * Repartitioning strategy to use. See {@link RepartitionStrategy}
+         */
+        public Builder repartitionStrategy(RepartitionStrategy repartitionStrategy) {
+            this.repartitionStrategy = repartitionStrategy;
+            return this;
+        }
+
+        /**
+         * Storage level for the training data, while it is counted and trained on. It is unpersisted after each fit
+         * call, unless it was already persisted by the caller. null: don't persist
+         */
+        public Builder storageLevel(StorageLevel storageLevel) {
+            this.storageLevel = storageLevel;
+            return this;
+        }
+
+        public Builder trainingHooks(TrainingHook... hooks) {
+            this.trainingHooks = new ArrayList<>(Arrays.asList(hooks));
+            return this;
+        }
+
+        public SharedTrainingMaster build() {
+            return new SharedTrainingMaster(this);
+        }
+    }
+
+    private static class RemoveResidualsFunction implements VoidFunction<Iterator<Integer>> {
+        private final String sessionId;
+
+        private RemoveResidualsFunction(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public void call(Iterator<Integer> iterator) throws Exception {
+            SharedTrainingWorker.removeResiduals(sessionId);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.deeplearning4j.spark.parameterserver.training;
+
+import lombok.Data;
+import org.deeplearning4j.api.storage.Persistable;
+import org.deeplearning4j.api.storage.StorageMetaData;
+import org.deeplearning4j.spark.api.TrainingResult;
+import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * The result returned by a {@link SharedTrainingWorker} to the {@link SharedTrainingMaster}.
+ * Parameters aren't part of the result: the master already has them, since every update goes through its hub.
+ * Updater state is local to each worker, so it's returned and averaged by the master; it's removed from the result
+ * once aggregated.
+ */
+@Data
+public class SharedTrainingResult implements TrainingResult, Serializable {
+
+    private final double score;
+    private final int minibatches;
+    private final long updatesSent;
+    private final long updatesReceived;
+    private final long bytesSent;
+    private INDArray updaterState;
+    private SparkTrainingStats sparkTrainingStats;
+
+    private final Collection<StorageMetaData> listenerMetaData;
+    private final Collection<Persistable> listenerStaticInfo;
+    private final Collection<Persistable> listenerUpdates;
+
+    public SharedTrainingResult(double score, int minibatches, long updatesSent, long updatesReceived,
+                    long bytesSent, INDArray updaterState, Collection<StorageMetaData> listenerMetaData,
+                    Collection<Persistable> listenerStaticInfo, Collection<Persistable> listenerUpdates) {
+        this.score = score;
+        this.minibatches = minibatches;
+        this.updatesSent = updatesSent;
+        this.updatesReceived = updatesReceived;
+        this.bytesSent = bytesSent;
+        this.updaterState = updaterState;
+        this.listenerMetaData = listenerMetaData;
+        this.listenerStaticInfo = listenerStaticInfo;
+        this.listenerUpdates = listenerUpdates;
+    }
+
+    @Override
+    public void setStats(SparkTrainingStats sparkTrainingStats) {
+        this.sparkTrainingStats = sparkTrainingStats;
+    }
+}
@@ -0,0 +1,464 @@
+package org.deeplearning4j.spark.parameterserver.training;
+
+import org.apache.spark.broadcast.Broadcast;
+import org.deeplearning4j.api.storage.Persistable;
+import org.deeplearning4j.api.storage.StatsStorageRouter;
+import org.deeplearning4j.api.storage.StatsStorageRouterProvider;
+import org.deeplearning4j.api.storage.StorageMetaData;
+import org.deeplearning4j.api.storage.listener.RoutingIterationListener;
+import org.deeplearning4j.berkeley.Pair;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.Updater;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.util.ComputationGraphUtil;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.updater.MultiLayerUpdater;
+import org.deeplearning4j.nn.updater.graph.ComputationGraphUpdater;
+import org.deeplearning4j.optimize.api.IterationListener;
+import org.deeplearning4j.spark.api.TrainingHook;
+import org.deeplearning4j.spark.api.TrainingWorker;
+import org.deeplearning4j.spark.api.WorkerConfiguration;
+import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
+import org.deeplearning4j.spark.api.worker.NetBroadcastTuple;
+import org.deeplearning4j.spark.impl.listeners.VanillaStatsStorageRouter;
+import org.deeplearning4j.spark.impl.paramavg.stats.ParameterAveragingTrainingWorkerStats;
+import org.deeplearning4j.spark.parameterserver.encoding.ThresholdEncoder;
+import org.deeplearning4j.spark.parameterserver.transport.UpdatesClient;
+import org.deeplearning4j.util.UIDProvider;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SharedTrainingWorker: trains on its partition, and after each minibatch exchanges threshold-encoded updates with
+ * other workers through the {@link org.deeplearning4j.spark.parameterserver.transport.UpdatesHub}.<br>
+ * Local update (the difference of parameters before and after fit, i.e. gradient after the updater) is added to the
+ * residual; only its part above the threshold is sent, remaining part stays in the residual for later steps.
+ * Local model is always the shared parameters plus the residual, so the worker keeps training from where its own
+ * unsent updates brought it, instead of computing the same stale gradients until they grow large enough to be sent.
+ * Updates of other workers are applied as soon as they're received, without waiting for each other.
+ * Whatever is left in the residual at the end of the partition is kept in the executor JVM, and carried over by the
+ * next task of the same training session, so local updates aren't lost between {@code fit} calls. It is released by
+ * {@link SharedTrainingMaster#deleteTempFiles(org.apache.spark.api.java.JavaSparkContext)}.
+ */
+public class SharedTrainingWorker implements TrainingWorker<SharedTrainingResult> {
+
+    /**
+     * Encoder state left by finished tasks, per training session. Any task can carry on the residual of another one:
+     * it's just the part of local updates which wasn't sent yet.
+     */
+    private static final ConcurrentMap<String, Queue<EncoderState>> residuals = new ConcurrentHashMap<>();
+
+    /**
+     * Drop the encoder state kept in this JVM for a training session, once it's finished
+     */
+    static void removeResiduals(String sessionId) {
+        residuals.remove(sessionId);
+    }
+
+    static boolean hasResiduals(String sessionId) {
+        Queue<EncoderState> queue = residuals.get(sessionId);
+        return queue != null && !queue.isEmpty();
+    }
+
+    private final Broadcast<NetBroadcastTuple> broadcast;
+    private final WorkerConfiguration configuration;
+    private final String sessionId;
+    private final String hubHost;
+    private final int hubPort;
+    private final double initialThreshold;
+    private final double minThreshold;
+    private final double maxEncodedFraction;
+    private Collection<TrainingHook> trainingHooks;
+    private Collection<IterationListener> iterationListeners;
+    private StatsStorageRouterProvider listenerRouterProvider;
+
+    // state of the current partition, worker instance is deserialized for each task
+    private transient UpdatesClient client;
+    private transient double[] shadow;
+    private transient double[] residual;
+    private transient double threshold;
+    private transient int encodeOffset;
+    private transient int minibatches;
+    private transient ParameterAveragingTrainingWorkerStats.ParameterAveragingTrainingWorkerStatsHelper stats;
+
+    public SharedTrainingWorker(Broadcast<NetBroadcastTuple> broadcast, WorkerConfiguration configuration,
+                    String sessionId, String hubHost, int hubPort, double threshold, double minThreshold,
+                    double maxEncodedFraction, Collection<TrainingHook> trainingHooks,
+                    Collection<IterationListener> listeners, StatsStorageRouterProvider routerProvider) {
+        this.broadcast = broadcast;
+        this.configuration = configuration;
+        this.sessionId = sessionId;
+        this.hubHost = hubHost;
+        this.hubPort = hubPort;
+        this.initialThreshold = threshold;
+        this.minThreshold = minThreshold;
+        this.maxEncodedFraction = maxEncodedFraction;
+        this.trainingHooks = trainingHooks;
+        this.iterationListeners = listeners;
+        this.listenerRouterProvider = routerProvider;
+    }
+
+    @Override
+    public void removeHook(TrainingHook trainingHook) {
+        if (trainingHooks == null)
+            return;
+        trainingHooks.remove(trainingHook);
+    }
+
+    @Override
+    public void addHook(TrainingHook trainingHook) {
+        if (trainingHooks == null)
+            trainingHooks = new ArrayList<>();
+        trainingHooks.add(trainingHook);
+    }
+
+    /**
+     * Connects to the hub, and gets current parameters from it
+     */
+    private INDArray connect() {
+        try {
+            client = new UpdatesClient(hubHost, hubPort);
+        } catch (IOException e) {
+            throw new RuntimeException("Error connecting to updates hub at " + hubHost + ":" + hubPort, e);
+        }
+        shadow = client.getInitialParameters();
+        minibatches = 0;
+
+        Queue<EncoderState> queue = residuals.get(sessionId);
+        EncoderState state = queue == null ? null : queue.poll();
+        if (state != null && state.residual.length == shadow.length) {
+            residual = state.residual;
+            threshold = state.threshold;
+            encodeOffset = state.encodeOffset;
+        } else {
+            residual = new double[shadow.length];
+            threshold = initialThreshold;
+            encodeOffset = 0;
+        }
+        return localParameters();
+    }
+
+    /**
+     * @return shared parameters with the part of local updates which wasn't sent yet
+     */
+    private INDArray localParameters() {
+        double[] local = new double[shadow.length];
+        for (int i = 0; i < local.length; i++)
+            local[i] = shadow[i] + residual[i];
+        return Nd4j.create(local);
+    }
+
+    @Override
+    public MultiLayerNetwork getInitialModel() {
+        if (configuration.isCollectTrainingStats())
+            stats = new ParameterAveragingTrainingWorkerStats.ParameterAveragingTrainingWorkerStatsHelper();
+
+        if (configuration.isCollectTrainingStats())
+            stats.logBroadcastGetValueStart();
+        NetBroadcastTuple tuple = broadcast.getValue();
+        if (configuration.isCollectTrainingStats())
+            stats.logBroadcastGetValueEnd();
+
+        //Don't want to have shared configuration object: each may update its iteration count (for LR schedule etc) individually
+        MultiLayerNetwork net = new MultiLayerNetwork(tuple.getConfiguration().clone());
+        net.init(connect(), false);
+
+        if (tuple.getUpdaterState() != null) {
+            net.setUpdater(new MultiLayerUpdater(net, tuple.getUpdaterState().unsafeDuplication())); //Can't have shared updater state
+        }
+
+        Nd4j.getExecutioner().commit();
+
+        configureListeners(net, tuple.getCounter().getAndIncrement());
+
+        if (configuration.isCollectTrainingStats())
+            stats.logInitEnd();
+
+        return net;
+    }
+
+    @Override
+    public ComputationGraph getInitialModelGraph() {
+        if (configuration.isCollectTrainingStats())
+            stats = new ParameterAveragingTrainingWorkerStats.ParameterAveragingTrainingWorkerStatsHelper();
+
+        if (configuration.isCollectTrainingStats())
+            stats.logBroadcastGetValueStart();
+        NetBroadcastTuple tuple = broadcast.getValue();
+        if (configuration.isCollectTrainingStats())
+            stats.logBroadcastGetValueEnd();
+
+        ComputationGraph net = new ComputationGraph(tuple.getGraphConfiguration().clone());
+        net.init(connect(), false);
+
+        if (tuple.getUpdaterState() != null) {
+            net.setUpdater(new ComputationGraphUpdater(net, tuple.getUpdaterState().unsafeDuplication()));
+        }
+
+        Nd4j.getExecutioner().commit();
+
+        configureListeners(net, tuple.getCounter().getAndIncrement());
+
+        if (configuration.isCollectTrainingStats())
+            stats.logInitEnd();
+
+        return net;
+    }
+
+    private void configureListeners(Model m, int counter) {
+        if (iterationListeners != null) {
+            List<IterationListener> list = new ArrayList<>(iterationListeners.size());
+            for (IterationListener l : iterationListeners) {
+                if (listenerRouterProvider != null && l instanceof RoutingIterationListener) {
+                    RoutingIterationListener rl = (RoutingIterationListener) l;
+                    rl.setStorageRouter(listenerRouterProvider.getRouter());
+                    String workerID = UIDProvider.getJVMUID() + "_" + counter;
+                    rl.setWorkerID(workerID);
+                }
+                list.add(l);
+            }
+            if (m instanceof MultiLayerNetwork)
+                ((MultiLayerNetwork) m).setListeners(list);
+            else
+                ((ComputationGraph) m).setListeners(list);
+        }
+    }
+
+    /**
+     * Replaces local update with encoded one, and applies updates received from other workers
+     */
+    private void exchangeUpdates(Model model) {
+        // local parameters were shadow + residual before fit, so the new residual already includes the local update
+        INDArray params = model.params();
+        double[] current = params.dup().data().asDouble();
+        for (int i = 0; i < current.length; i++)
+            residual[i] = current[i] - shadow[i];
+
+        // scan starts where the previous one stopped, so capped updates don't favour low indices
+        int maxElements = Math.max(1, (int) (residual.length * maxEncodedFraction));
+        int[] encoded = ThresholdEncoder.encode(residual, threshold, maxElements, encodeOffset);
+        if (encoded.length > 0) {
+            try {
+                client.send(encoded, threshold);
+            } catch (IOException e) {
+                throw new RuntimeException("Error sending update", e);
+            }
+            ThresholdEncoder.decode(encoded, threshold, shadow);
+            encodeOffset = ThresholdEncoder.nextOffset(encoded, encodeOffset, residual.length);
+        }
+
+        // too dense update: raise threshold, nothing to send: lower it, so residual doesn't get stuck
+        if (encoded.length == maxElements)
+            threshold *= 2.0;
+        else if (encoded.length == 0)
+            threshold = Math.max(minThreshold, threshold / 2.0);
+
+        client.applyPending(shadow);
+        params.assign(localParameters());
+        minibatches++;
+    }
+
+    @Override
+    public SharedTrainingResult processMinibatch(DataSet dataSet, MultiLayerNetwork network, boolean isLast) {
+        if (configuration.isCollectTrainingStats())
+            stats.logFitStart();
+
+        if (trainingHooks != null) {
+            for (TrainingHook trainingHook : trainingHooks) {
+                trainingHook.preUpdate(dataSet, network);
+            }
+        }
+
+        network.fit(dataSet);
+        exchangeUpdates(network);
+
+        if (trainingHooks != null) {
+            for (TrainingHook trainingHook : trainingHooks) {
+                trainingHook.postUpdate(dataSet, network);
+            }
+        }
+
+        if (configuration.isCollectTrainingStats())
+            stats.logFitEnd(dataSet.numExamples());
+
+        Nd4j.getExecutioner().commit();
+
+        if (isLast)
+            return getFinalResult(network);
+
+        return null;
+    }
+
+    @Override
+    public SharedTrainingResult processMinibatch(DataSet dataSet, ComputationGraph graph, boolean isLast) {
+        return processMinibatch(ComputationGraphUtil.toMultiDataSet(dataSet), graph, isLast);
+    }
+
+    @Override
+    public SharedTrainingResult processMinibatch(MultiDataSet dataSet, ComputationGraph graph, boolean isLast) {
+        if (configuration.isCollectTrainingStats())
+            stats.logFitStart();
+
+        if (trainingHooks != null) {
+            for (TrainingHook trainingHook : trainingHooks) {
+                trainingHook.preUpdate(dataSet, graph);
+            }
+        }
+
+        graph.fit(dataSet);
+        exchangeUpdates(graph);
+
+        if (trainingHooks != null) {
+            for (TrainingHook trainingHook : trainingHooks) {
+                trainingHook.postUpdate(dataSet, graph);
+            }
+        }
+
+        if (configuration.isCollectTrainingStats())
+            stats.logFitEnd(dataSet.getFeatures(0).size(0));
+
+        Nd4j.getExecutioner().commit();
+
+        if (isLast)
+            return getFinalResult(graph);
+
+        return null;
+    }
+
+    @Override
+    public Pair<SharedTrainingResult, SparkTrainingStats> processMinibatchWithStats(DataSet dataSet,
+                    MultiLayerNetwork network, boolean isLast) {
+        SharedTrainingResult result = processMinibatch(dataSet, network, isLast);
+        if (result == null)
+            return null;
+
+        SparkTrainingStats statsToReturn = (stats != null ? stats.build() : null);
+        return new Pair<>(result, statsToReturn);
+    }
+
+    @Override
+    public Pair<SharedTrainingResult, SparkTrainingStats> processMinibatchWithStats(DataSet dataSet,
+                    ComputationGraph graph, boolean isLast) {
+        return processMinibatchWithStats(ComputationGraphUtil.toMultiDataSet(dataSet), graph, isLast);
+    }
+
+    @Override
+    public Pair<SharedTrainingResult, SparkTrainingStats> processMinibatchWithStats(MultiDataSet dataSet,
+                    ComputationGraph graph, boolean isLast) {
+        SharedTrainingResult result = processMinibatch(dataSet, graph, isLast);
+        if (result == null)
+            return null;
+
+        SparkTrainingStats statsToReturn = (stats != null ? stats.build() : null);
+        return new Pair<>(result, statsToReturn);
+    }
+
+    private SharedTrainingResult finish(double score, INDArray updaterState) {
+        Nd4j.getExecutioner().commit();
+
+        long updatesSent = 0;
+        long updatesReceived = 0;
+        long bytesSent = 0;
+        if (client != null) {
+            Queue<EncoderState> queue = residuals.get(sessionId);
+            if (queue == null) {
+                residuals.putIfAbsent(sessionId, new ConcurrentLinkedQueue<EncoderState>());
+                queue = residuals.get(sessionId);
+            }
+            queue.add(new EncoderState(residual, threshold, encodeOffset));
+
+            try {
+                client.finish(10, TimeUnit.MINUTES);
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException("Error finishing updates exchange", e);
+            } finally {
+                client.close();
+            }
+            updatesSent = client.getUpdatesSent();
+            updatesReceived = client.getUpdatesReceived();
+            bytesSent = client.getBytesSent();
+            client = null;
+        }
+
+        Collection<StorageMetaData> storageMetaData = null;
+        Collection<Persistable> listenerStaticInfo = null;
+        Collection<Persistable> listenerUpdates = null;
+        if (listenerRouterProvider != null) {
+            StatsStorageRouter r = listenerRouterProvider.getRouter();
+            if (r instanceof VanillaStatsStorageRouter) {
+                VanillaStatsStorageRouter ssr = (VanillaStatsStorageRouter) r;
+                storageMetaData = ssr.getStorageMetaData();
+                listenerStaticInfo = ssr.getStaticInfo();
+                listenerUpdates = ssr.getUpdates();
+            }
+        }
+
+        return new SharedTrainingResult(score, minibatches, updatesSent, updatesReceived, bytesSent, updaterState,
+                        storageMetaData, listenerStaticInfo, listenerUpdates);
+    }
+
+    @Override
+    public SharedTrainingResult getFinalResult(MultiLayerNetwork network) {
+        Updater u = network.getUpdater();
+        return finish(network.score(), u != null ? u.getStateViewArray() : null);
+    }
+
+    @Override
+    public SharedTrainingResult getFinalResult(ComputationGraph graph) {
+        ComputationGraphUpdater u = graph.getUpdater();
+        return finish(graph.score(), u != null ? u.getStateViewArray() : null);
+    }
+
+    @Override
+    public SharedTrainingResult getFinalResultNoData() {
+        return new SharedTrainingResult(0.0, 0, 0, 0, 0, null, null, null, null);
+    }
+
+    @Override
+    public Pair<SharedTrainingResult, SparkTrainingStats> getFinalResultNoDataWithStats() {
+        return new Pair<>(getFinalResultNoData(), null);
+    }
+
+    @Override
+    public Pair<SharedTrainingResult, SparkTrainingStats> getFinalResultWithStats(MultiLayerNetwork network) {
+        SharedTrainingResult result = getFinalResult(network);
+        SparkTrainingStats statsToReturn = (stats != null ? stats.build() : null);
+        return new Pair<>(result, statsToReturn);
+    }
+
+    @Override
+    public Pair<SharedTrainingResult, SparkTrainingStats> getFinalResultWithStats(ComputationGraph graph) {
+        SharedTrainingResult result = getFinalResult(graph);
+        SparkTrainingStats statsToReturn = (stats != null ? stats.build() : null);
+        return new Pair<>(result, statsToReturn);
+    }
+
+    @Override
+    public WorkerConfiguration getDataConfiguration() {
+        return configuration;
+    }
+
+    private static class EncoderState {
+        private final double[] residual;
+        private final double threshold;
+        private final int encodeOffset;
+
+        private EncoderState(double[] residual, double threshold, int encodeOffset) {
+            this.residual = residual;
+            this.threshold = threshold;
+            this.encodeOffset = encodeOffset;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.deeplearning4j.spark.parameterserver.training.aggregator;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import org.deeplearning4j.spark.parameterserver.training.SharedTrainingResult;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Simple helper tuple used to aggregate results of shared training: sum of updater states, and the results
+ * themselves, with updater states removed
+ */
+@AllArgsConstructor
+@Data
+@Builder
+public class SharedTrainingAggregationTuple implements Serializable {
+    private final INDArray updaterStateSum;
+    private final int aggregationsCount;
+    private final List<SharedTrainingResult> results;
+}
@@ -0,0 +1,42 @@
+package org.deeplearning4j.spark.parameterserver.training.aggregator;
+
+import org.apache.spark.api.java.function.Function2;
+import org.deeplearning4j.spark.parameterserver.training.SharedTrainingResult;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Add function for shared training results aggregation
+ */
+public class SharedTrainingElementAddFunction implements
+                Function2<SharedTrainingAggregationTuple, SharedTrainingResult, SharedTrainingAggregationTuple> {
+
+    @Override
+    public SharedTrainingAggregationTuple call(SharedTrainingAggregationTuple tuple, SharedTrainingResult result)
+                    throws Exception {
+        INDArray updaterStateSum = tuple == null ? null : tuple.getUpdaterStateSum();
+        int aggregationsCount = tuple == null ? 0 : tuple.getAggregationsCount();
+        List<SharedTrainingResult> results = tuple == null ? new ArrayList<SharedTrainingResult>() : tuple.getResults();
+
+        // workers without data don't have meaningful updater state
+        INDArray updaterState = result.getUpdaterState();
+        if (updaterState != null && result.getMinibatches() > 0) {
+            if (updaterStateSum == null)
+                updaterStateSum = updaterState;
+            else
+                updaterStateSum.addi(updaterState);
+            aggregationsCount++;
+        }
+
+        Nd4j.getExecutioner().commit();
+
+        // updater state is accumulated already, no need to keep it in the result
+        result.setUpdaterState(null);
+        results.add(result);
+
+        return new SharedTrainingAggregationTuple(updaterStateSum, aggregationsCount, results);
+    }
+}
@@ -0,0 +1,37 @@
+package org.deeplearning4j.spark.parameterserver.training.aggregator;
+
+import org.apache.spark.api.java.function.Function2;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Combine function for shared training results aggregation
+ */
+public class SharedTrainingElementCombineFunction implements
+                Function2<SharedTrainingAggregationTuple, SharedTrainingAggregationTuple, SharedTrainingAggregationTuple> {
+
+    @Override
+    public SharedTrainingAggregationTuple call(SharedTrainingAggregationTuple v1, SharedTrainingAggregationTuple v2)
+                    throws Exception {
+        if (v1 == null)
+            return v2;
+        else if (v2 == null)
+            return v1;
+
+        INDArray updaterStateSum;
+        if (v1.getUpdaterStateSum() == null) {
+            updaterStateSum = v2.getUpdaterStateSum();
+        } else {
+            updaterStateSum = v1.getUpdaterStateSum();
+            if (v2.getUpdaterStateSum() != null)
+                updaterStateSum.addi(v2.getUpdaterStateSum());
+        }
+
+        Nd4j.getExecutioner().commit();
+
+        v1.getResults().addAll(v2.getResults());
+
+        return new SharedTrainingAggregationTuple(updaterStateSum,
+                        v1.getAggregationsCount() + v2.getAggregationsCount(), v1.getResults());
+    }
+}
@@ -0,0 +1,152 @@
+package org.deeplearning4j.spark.parameterserver.transport;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.spark.parameterserver.encoding.ThresholdEncoder;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker side of the {@link UpdatesHub} connection.<br>
+ * Updates of other workers are received by a background thread and queued, so training never waits for the network:
+ * queued updates are applied on the next {@link #applyPending(double[])} call.
+ */
+@Slf4j
+public class UpdatesClient implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final double[] initialParameters;
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile Throwable error;
+
+    private long updatesSent;
+    private long updatesReceived;
+    private long bytesSent;
+
+    /**
+     * Connects to the hub, and waits for current parameters
+     *
+     * @param host hub address
+     * @param port hub port
+     * @throws IOException
+     */
+    public UpdatesClient(String host, int port) throws IOException {
+        this.socket = new Socket();
+        this.socket.connect(new InetSocketAddress(host, port));
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.initialParameters = UpdatesProtocol.readParameters(in);
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive();
+            }
+        }, "UpdatesClient-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @return parameters received from the hub on connection
+     */
+    public double[] getInitialParameters() {
+        return initialParameters;
+    }
+
+    private void receive() {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == UpdatesProtocol.UPDATE)
+                    pending.add(UpdatesProtocol.readPayload(in));
+                else if (type == UpdatesProtocol.FINISHED)
+                    finished.countDown();
+                else
+                    throw new IOException("Unknown message type: " + type);
+            }
+        } catch (EOFException e) {
+            // hub closed connection
+        } catch (IOException e) {
+            if (!socket.isClosed())
+                error = e;
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Sends encoded update to the hub
+     *
+     * @param encoded   encoded elements, see {@link ThresholdEncoder}
+     * @param threshold threshold used for encoding
+     */
+    public void send(int[] encoded, double threshold) throws IOException {
+        checkError();
+        byte[] payload = UpdatesProtocol.encodeUpdate(encoded, threshold);
+        UpdatesProtocol.writeUpdate(out, payload);
+        updatesSent++;
+        bytesSent += payload.length;
+    }
+
+    /**
+     * Adds all received updates to the target array
+     *
+     * @return number of applied updates
+     */
+    public int applyPending(double[] target) {
+        int count = 0;
+        byte[] payload;
+        while ((payload = pending.poll()) != null) {
+            ThresholdEncoder.decode(UpdatesProtocol.encoded(payload), UpdatesProtocol.threshold(payload), target);
+            count++;
+        }
+        updatesReceived += count;
+        return count;
+    }
+
+    /**
+     * Tells the hub that this worker is done, and waits until all sent updates are applied by the hub
+     */
+    public void finish(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        checkError();
+        UpdatesProtocol.writeSignal(out, UpdatesProtocol.FINISH);
+        if (!finished.await(timeout, unit))
+            throw new IOException("Timeout waiting for updates hub");
+        checkError();
+    }
+
+    private void checkError() throws IOException {
+        if (error != null)
+            throw new IOException("Connection to updates hub failed", error);
+    }
+
+    public long getUpdatesSent() {
+        return updatesSent;
+    }
+
+    public long getUpdatesReceived() {
+        return updatesReceived;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Error closing connection", e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.deeplearning4j.spark.parameterserver.transport;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.spark.parameterserver.encoding.ThresholdEncoder;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay for encoded updates, which runs on the Spark driver during training.<br>
+ * Each worker connects to the hub, receives current parameters, and then streams its threshold-encoded updates.
+ * Hub applies every update to its own copy of the parameters and forwards it as is to all other connected workers,
+ * so the traffic only depends on the number of encoded elements, not on the model size. There's no barrier between
+ * workers: each one applies others' updates as they arrive.<br>
+ * Parameters snapshot for a new worker and forwarding happen under the same lock, so each worker sees every update
+ * either in its initial parameters, or as a message.
+ */
+@Slf4j
+public class UpdatesHub implements Closeable {
+    private final ServerSocket serverSocket;
+    private final double[] parameters;
+    private final Object lock = new Object();
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicLong updatesCount = new AtomicLong();
+    private final AtomicLong encodedCount = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * @param parameters initial parameters, the array is used directly
+     * @param port       port to listen on, 0 means any free port
+     * @throws IOException
+     */
+    public UpdatesHub(double[] parameters, int port) throws IOException {
+        this.parameters = parameters;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(port));
+
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "UpdatesHub-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return copy of current parameters, with all received updates applied
+     */
+    public double[] getParameters() {
+        synchronized (lock) {
+            return Arrays.copyOf(parameters, parameters.length);
+        }
+    }
+
+    /**
+     * @return number of update messages received from workers
+     */
+    public long getUpdatesCount() {
+        return updatesCount.get();
+    }
+
+    /**
+     * @return total number of encoded elements received from workers
+     */
+    public long getEncodedCount() {
+        return encodedCount.get();
+    }
+
+    /**
+     * @return total size of update messages received from workers
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread reader = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "UpdatesHub-connection");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running)
+                    log.warn("Error accepting worker connection", e);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Connection connection = null;
+        try {
+            connection = new Connection(socket);
+            synchronized (lock) {
+                UpdatesProtocol.writeParameters(connection.out, parameters);
+                connections.add(connection);
+            }
+
+            while (true) {
+                byte type = connection.in.readByte();
+                if (type == UpdatesProtocol.UPDATE) {
+                    byte[] payload = UpdatesProtocol.readPayload(connection.in);
+                    int[] encoded = UpdatesProtocol.encoded(payload);
+                    updatesCount.incrementAndGet();
+                    encodedCount.addAndGet(encoded.length);
+                    bytesReceived.addAndGet(payload.length);
+
+                    synchronized (lock) {
+                        ThresholdEncoder.decode(encoded, UpdatesProtocol.threshold(payload), parameters);
+                        for (Connection other : connections)
+                            if (other != connection)
+                                other.send(payload);
+                    }
+                } else if (type == UpdatesProtocol.FINISH) {
+                    // messages are processed in order, so all updates of this worker are applied already
+                    synchronized (lock) {
+                        connections.remove(connection);
+                    }
+                    connection.signal(UpdatesProtocol.FINISHED);
+                } else {
+                    throw new IOException("Unknown message type: " + type);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // worker disconnected
+        } catch (IOException e) {
+            if (running)
+                log.warn("Error processing worker updates", e);
+        } finally {
+            if (connection != null) {
+                connections.remove(connection);
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.debug("Error closing server socket", e);
+        }
+        for (Connection connection : connections)
+            connection.close();
+        connections.clear();
+    }
+
+    private static class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private synchronized void send(byte[] payload) {
+            try {
+                UpdatesProtocol.writeUpdate(out, payload);
+            } catch (IOException e) {
+                // worker is gone, its reader thread will clean up
+                log.debug("Error forwarding update", e);
+            }
+        }
+
+        private synchronized void signal(byte type) throws IOException {
+            UpdatesProtocol.writeSignal(out, type);
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Error closing connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.deeplearning4j.spark.parameterserver.transport;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format used between {@link UpdatesHub} and {@link UpdatesClient}.<br>
+ * Every message starts with single type byte:
+ * <ul>
+ *     <li>PARAMETERS: int length, then doubles. Sent by hub to each new client</li>
+ *     <li>UPDATE: int payload length, then payload: double threshold, int count, encoded ints</li>
+ *     <li>FINISH: client has no more updates, hub replies with FINISHED after all previous updates were applied</li>
+ * </ul>
+ */
+class UpdatesProtocol {
+    static final byte PARAMETERS = 1;
+    static final byte UPDATE = 2;
+    static final byte FINISH = 3;
+    static final byte FINISHED = 4;
+
+    private UpdatesProtocol() {}
+
+    static void writeParameters(DataOutputStream out, double[] parameters) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(parameters.length * 8);
+        buffer.asDoubleBuffer().put(parameters);
+        out.writeByte(PARAMETERS);
+        out.writeInt(parameters.length);
+        out.write(buffer.array());
+        out.flush();
+    }
+
+    static double[] readParameters(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type != PARAMETERS)
+            throw new IOException("Expected parameters message, got type " + type);
+
+        byte[] bytes = new byte[in.readInt() * 8];
+        in.readFully(bytes);
+        double[] parameters = new double[bytes.length / 8];
+        ByteBuffer.wrap(bytes).asDoubleBuffer().get(parameters);
+        return parameters;
+    }
+
+    static byte[] encodeUpdate(int[] encoded, double threshold) {
+        ByteBuffer buffer = ByteBuffer.allocate(12 + encoded.length * 4);
+        buffer.putDouble(threshold);
+        buffer.putInt(encoded.length);
+        buffer.asIntBuffer().put(encoded);
+        return buffer.array();
+    }
+
+    static void writeUpdate(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeByte(UPDATE);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    static byte[] readPayload(DataInputStream in) throws IOException {
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return payload;
+    }
+
+    static double threshold(byte[] payload) {
+        return ByteBuffer.wrap(payload).getDouble(0);
+    }
+
+    static int[] encoded(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        int[] encoded = new int[buffer.getInt(8)];
+        buffer.position(12);
+        buffer.asIntBuffer().get(encoded);
+        return encoded;
+    }
+
+    static void writeSignal(DataOutputStream out, byte type) throws IOException {
+        out.writeByte(type);
+        out.flush();
+    }
+}
@@ -0,0 +1,74 @@
+package org.deeplearning4j.spark.parameterserver.encoding;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThresholdEncoderTest {
+
+    @Test
+    public void testEncodeDecode() {
+        double[] residual = {0.5, -0.05, 0.0, -1.5, 0.15, 0.09};
+        int[] encoded = ThresholdEncoder.encode(residual, 0.1, 100);
+
+        assertArrayEquals(new int[] {1, -4, 5}, encoded);
+        // encoded part is removed from the residual, the rest stays there
+        assertArrayEquals(new double[] {0.4, -0.05, 0.0, -1.4, 0.05, 0.09}, residual, 1e-9);
+
+        double[] target = new double[6];
+        ThresholdEncoder.decode(encoded, 0.1, target);
+        assertArrayEquals(new double[] {0.1, 0.0, 0.0, -0.1, 0.1, 0.0}, target, 1e-9);
+    }
+
+    @Test
+    public void testMaxElements() {
+        double[] residual = new double[5000];
+        for (int i = 0; i < residual.length; i++)
+            residual[i] = i % 2 == 0 ? 1.0 : -1.0;
+
+        int[] encoded = ThresholdEncoder.encode(residual, 0.5, 3000);
+        assertEquals(3000, encoded.length);
+        for (int i = 0; i < residual.length; i++)
+            assertEquals(i < 3000 ? 0.5 : 1.0, Math.abs(residual[i]), 1e-9);
+    }
+
+    @Test
+    public void testResidualAccumulation() {
+        // updates below the threshold are sent once they add up
+        double[] residual = new double[1];
+        int sent = 0;
+        for (int i = 0; i < 10; i++) {
+            residual[0] += 0.125;
+            sent += ThresholdEncoder.encode(residual, 0.5, 1).length;
+        }
+        assertEquals(2, sent);
+        assertEquals(0.25, residual[0], 1e-9);
+    }
+
+    @Test
+    public void testRotatingOffset() {
+        // with capped encoding, rotating offset lets every element through, instead of the lowest indices only
+        double[] residual = new double[10];
+        int offset = 0;
+        int[] counts = new int[residual.length];
+        for (int step = 0; step < 5; step++) {
+            for (int i = 0; i < residual.length; i++)
+                residual[i] += 1.0;
+
+            int[] encoded = ThresholdEncoder.encode(residual, 1.0, 4, offset);
+            assertEquals(4, encoded.length);
+            for (int e : encoded)
+                counts[e - 1]++;
+            offset = ThresholdEncoder.nextOffset(encoded, offset, residual.length);
+        }
+        for (int i = 0; i < counts.length; i++)
+            assertEquals(2, counts[i]);
+
+        // scan wraps around the end of the residual
+        residual = new double[] {1.0, 0.0, 0.0, -1.0, 1.0};
+        int[] encoded = ThresholdEncoder.encode(residual, 1.0, 2, 3);
+        assertArrayEquals(new int[] {-4, 5}, encoded);
+        assertEquals(0, ThresholdEncoder.nextOffset(encoded, 3, residual.length));
+        assertArrayEquals(new int[] {1}, ThresholdEncoder.encode(residual, 1.0, 2, 0));
+    }
+}
@@ -0,0 +1,126 @@
+package org.deeplearning4j.spark.parameterserver.training;
+
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.storage.StorageLevel;
+import org.deeplearning4j.datasets.iterator.impl.IrisDataSetIterator;
+import org.deeplearning4j.nn.api.OptimizationAlgorithm;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.Updater;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
+import org.deeplearning4j.spark.impl.multilayer.SparkDl4jMultiLayer;
+import org.deeplearning4j.spark.impl.paramavg.stats.ParameterAveragingTrainingWorkerStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SharedTrainingMasterTest {
+    private JavaSparkContext sc;
+
+    @Before
+    public void before() {
+        SparkConf sparkConf = new SparkConf().setMaster("local[4]").setAppName("sharedtrainingtest")
+                        .set("spark.driver.host", "localhost");
+        sc = new JavaSparkContext(sparkConf);
+    }
+
+    @After
+    public void after() {
+        sc.close();
+        sc = null;
+    }
+
+    @Test
+    public void testIrisLocalMode() {
+        DataSet all = new IrisDataSetIterator(150, 150).next();
+        all.normalizeZeroMeanZeroUnitVariance();
+        all.shuffle(12345);
+        List<DataSet> list = all.asList();
+        JavaRDD<DataSet> rdd = sc.parallelize(list, 4);
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT).iterations(1)
+                        .updater(Updater.NESTEROVS).learningRate(0.1).momentum(0.9).list()
+                        .layer(0, new DenseLayer.Builder().nIn(4).nOut(20).activation(Activation.TANH)
+                                        .weightInit(WeightInit.XAVIER).build())
+                        .layer(1, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(20).nOut(3)
+                                        .activation(Activation.SOFTMAX).weightInit(WeightInit.XAVIER).build())
+                        .backprop(true).pretrain(false).build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        INDArray initialParams = net.params().dup();
+        double initialScore = net.score(all);
+
+        SharedTrainingMaster tm = new SharedTrainingMaster.Builder(4, 1).batchSizePerWorker(10)
+                        .updatesThreshold(1e-3).collectTrainingStats(true).build();
+        SparkDl4jMultiLayer sparkNet = new SparkDl4jMultiLayer(sc, net, tm);
+
+        for (int epoch = 0; epoch < 10; epoch++)
+            sparkNet.fit(rdd);
+
+        // training data persisted by the master is released after each fit
+        assertEquals(StorageLevel.NONE(), rdd.getStorageLevel());
+
+        // residuals are kept for the next fit of the same session, until they are deleted
+        String sessionId = tm.getSessionId();
+        assertTrue(SharedTrainingWorker.hasResiduals(sessionId));
+        assertTrue(tm.deleteTempFiles(sc));
+        assertFalse(SharedTrainingWorker.hasResiduals(sessionId));
+        assertNull(tm.getSessionId());
+
+        MultiLayerNetwork trained = sparkNet.getNetwork();
+        assertNotEquals(initialParams, trained.params());
+        assertTrue(trained.score(all) < initialScore);
+
+        // momentum of the workers is averaged back into the driver network
+        INDArray updaterState = trained.getUpdater().getStateViewArray();
+        assertNotNull(updaterState);
+        assertTrue(updaterState.norm2Number().doubleValue() > 0.0);
+
+        SparkTrainingStats stats = tm.getTrainingStats();
+        assertNotNull(stats);
+        assertTrue(stats.getKeySet()
+                        .contains(ParameterAveragingTrainingWorkerStats.PARAMETER_AVERAGING_WORKER_FIT_TIMES_MS));
+
+        // every worker did some minibatches, and saw updates of the others
+        List<SharedTrainingResult> results = tm.getLastResults();
+        assertEquals(4, results.size());
+        long bytesSent = 0;
+        for (SharedTrainingResult result : results) {
+            assertTrue(result.getMinibatches() > 0);
+            assertTrue(result.getUpdatesSent() > 0);
+            assertNull(result.getUpdaterState());
+            bytesSent += result.getBytesSent();
+        }
+
+        // sparse updates are smaller than sending dense parameters after each minibatch
+        int minibatches = 0;
+        for (SharedTrainingResult result : results)
+            minibatches += result.getMinibatches();
+        assertTrue(bytesSent < (long) minibatches * trained.numParams() * 8);
+    }
+
+    @Test
+    public void testJsonYaml() {
+        SharedTrainingMaster tm = new SharedTrainingMaster.Builder(2, 1).batchSizePerWorker(8).updatesThreshold(1e-2)
+                        .maxEncodedFraction(0.5).build();
+
+        assertEquals(tm, SharedTrainingMaster.fromJson(tm.toJson()));
+        assertEquals(tm, SharedTrainingMaster.fromYaml(tm.toYaml()));
+    }
+}
@@ -0,0 +1,41 @@
+package org.deeplearning4j.spark.parameterserver.transport;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class UpdatesHubTest {
+
+    @Test(timeout = 30000L)
+    public void testRelay() throws Exception {
+        try (UpdatesHub hub = new UpdatesHub(new double[] {1.0, 2.0, 3.0}, 0)) {
+            UpdatesClient first = new UpdatesClient("localhost", hub.getPort());
+            UpdatesClient second = new UpdatesClient("localhost", hub.getPort());
+            assertArrayEquals(new double[] {1.0, 2.0, 3.0}, first.getInitialParameters(), 0.0);
+            assertArrayEquals(new double[] {1.0, 2.0, 3.0}, second.getInitialParameters(), 0.0);
+
+            first.send(new int[] {1, -3}, 0.5);
+            first.finish(10, TimeUnit.SECONDS);
+            assertArrayEquals(new double[] {1.5, 2.0, 2.5}, hub.getParameters(), 1e-9);
+            assertEquals(1, hub.getUpdatesCount());
+            assertEquals(2, hub.getEncodedCount());
+
+            // update is relayed to other workers only
+            double[] target = new double[3];
+            while (second.applyPending(target) == 0)
+                Thread.sleep(10);
+            assertArrayEquals(new double[] {0.5, 0.0, -0.5}, target, 1e-9);
+            assertEquals(0, first.applyPending(target));
+
+            // late worker gets parameters with all updates applied
+            UpdatesClient third = new UpdatesClient("localhost", hub.getPort());
+            assertArrayEquals(new double[] {1.5, 2.0, 2.5}, third.getInitialParameters(), 1e-9);
+
+            first.close();
+            second.close();
+            third.close();
+        }
+    }
+}
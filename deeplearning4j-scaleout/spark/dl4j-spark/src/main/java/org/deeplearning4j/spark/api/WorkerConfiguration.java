@@ -20,5 +20,12 @@ public class WorkerConfiguration implements Serializable {
     protected final int maxBatchesPerWorker;
     protected final int prefetchNumBatches;
     protected final boolean collectTrainingStats;
+    protected final int pathPrefetchNumThreads; //Threads loading DataSets from paths in parallel. 0: no prefetching
+    protected final int pathPrefetchNumBatches; //Max number of DataSets loaded ahead from paths
 
+    public WorkerConfiguration(boolean isGraphNetwork, int dataSetObjectSizeExamples, int batchSizePerWorker,
+                    int maxBatchesPerWorker, int prefetchNumBatches, boolean collectTrainingStats) {
+        this(isGraphNetwork, dataSetObjectSizeExamples, batchSizePerWorker, maxBatchesPerWorker, prefetchNumBatches,
+                        collectTrainingStats, 0, 0);
+    }
 }
@@ -12,6 +12,8 @@ import org.deeplearning4j.spark.api.TrainingWorker;
 import org.deeplearning4j.spark.api.WorkerConfiguration;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
 import org.deeplearning4j.spark.api.stats.StatsCalculationHelper;
+import org.deeplearning4j.spark.impl.paramavg.stats.ParameterAveragingTrainingWorkerStats;
+import org.deeplearning4j.spark.iterator.PrefetchingPathSparkDataSetIterator;
 import org.nd4j.linalg.api.ops.executioner.GridExecutioner;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
@@ -63,6 +65,7 @@ class ExecuteWorkerFlatMapAdapter<R extends TrainingResult> implements FlatMapFu
                 s.logReturnTime();
 
                 Pair<R, SparkTrainingStats> pair = worker.getFinalResultNoDataWithStats();
+                addFetchStats(pair.getSecond(), dataSetIterator);
                 pair.getFirst().setStats(s.build(pair.getSecond()));
                 return Collections.singletonList(pair.getFirst());
             } else {
@@ -113,6 +116,7 @@ class ExecuteWorkerFlatMapAdapter<R extends TrainingResult> implements FlatMapFu
                         //Terminate training immediately
                         s.logReturnTime();
                         SparkTrainingStats workerStats = result.getSecond();
+                        addFetchStats(workerStats, dataSetIterator);
                         SparkTrainingStats returnStats = s.build(workerStats);
                         result.getFirst().setStats(returnStats);
 
@@ -139,6 +143,7 @@ class ExecuteWorkerFlatMapAdapter<R extends TrainingResult> implements FlatMapFu
                     pair = worker.getFinalResultWithStats(graph);
                 else
                     pair = worker.getFinalResultWithStats(net);
+                addFetchStats(pair.getSecond(), dataSetIterator);
                 pair.getFirst().setStats(s.build(pair.getSecond()));
                 return Collections.singletonList(pair.getFirst());
             } else {
@@ -154,6 +159,18 @@ class ExecuteWorkerFlatMapAdapter<R extends TrainingResult> implements FlatMapFu
             if (batchedIterator instanceof AsyncDataSetIterator) {
                 ((AsyncDataSetIterator) batchedIterator).shutdown();
             }
+            if (dataSetIterator instanceof PrefetchingPathSparkDataSetIterator) {
+                ((PrefetchingPathSparkDataSetIterator) dataSetIterator).shutdown();
+            }
+        }
+    }
+
+    private static void addFetchStats(SparkTrainingStats workerStats, Iterator<DataSet> dataSetIterator) {
+        if (dataSetIterator instanceof PrefetchingPathSparkDataSetIterator
+                        && workerStats instanceof ParameterAveragingTrainingWorkerStats) {
+            PrefetchingPathSparkDataSetIterator iter = (PrefetchingPathSparkDataSetIterator) dataSetIterator;
+            ((ParameterAveragingTrainingWorkerStats) workerStats).addFetchStats(iter.getFetchTimes(),
+                            iter.getWaitTimes());
         }
     }
 }
@@ -6,6 +6,7 @@ import org.deeplearning4j.spark.api.TrainingResult;
 import org.deeplearning4j.spark.api.TrainingWorker;
 import org.deeplearning4j.spark.api.WorkerConfiguration;
 import org.deeplearning4j.spark.iterator.PathSparkDataSetIterator;
+import org.deeplearning4j.spark.iterator.PrefetchingPathSparkDataSetIterator;
 import org.nd4j.linalg.dataset.DataSet;
 
 import java.util.ArrayList;
@@ -38,6 +39,9 @@ public class ExecuteWorkerPathFlatMap<R extends TrainingResult>
 class ExecuteWorkerPathFlatMapAdapter<R extends TrainingResult> implements FlatMapFunctionAdapter<Iterator<String>, R> {
     private final FlatMapFunctionAdapter<Iterator<DataSet>, R> workerFlatMap;
     private final int maxDataSetObjects;
+    private final int prefetchNumThreads;
+    private final int prefetchNumBatches;
+    private final boolean collectStats;
 
     public ExecuteWorkerPathFlatMapAdapter(TrainingWorker<R> worker) {
         this.workerFlatMap = new ExecuteWorkerFlatMapAdapter<>(worker);
@@ -47,6 +51,9 @@ class ExecuteWorkerPathFlatMapAdapter<R extends TrainingResult> implements FlatM
         //Most of the time we'll get exactly the number we want, but this isn't guaranteed all the time for all
         // splitting strategies
         WorkerConfiguration conf = worker.getDataConfiguration();
+        prefetchNumThreads = conf.getPathPrefetchNumThreads();
+        prefetchNumBatches = Math.max(conf.getPathPrefetchNumBatches(), prefetchNumThreads);
+        collectStats = conf.isCollectTrainingStats();
         int dataSetObjectNumExamples = conf.getDataSetObjectSizeExamples();
         int workerMinibatchSize = conf.getBatchSizePerWorker();
         int maxMinibatches = (conf.getMaxBatchesPerWorker() > 0 ? conf.getMaxBatchesPerWorker() : Integer.MAX_VALUE);
@@ -68,6 +75,11 @@ class ExecuteWorkerPathFlatMapAdapter<R extends TrainingResult> implements FlatM
             list.add(iter.next());
         }
 
+        if (prefetchNumThreads > 0) {
+            //Shut down by the worker flat map, which also collects the fetch stats
+            return workerFlatMap.call(new PrefetchingPathSparkDataSetIterator(list.iterator(), prefetchNumThreads,
+                            prefetchNumBatches, collectStats));
+        }
         return workerFlatMap.call(new PathSparkDataSetIterator(list.iterator()));
     }
 }
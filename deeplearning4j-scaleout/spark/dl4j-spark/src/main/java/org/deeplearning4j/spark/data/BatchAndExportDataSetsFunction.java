@@ -22,6 +22,8 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.spark.api.java.function.Function2;
 import org.deeplearning4j.berkeley.Pair;
+import org.deeplearning4j.datasets.pack.PackedDataSetFormat;
+import org.deeplearning4j.datasets.pack.PackedDataSetWriter;
 import org.deeplearning4j.util.UIDProvider;
 import org.nd4j.linalg.dataset.DataSet;
 
@@ -38,6 +40,11 @@ import java.util.*;
  * Naming convention for exported files:
  * "dataset_" + partitionIdx + JVM_UID + "_" + idx + ".bin"
  * where 'idx' is the index of the DataSet objects in this partition
+ * <p>
+ * Alternatively, if {@code batchesPerFile > 0}, minibatches are written to packed files (see {@link PackedDataSetFormat}),
+ * with up to {@code batchesPerFile} minibatches per file:
+ * "dataset_" + partitionIdx + JVM_UID + "_" + fileIdx + ".dspack"
+ * The returned paths then refer to single minibatches within these files, as {@code path#blockIndex}
  *
  * @author Alex Black
  */
@@ -47,14 +54,36 @@ public class BatchAndExportDataSetsFunction implements Function2<Integer, Iterat
     private final int minibatchSize;
     private final String exportBaseDirectory;
     private final String jvmuid;
+    private final int batchesPerFile;
+    private final boolean compress;
+
+    private transient PackedDataSetWriter packWriter;
+    private transient String packPath;
+    private transient int packCount;
 
     /**
      * @param minibatchSize       Minibatch size to combine examples to (if necessary)
      * @param exportBaseDirectory Base directory for exporting
      */
     public BatchAndExportDataSetsFunction(int minibatchSize, String exportBaseDirectory) {
+        this(minibatchSize, exportBaseDirectory, 0, false);
+    }
+
+    /**
+     * @param minibatchSize       Minibatch size to combine examples to (if necessary)
+     * @param exportBaseDirectory Base directory for exporting
+     * @param batchesPerFile      Maximum number of minibatches in each packed file. 0: one file per minibatch, saved
+     *                            with {@link DataSet#save(java.io.OutputStream)}
+     * @param compress            If true: compress each minibatch in packed files. Ignored if batchesPerFile is 0
+     */
+    public BatchAndExportDataSetsFunction(int minibatchSize, String exportBaseDirectory, int batchesPerFile,
+                    boolean compress) {
+        if (batchesPerFile < 0)
+            throw new IllegalArgumentException("Number of batches per file must be >= 0, got " + batchesPerFile);
         this.minibatchSize = minibatchSize;
         this.exportBaseDirectory = exportBaseDirectory;
+        this.batchesPerFile = batchesPerFile;
+        this.compress = compress;
         String fullUID = UIDProvider.getJVMUID();
         this.jvmuid = (fullUID.length() <= 8 ? fullUID : fullUID.substring(0, 8));
     }
@@ -64,6 +93,7 @@ public class BatchAndExportDataSetsFunction implements Function2<Integer, Iterat
 
         List<String> outputPaths = new ArrayList<>();
         LinkedList<DataSet> tempList = new LinkedList<>();
+        packCount = 0;
 
         int count = 0;
         while (iterator.hasNext()) {
@@ -86,6 +116,7 @@ public class BatchAndExportDataSetsFunction implements Function2<Integer, Iterat
         if (countAndPaths.getSecond() != null && countAndPaths.getSecond().size() > 0) {
             outputPaths.addAll(countAndPaths.getSecond());
         }
+        closePack();
 
         return outputPaths.iterator();
     }
@@ -132,6 +163,9 @@ public class BatchAndExportDataSetsFunction implements Function2<Integer, Iterat
     }
 
     private String export(DataSet dataSet, int partitionIdx, int outputCount) throws Exception {
+        if (batchesPerFile > 0)
+            return exportPacked(dataSet, partitionIdx);
+
         String filename = "dataset_" + partitionIdx + jvmuid + "_" + outputCount + ".bin";
 
         URI uri = new URI(exportBaseDirectory
@@ -144,4 +178,30 @@ public class BatchAndExportDataSetsFunction implements Function2<Integer, Iterat
 
         return uri.getPath();
     }
+
+    private String exportPacked(DataSet dataSet, int partitionIdx) throws Exception {
+        if (packWriter != null && packWriter.numBlocks() >= batchesPerFile)
+            closePack();
+
+        if (packWriter == null) {
+            String filename = "dataset_" + partitionIdx + jvmuid + "_" + (packCount++) + PackedDataSetFormat.EXTENSION;
+            URI uri = new URI(exportBaseDirectory
+                            + (exportBaseDirectory.endsWith("/") || exportBaseDirectory.endsWith("\\") ? "" : "/")
+                            + filename);
+            FileSystem file = FileSystem.get(uri, conf);
+            packWriter = new PackedDataSetWriter(file.create(new Path(uri)), compress);
+            packPath = uri.getPath();
+        }
+
+        int block = packWriter.write(dataSet);
+        return PackedDataSetFormat.blockReference(packPath, block);
+    }
+
+    private void closePack() throws Exception {
+        if (packWriter != null) {
+            packWriter.close();
+            packWriter = null;
+            packPath = null;
+        }
+    }
 }
@@ -5,6 +5,8 @@ import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.spark.api.java.function.VoidFunction;
+import org.deeplearning4j.datasets.pack.PackedDataSetFormat;
+import org.deeplearning4j.datasets.pack.PackedDataSetWriter;
 import org.deeplearning4j.util.UIDProvider;
 import org.nd4j.linalg.dataset.DataSet;
 
@@ -15,6 +17,10 @@ import java.util.Iterator;
  * A function (used in forEachPartition) to save DataSet objects to disk/HDFS. Each DataSet object is given a random and
  * (probably) unique name, starting with "dataset_" and ending  with ".bin".<br>
  * Use with {@code JavaRDD<DataSet>.foreachPartition()}
+ * <p>
+ * If {@code batchesPerFile > 0}, DataSet objects are instead written to packed files ending with ".dspack"
+ * (see {@link PackedDataSetFormat}), with up to {@code batchesPerFile} DataSet objects per file. Paths of these files
+ * can be used directly with {@link org.deeplearning4j.spark.iterator.PathSparkDataSetIterator}
  *
  * @author Alex Black
  */
@@ -22,12 +28,27 @@ public class DataSetExportFunction implements VoidFunction<Iterator<DataSet>> {
     private static final Configuration conf = new Configuration();
 
     private final URI outputDir;
+    private final int batchesPerFile;
+    private final boolean compress;
     private String uid = null;
 
     private int outputCount;
 
     public DataSetExportFunction(URI outputDir) {
+        this(outputDir, 0, false);
+    }
+
+    /**
+     * @param outputDir      Directory to export to
+     * @param batchesPerFile Maximum number of DataSet objects in each packed file. 0: one file per DataSet object
+     * @param compress       If true: compress each DataSet in packed files. Ignored if batchesPerFile is 0
+     */
+    public DataSetExportFunction(URI outputDir, int batchesPerFile, boolean compress) {
+        if (batchesPerFile < 0)
+            throw new IllegalArgumentException("Number of batches per file must be >= 0, got " + batchesPerFile);
         this.outputDir = outputDir;
+        this.batchesPerFile = batchesPerFile;
+        this.compress = compress;
     }
 
     @Override
@@ -35,18 +56,38 @@ public class DataSetExportFunction implements VoidFunction<Iterator<DataSet>> {
         String jvmuid = UIDProvider.getJVMUID();
         uid = Thread.currentThread().getId() + jvmuid.substring(0, Math.min(8, jvmuid.length()));
 
+        if (batchesPerFile > 0) {
+            exportPacked(iter);
+            return;
+        }
 
         while (iter.hasNext()) {
             DataSet next = iter.next();
 
             String filename = "dataset_" + uid + "_" + (outputCount++) + ".bin";
 
-            String path = outputDir.getPath();
-            URI uri = new URI(path + (path.endsWith("/") || path.endsWith("\\") ? "" : "/") + filename);
+            URI uri = outputUri(filename);
             FileSystem file = FileSystem.get(uri, conf);
             try (FSDataOutputStream out = file.create(new Path(uri))) {
                 next.save(out);
             }
         }
     }
+
+    private void exportPacked(Iterator<DataSet> iter) throws Exception {
+        while (iter.hasNext()) {
+            URI uri = outputUri("dataset_" + uid + "_" + (outputCount++) + PackedDataSetFormat.EXTENSION);
+            FileSystem file = FileSystem.get(uri, conf);
+            try (PackedDataSetWriter writer = new PackedDataSetWriter(file.create(new Path(uri)), compress)) {
+                while (iter.hasNext() && writer.numBlocks() < batchesPerFile) {
+                    writer.write(iter.next());
+                }
+            }
+        }
+    }
+
+    private URI outputUri(String filename) throws Exception {
+        String path = outputDir.getPath();
+        return new URI(path + (path.endsWith("/") || path.endsWith("\\") ? "" : "/") + filename);
+    }
 }
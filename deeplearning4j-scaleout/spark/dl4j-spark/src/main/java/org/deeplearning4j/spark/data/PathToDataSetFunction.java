@@ -4,25 +4,58 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.spark.TaskContext;
 import org.apache.spark.api.java.function.Function;
+import org.apache.spark.util.TaskCompletionListener;
+import org.deeplearning4j.datasets.pack.PackedDataSetFormat;
+import org.deeplearning4j.spark.data.pack.PackedDataSetLoader;
 import org.nd4j.linalg.dataset.DataSet;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 
 /**
  * Simple function used to load DataSets (serialized with DataSet.save()) from a given Path (as a String)
  * to a DataSet object - i.e., {@code RDD<String>} to {@code RDD<DataSet>}
+ * <p>
+ * DataSets stored in packed files (see {@link PackedDataSetFormat}) are loaded from paths of the form
+ * {@code path#blockIndex}. The most recently used packed file is kept open: it is closed when the Spark task completes,
+ * or by {@link #close()} when the function is used outside of a task
  *
  * @author Alex Black
  */
-public class PathToDataSetFunction implements Function<String, DataSet> {
+public class PathToDataSetFunction implements Function<String, DataSet>, Closeable {
     public static final int BUFFER_SIZE = 4194304; //4 MB
 
     private FileSystem fileSystem;
+    private transient PackedDataSetLoader packedLoader;
 
     @Override
     public DataSet call(String path) throws Exception {
+        if (PackedDataSetFormat.isPacked(path)) {
+            if (!PackedDataSetFormat.isBlockReference(path))
+                throw new IllegalArgumentException("Path refers to packed file with multiple DataSets, expected "
+                                + "reference to single DataSet (path#blockIndex): " + path);
+            if (packedLoader == null) {
+                packedLoader = new PackedDataSetLoader();
+                TaskContext context = TaskContext.get();
+                if (context != null) {
+                    context.addTaskCompletionListener(new TaskCompletionListener() {
+                        @Override
+                        public void onTaskCompletion(TaskContext context) {
+                            try {
+                                close();
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    });
+                }
+            }
+            return packedLoader.load(path);
+        }
+
         if (fileSystem == null) {
             try {
                 fileSystem = FileSystem.get(new URI(path), new Configuration());
@@ -40,4 +73,16 @@ public class PathToDataSetFunction implements Function<String, DataSet> {
 
         return ds;
     }
+
+    /**
+     * Close the packed file kept open by this function, if any
+     */
+    @Override
+    public void close() throws IOException {
+        if (packedLoader != null) {
+            PackedDataSetLoader toClose = packedLoader;
+            packedLoader = null;
+            toClose.close();
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package org.deeplearning4j.spark.data;
+
+import org.apache.spark.TaskContext;
+import org.apache.spark.util.TaskCompletionListener;
+import org.datavec.spark.functions.FlatMapFunctionAdapter;
+import org.datavec.spark.transform.BaseFlatMapFunctionAdaptee;
+import org.deeplearning4j.spark.iterator.PrefetchingPathSparkDataSetIterator;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.util.Iterator;
+
+/**
+ * Function used with {@code RDD<String>.mapPartitions} to load DataSets (serialized with DataSet.save(), or stored in
+ * packed files) from paths - i.e., {@code RDD<String>} to {@code RDD<DataSet>}, like {@link PathToDataSetFunction}.<br>
+ * DataSets are loaded lazily, in order, by a {@link PrefetchingPathSparkDataSetIterator}: up to {@code numBatches}
+ * DataSets are loaded ahead by {@code numThreads} threads, while the following operation (scoring, evaluation etc)
+ * processes the earlier ones in the same task. Loading threads are stopped, and their open files closed, when the task
+ * completes.
+ */
+public class PrefetchingPathToDataSetsFunction extends BaseFlatMapFunctionAdaptee<Iterator<String>, DataSet> {
+
+    /**
+     * @param numThreads Number of threads loading DataSets in parallel
+     * @param numBatches Maximum number of DataSets loaded ahead. Must be at least numThreads
+     */
+    public PrefetchingPathToDataSetsFunction(int numThreads, int numBatches) {
+        super(new PrefetchingPathToDataSetsFunctionAdapter(numThreads, numBatches));
+    }
+}
+
+
+class PrefetchingPathToDataSetsFunctionAdapter implements FlatMapFunctionAdapter<Iterator<String>, DataSet> {
+
+    private final int numThreads;
+    private final int numBatches;
+
+    public PrefetchingPathToDataSetsFunctionAdapter(int numThreads, int numBatches) {
+        if (numThreads <= 0)
+            throw new IllegalArgumentException("Number of threads must be > 0, got " + numThreads);
+        if (numBatches < numThreads)
+            throw new IllegalArgumentException(
+                            "Number of batches (" + numBatches + ") must be >= number of threads (" + numThreads + ")");
+        this.numThreads = numThreads;
+        this.numBatches = numBatches;
+    }
+
+    @Override
+    public Iterable<DataSet> call(Iterator<String> iter) throws Exception {
+        final PrefetchingPathSparkDataSetIterator prefetching =
+                        new PrefetchingPathSparkDataSetIterator(iter, numThreads, numBatches, false);
+        TaskContext context = TaskContext.get();
+        if (context != null) {
+            context.addTaskCompletionListener(new TaskCompletionListener() {
+                @Override
+                public void onTaskCompletion(TaskContext context) {
+                    prefetching.shutdown();
+                }
+            });
+        }
+        return new Iterable<DataSet>() {
+            @Override
+            public Iterator<DataSet> iterator() {
+                return prefetching;
+            }
+        };
+    }
+}
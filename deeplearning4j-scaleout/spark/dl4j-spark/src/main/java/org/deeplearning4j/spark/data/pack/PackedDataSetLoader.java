@@ -0,0 +1,116 @@
+package org.deeplearning4j.spark.data.pack;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.deeplearning4j.datasets.pack.PackedDataSetFormat;
+import org.deeplearning4j.datasets.pack.PackedDataSetReader;
+import org.nd4j.linalg.dataset.DataSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+/**
+ * Opens packed DataSet files (see {@link PackedDataSetFormat}) from any Hadoop file system, and loads blocks
+ * referenced as {@code path#blockIndex}.<br>
+ * The most recently used file is kept open, so consecutive references to blocks of the same file (which is the usual
+ * case, as references are exported in order) don't reopen or re-read the index.
+ * <p>
+ * Local files are memory mapped; other file systems use positional reads, so only the requested block is transferred.
+ */
+public class PackedDataSetLoader implements Closeable {
+
+    private final Configuration conf;
+    private PackedDataSetReader current;
+
+    public PackedDataSetLoader() {
+        this(new Configuration());
+    }
+
+    public PackedDataSetLoader(Configuration conf) {
+        this.conf = conf;
+    }
+
+    /**
+     * Load the DataSet referenced by {@code path#blockIndex}
+     */
+    public DataSet load(String blockReference) throws IOException {
+        int block = PackedDataSetFormat.blockIndex(blockReference);
+        if (block < 0)
+            throw new IllegalArgumentException("Not a block reference (expected path" + PackedDataSetFormat.EXTENSION
+                            + "#blockIndex): " + blockReference);
+        return reader(PackedDataSetFormat.filePath(blockReference)).get(block);
+    }
+
+    /**
+     * Reader for the given file, reusing the currently open reader if it is for the same file
+     */
+    public PackedDataSetReader reader(String filePath) throws IOException {
+        if (current != null && current.getPath().equals(filePath))
+            return current;
+
+        close();
+        current = open(filePath, conf);
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            PackedDataSetReader toClose = current;
+            current = null;
+            toClose.close();
+        }
+    }
+
+    /**
+     * Open a packed file, from local file system or any other Hadoop file system
+     */
+    public static PackedDataSetReader open(String filePath, Configuration conf) throws IOException {
+        FileSystem fileSystem;
+        try {
+            fileSystem = FileSystem.get(new URI(filePath), conf);
+        } catch (Exception e) {
+            throw new IOException("Could not get file system for path " + filePath, e);
+        }
+
+        Path path = new Path(filePath);
+        if (fileSystem instanceof LocalFileSystem)
+            return new PackedDataSetReader(filePath,
+                            new PackedDataSetReader.MappedFileSource(((LocalFileSystem) fileSystem).pathToFile(path)));
+
+        long length = fileSystem.getFileStatus(path).getLen();
+        return new PackedDataSetReader(filePath, new HadoopSource(fileSystem.open(path), length));
+    }
+
+    private static class HadoopSource implements PackedDataSetReader.Source {
+        private final FSDataInputStream in;
+        private final long length;
+
+        private HadoopSource(FSDataInputStream in, long length) {
+            this.in = in;
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public ByteBuffer read(long offset, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            in.readFully(offset, bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.deeplearning4j.spark.impl.evaluation;
+
+import org.apache.spark.broadcast.Broadcast;
+import org.datavec.spark.functions.FlatMapFunctionAdapter;
+import org.datavec.spark.transform.BaseFlatMapFunctionAdaptee;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Function to evaluate data in a distributed manner, collecting the statistics in an {@link EvaluationAccumulator}.
+ * Returns (at most) one accumulator per partition; these are then combined with {@code treeAggregate}.
+ * Works with both MultiLayerNetwork and (single input, single output) ComputationGraph networks.
+ */
+public class AccumulateEvaluationFlatMapFunction<A extends EvaluationAccumulator>
+                extends BaseFlatMapFunctionAdaptee<Iterator<DataSet>, A> {
+
+    /**
+     * @param json          Network configuration (json format)
+     * @param params        Network parameters
+     * @param isGraph       True if the configuration is a ComputationGraph configuration; false for MultiLayerNetwork
+     * @param evalBatchSize Max examples per evaluation. Do multiple separate forward passes if data exceeds this
+     * @param accumulator   Initial (empty) accumulator
+     */
+    public AccumulateEvaluationFlatMapFunction(Broadcast<String> json, Broadcast<INDArray> params, boolean isGraph,
+                    int evalBatchSize, A accumulator) {
+        super(new AccumulateEvaluationFlatMapFunctionAdapter<>(json, params, isGraph, evalBatchSize, accumulator));
+    }
+}
+
+
+/**
+ * Function to evaluate data in a distributed manner, collecting the statistics in an {@link EvaluationAccumulator}
+ */
+class AccumulateEvaluationFlatMapFunctionAdapter<A extends EvaluationAccumulator>
+                implements FlatMapFunctionAdapter<Iterator<DataSet>, A> {
+
+    protected static Logger log = LoggerFactory.getLogger(AccumulateEvaluationFlatMapFunction.class);
+
+    protected Broadcast<String> json;
+    protected Broadcast<INDArray> params;
+    protected boolean isGraph;
+    protected int evalBatchSize;
+    protected A accumulator;
+
+    public AccumulateEvaluationFlatMapFunctionAdapter(Broadcast<String> json, Broadcast<INDArray> params,
+                    boolean isGraph, int evalBatchSize, A accumulator) {
+        this.json = json;
+        this.params = params;
+        this.isGraph = isGraph;
+        this.evalBatchSize = evalBatchSize;
+        this.accumulator = accumulator;
+    }
+
+    @Override
+    public Iterable<A> call(Iterator<DataSet> dataSetIterator) throws Exception {
+        if (!dataSetIterator.hasNext()) {
+            return Collections.emptyList();
+        }
+
+        MultiLayerNetwork network = null;
+        ComputationGraph graph = null;
+        INDArray val = params.value().unsafeDuplication();
+        if (isGraph) {
+            graph = new ComputationGraph(ComputationGraphConfiguration.fromJson(json.getValue()));
+            graph.init();
+            if (graph.getNumInputArrays() != 1 || graph.getNumOutputArrays() != 1)
+                throw new IllegalStateException("Cannot evaluate a ComputationGraph with more than one input or output "
+                                + "array using DataSet data");
+            if (val.length() != graph.numParams(false))
+                throw new IllegalStateException(
+                                "Network did not have same number of parameters as the broadcast set parameters");
+            graph.setParams(val);
+        } else {
+            network = new MultiLayerNetwork(MultiLayerConfiguration.fromJson(json.getValue()));
+            network.init();
+            if (val.length() != network.numParams(false))
+                throw new IllegalStateException(
+                                "Network did not have same number of parameters as the broadcast set parameters");
+            network.setParameters(val);
+        }
+
+        List<DataSet> collect = new ArrayList<>();
+        int totalCount = 0;
+        while (dataSetIterator.hasNext()) {
+            collect.clear();
+            int nExamples = 0;
+            while (dataSetIterator.hasNext() && nExamples < evalBatchSize) {
+                DataSet next = dataSetIterator.next();
+                nExamples += next.numExamples();
+                collect.add(next);
+            }
+            totalCount += nExamples;
+
+            DataSet data = DataSet.merge(collect);
+
+            INDArray out;
+            if (isGraph) {
+                graph.setLayerMaskArrays(
+                                data.getFeaturesMaskArray() == null ? null
+                                                : new INDArray[] {data.getFeaturesMaskArray()},
+                                data.getLabelsMaskArray() == null ? null : new INDArray[] {data.getLabelsMaskArray()});
+                out = graph.outputSingle(false, data.getFeatureMatrix());
+                graph.clearLayerMaskArrays();
+            } else if (data.hasMaskArrays()) {
+                out = network.output(data.getFeatureMatrix(), false, data.getFeaturesMaskArray(),
+                                data.getLabelsMaskArray());
+            } else {
+                out = network.output(data.getFeatureMatrix(), false);
+            }
+
+            if (data.getLabels().rank() == 3) {
+                accumulator.evalTimeSeries(data.getLabels(), out, data.getLabelsMaskArray());
+            } else {
+                accumulator.eval(data.getLabels(), out);
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Evaluated {} examples ", totalCount);
+        }
+
+        return Collections.singletonList(accumulator);
+    }
+}
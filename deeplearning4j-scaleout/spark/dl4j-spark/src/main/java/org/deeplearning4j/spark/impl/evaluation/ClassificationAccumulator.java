@@ -0,0 +1,225 @@
+package org.deeplearning4j.spark.impl.evaluation;
+
+import org.deeplearning4j.eval.Evaluation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Accumulator for classification statistics, producing an {@link Evaluation}.<br>
+ * Only the non-zero entries of the confusion matrix are stored, in a primitive open addressing hash table, so memory,
+ * serialization and merge cost scale with the number of distinct (actual, predicted) pairs seen rather than with the
+ * square of the number of classes. True/false positive/negative counts are derived from the confusion matrix when
+ * the {@link Evaluation} is created.
+ */
+public class ClassificationAccumulator extends EvaluationAccumulator<Evaluation> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int topN;
+    private int numClasses = -1;
+
+    //Keys are (actual * numClasses + predicted + 1); 0 marks an empty slot
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private long topNCorrectCount;
+    private long topNTotalCount;
+
+    public ClassificationAccumulator() {
+        this(1);
+    }
+
+    /**
+     * @param topN Value to use for top N accuracy calculation (<=1: standard accuracy). See {@link Evaluation}
+     */
+    public ClassificationAccumulator(int topN) {
+        this.topN = topN;
+    }
+
+    @Override
+    public void eval(INDArray labels, INDArray predictions) {
+        if (labels.rank() != 2 || predictions.rank() != 2 || labels.size(0) != predictions.size(0)
+                        || labels.size(1) != predictions.size(1)) {
+            throw new IllegalArgumentException("Invalid input data shape: labels shape = "
+                            + Arrays.toString(labels.shape()) + ", predictions shape = "
+                            + Arrays.toString(predictions.shape()) + "; require rank 2 arrays with equal shapes");
+        }
+
+        int nRows = labels.size(0);
+        int nCols = labels.size(1);
+        checkNumClasses(nCols == 1 ? 2 : nCols); //Binary (single output variable) case: 2 classes
+
+        double[] l = toDoubleArray(labels);
+        double[] p = toDoubleArray(predictions);
+
+        if (nCols == 1) {
+            for (int i = 0; i < nRows; i++) {
+                int actual = l[i] != 0.0 ? 1 : 0;
+                int predicted = p[i] > 0.5 ? 1 : 0;
+                add(actual, predicted, 1);
+            }
+            return;
+        }
+
+        for (int i = 0; i < nRows; i++) {
+            int offset = i * nCols;
+            int actual = argMax(l, offset, nCols);
+            int predicted = argMax(p, offset, nCols);
+            add(actual, predicted, 1);
+
+            if (topN > 1) {
+                //For example, for top 3 accuracy: can have at most 2 other probabilities larger
+                double prob = p[offset + actual];
+                int countGreaterThan = 0;
+                for (int j = offset; j < offset + nCols; j++) {
+                    if (p[j] > prob)
+                        countGreaterThan++;
+                }
+                if (countGreaterThan < topN)
+                    topNCorrectCount++;
+                topNTotalCount++;
+            }
+        }
+    }
+
+    @Override
+    public EvaluationAccumulator<Evaluation> merge(EvaluationAccumulator<Evaluation> other) {
+        ClassificationAccumulator o = (ClassificationAccumulator) other;
+        if (o.topN != topN)
+            throw new IllegalArgumentException(
+                            "Cannot merge accumulators with different topN values (" + topN + " vs. " + o.topN + ")");
+        if (o.numClasses == -1)
+            return this;
+        checkNumClasses(o.numClasses);
+
+        for (int i = 0; i < o.keys.length; i++) {
+            if (o.keys[i] != 0)
+                addKey(o.keys[i], o.values[i]);
+        }
+        topNCorrectCount += o.topNCorrectCount;
+        topNTotalCount += o.topNTotalCount;
+        return this;
+    }
+
+    @Override
+    public Evaluation toEvaluation() {
+        if (numClasses == -1) {
+            Evaluation e = new Evaluation(null, topN);
+            e.setLabelsList(new ArrayList<String>());
+            return e;
+        }
+
+        List<String> labels = new ArrayList<>(numClasses);
+        for (int i = 0; i < numClasses; i++)
+            labels.add(String.valueOf(i));
+        Evaluation e = new Evaluation(labels, topN);
+
+        int[] actual = new int[size];
+        int[] predicted = new int[size];
+        int[] counts = new int[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == 0)
+                continue;
+            long k = keys[i] - 1;
+            actual[n] = (int) (k / numClasses);
+            predicted[n] = (int) (k % numClasses);
+            counts[n] = toInt(values[i]);
+            n++;
+        }
+        e.addCounts(numClasses, actual, predicted, counts, toInt(topNCorrectCount), toInt(topNTotalCount));
+        return e;
+    }
+
+    /**
+     * @return Number of classes, or -1 if no data has been evaluated yet
+     */
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    /**
+     * @return Number of examples of the actual class that were predicted as the predicted class
+     */
+    public long getCount(int actual, int predicted) {
+        if (numClasses == -1)
+            return 0;
+        int slot = find(key(actual, predicted));
+        return keys[slot] == 0 ? 0 : values[slot];
+    }
+
+    private void checkNumClasses(int n) {
+        if (numClasses == -1) {
+            numClasses = n;
+        } else if (numClasses != n) {
+            throw new IllegalArgumentException("Cannot evaluate data: number of classes does not match previous data."
+                            + " Got " + n + " classes vs. expected number of classes = " + numClasses);
+        }
+    }
+
+    private static int argMax(double[] data, int offset, int length) {
+        int max = 0;
+        for (int j = 1; j < length; j++) {
+            if (data[offset + j] > data[offset + max])
+                max = j;
+        }
+        return max;
+    }
+
+    private static int toInt(long count) {
+        if (count > Integer.MAX_VALUE)
+            throw new IllegalStateException("Count " + count + " is too large to be stored in an Evaluation instance");
+        return (int) count;
+    }
+
+    private long key(int actual, int predicted) {
+        return (long) actual * numClasses + predicted + 1;
+    }
+
+    private void add(int actual, int predicted, long count) {
+        addKey(key(actual, predicted), count);
+    }
+
+    private void addKey(long key, long count) {
+        int slot = find(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            values[slot] = count;
+            if (++size * 2 > keys.length)
+                grow();
+        } else {
+            values[slot] += count;
+        }
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
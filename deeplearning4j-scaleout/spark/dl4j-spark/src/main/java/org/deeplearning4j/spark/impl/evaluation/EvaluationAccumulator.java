@@ -0,0 +1,52 @@
+package org.deeplearning4j.spark.impl.evaluation;
+
+import org.deeplearning4j.berkeley.Pair;
+import org.deeplearning4j.eval.EvaluationUtils;
+import org.deeplearning4j.eval.IEvaluation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+
+/**
+ * Compact, mergeable statistics for distributed evaluation.<br>
+ * An accumulator collects the same statistics as the corresponding {@link IEvaluation} instance, but only in
+ * primitive arrays, so they are cheap to serialize and to merge when many partitions are combined with
+ * {@code treeAggregate}. The {@link IEvaluation} instance is created only once, on the driver, by
+ * {@link #toEvaluation()}.
+ *
+ * @param <T> Type of evaluation produced by this accumulator
+ */
+public abstract class EvaluationAccumulator<T extends IEvaluation> implements Serializable {
+
+    /**
+     * Collect statistics for the given minibatch
+     *
+     * @param labels      Labels, rank 2
+     * @param predictions Network predictions, rank 2
+     */
+    public abstract void eval(INDArray labels, INDArray predictions);
+
+    /**
+     * Add the statistics of the other accumulator to this one
+     *
+     * @return This accumulator
+     */
+    public abstract EvaluationAccumulator<T> merge(EvaluationAccumulator<T> other);
+
+    /**
+     * Create the evaluation instance holding the statistics collected by this accumulator
+     */
+    public abstract T toEvaluation();
+
+    /**
+     * Collect statistics for the given time series minibatch, optionally with a labels mask array
+     */
+    public void evalTimeSeries(INDArray labels, INDArray predictions, INDArray labelsMask) {
+        Pair<INDArray, INDArray> pair = EvaluationUtils.extractNonMaskedTimeSteps(labels, predictions, labelsMask);
+        eval(pair.getFirst(), pair.getSecond());
+    }
+
+    protected static double[] toDoubleArray(INDArray array) {
+        return array.dup('c').data().asDouble();
+    }
+}
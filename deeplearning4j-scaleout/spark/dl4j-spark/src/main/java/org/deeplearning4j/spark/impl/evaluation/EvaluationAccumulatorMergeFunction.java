@@ -0,0 +1,16 @@
+package org.deeplearning4j.spark.impl.evaluation;
+
+import org.apache.spark.api.java.function.Function2;
+
+/**
+ * Merges two evaluation accumulators. Used as both the sequence and combine functions of {@code treeAggregate}
+ */
+public class EvaluationAccumulatorMergeFunction<A extends EvaluationAccumulator>
+                implements Function2<A, A, A> {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public A call(A acc1, A acc2) throws Exception {
+        return (A) acc1.merge(acc2);
+    }
+}
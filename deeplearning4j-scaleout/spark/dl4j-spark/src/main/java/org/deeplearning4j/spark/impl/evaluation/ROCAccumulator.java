@@ -0,0 +1,147 @@
+package org.deeplearning4j.spark.impl.evaluation;
+
+import org.deeplearning4j.eval.ROC;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Arrays;
+
+/**
+ * Accumulator for binary ROC statistics, producing a {@link ROC}.<br>
+ * True and false positive counts are kept in one primitive array per threshold step. Each minibatch is processed in a
+ * single pass: every prediction is assigned to the highest threshold it exceeds, and the per-threshold counts are then
+ * obtained with a cumulative sum, instead of thresholding all predictions once for each threshold step.
+ */
+public class ROCAccumulator extends EvaluationAccumulator<ROC> {
+
+    private final int thresholdSteps;
+    private long countActualPositive;
+    private long countActualNegative;
+    private final long[] truePositives;
+    private final long[] falsePositives;
+
+    /**
+     * @param thresholdSteps Number of threshold steps to use for the ROC calculation
+     */
+    public ROCAccumulator(int thresholdSteps) {
+        if (thresholdSteps <= 0)
+            throw new IllegalArgumentException("Number of threshold steps must be > 0, got " + thresholdSteps);
+        this.thresholdSteps = thresholdSteps;
+        this.truePositives = new long[thresholdSteps + 1];
+        this.falsePositives = new long[thresholdSteps + 1];
+    }
+
+    @Override
+    public void eval(INDArray labels, INDArray predictions) {
+        if (labels.rank() != 2 || predictions.rank() != 2 || labels.size(1) != predictions.size(1)
+                        || labels.size(1) > 2) {
+            throw new IllegalArgumentException("Invalid input data shape: labels shape = "
+                            + Arrays.toString(labels.shape()) + ", predictions shape = "
+                            + Arrays.toString(predictions.shape()) + "; require rank 2 array with size(1) == 1 or 2");
+        }
+
+        int nRows = labels.size(0);
+        int nCols = labels.size(1);
+        double[] l = toDoubleArray(labels);
+        double[] p = toDoubleArray(predictions);
+        boolean floatPrecision = isFloat(predictions);
+
+        double[] positiveBuckets = new double[thresholdSteps + 1];
+        double[] negativeBuckets = new double[thresholdSteps + 1];
+        double positiveSum = 0.0;
+        double negativeSum = 0.0;
+        for (int i = 0; i < nRows; i++) {
+            double positive;
+            double negative;
+            double prob;
+            if (nCols == 1) {
+                //Single binary variable case
+                positive = l[i];
+                negative = 1.0 - l[i];
+                prob = p[i];
+            } else {
+                //Standard case - 2 output variables (probability distribution), column 1 is the positive class
+                positive = l[2 * i + 1];
+                negative = l[2 * i];
+                prob = p[2 * i + 1];
+            }
+            positiveSum += positive;
+            negativeSum += negative;
+
+            int bucket = numPositiveThresholds(prob, thresholdSteps, floatPrecision);
+            positiveBuckets[bucket] += positive;
+            negativeBuckets[bucket] += negative;
+        }
+
+        countActualPositive += (long) positiveSum;
+        countActualNegative += (long) negativeSum;
+        addCumulative(positiveBuckets, negativeBuckets, truePositives, falsePositives);
+    }
+
+    @Override
+    public EvaluationAccumulator<ROC> merge(EvaluationAccumulator<ROC> other) {
+        ROCAccumulator o = (ROCAccumulator) other;
+        if (o.thresholdSteps != thresholdSteps)
+            throw new IllegalArgumentException("Cannot merge accumulators with different numbers of threshold steps ("
+                            + thresholdSteps + " vs. " + o.thresholdSteps + ")");
+        countActualPositive += o.countActualPositive;
+        countActualNegative += o.countActualNegative;
+        for (int i = 0; i <= thresholdSteps; i++) {
+            truePositives[i] += o.truePositives[i];
+            falsePositives[i] += o.falsePositives[i];
+        }
+        return this;
+    }
+
+    @Override
+    public ROC toEvaluation() {
+        ROC roc = new ROC(thresholdSteps);
+        roc.addCounts(countActualPositive, countActualNegative, truePositives, falsePositives);
+        return roc;
+    }
+
+    /**
+     * Number of thresholds at which the given probability is predicted as positive. As in {@link ROC}, threshold i
+     * (value i / thresholdSteps) is positive if {@code prob >= threshold}, except for the last threshold (1.0),
+     * which is never positive. As thresholds are increasing, these are always thresholds 0 to (returned value - 1)
+     *
+     * @param floatPrecision If true: compare in float precision, as ROC does for float predictions
+     */
+    static int numPositiveThresholds(double prob, int thresholdSteps, boolean floatPrecision) {
+        if (!(prob >= 0.0))
+            return 0; //Negative or NaN
+        double step = 1.0 / thresholdSteps;
+        //Estimate the highest positive threshold index, then correct it for rounding of the threshold values
+        int idx = (int) Math.min(prob * thresholdSteps, thresholdSteps - 1);
+        while (idx > 0 && threshold(idx, step, floatPrecision) > prob)
+            idx--;
+        while (idx + 1 < thresholdSteps && threshold(idx + 1, step, floatPrecision) <= prob)
+            idx++;
+        return idx + 1;
+    }
+
+    private static double threshold(int idx, double step, boolean floatPrecision) {
+        return floatPrecision ? (float) (idx * step) : idx * step;
+    }
+
+    static boolean isFloat(INDArray array) {
+        return array.data().dataType() != DataBuffer.Type.DOUBLE;
+    }
+
+    /**
+     * Add the counts for each threshold, given the counts for each number of positive thresholds (see
+     * {@link #numPositiveThresholds(double, int, boolean)}). A prediction counts for threshold i if it is positive for
+     * more than i thresholds
+     */
+    static void addCumulative(double[] positiveBuckets, double[] negativeBuckets, long[] truePositives,
+                    long[] falsePositives) {
+        double tp = 0.0;
+        double fp = 0.0;
+        for (int i = truePositives.length - 2; i >= 0; i--) {
+            tp += positiveBuckets[i + 1];
+            fp += negativeBuckets[i + 1];
+            truePositives[i] += (long) tp;
+            falsePositives[i] += (long) fp;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.deeplearning4j.spark.impl.evaluation;
+
+import org.deeplearning4j.eval.ROCMultiClass;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Arrays;
+
+/**
+ * Accumulator for one-vs-all ROC statistics, producing a {@link ROCMultiClass}.<br>
+ * Counts are kept in primitive arrays of shape [numClasses][thresholdSteps+1], and each minibatch is processed in a
+ * single pass over the predictions, as in {@link ROCAccumulator}.
+ */
+public class ROCMultiClassAccumulator extends EvaluationAccumulator<ROCMultiClass> {
+
+    private final int thresholdSteps;
+    private long[] countActualPositive;
+    private long[] countActualNegative;
+    private long[][] truePositives;
+    private long[][] falsePositives;
+
+    /**
+     * @param thresholdSteps Number of threshold steps to use for the ROC calculation
+     */
+    public ROCMultiClassAccumulator(int thresholdSteps) {
+        if (thresholdSteps <= 0)
+            throw new IllegalArgumentException("Number of threshold steps must be > 0, got " + thresholdSteps);
+        this.thresholdSteps = thresholdSteps;
+    }
+
+    @Override
+    public void eval(INDArray labels, INDArray predictions) {
+        if (labels.rank() != 2 || predictions.rank() != 2 || labels.size(1) != predictions.size(1)) {
+            throw new IllegalArgumentException("Invalid input data shape: labels shape = "
+                            + Arrays.toString(labels.shape()) + ", predictions shape = "
+                            + Arrays.toString(predictions.shape()) + "; require rank 2 arrays with equal size(1)");
+        }
+
+        int nRows = labels.size(0);
+        int nClasses = labels.size(1);
+        if (countActualPositive == null) {
+            init(nClasses);
+        } else if (countActualPositive.length != nClasses) {
+            throw new IllegalArgumentException("Cannot evaluate data: number of label classes does not match previous "
+                            + "data. Got " + nClasses + " vs. expected number of label classes = "
+                            + countActualPositive.length);
+        }
+
+        double[] l = toDoubleArray(labels);
+        double[] p = toDoubleArray(predictions);
+        boolean floatPrecision = ROCAccumulator.isFloat(predictions);
+
+        double[][] positiveBuckets = new double[nClasses][thresholdSteps + 1];
+        double[][] negativeBuckets = new double[nClasses][thresholdSteps + 1];
+        double[] positiveSums = new double[nClasses];
+        for (int i = 0; i < nRows; i++) {
+            int offset = i * nClasses;
+            for (int c = 0; c < nClasses; c++) {
+                double positive = l[offset + c];
+                positiveSums[c] += positive;
+
+                int bucket = ROCAccumulator.numPositiveThresholds(p[offset + c], thresholdSteps,
+                                floatPrecision);
+                positiveBuckets[c][bucket] += positive;
+                negativeBuckets[c][bucket] += 1.0 - positive;
+            }
+        }
+
+        for (int c = 0; c < nClasses; c++) {
+            long positiveCount = (long) positiveSums[c];
+            countActualPositive[c] += positiveCount;
+            countActualNegative[c] += nRows - positiveCount;
+            ROCAccumulator.addCumulative(positiveBuckets[c], negativeBuckets[c], truePositives[c], falsePositives[c]);
+        }
+    }
+
+    @Override
+    public EvaluationAccumulator<ROCMultiClass> merge(EvaluationAccumulator<ROCMultiClass> other) {
+        ROCMultiClassAccumulator o = (ROCMultiClassAccumulator) other;
+        if (o.thresholdSteps != thresholdSteps)
+            throw new IllegalArgumentException("Cannot merge accumulators with different numbers of threshold steps ("
+                            + thresholdSteps + " vs. " + o.thresholdSteps + ")");
+        if (o.countActualPositive == null)
+            return this;
+        if (countActualPositive == null) {
+            init(o.countActualPositive.length);
+        } else if (countActualPositive.length != o.countActualPositive.length) {
+            throw new IllegalArgumentException("Cannot merge accumulators with different numbers of classes ("
+                            + countActualPositive.length + " vs. " + o.countActualPositive.length + ")");
+        }
+
+        for (int c = 0; c < countActualPositive.length; c++) {
+            countActualPositive[c] += o.countActualPositive[c];
+            countActualNegative[c] += o.countActualNegative[c];
+            for (int i = 0; i <= thresholdSteps; i++) {
+                truePositives[c][i] += o.truePositives[c][i];
+                falsePositives[c][i] += o.falsePositives[c][i];
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ROCMultiClass toEvaluation() {
+        ROCMultiClass roc = new ROCMultiClass(thresholdSteps);
+        if (countActualPositive != null)
+            roc.addCounts(countActualPositive, countActualNegative, truePositives, falsePositives);
+        return roc;
+    }
+
+    private void init(int nClasses) {
+        countActualPositive = new long[nClasses];
+        countActualNegative = new long[nClasses];
+        truePositives = new long[nClasses][thresholdSteps + 1];
+        falsePositives = new long[nClasses][thresholdSteps + 1];
+    }
+}
@@ -25,13 +25,24 @@ import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.rdd.RDD;
+import org.deeplearning4j.eval.Evaluation;
+import org.deeplearning4j.eval.IEvaluation;
+import org.deeplearning4j.eval.ROC;
+import org.deeplearning4j.eval.ROCMultiClass;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.spark.api.TrainingMaster;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
+import org.deeplearning4j.spark.data.PrefetchingPathToDataSetsFunction;
 import org.deeplearning4j.spark.impl.SparkListenable;
 import org.deeplearning4j.spark.impl.common.reduce.IntDoubleReduceFunction;
+import org.deeplearning4j.spark.impl.evaluation.AccumulateEvaluationFlatMapFunction;
+import org.deeplearning4j.spark.impl.evaluation.ClassificationAccumulator;
+import org.deeplearning4j.spark.impl.evaluation.EvaluationAccumulator;
+import org.deeplearning4j.spark.impl.evaluation.EvaluationAccumulatorMergeFunction;
+import org.deeplearning4j.spark.impl.evaluation.ROCAccumulator;
+import org.deeplearning4j.spark.impl.evaluation.ROCMultiClassAccumulator;
 import org.deeplearning4j.spark.impl.graph.dataset.DataSetToMultiDataSetFn;
 import org.deeplearning4j.spark.impl.graph.dataset.PairDataSetToMultiDataSetFn;
 import org.deeplearning4j.spark.impl.graph.scoring.*;
@@ -51,6 +62,7 @@ import scala.Tuple2;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -62,6 +74,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class SparkComputationGraph extends SparkListenable {
 
     public static final int DEFAULT_EVAL_SCORE_BATCH_SIZE = 64;
+    public static final int DEFAULT_ROC_THRESHOLD_STEPS = 32;
+    public static final int DEFAULT_EVAL_AGGREGATION_DEPTH = 2;
     private transient JavaSparkContext sc;
     private ComputationGraphConfiguration conf;
     private ComputationGraph network;
@@ -316,6 +330,25 @@ public class SparkComputationGraph extends SparkListenable {
         }
     }
 
+    /**
+     * Calculate the score for all examples in the DataSet objects at the provided paths (saved with
+     * {@link DataSet#save(java.io.OutputStream)}, or in packed files), either by summing or averaging over the entire
+     * data set. DataSet objects are loaded in each worker by {@code prefetchNumThreads} background threads, up to
+     * {@code prefetchNumBatches} ahead of scoring.
+     *
+     * @param paths              Paths of the DataSet objects to score
+     * @param average            Whether to sum the scores, or average them
+     * @param minibatchSize      The number of examples to use in each minibatch when scoring
+     * @param prefetchNumThreads Number of threads loading DataSet objects in parallel in each worker
+     * @param prefetchNumBatches Maximum number of DataSet objects loaded ahead in each worker
+     */
+    public double calculateScorePaths(JavaRDD<String> paths, boolean average, int minibatchSize,
+                    int prefetchNumThreads, int prefetchNumBatches) {
+        JavaRDD<DataSet> data = paths.mapPartitions(
+                        new PrefetchingPathToDataSetsFunction(prefetchNumThreads, prefetchNumBatches));
+        return calculateScore(data, average, minibatchSize);
+    }
+
     /**
      * Calculate the score for all examples in the provided {@code JavaRDD<MultiDataSet>}, either by summing
      * or averaging over the entire data set.
@@ -466,6 +499,123 @@ public class SparkComputationGraph extends SparkListenable {
                         sc.broadcast(conf.toJson()), batchSize));
     }
 
+    /**
+     * Evaluate the network (classification performance) in a distributed manner on the provided data.
+     * The network must have a single input and a single output
+     *
+     * @param data Data to evaluate on
+     * @return Evaluation object; results of evaluation on all examples in the data set
+     */
+    public Evaluation evaluate(JavaRDD<DataSet> data) {
+        return evaluate(data, null);
+    }
+
+    /**
+     * Evaluate the network (classification performance) in a distributed manner, using default batch size and a provided
+     * list of labels. The network must have a single input and a single output
+     *
+     * @param data       Data to evaluate on
+     * @param labelsList List of labels used for evaluation
+     * @return Evaluation object; results of evaluation on all examples in the data set
+     */
+    public Evaluation evaluate(JavaRDD<DataSet> data, List<String> labelsList) {
+        return evaluate(data, labelsList, DEFAULT_EVAL_SCORE_BATCH_SIZE, DEFAULT_EVAL_AGGREGATION_DEPTH);
+    }
+
+    /**
+     * Evaluate the network (classification performance) in a distributed manner, using specified batch size and a provided
+     * list of labels. The network must have a single input and a single output
+     *
+     * @param data             Data to evaluate on
+     * @param labelsList       List of labels used for evaluation
+     * @param evalBatchSize    Batch size to use when conducting evaluations
+     * @param aggregationDepth Depth of the tree used to combine the results of each partition
+     * @return Evaluation object; results of evaluation on all examples in the data set
+     */
+    public Evaluation evaluate(JavaRDD<DataSet> data, List<String> labelsList, int evalBatchSize,
+                    int aggregationDepth) {
+        Evaluation e = doEvaluation(data, new ClassificationAccumulator(), evalBatchSize, aggregationDepth);
+        if (labelsList != null) {
+            e.setLabelsList(labelsList);
+        }
+        return e;
+    }
+
+    /**
+     * Perform ROC analysis/evaluation on the given DataSet in a distributed manner, using the default number of
+     * threshold steps ({@link #DEFAULT_ROC_THRESHOLD_STEPS}) and the default minibatch size ({@link #DEFAULT_EVAL_SCORE_BATCH_SIZE})
+     *
+     * @param data Test set data (to evaluate on)
+     * @return ROC for the entire data set
+     */
+    public ROC evaluateROC(JavaRDD<DataSet> data) {
+        return evaluateROC(data, DEFAULT_ROC_THRESHOLD_STEPS, DEFAULT_EVAL_SCORE_BATCH_SIZE,
+                        DEFAULT_EVAL_AGGREGATION_DEPTH);
+    }
+
+    /**
+     * Perform ROC analysis/evaluation on the given DataSet in a distributed manner
+     *
+     * @param data                    Test set data (to evaluate on)
+     * @param thresholdSteps          Number of threshold steps for ROC - see {@link ROC}
+     * @param evaluationMinibatchSize Minibatch size to use when performing ROC evaluation
+     * @param aggregationDepth        Depth of the tree used to combine the results of each partition
+     * @return ROC for the entire data set
+     */
+    public ROC evaluateROC(JavaRDD<DataSet> data, int thresholdSteps, int evaluationMinibatchSize,
+                    int aggregationDepth) {
+        return doEvaluation(data, new ROCAccumulator(thresholdSteps), evaluationMinibatchSize, aggregationDepth);
+    }
+
+    /**
+     * Perform ROC analysis/evaluation (for the multi-class case, using {@link ROCMultiClass} on the given DataSet in a distributed manner
+     *
+     * @param data Test set data (to evaluate on)
+     * @return ROC for the entire data set
+     */
+    public ROCMultiClass evaluateROCMultiClass(JavaRDD<DataSet> data) {
+        return evaluateROCMultiClass(data, DEFAULT_ROC_THRESHOLD_STEPS, DEFAULT_EVAL_SCORE_BATCH_SIZE,
+                        DEFAULT_EVAL_AGGREGATION_DEPTH);
+    }
+
+    /**
+     * Perform ROC analysis/evaluation (for the multi-class case, using {@link ROCMultiClass} on the given DataSet in a distributed manner
+     *
+     * @param data                    Test set data (to evaluate on)
+     * @param thresholdSteps          Number of threshold steps for ROC - see {@link ROC}
+     * @param evaluationMinibatchSize Minibatch size to use when performing ROC evaluation
+     * @param aggregationDepth        Depth of the tree used to combine the results of each partition
+     * @return ROCMultiClass for the entire data set
+     */
+    public ROCMultiClass evaluateROCMultiClass(JavaRDD<DataSet> data, int thresholdSteps, int evaluationMinibatchSize,
+                    int aggregationDepth) {
+        return doEvaluation(data, new ROCMultiClassAccumulator(thresholdSteps), evaluationMinibatchSize,
+                        aggregationDepth);
+    }
+
+    /**
+     * Perform distributed evaluation, collecting statistics in compact {@link EvaluationAccumulator} instances (one
+     * per partition), combined with a multi-level tree aggregation. The network must have a single input and a
+     * single output
+     *
+     * @param data             Data to evaluate on
+     * @param emptyAccumulator Empty accumulator instance, for example {@link ClassificationAccumulator}
+     * @param evalBatchSize    Evaluation batch size
+     * @param aggregationDepth Depth of the aggregation tree (>= 1)
+     * @param <T>              Type of evaluation instance to return
+     * @return                 IEvaluation instance
+     */
+    public <T extends IEvaluation> T doEvaluation(JavaRDD<DataSet> data, EvaluationAccumulator<T> emptyAccumulator,
+                    int evalBatchSize, int aggregationDepth) {
+        AccumulateEvaluationFlatMapFunction<EvaluationAccumulator<T>> evalFn =
+                        new AccumulateEvaluationFlatMapFunction<>(sc.broadcast(conf.toJson()),
+                                        sc.broadcast(network.params(false)), true, evalBatchSize, emptyAccumulator);
+        JavaRDD<EvaluationAccumulator<T>> accumulators = data.mapPartitions(evalFn);
+        EvaluationAccumulatorMergeFunction<EvaluationAccumulator<T>> mergeFn =
+                        new EvaluationAccumulatorMergeFunction<>();
+        return accumulators.treeAggregate(emptyAccumulator, mergeFn, mergeFn, aggregationDepth).toEvaluation();
+    }
+
     private void update(int mr, long mg) {
         Environment env = EnvironmentUtils.buildEnvironment();
         env.setNumCores(mr);
@@ -34,8 +34,15 @@ import org.deeplearning4j.nn.conf.layers.FeedForwardLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.spark.api.TrainingMaster;
 import org.deeplearning4j.spark.api.stats.SparkTrainingStats;
+import org.deeplearning4j.spark.data.PrefetchingPathToDataSetsFunction;
 import org.deeplearning4j.spark.impl.SparkListenable;
 import org.deeplearning4j.spark.impl.common.reduce.IntDoubleReduceFunction;
+import org.deeplearning4j.spark.impl.evaluation.AccumulateEvaluationFlatMapFunction;
+import org.deeplearning4j.spark.impl.evaluation.ClassificationAccumulator;
+import org.deeplearning4j.spark.impl.evaluation.EvaluationAccumulator;
+import org.deeplearning4j.spark.impl.evaluation.EvaluationAccumulatorMergeFunction;
+import org.deeplearning4j.spark.impl.evaluation.ROCAccumulator;
+import org.deeplearning4j.spark.impl.evaluation.ROCMultiClassAccumulator;
 import org.deeplearning4j.spark.impl.multilayer.evaluation.IEvaluateFlatMapFunction;
 import org.deeplearning4j.spark.impl.multilayer.evaluation.IEvaluationReduceFunction;
 import org.deeplearning4j.spark.impl.multilayer.scoring.FeedForwardWithKeyFunction;
@@ -69,6 +76,7 @@ import java.util.List;
 public class SparkDl4jMultiLayer extends SparkListenable {
     public static final int DEFAULT_EVAL_SCORE_BATCH_SIZE = 64;
     public static final int DEFAULT_ROC_THRESHOLD_STEPS = 32;
+    public static final int DEFAULT_EVAL_AGGREGATION_DEPTH = 2;
     private transient JavaSparkContext sc;
     private MultiLayerConfiguration conf;
     private MultiLayerNetwork network;
@@ -338,6 +346,25 @@ public class SparkDl4jMultiLayer extends SparkListenable {
         }
     }
 
+    /**
+     * Calculate the score for all examples in the DataSet objects at the provided paths (saved with
+     * {@link DataSet#save(java.io.OutputStream)}, or in packed files), either by summing or averaging over the entire
+     * data set. DataSet objects are loaded in each worker by {@code prefetchNumThreads} background threads, up to
+     * {@code prefetchNumBatches} ahead of scoring.
+     *
+     * @param paths              Paths of the DataSet objects to score
+     * @param average            Whether to sum the scores, or average them
+     * @param minibatchSize      The number of examples to use in each minibatch when scoring
+     * @param prefetchNumThreads Number of threads loading DataSet objects in parallel in each worker
+     * @param prefetchNumBatches Maximum number of DataSet objects loaded ahead in each worker
+     */
+    public double calculateScorePaths(JavaRDD<String> paths, boolean average, int minibatchSize,
+                    int prefetchNumThreads, int prefetchNumBatches) {
+        JavaRDD<DataSet> data = paths.mapPartitions(
+                        new PrefetchingPathToDataSetsFunction(prefetchNumThreads, prefetchNumBatches));
+        return calculateScore(data, average, minibatchSize);
+    }
+
     /**
      * {@code RDD<DataSet>} overload of {@link #scoreExamples(JavaPairRDD, boolean)}
      */
@@ -512,7 +539,21 @@ public class SparkDl4jMultiLayer extends SparkListenable {
      * @return ROC for the entire data set
      */
     public ROC evaluateROC(JavaRDD<DataSet> data, int thresholdSteps, int evaluationMinibatchSize) {
-        return doEvaluation(data, new ROC(thresholdSteps), evaluationMinibatchSize);
+        return evaluateROC(data, thresholdSteps, evaluationMinibatchSize, DEFAULT_EVAL_AGGREGATION_DEPTH);
+    }
+
+    /**
+     * Perform ROC analysis/evaluation on the given DataSet in a distributed manner
+     *
+     * @param data                    Test set data (to evaluate on)
+     * @param thresholdSteps          Number of threshold steps for ROC - see {@link ROC}
+     * @param evaluationMinibatchSize Minibatch size to use when performing ROC evaluation
+     * @param aggregationDepth        Depth of the tree used to combine the results of each partition
+     * @return ROC for the entire data set
+     */
+    public ROC evaluateROC(JavaRDD<DataSet> data, int thresholdSteps, int evaluationMinibatchSize,
+                    int aggregationDepth) {
+        return doEvaluation(data, new ROCAccumulator(thresholdSteps), evaluationMinibatchSize, aggregationDepth);
     }
 
     /**
@@ -534,7 +575,22 @@ public class SparkDl4jMultiLayer extends SparkListenable {
      * @return ROCMultiClass for the entire data set
      */
     public ROCMultiClass evaluateROCMultiClass(JavaRDD<DataSet> data, int thresholdSteps, int evaluationMinibatchSize) {
-        return doEvaluation(data, new ROCMultiClass(thresholdSteps), evaluationMinibatchSize);
+        return evaluateROCMultiClass(data, thresholdSteps, evaluationMinibatchSize, DEFAULT_EVAL_AGGREGATION_DEPTH);
+    }
+
+    /**
+     * Perform ROC analysis/evaluation (for the multi-class case, using {@link ROCMultiClass} on the given DataSet in a distributed manner
+     *
+     * @param data                    Test set data (to evaluate on)
+     * @param thresholdSteps          Number of threshold steps for ROC - see {@link ROC}
+     * @param evaluationMinibatchSize Minibatch size to use when performing ROC evaluation
+     * @param aggregationDepth        Depth of the tree used to combine the results of each partition
+     * @return ROCMultiClass for the entire data set
+     */
+    public ROCMultiClass evaluateROCMultiClass(JavaRDD<DataSet> data, int thresholdSteps, int evaluationMinibatchSize,
+                    int aggregationDepth) {
+        return doEvaluation(data, new ROCMultiClassAccumulator(thresholdSteps), evaluationMinibatchSize,
+                        aggregationDepth);
     }
 
     private void update(int mr, long mg) {
@@ -555,8 +611,22 @@ public class SparkDl4jMultiLayer extends SparkListenable {
      * @return Evaluation object; results of evaluation on all examples in the data set
      */
     public Evaluation evaluate(JavaRDD<DataSet> data, List<String> labelsList, int evalBatchSize) {
-        Evaluation e = new Evaluation();
-        e = doEvaluation(data, e, evalBatchSize);
+        return evaluate(data, labelsList, evalBatchSize, DEFAULT_EVAL_AGGREGATION_DEPTH);
+    }
+
+    /**
+     * Evaluate the network (classification performance) in a distributed manner, using specified batch size and a provided
+     * list of labels
+     *
+     * @param data             Data to evaluate on
+     * @param labelsList       List of labels used for evaluation
+     * @param evalBatchSize    Batch size to use when conducting evaluations
+     * @param aggregationDepth Depth of the tree used to combine the results of each partition
+     * @return Evaluation object; results of evaluation on all examples in the data set
+     */
+    public Evaluation evaluate(JavaRDD<DataSet> data, List<String> labelsList, int evalBatchSize,
+                    int aggregationDepth) {
+        Evaluation e = doEvaluation(data, new ClassificationAccumulator(), evalBatchSize, aggregationDepth);
         if (labelsList != null) {
             e.setLabelsList(labelsList);
         }
@@ -579,4 +649,28 @@ public class SparkDl4jMultiLayer extends SparkListenable {
         JavaRDD<T> evaluations = data.mapPartitions(evalFn);
         return evaluations.reduce(new IEvaluationReduceFunction<T>());
     }
+
+    /**
+     * Perform distributed evaluation, collecting statistics in compact {@link EvaluationAccumulator} instances (one
+     * per partition). These are combined with a multi-level tree aggregation, so only one accumulator per tree
+     * node is sent to the driver, and the evaluation instance is created once, on the driver.
+     *
+     * @param data             Data to evaluate on
+     * @param emptyAccumulator Empty accumulator instance, for example {@link ClassificationAccumulator}
+     * @param evalBatchSize    Evaluation batch size
+     * @param aggregationDepth Depth of the aggregation tree (>= 1). Larger values reduce the load on the driver when
+     *                         there are many partitions
+     * @param <T>              Type of evaluation instance to return
+     * @return                 IEvaluation instance
+     */
+    public <T extends IEvaluation> T doEvaluation(JavaRDD<DataSet> data, EvaluationAccumulator<T> emptyAccumulator,
+                    int evalBatchSize, int aggregationDepth) {
+        AccumulateEvaluationFlatMapFunction<EvaluationAccumulator<T>> evalFn =
+                        new AccumulateEvaluationFlatMapFunction<>(sc.broadcast(conf.toJson()),
+                                        sc.broadcast(network.params()), false, evalBatchSize, emptyAccumulator);
+        JavaRDD<EvaluationAccumulator<T>> accumulators = data.mapPartitions(evalFn);
+        EvaluationAccumulatorMergeFunction<EvaluationAccumulator<T>> mergeFn =
+                        new EvaluationAccumulatorMergeFunction<>();
+        return accumulators.treeAggregate(emptyAccumulator, mergeFn, mergeFn, aggregationDepth).toEvaluation();
+    }
 }
@@ -91,6 +91,8 @@ public class ParameterAveragingTrainingMaster
     private int averagingFrequency;
     private int aggregationDepth;
     private int prefetchNumBatches;
+    private int pathPrefetchNumThreads;
+    private int pathPrefetchNumBatches;
     private boolean collectTrainingStats;
     private ParameterAveragingTrainingMasterStats.ParameterAveragingTrainingMasterStatsHelper stats;
     private int iterationCount = 0;
@@ -104,6 +106,8 @@ public class ParameterAveragingTrainingMaster
     private StorageLevel storageLevelStreams = StorageLevel.MEMORY_ONLY();
     private RDDTrainingApproach rddTrainingApproach = RDDTrainingApproach.Export;
     private String exportDirectory = null;
+    private int exportBatchesPerFile = 0;
+    private boolean exportCompression = false;
     private Random rng;
 
     private Collection<TrainingHook> trainingHookList;
@@ -132,12 +136,16 @@ public class ParameterAveragingTrainingMaster
         this.averagingFrequency = builder.averagingFrequency;
         this.aggregationDepth = builder.aggregationDepth;
         this.prefetchNumBatches = builder.prefetchNumBatches;
+        this.pathPrefetchNumThreads = builder.pathPrefetchNumThreads;
+        this.pathPrefetchNumBatches = builder.pathPrefetchNumBatches;
         this.repartition = builder.repartition;
         this.repartitionStrategy = builder.repartitionStrategy;
         this.storageLevel = builder.storageLevel;
         this.storageLevelStreams = builder.storageLevelStreams;
         this.rddTrainingApproach = builder.rddTrainingApproach;
         this.exportDirectory = builder.exportDirectory;
+        this.exportBatchesPerFile = builder.exportBatchesPerFile;
+        this.exportCompression = builder.exportCompression;
         this.trainingHookList = builder.trainingHooks;
 
         if (builder.rngSeed == null) {
@@ -320,7 +328,8 @@ public class ParameterAveragingTrainingMaster
             stats.logBroadcastEnd();
 
         WorkerConfiguration configuration = new WorkerConfiguration(false, rddDataSetNumExamples, batchSizePerWorker,
-                        averagingFrequency, prefetchNumBatches, collectTrainingStats);
+                        averagingFrequency, prefetchNumBatches, collectTrainingStats, pathPrefetchNumThreads,
+                        pathPrefetchNumBatches);
         return new ParameterAveragingTrainingWorker(broadcast, saveUpdater, configuration, trainingHookList, listeners,
                         getRouterProvider());
     }
@@ -337,7 +346,8 @@ public class ParameterAveragingTrainingMaster
             stats.logBroadcastEnd();
 
         WorkerConfiguration configuration = new WorkerConfiguration(true, rddDataSetNumExamples, batchSizePerWorker,
-                        averagingFrequency, prefetchNumBatches, collectTrainingStats);
+                        averagingFrequency, prefetchNumBatches, collectTrainingStats, pathPrefetchNumThreads,
+                        pathPrefetchNumBatches);
         return new ParameterAveragingTrainingWorker(broadcast, saveUpdater, configuration, trainingHookList, listeners,
                         getRouterProvider());
     }
@@ -1018,7 +1028,8 @@ public class ParameterAveragingTrainingMaster
 
         log.info("Initiating RDD<DataSet> export at {}", baseDir);
         JavaRDD<String> paths = trainingData
-                        .mapPartitionsWithIndex(new BatchAndExportDataSetsFunction(batchSizePerWorker, dataDir), true);
+                        .mapPartitionsWithIndex(new BatchAndExportDataSetsFunction(batchSizePerWorker, dataDir,
+                                        exportBatchesPerFile, exportCompression), true);
         paths.saveAsTextFile(pathsDir);
         log.info("RDD<DataSet> export complete at {}", baseDir);
 
@@ -1095,12 +1106,16 @@ public class ParameterAveragingTrainingMaster
         private int averagingFrequency = 5;
         private int aggregationDepth = 2;
         private int prefetchNumBatches = 0;
+        private int pathPrefetchNumThreads = 0;
+        private int pathPrefetchNumBatches = 0;
         private Repartition repartition = Repartition.Always;
         private RepartitionStrategy repartitionStrategy = RepartitionStrategy.Balanced;
         private StorageLevel storageLevel = StorageLevel.MEMORY_ONLY_SER();
         private StorageLevel storageLevelStreams = StorageLevel.MEMORY_ONLY();
         private RDDTrainingApproach rddTrainingApproach = RDDTrainingApproach.Export;
         private String exportDirectory = null;
+        private int exportBatchesPerFile = 0;
+        private boolean exportCompression = false;
         private Long rngSeed;
         private Collection<TrainingHook> trainingHooks;
 
@@ -1218,6 +1233,29 @@ public class ParameterAveragingTrainingMaster
             return this;
         }
 
+        /**
+         * When training on exported data or paths ({@link SparkDl4jMultiLayer#fitPaths(JavaRDD)} etc), load the
+         * DataSet objects in the worker with the given number of background threads, reading up to numBatches DataSet
+         * objects ahead of training. This hides remote read and deserialization latency behind fitting.
+         * When training stats are collected, fetch and wait times are included in
+         * {@link org.deeplearning4j.spark.impl.paramavg.stats.ParameterAveragingTrainingWorkerStats}.
+         * <p>
+         * Default: 0 threads (DataSet objects are loaded one at a time, when needed)
+         *
+         * @param numThreads Number of threads loading DataSet objects in parallel. 0 to disable
+         * @param numBatches Maximum number of DataSet objects loaded ahead. Must be at least numThreads
+         */
+        public Builder workerPathPrefetch(int numThreads, int numBatches) {
+            if (numThreads < 0)
+                throw new IllegalArgumentException("Number of threads must be >= 0, got " + numThreads);
+            if (numThreads > 0 && numBatches < numThreads)
+                throw new IllegalArgumentException("Number of batches (" + numBatches
+                                + ") must be >= number of threads (" + numThreads + ")");
+            this.pathPrefetchNumThreads = numThreads;
+            this.pathPrefetchNumBatches = numBatches;
+            return this;
+        }
+
         /**
          * Set whether the updater (i.e., historical state for momentum, adagrad, etc should be saved).
          * <b>NOTE</b>: This can <b>double</b> (or more) the amount of network traffic in each direction, but might
@@ -1316,6 +1354,27 @@ public class ParameterAveragingTrainingMaster
             return this;
         }
 
+        /**
+         * When {@link #rddTrainingApproach(RDDTrainingApproach)} is set to {@link RDDTrainingApproach#Export} (as it is by default)
+         * the data is exported to a temporary directory first. If this is set to a value larger than 0, minibatches are
+         * exported to packed files with up to this many minibatches per file (see
+         * {@link org.deeplearning4j.datasets.pack.PackedDataSetFormat}), instead of one file per minibatch. This reduces
+         * the number of files created and opened, and allows minibatches to be read from memory mapped files.
+         * <p>
+         * Default: 0 (one file per minibatch). Applies to {@code RDD<DataSet>} only.
+         *
+         * @param exportBatchesPerFile Maximum number of minibatches per exported file
+         * @param compression          If true: compress each minibatch in exported files
+         */
+        public Builder exportBatchesPerFile(int exportBatchesPerFile, boolean compression) {
+            if (exportBatchesPerFile < 0)
+                throw new IllegalArgumentException(
+                                "Number of batches per file must be >= 0, got " + exportBatchesPerFile);
+            this.exportBatchesPerFile = exportBatchesPerFile;
+            this.exportCompression = compression;
+            return this;
+        }
+
         /**
          * Random number generator seed, used mainly for enforcing repeatable splitting on RDDs
          * Default: no seed set (i.e., random seed)
@@ -26,25 +26,59 @@ public class ParameterAveragingTrainingWorkerStats implements SparkTrainingStats
     public static final String FILENAME_BROADCAST_GET_STATS = "parameterAveragingWorkerBroadcastGetValueTimeMs.txt";
     public static final String FILENAME_INIT_STATS = "parameterAveragingWorkerInitTimeMs.txt";
     public static final String FILENAME_FIT_STATS = "parameterAveragingWorkerFitTimesMs.txt";
+    public static final String FILENAME_FETCH_STATS = "parameterAveragingWorkerFetchTimesMs.txt";
+    public static final String FILENAME_FETCH_WAIT_STATS = "parameterAveragingWorkerFetchWaitTimesMs.txt";
 
     private List<EventStats> parameterAveragingWorkerBroadcastGetValueTimeMs;
     private List<EventStats> parameterAveragingWorkerInitTimeMs;
     private List<EventStats> parameterAveragingWorkerFitTimesMs;
+    //Only collected when path prefetching is enabled: time taken to load each DataSet in the background, and time
+    //spent waiting for the next DataSet. Compare with fit times to see if data loading is hidden behind compute
+    private List<EventStats> parameterAveragingWorkerFetchTimesMs;
+    private List<EventStats> parameterAveragingWorkerFetchWaitTimesMs;
 
     public static final String PARAMETER_AVERAGING_WORKER_BROADCAST_GET_VALUE_TIME_MS =
                     "ParameterAveragingWorkerBroadcastGetValueTimeMs";
     public static final String PARAMETER_AVERAGING_WORKER_INIT_TIME_MS = "ParameterAveragingWorkerInitTimeMs";
     public static final String PARAMETER_AVERAGING_WORKER_FIT_TIMES_MS = "ParameterAveragingWorkerFitTimesMs";
+    public static final String PARAMETER_AVERAGING_WORKER_FETCH_TIMES_MS = "ParameterAveragingWorkerFetchTimesMs";
+    public static final String PARAMETER_AVERAGING_WORKER_FETCH_WAIT_TIMES_MS =
+                    "ParameterAveragingWorkerFetchWaitTimesMs";
     private static Set<String> columnNames = Collections.unmodifiableSet(
                     new LinkedHashSet<>(Arrays.asList(PARAMETER_AVERAGING_WORKER_BROADCAST_GET_VALUE_TIME_MS,
-                                    PARAMETER_AVERAGING_WORKER_INIT_TIME_MS, PARAMETER_AVERAGING_WORKER_FIT_TIMES_MS)));
+                                    PARAMETER_AVERAGING_WORKER_INIT_TIME_MS, PARAMETER_AVERAGING_WORKER_FIT_TIMES_MS,
+                                    PARAMETER_AVERAGING_WORKER_FETCH_TIMES_MS,
+                                    PARAMETER_AVERAGING_WORKER_FETCH_WAIT_TIMES_MS)));
 
     public ParameterAveragingTrainingWorkerStats(List<EventStats> parameterAveragingWorkerBroadcastGetValueTimeMs,
                     List<EventStats> parameterAveragingWorkerInitTimeMs,
                     List<EventStats> parameterAveragingWorkerFitTimesMs) {
+        this(parameterAveragingWorkerBroadcastGetValueTimeMs, parameterAveragingWorkerInitTimeMs,
+                        parameterAveragingWorkerFitTimesMs, new ArrayList<EventStats>(), new ArrayList<EventStats>());
+    }
+
+    public ParameterAveragingTrainingWorkerStats(List<EventStats> parameterAveragingWorkerBroadcastGetValueTimeMs,
+                    List<EventStats> parameterAveragingWorkerInitTimeMs,
+                    List<EventStats> parameterAveragingWorkerFitTimesMs,
+                    List<EventStats> parameterAveragingWorkerFetchTimesMs,
+                    List<EventStats> parameterAveragingWorkerFetchWaitTimesMs) {
         this.parameterAveragingWorkerBroadcastGetValueTimeMs = parameterAveragingWorkerBroadcastGetValueTimeMs;
         this.parameterAveragingWorkerInitTimeMs = parameterAveragingWorkerInitTimeMs;
         this.parameterAveragingWorkerFitTimesMs = parameterAveragingWorkerFitTimesMs;
+        this.parameterAveragingWorkerFetchTimesMs = parameterAveragingWorkerFetchTimesMs;
+        this.parameterAveragingWorkerFetchWaitTimesMs = parameterAveragingWorkerFetchWaitTimesMs;
+    }
+
+    /**
+     * Add stats collected by a prefetching data iterator, such as
+     * {@link org.deeplearning4j.spark.iterator.PrefetchingPathSparkDataSetIterator}
+     *
+     * @param fetchTimes Time taken to load each DataSet
+     * @param waitTimes  Time the worker was blocked waiting for the next DataSet
+     */
+    public void addFetchStats(List<EventStats> fetchTimes, List<EventStats> waitTimes) {
+        this.parameterAveragingWorkerFetchTimesMs.addAll(fetchTimes);
+        this.parameterAveragingWorkerFetchWaitTimesMs.addAll(waitTimes);
     }
 
     @Override
@@ -61,6 +95,10 @@ public class ParameterAveragingTrainingWorkerStats implements SparkTrainingStats
                 return parameterAveragingWorkerInitTimeMs;
             case PARAMETER_AVERAGING_WORKER_FIT_TIMES_MS:
                 return parameterAveragingWorkerFitTimesMs;
+            case PARAMETER_AVERAGING_WORKER_FETCH_TIMES_MS:
+                return parameterAveragingWorkerFetchTimesMs;
+            case PARAMETER_AVERAGING_WORKER_FETCH_WAIT_TIMES_MS:
+                return parameterAveragingWorkerFetchWaitTimesMs;
             default:
                 throw new IllegalArgumentException("Unknown key: \"" + key + "\"");
         }
@@ -75,6 +113,10 @@ public class ParameterAveragingTrainingWorkerStats implements SparkTrainingStats
                 return "ModelInit";
             case PARAMETER_AVERAGING_WORKER_FIT_TIMES_MS:
                 return "Fit";
+            case PARAMETER_AVERAGING_WORKER_FETCH_TIMES_MS:
+                return "Fetch";
+            case PARAMETER_AVERAGING_WORKER_FETCH_WAIT_TIMES_MS:
+                return "FetchWait";
             default:
                 throw new IllegalArgumentException("Unknown key: \"" + key + "\"");
         }
@@ -86,7 +128,11 @@ public class ParameterAveragingTrainingWorkerStats implements SparkTrainingStats
             case PARAMETER_AVERAGING_WORKER_BROADCAST_GET_VALUE_TIME_MS:
             case PARAMETER_AVERAGING_WORKER_INIT_TIME_MS:
             case PARAMETER_AVERAGING_WORKER_FIT_TIMES_MS:
+            case PARAMETER_AVERAGING_WORKER_FETCH_WAIT_TIMES_MS:
                 return true;
+            case PARAMETER_AVERAGING_WORKER_FETCH_TIMES_MS:
+                //Fetches run in background threads, overlapping with other events
+                return false;
             default:
                 throw new IllegalArgumentException("Unknown key: \"" + key + "\"");
         }
@@ -103,6 +149,8 @@ public class ParameterAveragingTrainingWorkerStats implements SparkTrainingStats
         this.parameterAveragingWorkerBroadcastGetValueTimeMs.addAll(o.parameterAveragingWorkerBroadcastGetValueTimeMs);
         this.parameterAveragingWorkerInitTimeMs.addAll(o.parameterAveragingWorkerInitTimeMs);
         this.parameterAveragingWorkerFitTimesMs.addAll(o.parameterAveragingWorkerFitTimesMs);
+        this.parameterAveragingWorkerFetchTimesMs.addAll(o.parameterAveragingWorkerFetchTimesMs);
+        this.parameterAveragingWorkerFetchWaitTimesMs.addAll(o.parameterAveragingWorkerFetchWaitTimesMs);
     }
 
     @Override
@@ -134,6 +182,18 @@ public class ParameterAveragingTrainingWorkerStats implements SparkTrainingStats
         else
             sb.append(StatsUtils.getDurationAsString(parameterAveragingWorkerFitTimesMs, ",")).append("\n");
 
+        sb.append(String.format(f, PARAMETER_AVERAGING_WORKER_FETCH_TIMES_MS));
+        if (parameterAveragingWorkerFetchTimesMs == null)
+            sb.append("-\n");
+        else
+            sb.append(StatsUtils.getDurationAsString(parameterAveragingWorkerFetchTimesMs, ",")).append("\n");
+
+        sb.append(String.format(f, PARAMETER_AVERAGING_WORKER_FETCH_WAIT_TIMES_MS));
+        if (parameterAveragingWorkerFetchWaitTimesMs == null)
+            sb.append("-\n");
+        else
+            sb.append(StatsUtils.getDurationAsString(parameterAveragingWorkerFetchWaitTimesMs, ",")).append("\n");
+
         return sb.toString();
     }
 
@@ -150,6 +210,11 @@ public class ParameterAveragingTrainingWorkerStats implements SparkTrainingStats
 
         //Network fit time:
         StatsUtils.exportStats(parameterAveragingWorkerFitTimesMs, outputPath, FILENAME_FIT_STATS, d, sc);
+
+        //Data fetch and wait times (prefetching only):
+        StatsUtils.exportStats(parameterAveragingWorkerFetchTimesMs, outputPath, FILENAME_FETCH_STATS, d, sc);
+        StatsUtils.exportStats(parameterAveragingWorkerFetchWaitTimesMs, outputPath, FILENAME_FETCH_WAIT_STATS, d,
+                        sc);
     }
 
     public static class ParameterAveragingTrainingWorkerStatsHelper {
@@ -4,6 +4,9 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.deeplearning4j.datasets.pack.PackedDataSetFormat;
+import org.deeplearning4j.datasets.pack.PackedDataSetReader;
+import org.deeplearning4j.spark.data.pack.PackedDataSetLoader;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
@@ -18,6 +21,9 @@ import java.util.List;
 /**
  * A DataSetIterator that loads serialized DataSet objects (saved with {@link DataSet#save(OutputStream)}) from
  * a String that represents the path (for example, on HDFS)
+ * <p>
+ * Packed files (see {@link PackedDataSetFormat}) are also supported: a path of the form {@code path#blockIndex} loads a
+ * single DataSet from the file, and a path to the packed file itself iterates over all DataSets in the file.
  *
  * @author Alex Black
  */
@@ -25,6 +31,10 @@ public class PathSparkDataSetIterator extends BaseDataSetIterator<String> {
 
     public static final int BUFFER_SIZE = 4194304; //4 MB
     private FileSystem fileSystem;
+    private PackedDataSetLoader packedLoader;
+    //Packed file that is being iterated over as a whole, and the next block to return from it
+    private PackedDataSetReader packedFile;
+    private int packedFileNext;
 
     public PathSparkDataSetIterator(Iterator<String> iter) {
         this.dataSetStreams = null;
@@ -41,12 +51,31 @@ public class PathSparkDataSetIterator extends BaseDataSetIterator<String> {
         throw new UnsupportedOperationException("Total examples unknown for PathSparkDataSetIterator");
     }
 
+    @Override
+    public boolean hasNext() {
+        if (preloadedDataSet != null || (packedFile != null && packedFileNext < packedFile.numBlocks()))
+            return true;
+        boolean hasNext = iter.hasNext();
+        if (!hasNext)
+            closePacked();
+        return hasNext;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        packedFile = null;
+        preloadedDataSet = null;
+    }
+
     @Override
     public DataSet next() {
         DataSet ds;
         if (preloadedDataSet != null) {
             ds = preloadedDataSet;
             preloadedDataSet = null;
+        } else if (packedFile != null && packedFileNext < packedFile.numBlocks()) {
+            ds = loadPackedBlock(packedFileNext++);
         } else {
             ds = load(iter.next());
         }
@@ -61,6 +90,9 @@ public class PathSparkDataSetIterator extends BaseDataSetIterator<String> {
     }
 
     protected synchronized DataSet load(String path) {
+        if (PackedDataSetFormat.isPacked(path))
+            return loadPacked(path);
+
         if (fileSystem == null) {
             try {
                 fileSystem = FileSystem.get(new URI(path), new Configuration());
@@ -79,4 +111,48 @@ public class PathSparkDataSetIterator extends BaseDataSetIterator<String> {
         cursor++;
         return ds;
     }
+
+    private DataSet loadPacked(String path) {
+        if (packedLoader == null)
+            packedLoader = new PackedDataSetLoader();
+
+        try {
+            if (PackedDataSetFormat.isBlockReference(path)) {
+                packedFile = null;
+                DataSet ds = packedLoader.load(path);
+                cursor++;
+                return ds;
+            }
+
+            //Whole packed file: return the first block now, and the remaining ones from next()
+            packedFile = packedLoader.reader(path);
+            packedFileNext = 0;
+            if (packedFile.numBlocks() == 0)
+                throw new IllegalStateException("Packed DataSet file contains no DataSets: " + path);
+            return loadPackedBlock(packedFileNext++);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private DataSet loadPackedBlock(int block) {
+        try {
+            DataSet ds = packedFile.get(block);
+            cursor++;
+            return ds;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void closePacked() {
+        packedFile = null;
+        if (packedLoader != null) {
+            try {
+                packedLoader.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
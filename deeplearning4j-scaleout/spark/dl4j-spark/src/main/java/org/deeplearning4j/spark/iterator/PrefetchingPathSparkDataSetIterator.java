@@ -0,0 +1,373 @@
+package org.deeplearning4j.spark.iterator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.deeplearning4j.datasets.pack.PackedDataSetFormat;
+import org.deeplearning4j.datasets.pack.PackedDataSetReader;
+import org.deeplearning4j.spark.data.PathToDataSetFunction;
+import org.deeplearning4j.spark.data.pack.PackedDataSetLoader;
+import org.deeplearning4j.spark.stats.BaseEventStats;
+import org.deeplearning4j.spark.stats.EventStats;
+import org.deeplearning4j.spark.stats.ExampleCountEventStats;
+import org.deeplearning4j.spark.time.TimeSource;
+import org.deeplearning4j.spark.time.TimeSourceProvider;
+import org.deeplearning4j.util.UIDProvider;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DataSetIterator that loads serialized DataSet objects from paths (for example, on HDFS), like
+ * {@link PathSparkDataSetIterator}, but reads ahead of the consumer: up to {@code maxPending} DataSets are loaded in
+ * parallel by {@code numThreads} background threads, so remote read and deserialization time is hidden behind
+ * training or scoring of earlier minibatches. DataSets are returned in the same order as the paths.
+ * <p>
+ * Paths to packed files (see {@link PackedDataSetFormat}) are expanded into references to each of their DataSets, so
+ * blocks of the same file are also loaded in parallel.
+ * <p>
+ * Optionally, fetch times (time spent loading each DataSet, in the background threads) and wait times (time the
+ * consumer was blocked in {@link #next()}) are collected, see {@link #getFetchTimes()} and {@link #getWaitTimes()}.
+ * Background threads are stopped by {@link #shutdown()}; idle threads also time out on their own, so an iterator that
+ * is abandoned without calling shutdown doesn't keep threads alive.
+ */
+@Slf4j
+public class PrefetchingPathSparkDataSetIterator implements DataSetIterator {
+
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 10;
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
+    private final Collection<String> paths;
+    private final int maxPending;
+    private final boolean collectStats;
+    private final ThreadPoolExecutor executor;
+    //One function per loading thread: each keeps its most recently used packed file open until the thread exits
+    private final ThreadLocal<PathToDataSetFunction> loaders = new ThreadLocal<>();
+
+    private Iterator<String> iter;
+    private final Deque<String> expandedPaths = new ArrayDeque<>();
+    private final Deque<Future<DataSet>> pending = new ArrayDeque<>();
+    private DataSet peeked;
+
+    private DataSetPreProcessor preprocessor;
+    private int totalOutcomes = -1;
+    private int inputColumns = -1;
+    private int batch = -1;
+    private int cursor = 0;
+
+    private final TimeSource timeSource = TimeSourceProvider.getInstance();
+    private final List<EventStats> fetchTimes = Collections.synchronizedList(new ArrayList<EventStats>());
+    private final List<EventStats> waitTimes = new ArrayList<>();
+    private final long consumerThreadId = Thread.currentThread().getId();
+
+    /**
+     * @param iter         Paths to load DataSets from
+     * @param numThreads   Number of threads loading DataSets in parallel
+     * @param maxPending   Maximum number of DataSets being loaded or loaded but not yet returned by {@link #next()}
+     * @param collectStats Whether to collect fetch and wait times
+     */
+    public PrefetchingPathSparkDataSetIterator(Iterator<String> iter, int numThreads, int maxPending,
+                    boolean collectStats) {
+        this(null, iter, numThreads, maxPending, collectStats);
+    }
+
+    /**
+     * @param paths        Paths to load DataSets from. Iterator constructed this way supports {@link #reset()}
+     * @param numThreads   Number of threads loading DataSets in parallel
+     * @param maxPending   Maximum number of DataSets being loaded or loaded but not yet returned by {@link #next()}
+     * @param collectStats Whether to collect fetch and wait times
+     */
+    public PrefetchingPathSparkDataSetIterator(Collection<String> paths, int numThreads, int maxPending,
+                    boolean collectStats) {
+        this(paths, paths.iterator(), numThreads, maxPending, collectStats);
+    }
+
+    private PrefetchingPathSparkDataSetIterator(Collection<String> paths, Iterator<String> iter, int numThreads,
+                    int maxPending, boolean collectStats) {
+        if (numThreads <= 0)
+            throw new IllegalArgumentException("Number of threads must be > 0, got " + numThreads);
+        if (maxPending < numThreads)
+            throw new IllegalArgumentException("Maximum number of pending DataSets (" + maxPending
+                            + ") must be >= number of threads (" + numThreads + ")");
+
+        this.paths = paths;
+        this.iter = iter;
+        this.maxPending = maxPending;
+        this.collectStats = collectStats;
+
+        final String namePrefix = "PathPrefetch-" + poolCount.incrementAndGet() + "-";
+        this.executor = new ThreadPoolExecutor(numThreads, numThreads, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                            private final AtomicInteger count = new AtomicInteger();
+
+                            @Override
+                            public Thread newThread(final Runnable r) {
+                                Thread t = new Thread(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        try {
+                                            r.run();
+                                        } finally {
+                                            closeLoader();
+                                        }
+                                    }
+                                }, namePrefix + count.getAndIncrement());
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (peeked != null)
+            return true;
+        fill();
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public DataSet next() {
+        DataSet ds;
+        if (peeked != null) {
+            ds = peeked;
+            peeked = null;
+        } else {
+            ds = take();
+        }
+
+        totalOutcomes = ds.getLabels() == null ? 0 : ds.getLabels().size(1); //May be null for layerwise pretraining
+        inputColumns = ds.getFeatureMatrix().size(1);
+        batch = ds.numExamples();
+
+        if (preprocessor != null)
+            preprocessor.preProcess(ds);
+        return ds;
+    }
+
+    @Override
+    public DataSet next(int num) {
+        return next();
+    }
+
+    /**
+     * Stop the background threads. Pending loads are cancelled, and files kept open by the threads are closed as they
+     * exit
+     */
+    public void shutdown() {
+        for (Future<DataSet> f : pending)
+            f.cancel(true);
+        pending.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Time taken to load each DataSet, in the background threads. Events are reported for the thread that created
+     * this iterator, so they can be compared with fit times of that thread
+     */
+    public List<EventStats> getFetchTimes() {
+        synchronized (fetchTimes) {
+            return new ArrayList<>(fetchTimes);
+        }
+    }
+
+    /**
+     * Time the consumer was blocked in {@link #next()}, waiting for a DataSet to be loaded
+     */
+    public List<EventStats> getWaitTimes() {
+        return new ArrayList<>(waitTimes);
+    }
+
+    private void fill() {
+        while (pending.size() < maxPending) {
+            final String path = nextPath();
+            if (path == null)
+                return;
+
+            pending.add(executor.submit(new Callable<DataSet>() {
+                @Override
+                public DataSet call() throws Exception {
+                    long start = timeSource.currentTimeMillis();
+                    PathToDataSetFunction loader = loaders.get();
+                    if (loader == null) {
+                        loader = new PathToDataSetFunction();
+                        loaders.set(loader);
+                    }
+                    DataSet ds = loader.call(path);
+                    if (collectStats) {
+                        long duration = timeSource.currentTimeMillis() - start;
+                        fetchTimes.add(new ExampleCountEventStats(UIDProvider.getHardwareUID(),
+                                        UIDProvider.getJVMUID(), consumerThreadId, start, duration,
+                                        ds.numExamples()));
+                    }
+                    return ds;
+                }
+            }));
+        }
+    }
+
+    //Called by each loading thread when it exits (shutdown, or idle timeout)
+    private void closeLoader() {
+        PathToDataSetFunction loader = loaders.get();
+        if (loader == null)
+            return;
+        loaders.remove();
+        try {
+            loader.close();
+        } catch (IOException e) {
+            log.warn("Error closing packed DataSet file", e);
+        }
+    }
+
+    private String nextPath() {
+        while (expandedPaths.isEmpty() && iter.hasNext()) {
+            String path = iter.next();
+            if (!PackedDataSetFormat.isPacked(path) || PackedDataSetFormat.isBlockReference(path))
+                return path;
+
+            //Whole packed file: only the index is read here, blocks are loaded in parallel
+            try (PackedDataSetReader reader = PackedDataSetLoader.open(path, new Configuration())) {
+                for (int i = 0; i < reader.numBlocks(); i++)
+                    expandedPaths.add(PackedDataSetFormat.blockReference(path, i));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return expandedPaths.pollFirst();
+    }
+
+    private DataSet take() {
+        fill();
+        Future<DataSet> f = pending.pollFirst();
+        if (f == null)
+            throw new NoSuchElementException();
+
+        long start = timeSource.currentTimeMillis();
+        DataSet ds;
+        try {
+            ds = f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            shutdown();
+            throw new RuntimeException("Error loading DataSet", e.getCause());
+        }
+        if (collectStats)
+            waitTimes.add(new BaseEventStats(start, timeSource.currentTimeMillis() - start));
+
+        //Start loading the next DataSet while this one is processed
+        fill();
+        cursor++;
+        return ds;
+    }
+
+    private void peek() {
+        if (peeked == null)
+            peeked = take();
+        totalOutcomes = peeked.getLabels() == null ? 0 : peeked.getLabels().size(1);
+        inputColumns = peeked.getFeatureMatrix().size(1);
+        batch = peeked.numExamples();
+    }
+
+    @Override
+    public int totalExamples() {
+        throw new UnsupportedOperationException("Total examples unknown for PrefetchingPathSparkDataSetIterator");
+    }
+
+    @Override
+    public int inputColumns() {
+        if (inputColumns == -1)
+            peek();
+        return inputColumns;
+    }
+
+    @Override
+    public int totalOutcomes() {
+        if (totalOutcomes == -1)
+            peek();
+        return totalOutcomes;
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return paths != null;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        //Already asynchronous
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        if (paths == null)
+            throw new IllegalStateException("Cannot reset iterator constructed with an iterator");
+        if (executor.isShutdown())
+            throw new IllegalStateException("Cannot reset iterator after shutdown()");
+
+        for (Future<DataSet> f : pending)
+            f.cancel(true);
+        pending.clear();
+        expandedPaths.clear();
+        peeked = null;
+        iter = paths.iterator();
+        cursor = 0;
+    }
+
+    @Override
+    public int batch() {
+        if (batch == -1)
+            peek();
+        return batch;
+    }
+
+    @Override
+    public int cursor() {
+        return cursor;
+    }
+
+    @Override
+    public int numExamples() {
+        return 0;
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preprocessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preprocessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return null;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
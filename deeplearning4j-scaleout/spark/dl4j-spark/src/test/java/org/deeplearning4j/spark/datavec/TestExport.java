@@ -21,7 +21,11 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.spark.api.java.JavaRDD;
 import org.deeplearning4j.spark.BaseSparkTest;
 import org.deeplearning4j.spark.data.BatchAndExportDataSetsFunction;
+import org.deeplearning4j.spark.data.PathToDataSetFunction;
+import org.deeplearning4j.spark.data.PrefetchingPathToDataSetsFunction;
 import org.deeplearning4j.spark.data.BatchAndExportMultiDataSetsFunction;
+import org.deeplearning4j.datasets.pack.PackedDataSetFormat;
+import org.deeplearning4j.spark.iterator.PathSparkDataSetIterator;
 import org.junit.Test;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
@@ -35,6 +39,7 @@ import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by Alex on 29/08/2016.
@@ -99,6 +104,75 @@ public class TestExport extends BaseSparkTest {
         FileUtils.deleteDirectory(f);
     }
 
+    @Test
+    public void testBatchAndExportDataSetsFunctionPacked() throws Exception {
+        String baseDir = System.getProperty("java.io.tmpdir");
+        baseDir = FilenameUtils.concat(baseDir, "dl4j_spark_testBatchAndExportPacked/");
+        baseDir = baseDir.replaceAll("\\\\", "/");
+        File f = new File(baseDir);
+        if (f.exists())
+            FileUtils.deleteDirectory(f);
+        f.mkdir();
+        f.deleteOnExit();
+        int minibatchSize = 5;
+        int nIn = 4;
+        int nOut = 3;
+
+        List<DataSet> dataSets = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            dataSets.add(new DataSet(Nd4j.rand(3, nIn), Nd4j.rand(3, nOut)));
+            dataSets.add(new DataSet(Nd4j.rand(2, nIn), Nd4j.rand(2, nOut)));
+        }
+
+        JavaRDD<DataSet> rdd = sc.parallelize(dataSets);
+        rdd = rdd.repartition(1);
+
+        JavaRDD<String> pathsRdd = rdd.mapPartitionsWithIndex(
+                        new BatchAndExportDataSetsFunction(minibatchSize, f.toURI().toString(), 16, true), true);
+
+        List<String> paths = pathsRdd.collect();
+        assertEquals(50, paths.size());
+        for (String path : paths)
+            assertTrue(PackedDataSetFormat.isBlockReference(path));
+
+        //50 minibatches, up to 16 per file
+        List<String> packedFiles = new ArrayList<>();
+        File[] files = f.listFiles();
+        assertNotNull(files);
+        for (File file : files) {
+            if (file.getPath().endsWith(PackedDataSetFormat.EXTENSION))
+                packedFiles.add(file.getPath());
+        }
+        assertEquals(4, packedFiles.size());
+
+        //Load via block references, and via whole files
+        int count = 0;
+        PathSparkDataSetIterator iter = new PathSparkDataSetIterator(paths);
+        while (iter.hasNext()) {
+            assertEquals(minibatchSize, iter.next().numExamples());
+            count++;
+        }
+        assertEquals(50, count);
+
+        //Same, in Spark tasks: packed files kept open by the functions are closed when each task completes
+        List<DataSet> loaded = sc.parallelize(paths, 4).map(new PathToDataSetFunction()).collect();
+        assertEquals(50, loaded.size());
+        for (DataSet ds : loaded)
+            assertEquals(minibatchSize, ds.numExamples());
+        loaded = sc.parallelize(paths, 4).mapPartitions(new PrefetchingPathToDataSetsFunction(2, 4)).collect();
+        assertEquals(50, loaded.size());
+
+        count = 0;
+        iter = new PathSparkDataSetIterator(packedFiles);
+        while (iter.hasNext()) {
+            assertEquals(minibatchSize, iter.next().numExamples());
+            count++;
+        }
+        assertEquals(50, count);
+
+        FileUtils.deleteDirectory(f);
+    }
+
     @Test
     public void testBatchAndExportMultiDataSetsFunction() throws Exception {
         String baseDir = System.getProperty("java.io.tmpdir");
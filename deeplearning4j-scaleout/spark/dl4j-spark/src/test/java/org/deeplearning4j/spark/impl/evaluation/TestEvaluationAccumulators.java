@@ -0,0 +1,197 @@
+package org.deeplearning4j.spark.impl.evaluation;
+
+import org.deeplearning4j.eval.Evaluation;
+import org.deeplearning4j.eval.ROC;
+import org.deeplearning4j.eval.ROCMultiClass;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestEvaluationAccumulators {
+
+    private static INDArray oneHot(int nRows, int nClasses) {
+        INDArray labels = Nd4j.zeros(nRows, nClasses);
+        for (int i = 0; i < nRows; i++)
+            labels.putScalar(i, (i * 7 + i / 3) % nClasses, 1.0);
+        return labels;
+    }
+
+    private static INDArray rows(INDArray arr, int from, int to) {
+        return arr.get(NDArrayIndex.interval(from, to), NDArrayIndex.all());
+    }
+
+    private static int count(Map<Integer, Integer> counts, int c) {
+        Integer count = counts.get(c);
+        return count == null ? 0 : count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends EvaluationAccumulator<?>> T serializeDeserialize(T acc) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(acc);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            return (T) ois.readObject();
+        }
+    }
+
+    @Test
+    public void testClassification() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        int nRows = 500;
+        for (int nClasses : new int[] {1, 3, 10, 300}) {
+            for (int topN : new int[] {1, 3}) {
+                INDArray labels = nClasses == 1 ? Nd4j.rand(nRows, 1).gti(0.5) : oneHot(nRows, nClasses);
+                INDArray predictions = Nd4j.rand(nRows, nClasses);
+
+                Evaluation expected = new Evaluation(null, topN);
+                expected.eval(labels, predictions);
+
+                //Split over 3 accumulators and merge them, with one empty accumulator
+                ClassificationAccumulator a1 = new ClassificationAccumulator(topN);
+                ClassificationAccumulator a2 = new ClassificationAccumulator(topN);
+                ClassificationAccumulator a3 = new ClassificationAccumulator(topN);
+                a1.eval(rows(labels, 0, 100), rows(predictions, 0, 100));
+                a1.eval(rows(labels, 100, 250), rows(predictions, 100, 250));
+                a3.eval(rows(labels, 250, nRows), rows(predictions, 250, nRows));
+
+                ClassificationAccumulator merged = (ClassificationAccumulator) new ClassificationAccumulator(topN)
+                                .merge(serializeDeserialize(a1)).merge(a2).merge(serializeDeserialize(a3));
+                Evaluation actual = merged.toEvaluation();
+
+                String msg = "nClasses=" + nClasses + ", topN=" + topN;
+                assertEquals(msg, expected.getNumRowCounter(), actual.getNumRowCounter());
+                assertEquals(msg, expected.getConfusionMatrix(), actual.getConfusionMatrix());
+                assertEquals(msg, expected.accuracy(), actual.accuracy(), 1e-10);
+                assertEquals(msg, expected.topNAccuracy(), actual.topNAccuracy(), 1e-10);
+                assertEquals(msg, expected.f1(), actual.f1(), 1e-10);
+                assertEquals(msg, expected.precision(), actual.precision(), 1e-10);
+                assertEquals(msg, expected.recall(), actual.recall(), 1e-10);
+                int effectiveClasses = nClasses == 1 ? 2 : nClasses;
+                for (int c = 0; c < effectiveClasses; c++) {
+                    assertEquals(msg, count(expected.truePositives(), c), count(actual.truePositives(), c));
+                    assertEquals(msg, count(expected.falsePositives(), c), count(actual.falsePositives(), c));
+                    assertEquals(msg, count(expected.trueNegatives(), c), count(actual.trueNegatives(), c));
+                    assertEquals(msg, count(expected.falseNegatives(), c), count(actual.falseNegatives(), c));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testClassificationTimeSeries() {
+        Nd4j.getRandom().setSeed(12345);
+        int nClasses = 4;
+        INDArray labels = Nd4j.zeros(3, nClasses, 5);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 5; j++)
+                labels.putScalar(new int[] {i, (i + j) % nClasses, j}, 1.0);
+        }
+        INDArray predictions = Nd4j.rand(new int[] {3, nClasses, 5});
+        INDArray mask = Nd4j.ones(3, 5);
+        mask.putScalar(0, 4, 0.0);
+        mask.putScalar(2, 1, 0.0);
+
+        Evaluation expected = new Evaluation();
+        expected.evalTimeSeries(labels, predictions, mask);
+
+        ClassificationAccumulator acc = new ClassificationAccumulator();
+        acc.evalTimeSeries(labels, predictions, mask);
+        Evaluation actual = acc.toEvaluation();
+
+        assertEquals(13, actual.getNumRowCounter());
+        assertEquals(expected.getConfusionMatrix(), actual.getConfusionMatrix());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testClassificationNumClassesMismatch() {
+        ClassificationAccumulator acc = new ClassificationAccumulator();
+        acc.eval(oneHot(5, 3), Nd4j.rand(5, 3));
+        acc.eval(oneHot(5, 4), Nd4j.rand(5, 4));
+    }
+
+    @Test
+    public void testRoc() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        int nRows = 400;
+        for (int steps : new int[] {3, 10, 32, 100}) {
+            for (int nCols : new int[] {1, 2}) {
+                INDArray labels = nCols == 1 ? Nd4j.rand(nRows, 1).gti(0.5) : oneHot(nRows, 2);
+                INDArray predictions = Nd4j.rand(nRows, nCols);
+                //Predictions exactly on thresholds
+                for (int i = 0; i < 20; i++)
+                    predictions.putScalar(i, nCols - 1, (i % (steps + 1)) / (double) steps);
+
+                ROC expected = new ROC(steps);
+                expected.eval(labels, predictions);
+
+                ROCAccumulator a1 = new ROCAccumulator(steps);
+                ROCAccumulator a2 = new ROCAccumulator(steps);
+                a1.eval(rows(labels, 0, 150), rows(predictions, 0, 150));
+                a2.eval(rows(labels, 150, nRows), rows(predictions, 150, nRows));
+                ROC actual = ((ROCAccumulator) new ROCAccumulator(steps).merge(serializeDeserialize(a1)).merge(a2))
+                                .toEvaluation();
+
+                String msg = "steps=" + steps + ", nCols=" + nCols;
+                assertEquals(msg, expected.getCountActualPositive(), actual.getCountActualPositive());
+                assertEquals(msg, expected.getCountActualNegative(), actual.getCountActualNegative());
+                assertEquals(msg, expected.getCounts(), actual.getCounts());
+                assertEquals(msg, expected.calculateAUC(), actual.calculateAUC(), 1e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testRocMultiClass() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        int nRows = 300;
+        int nClasses = 5;
+        int steps = 25;
+        INDArray labels = oneHot(nRows, nClasses);
+        INDArray predictions = Nd4j.rand(nRows, nClasses);
+
+        ROCMultiClass expected = new ROCMultiClass(steps);
+        expected.eval(labels, predictions);
+
+        ROCMultiClassAccumulator a1 = new ROCMultiClassAccumulator(steps);
+        ROCMultiClassAccumulator a2 = new ROCMultiClassAccumulator(steps);
+        a1.eval(rows(labels, 0, 100), rows(predictions, 0, 100));
+        a2.eval(rows(labels, 100, nRows), rows(predictions, 100, nRows));
+        ROCMultiClass actual = ((ROCMultiClassAccumulator) new ROCMultiClassAccumulator(steps)
+                        .merge(serializeDeserialize(a1)).merge(a2)).toEvaluation();
+
+        assertArrayEquals(expected.getCountActualPositive(), actual.getCountActualPositive());
+        assertArrayEquals(expected.getCountActualNegative(), actual.getCountActualNegative());
+        assertEquals(expected.getCounts(), actual.getCounts());
+        for (int c = 0; c < nClasses; c++)
+            assertEquals(expected.calculateAUC(c), actual.calculateAUC(c), 1e-10);
+    }
+
+    @Test
+    public void testNumPositiveThresholds() {
+        int steps = 10;
+        assertEquals(0, ROCAccumulator.numPositiveThresholds(-0.1, steps, false));
+        assertEquals(0, ROCAccumulator.numPositiveThresholds(Double.NaN, steps, false));
+        assertEquals(1, ROCAccumulator.numPositiveThresholds(0.0, steps, false));
+        assertEquals(1, ROCAccumulator.numPositiveThresholds(0.09, steps, false));
+        assertEquals(4, ROCAccumulator.numPositiveThresholds(0.35, steps, false));
+        assertEquals(10, ROCAccumulator.numPositiveThresholds(0.95, steps, false));
+        //Threshold 1.0 is never positive
+        assertEquals(10, ROCAccumulator.numPositiveThresholds(1.0, steps, false));
+        assertEquals(10, ROCAccumulator.numPositiveThresholds(1.5, steps, false));
+
+        //0.7f is less than 7 * 0.1 in double precision, but equal in float precision
+        assertEquals(7, ROCAccumulator.numPositiveThresholds(0.7f, steps, false));
+        assertEquals(8, ROCAccumulator.numPositiveThresholds(0.7f, steps, true));
+    }
+}
@@ -0,0 +1,91 @@
+package org.deeplearning4j.spark.iterator;
+
+import org.deeplearning4j.datasets.pack.PackedDataSetWriter;
+import org.deeplearning4j.spark.stats.EventStats;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestPrefetchingPathSparkDataSetIterator {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void testOrderAndStats() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> expected = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+
+        //Individual files, followed by a packed file with multiple DataSets
+        for (int i = 0; i < 20; i++) {
+            DataSet ds = new DataSet(Nd4j.rand(1 + i % 5, 4), Nd4j.rand(1 + i % 5, 3));
+            File f = testDir.newFile("dataset_" + i + ".bin");
+            try (FileOutputStream out = new FileOutputStream(f)) {
+                ds.save(out);
+            }
+            expected.add(ds);
+            paths.add(f.getPath());
+        }
+        File packed = testDir.newFile("dataset_packed.dspack");
+        try (PackedDataSetWriter writer = new PackedDataSetWriter(new FileOutputStream(packed), false)) {
+            for (int i = 0; i < 7; i++) {
+                DataSet ds = new DataSet(Nd4j.rand(3, 4), Nd4j.rand(3, 3));
+                writer.write(ds);
+                expected.add(ds);
+            }
+        }
+        paths.add(packed.getPath());
+
+        PrefetchingPathSparkDataSetIterator iter = new PrefetchingPathSparkDataSetIterator(paths, 3, 5, true);
+        try {
+            assertEquals(4, iter.inputColumns());
+            for (int epoch = 0; epoch < 2; epoch++) {
+                int count = 0;
+                while (iter.hasNext()) {
+                    DataSet ds = iter.next();
+                    assertEquals(expected.get(count).getFeatures(), ds.getFeatures());
+                    assertEquals(expected.get(count).getLabels(), ds.getLabels());
+                    count++;
+                }
+                assertEquals(expected.size(), count);
+                assertEquals(expected.size(), iter.cursor());
+                iter.reset();
+            }
+        } finally {
+            iter.shutdown();
+        }
+
+        List<EventStats> fetchTimes = iter.getFetchTimes();
+        List<EventStats> waitTimes = iter.getWaitTimes();
+        assertEquals(2 * expected.size(), fetchTimes.size());
+        assertEquals(2 * expected.size(), waitTimes.size());
+        for (EventStats e : fetchTimes) {
+            assertTrue(e.getDurationMs() >= 0);
+            assertEquals(Thread.currentThread().getId(), e.getThreadID());
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testMissingFile() throws Exception {
+        List<String> paths = new ArrayList<>();
+        paths.add(new File(testDir.getRoot(), "does_not_exist.bin").getPath());
+
+        PrefetchingPathSparkDataSetIterator iter = new PrefetchingPathSparkDataSetIterator(paths, 2, 2, false);
+        try {
+            assertTrue(iter.hasNext());
+            iter.next();
+        } finally {
+            iter.shutdown();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.deeplearning4j.ui.stats;
+
+import org.deeplearning4j.ui.stats.api.Histogram;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * A copy of the values of an array, taken on the training thread, from which summary statistics can later be computed
+ * on another thread.<br>
+ * Summary statistics don't depend on the order of the values, so arrays with contiguous values (including views, and
+ * c or f order arrays) are copied straight from their buffer, without a dup. Mean, standard deviation, mean magnitude,
+ * min and max are computed together in a single pass; the histogram needs the min and max, so is computed by a second
+ * pass over the (on-heap) copy.
+ */
+class ArraySnapshot {
+
+    private final float[] floats;
+    private final double[] doubles;
+    private final int length;
+
+    private boolean computed;
+    private double mean;
+    private double stdev;
+    private double meanMagnitude;
+    private double min;
+    private double max;
+
+    private ArraySnapshot(float[] floats, double[] doubles) {
+        this.floats = floats;
+        this.doubles = doubles;
+        this.length = floats != null ? floats.length : doubles.length;
+    }
+
+    /**
+     * Copy the values of the given array
+     */
+    static ArraySnapshot of(INDArray array) {
+        int length = (int) array.length();
+        //Bulk copy from the underlying buffer when the values are contiguous; otherwise copy a dup
+        if (array.elementWiseStride() == 1 && array.data().offset() == 0
+                        && array.offset() + length <= array.data().length()) {
+            return copy(array.data(), (int) array.offset(), length);
+        }
+        INDArray dup = array.dup('c');
+        return copy(dup.data(), (int) dup.offset(), length);
+    }
+
+    private static ArraySnapshot copy(DataBuffer buffer, int offset, int length) {
+        if (buffer.dataType() == DataBuffer.Type.DOUBLE) {
+            DoubleBuffer nio = buffer.asNioDouble();
+            nio.position(offset);
+            double[] values = new double[length];
+            nio.get(values);
+            return new ArraySnapshot(null, values);
+        }
+        FloatBuffer nio = buffer.asNioFloat();
+        nio.position(offset);
+        float[] values = new float[length];
+        nio.get(values);
+        return new ArraySnapshot(values, null);
+    }
+
+    int length() {
+        return length;
+    }
+
+    double mean() {
+        compute();
+        return mean;
+    }
+
+    /**
+     * Standard deviation, bias corrected (as {@link INDArray#stdNumber()})
+     */
+    double stdev() {
+        compute();
+        return stdev;
+    }
+
+    double meanMagnitude() {
+        compute();
+        return meanMagnitude;
+    }
+
+    double min() {
+        compute();
+        return min;
+    }
+
+    double max() {
+        compute();
+        return max;
+    }
+
+    /**
+     * Histogram with nBins equal width bins between the min and max values
+     */
+    Histogram histogram(int nBins) {
+        compute();
+        int[] counts = new int[nBins];
+        double binWidth = (max - min) / nBins;
+        for (int i = 0; i < length; i++) {
+            double v = floats != null ? floats[i] : doubles[i];
+            int bin = binWidth == 0.0 ? 0 : (int) ((v - min) / binWidth);
+            if (bin >= nBins)
+                bin = nBins - 1; //Max value
+            else if (bin < 0)
+                bin = 0;
+            counts[bin]++;
+        }
+        return new Histogram(min, max, nBins, counts);
+    }
+
+    private void compute() {
+        if (computed)
+            return;
+        computed = true;
+        if (length == 0) {
+            mean = stdev = meanMagnitude = min = max = Double.NaN;
+            return;
+        }
+
+        //Welford's algorithm for mean and variance, fused with min, max and sum of absolute values
+        double runningMean = 0.0;
+        double m2 = 0.0;
+        double sumAbs = 0.0;
+        double runningMin = Double.POSITIVE_INFINITY;
+        double runningMax = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            double v = floats != null ? floats[i] : doubles[i];
+            double delta = v - runningMean;
+            runningMean += delta / (i + 1);
+            m2 += delta * (v - runningMean);
+            sumAbs += Math.abs(v);
+            if (v < runningMin)
+                runningMin = v;
+            if (v > runningMax)
+                runningMax = v;
+        }
+
+        mean = runningMean;
+        stdev = length > 1 ? Math.sqrt(m2 / (length - 1)) : 0.0;
+        meanMagnitude = sumAbs / length;
+        min = runningMin;
+        max = runningMax;
+    }
+}
@@ -32,6 +32,13 @@ import java.lang.management.OperatingSystemMXBean;
 import java.lang.management.RuntimeMXBean;
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * BaseStatsListener: a general purpose listener for collecting and reporting system and model information.
@@ -60,6 +67,15 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
     private Map<String, INDArray> activationsMap;
     private Map<String, INDArray> gradientsPreUpdateMap = new HashMap<>();
 
+    //Asynchronous collection: arrays are snapshot on the training thread, stats are calculated in the background
+    private static final long ASYNC_THREAD_KEEP_ALIVE_SECONDS = 10;
+    private int asyncQueueSize = 0;
+    private transient ThreadPoolExecutor asyncExecutor;
+    private transient AtomicInteger asyncPending;
+    private final AtomicLong droppedReports = new AtomicLong();
+    private transient Map<String, ArraySnapshot> activationSnapshots;
+    private transient Map<String, ArraySnapshot> gradientSnapshots;
+
     //NOTE: may have multiple models, due to multiple pretrain layers all using the same StatsListener
     private List<ModelInfo> modelInfos = new ArrayList<>();
 
@@ -168,6 +184,97 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         this.updateConfig = newConfig;
     }
 
+    /**
+     * Enable or disable asynchronous stats collection.<br>
+     * When enabled, the arrays needed for histograms, means, standard deviations and mean magnitudes are only copied
+     * on the training thread. All of these stats are then calculated (in one pass over each array), and the report is
+     * passed to the {@link StatsStorageRouter}, by a background thread. At most {@code maxQueuedReports} reports
+     * can be waiting for the background thread: when this limit is reached, reports are dropped (and no arrays
+     * copied) until the background thread catches up; see {@link #getNumDroppedReports()}.
+     *
+     * @param maxQueuedReports Maximum number of reports waiting to be processed. 0 (default): synchronous collection
+     */
+    public void setAsyncQueueSize(int maxQueuedReports) {
+        if (maxQueuedReports < 0)
+            throw new IllegalArgumentException("Queue size must be >= 0, got " + maxQueuedReports);
+        if (maxQueuedReports != asyncQueueSize) {
+            flush();
+            if (asyncExecutor != null) {
+                asyncExecutor.shutdown();
+                asyncExecutor = null;
+            }
+        }
+        this.asyncQueueSize = maxQueuedReports;
+    }
+
+    /**
+     * @return Maximum number of reports waiting to be processed asynchronously, or 0 if stats are collected
+     * synchronously. See {@link #setAsyncQueueSize(int)}
+     */
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    /**
+     * @return Number of reports that were dropped because too many reports were waiting to be processed asynchronously
+     */
+    public long getNumDroppedReports() {
+        return droppedReports.get();
+    }
+
+    /**
+     * Wait until all reports waiting to be processed asynchronously have been passed to the {@link StatsStorageRouter}.
+     * Does nothing when stats are collected synchronously
+     */
+    public void flush() {
+        AtomicInteger pending = asyncPending;
+        if (pending == null)
+            return;
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                try {
+                    pending.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean isAsync() {
+        return asyncQueueSize > 0;
+    }
+
+    private synchronized ThreadPoolExecutor getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            asyncPending = new AtomicInteger();
+            asyncExecutor = new ThreadPoolExecutor(1, 1, ASYNC_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<Runnable>(asyncQueueSize), new ThreadFactory() {
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "StatsListener-" + sessionID);
+                                    t.setDaemon(true);
+                                    return t;
+                                }
+                            }, new ThreadPoolExecutor.AbortPolicy());
+            asyncExecutor.allowCoreThreadTimeOut(true);
+        }
+        return asyncExecutor;
+    }
+
+    private boolean asyncQueueFull() {
+        ThreadPoolExecutor executor = getAsyncExecutor();
+        return executor.getQueue().remainingCapacity() == 0;
+    }
+
+    private void dropReport(int iteration) {
+        if (droppedReports.getAndIncrement() == 0) {
+            log.warn("Stats report for iteration {} dropped: more than {} reports waiting to be processed. "
+                            + "Further dropped reports will not be logged", iteration, asyncQueueSize);
+        }
+    }
+
     @Override
     public void setStorageRouter(StatsStorageRouter router) {
         this.router = router;
@@ -235,6 +342,15 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         int iterCount = getModelInfo(model).iterCount;
         if (storeActivations() && (iterCount == 0 || iterCount % updateConfig.reportingFrequency() == 0)) {
             //Assumption: we have input, layer 0, layer 1, ...
+            if (isAsync()) {
+                activationSnapshots = new LinkedHashMap<>();
+                int count = 0;
+                for (INDArray arr : activations) {
+                    activationSnapshots.put(count == 0 ? "input" : String.valueOf(count - 1), ArraySnapshot.of(arr));
+                    count++;
+                }
+                return;
+            }
             activationsMap = new HashMap<>();
             try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
                 int count = 0;
@@ -252,6 +368,10 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         int iterCount = getModelInfo(model).iterCount;
         if (storeActivations() && updateConfig.reportingFrequency() > 0
                         && (iterCount == 0 || iterCount % updateConfig.reportingFrequency() == 0)) {
+            if (isAsync()) {
+                activationSnapshots = snapshot(activations);
+                return;
+            }
             activationsMap = new HashMap<>();
             try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
                 for (Map.Entry<String, INDArray> e : activations.entrySet()) {
@@ -267,6 +387,11 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         if (storeGradients() && updateConfig.reportingFrequency() > 0
                         && (iterCount == 0 || iterCount % updateConfig.reportingFrequency() == 0)) {
             Gradient g = model.gradient();
+            if (isAsync()) {
+                //Copied straight to the heap: no need to dup, as the copy isn't modified by the update
+                gradientSnapshots = snapshot(g.gradientForVariable());
+                return;
+            }
             gradientsPreUpdateMap.clear();
             try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
                 for (Map.Entry<String, INDArray> entry : g.gradientForVariable().entrySet()) {
@@ -443,6 +568,11 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         }
 
 
+        if (isAsync()) {
+            reportAsync(model, modelInfo, report, iteration, currentTime);
+            return;
+        }
+
         //--- Histograms ---
 
         if (config.collectHistograms(StatsType.Parameters)) {
@@ -552,6 +682,113 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         activationsMap = null;
     }
 
+    private void reportAsync(Model model, ModelInfo modelInfo, final StatsReport report, int iteration,
+                    final long startTime) {
+        final StatsUpdateConfiguration config = updateConfig;
+        modelInfo.lastReportTime = startTime;
+        modelInfo.lastReportIteration = iteration;
+        modelInfo.iterCount = iteration;
+        report.reportIterationCount(iteration);
+
+        final Map<String, ArraySnapshot> activations = activationSnapshots;
+        final Map<String, ArraySnapshot> gradients = gradientSnapshots;
+        activationSnapshots = null;
+        gradientSnapshots = null;
+
+        //Don't copy the arrays if the report would be dropped anyway
+        if (asyncQueueFull()) {
+            dropReport(iteration);
+            return;
+        }
+
+        final Map<String, ArraySnapshot> params =
+                        collectAny(config, StatsType.Parameters) ? snapshot(model.paramTable(backpropParamsOnly(model)))
+                                        : null;
+        final Map<String, ArraySnapshot> updates = collectAny(config, StatsType.Updates)
+                        ? snapshot(model.gradient().gradientForVariable()) : null;
+        final long snapshotDuration = getTime() - startTime;
+
+        final AtomicInteger pending = asyncPending;
+        pending.incrementAndGet();
+        try {
+            getAsyncExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long start = getTime();
+                        reportSnapshotStats(report, config, StatsType.Parameters, params);
+                        reportSnapshotStats(report, config, StatsType.Gradients, gradients);
+                        reportSnapshotStats(report, config, StatsType.Updates, updates);
+                        reportSnapshotStats(report, config, StatsType.Activations, activations);
+                        report.reportStatsCollectionDurationMS((int) (snapshotDuration + getTime() - start));
+                        router.putUpdate(report);
+                    } catch (Throwable t) {
+                        log.error("Error collecting or storing stats", t);
+                    } finally {
+                        synchronized (pending) {
+                            pending.decrementAndGet();
+                            pending.notifyAll();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (pending) {
+                pending.decrementAndGet();
+                pending.notifyAll();
+            }
+            dropReport(iteration);
+        }
+    }
+
+    private static boolean collectAny(StatsUpdateConfiguration config, StatsType type) {
+        return config.collectHistograms(type) || config.collectMean(type) || config.collectStdev(type)
+                        || config.collectMeanMagnitudes(type);
+    }
+
+    private static Map<String, ArraySnapshot> snapshot(Map<String, INDArray> arrays) {
+        Map<String, ArraySnapshot> out = new LinkedHashMap<>();
+        for (Map.Entry<String, INDArray> entry : arrays.entrySet()) {
+            out.put(entry.getKey(), ArraySnapshot.of(entry.getValue()));
+        }
+        return out;
+    }
+
+    private static void reportSnapshotStats(StatsReport report, StatsUpdateConfiguration config, StatsType type,
+                    Map<String, ArraySnapshot> snapshots) {
+        if (snapshots == null)
+            snapshots = Collections.emptyMap();
+        boolean histograms = config.collectHistograms(type);
+        boolean mean = config.collectMean(type);
+        boolean stdev = config.collectStdev(type);
+        boolean meanMagnitudes = config.collectMeanMagnitudes(type);
+
+        Map<String, Histogram> histogramMap = new LinkedHashMap<>();
+        Map<String, Double> meanMap = new LinkedHashMap<>();
+        Map<String, Double> stdevMap = new LinkedHashMap<>();
+        Map<String, Double> meanMagnitudeMap = new LinkedHashMap<>();
+        for (Map.Entry<String, ArraySnapshot> entry : snapshots.entrySet()) {
+            ArraySnapshot s = entry.getValue();
+            if (histograms)
+                histogramMap.put(entry.getKey(), s.histogram(config.numHistogramBins(type)));
+            if (mean)
+                meanMap.put(entry.getKey(), s.mean());
+            if (stdev)
+                stdevMap.put(entry.getKey(), s.stdev());
+            if (meanMagnitudes)
+                meanMagnitudeMap.put(entry.getKey(), s.meanMagnitude());
+        }
+
+        if (histograms)
+            report.reportHistograms(type, histogramMap);
+        if (mean)
+            report.reportMean(type, meanMap);
+        if (stdev)
+            report.reportStdev(type, stdevMap);
+        if (meanMagnitudes)
+            report.reportMeanMagnitudes(type, meanMagnitudeMap);
+    }
+
     private long getTime() {
         //Abstraction to allow NTP to be plugged in later...
         return System.currentTimeMillis();
@@ -70,6 +70,9 @@ public class J7StatsListener extends BaseStatsListener {
 
     @Override
     public J7StatsListener clone() {
-        return new J7StatsListener(this.getStorageRouter(), this.getInitConfig(), this.getUpdateConfig(), null, null);
+        J7StatsListener clone = new J7StatsListener(this.getStorageRouter(), this.getInitConfig(), this.getUpdateConfig(),
+                        null, null);
+        clone.setAsyncQueueSize(this.getAsyncQueueSize());
+        return clone;
     }
 }
@@ -52,7 +52,10 @@ public class StatsListener extends BaseStatsListener {
     }
 
     public StatsListener clone() {
-        return new StatsListener(this.getStorageRouter(), this.getInitConfig(), this.getUpdateConfig(), null, null);
+        StatsListener clone = new StatsListener(this.getStorageRouter(), this.getInitConfig(), this.getUpdateConfig(),
+                        null, null);
+        clone.setAsyncQueueSize(this.getAsyncQueueSize());
+        return clone;
     }
 
     @Override
@@ -0,0 +1,1159 @@
+package org.deeplearning4j.ui.storage.log;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.api.storage.*;
+import org.deeplearning4j.ui.storage.BaseCollectionStatsStorage.SessionTypeId;
+import org.deeplearning4j.ui.storage.BaseCollectionStatsStorage.SessionTypeWorkerId;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A file-based {@link StatsStorage} implementation, that appends all records to a log of segment files in a directory.
+ * <br>
+ * Compared to {@link org.deeplearning4j.ui.storage.sqlite.J7FileStatsStorage} and
+ * {@link org.deeplearning4j.ui.storage.FileStatsStorage}, writes are cheap and scale with the number of workers:
+ * <ul>
+ * <li>Records are stored in their own (SBE, for the stats listener reports) encoding. Encoding happens on the calling
+ * thread; the only work done while holding the storage lock is a copy into the write buffer</li>
+ * <li>Writes are group committed: the write buffer is flushed (and by default, synced to disk) periodically by a
+ * background thread, or when it is full. Records are visible to readers as soon as they have been put, but may be
+ * lost on a crash until the next commit. See {@link #commit()}</li>
+ * <li>An in-memory index holds the timestamps and log locations of the updates of each worker, sorted by timestamp, in
+ * primitive arrays. Range reads ({@link #getAllUpdatesAfter(String, String, String, long)}) only read the required
+ * records, with one read per run of adjacent records</li>
+ * <li>Updates that are replaced (put again with the same IDs and timestamp) leave garbage in the log. Segments with
+ * less than {@link Builder#compactionThreshold(double)} live data are compacted by a background thread, by copying
+ * their live records to the end of the log and deleting them</li>
+ * </ul>
+ * Static info and storage metadata are also kept in memory, decoded. The index is rebuilt by reading the log when the
+ * storage is opened again; a partially written record at the end of a segment (after a crash) is discarded. New
+ * segments are only created once something is written, so opening the storage for viewing does not modify it.<br>
+ * The storage format is not compatible with the other file-based StatsStorage implementations.
+ */
+@Slf4j
+public class LogFileStatsStorage implements StatsStorage {
+
+    private static final int MAGIC = 0x444C3453;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_EXTENSION = ".log";
+
+    //Record layout: int length (of the remainder of the record), byte type, then the content for that type
+    private static final byte TYPE_KEY = 1; //int id; session, type and worker ID (nullable strings)
+    private static final byte TYPE_CLASS = 2; //int id; class name
+    private static final byte TYPE_STATIC_INFO = 3; //int key id; int class id; long timestamp; encoded persistable
+    private static final byte TYPE_METADATA = 4;
+    private static final byte TYPE_UPDATE = 5;
+    private static final int PERSISTABLE_HEADER_BYTES = 4 + 1 + 4 + 4 + 8;
+
+    private final File directory;
+    private final long segmentSizeBytes;
+    private final double compactionThreshold;
+    private final boolean syncOnCommit;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object();
+    private final ScheduledExecutorService background;
+    private final List<StatsStorageListener> listeners = new CopyOnWriteArrayList<>();
+
+    //All of the following are guarded by the lock
+    private final List<SessionTypeWorkerId> keys = new ArrayList<>();
+    private final Map<SessionTypeWorkerId, Integer> keyIds = new HashMap<>();
+    private final List<String> classNames = new ArrayList<>();
+    private final Map<String, Integer> classIds = new HashMap<>();
+    private final Set<String> sessionIDs = new LinkedHashSet<>();
+    private final Set<SessionTypeId> sessionTypes = new LinkedHashSet<>();
+    private final Set<SessionTypeWorkerId> workers = new LinkedHashSet<>();
+    private final Map<SessionTypeWorkerId, Stored<Persistable>> staticInfo = new LinkedHashMap<>();
+    private final Map<SessionTypeId, Stored<StorageMetaData>> metaData = new LinkedHashMap<>();
+    private final Map<SessionTypeWorkerId, UpdateIndex> updates = new LinkedHashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final ByteBuffer writeBuffer;
+    private Segment active; //Null until the first write after opening
+    private boolean compactionScheduled;
+    private volatile boolean closed;
+
+    /**
+     * @param directory Directory for the log segment files. Created if it does not exist
+     */
+    public LogFileStatsStorage(File directory) {
+        this(new Builder(directory));
+    }
+
+    private LogFileStatsStorage(Builder builder) {
+        if (builder.segmentSizeBytes <= SEGMENT_HEADER_BYTES || builder.segmentSizeBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid segment size: " + builder.segmentSizeBytes);
+        if (builder.writeBufferSizeBytes < SEGMENT_HEADER_BYTES)
+            throw new IllegalArgumentException("Invalid write buffer size: " + builder.writeBufferSizeBytes);
+        this.directory = builder.directory;
+        this.segmentSizeBytes = builder.segmentSizeBytes;
+        this.compactionThreshold = builder.compactionThreshold;
+        this.syncOnCommit = builder.syncOnCommit;
+        this.writeBuffer = ByteBuffer.allocate(builder.writeBufferSizeBytes);
+
+        if (!directory.exists() && !directory.mkdirs())
+            throw new RuntimeException("Could not create directory: " + directory);
+        if (!directory.isDirectory())
+            throw new IllegalArgumentException("Not a directory: " + directory);
+
+        try {
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException("Error opening LogFileStatsStorage in directory " + directory, e);
+        }
+
+        background = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "LogFileStatsStorage-" + directory.getName());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        if (builder.commitIntervalMs > 0) {
+            background.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        commit();
+                    } catch (Throwable t) {
+                        log.error("Error committing stats to " + directory, t);
+                    }
+                }
+            }, builder.commitIntervalMs, builder.commitIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        scheduleCompactionIfRequired();
+    }
+
+    // ----- Log segments -----
+
+    private void open() throws IOException {
+        File[] files = directory.listFiles();
+        TreeMap<Integer, File> segmentFiles = new TreeMap<>();
+        if (files != null) {
+            for (File f : files) {
+                String name = f.getName();
+                if (f.isFile() && name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXTENSION)) {
+                    try {
+                        segmentFiles.put(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                                        name.length() - SEGMENT_EXTENSION.length())), f);
+                    } catch (NumberFormatException e) {
+                        log.warn("Ignoring file {} in stats storage directory", f);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, File> e : segmentFiles.entrySet()) {
+            File f = e.getValue();
+            if (e.getKey().equals(segmentFiles.lastKey()) && f.length() < SEGMENT_HEADER_BYTES) {
+                //Crash while the last segment was being created: it holds no records
+                log.warn("Deleting incomplete stats storage segment {}", f);
+                if (!f.delete())
+                    throw new IOException("Could not delete incomplete stats storage segment: " + f);
+                continue;
+            }
+            Segment s = new Segment(e.getKey(), f, FileChannel.open(f.toPath(), StandardOpenOption.READ,
+                            StandardOpenOption.WRITE));
+            segments.put(s.id, s);
+            replay(s);
+        }
+        //Writes always go to a new segment (see openSegmentIfRequired()); it is created on the first write
+    }
+
+    private void replay(Segment s) throws IOException {
+        long fileSize = s.channel.size();
+        long offset = SEGMENT_HEADER_BYTES;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(s.file), 65536))) {
+            if (fileSize < SEGMENT_HEADER_BYTES || in.readInt() != MAGIC)
+                throw new IOException("Invalid or corrupt stats storage segment: " + s.file);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported stats storage segment version " + version + ": " + s.file);
+
+            while (offset + 4 <= fileSize) {
+                int length = in.readInt();
+                if (length <= 0 || offset + 4 + length > fileSize)
+                    break;
+                byte[] body = new byte[length];
+                in.readFully(body);
+                replayRecord(s, offset, body);
+                offset += 4 + length;
+            }
+        }
+
+        if (offset < fileSize) {
+            log.warn("Discarding {} bytes of incomplete record(s) at the end of stats storage segment {}",
+                            fileSize - offset, s.file);
+            s.channel.truncate(offset);
+        }
+        s.size = offset;
+        s.flushed = offset;
+    }
+
+    private void replayRecord(Segment s, long offset, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_KEY:
+                define(keys, keyIds, in.readInt(),
+                                new SessionTypeWorkerId(readString(in), readString(in), readString(in)));
+                break;
+            case TYPE_CLASS:
+                define(classNames, classIds, in.readInt(), in.readUTF());
+                break;
+            case TYPE_STATIC_INFO:
+            case TYPE_METADATA:
+            case TYPE_UPDATE:
+                SessionTypeWorkerId id = keys.get(in.readInt());
+                int classId = in.readInt();
+                long timestamp = in.readLong();
+                long location = location(s.id, offset);
+                int length = 4 + body.length;
+                s.liveBytes += length;
+                register(id, timestamp, null);
+                if (type == TYPE_UPDATE) {
+                    indexUpdate(id, timestamp, location, length);
+                } else {
+                    byte[] payload = Arrays.copyOfRange(body, PERSISTABLE_HEADER_BYTES - 4, body.length);
+                    Persistable p = decode(classNames.get(classId), payload);
+                    if (type == TYPE_STATIC_INFO) {
+                        indexStaticInfo(id, p, location, length);
+                    } else {
+                        indexMetaData((StorageMetaData) p, location, length);
+                    }
+                }
+                break;
+            default:
+                throw new IOException("Unknown record type " + type + " in stats storage segment " + s.file);
+        }
+    }
+
+    private static <T> void define(List<T> list, Map<T, Integer> ids, int id, T value) throws IOException {
+        if (id < list.size()) {
+            if (!list.get(id).equals(value))
+                throw new IOException("Inconsistent definitions for ID " + id + ": " + list.get(id) + ", " + value);
+        } else if (id == list.size()) {
+            list.add(value);
+            ids.put(value, id);
+        } else {
+            throw new IOException("Missing definitions before ID " + id);
+        }
+    }
+
+    //Requires write lock
+    private void openSegmentIfRequired() throws IOException {
+        if (active == null)
+            newSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+    }
+
+    //Requires write lock
+    private void newSegment(int id) throws IOException {
+        File f = new File(directory, String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_EXTENSION));
+        FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE_NEW);
+        //The header is written immediately, so a crash before the first commit leaves a valid (empty) segment
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(channel, header, 0);
+        channel.force(true);
+
+        Segment s = new Segment(id, f, channel);
+        segments.put(id, s);
+        active = s;
+        writeBuffer.clear();
+        s.size = SEGMENT_HEADER_BYTES;
+        s.flushed = SEGMENT_HEADER_BYTES;
+
+        //Each segment starts with all definitions, so sealed segments can be deleted after compaction
+        for (int i = 0; i < keys.size(); i++)
+            appendRecord(keyRecord(i, keys.get(i)));
+        for (int i = 0; i < classNames.size(); i++)
+            appendRecord(classRecord(i, classNames.get(i)));
+    }
+
+    //Requires write lock
+    private void rollIfRequired() throws IOException {
+        if (active == null || active.size < segmentSizeBytes)
+            return;
+        flushBuffer();
+        if (syncOnCommit)
+            active.channel.force(false);
+        newSegment(active.id + 1);
+        scheduleCompactionIfRequired();
+    }
+
+    //Requires write lock
+    private long appendRecord(byte[] record) throws IOException {
+        long location = location(active.id, active.size);
+        if (record.length > writeBuffer.remaining())
+            flushBuffer();
+        if (record.length > writeBuffer.capacity()) {
+            writeFully(active.channel, ByteBuffer.wrap(record), active.flushed);
+            active.flushed += record.length;
+        } else {
+            writeBuffer.put(record);
+        }
+        active.size += record.length;
+        return location;
+    }
+
+    //Requires write lock
+    private void flushBuffer() throws IOException {
+        if (writeBuffer.position() == 0)
+            return;
+        writeBuffer.flip();
+        int n = writeBuffer.remaining();
+        writeFully(active.channel, writeBuffer, active.flushed);
+        active.flushed += n;
+        writeBuffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bb, long position) throws IOException {
+        while (bb.hasRemaining()) {
+            position += channel.write(bb, position);
+        }
+    }
+
+    /**
+     * Write all buffered records to the log files and, if enabled, sync them to disk. This is done periodically
+     * by a background thread (see {@link Builder#commitIntervalMs(long)}) and when the storage is closed
+     */
+    public void commit() {
+        FileChannel channel;
+        lock.writeLock().lock();
+        try {
+            if (closed || active == null)
+                return;
+            flushBuffer();
+            channel = active.channel;
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing stats to " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        //Sync outside of the lock: writers can continue to append to the buffer in the mean time
+        if (syncOnCommit) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new RuntimeException("Error syncing stats to " + directory, e);
+            }
+        }
+    }
+
+    // ----- Compaction -----
+
+    private void scheduleCompactionIfRequired() {
+        if (compactionScheduled || background == null || getCompactionCandidates().isEmpty())
+            return;
+        compactionScheduled = true;
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                lock.writeLock().lock();
+                try {
+                    compactionScheduled = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                try {
+                    compact();
+                } catch (Throwable t) {
+                    log.error("Error compacting stats storage " + directory, t);
+                }
+            }
+        });
+    }
+
+    //Requires read or write lock
+    private List<Segment> getCompactionCandidates() {
+        List<Segment> out = new ArrayList<>();
+        for (Segment s : segments.values()) {
+            if (s != active && s.liveBytes < compactionThreshold * s.size)
+                out.add(s);
+        }
+        return out;
+    }
+
+    /**
+     * Compact all (full) log segments that contain less than {@link Builder#compactionThreshold(double)} live data:
+     * their live records are copied to the end of the log, and the segments are deleted.<br>
+     * This is done automatically by a background thread when a segment is full, so there is usually no need to call
+     * this method
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            List<Segment> candidates;
+            lock.readLock().lock();
+            try {
+                if (closed)
+                    return;
+                candidates = getCompactionCandidates();
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            try {
+                for (Segment s : candidates) {
+                    compact(s);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Error compacting stats storage " + directory, e);
+            }
+        }
+    }
+
+    private void compact(Segment s) throws IOException {
+        //Read the live records first, without blocking writers. The segment is sealed, and only compaction deletes
+        //segments, so the records can't be modified or removed; some may become garbage in the mean time
+        Map<Long, byte[]> records = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (closed)
+                return;
+            for (Stored<Persistable> st : staticInfo.values())
+                readIfInSegment(s, st.location, st.length, records);
+            for (Stored<StorageMetaData> st : metaData.values())
+                readIfInSegment(s, st.location, st.length, records);
+            for (UpdateIndex index : updates.values()) {
+                for (int i = 0; i < index.size(); i++)
+                    readIfInSegment(s, index.location(i), index.length(i), records);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                return;
+            for (Stored<Persistable> st : staticInfo.values())
+                moveIfInSegment(s, st, records);
+            for (Stored<StorageMetaData> st : metaData.values())
+                moveIfInSegment(s, st, records);
+            for (UpdateIndex index : updates.values()) {
+                for (int i = 0; i < index.size(); i++) {
+                    if (segmentOf(index.location(i)) == s.id) {
+                        byte[] record = records.get(index.location(i));
+                        index.set(i, appendLive(record), record.length);
+                    }
+                }
+            }
+
+            //Copied records must be on disk before the segment is deleted
+            if (active != null) {
+                flushBuffer();
+                active.channel.force(false);
+            }
+            segments.remove(s.id);
+            s.channel.close();
+            if (!s.file.delete())
+                log.warn("Could not delete compacted stats storage segment {}", s.file);
+            rollIfRequired();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void readIfInSegment(Segment s, long location, int length, Map<Long, byte[]> records)
+                    throws IOException {
+        if (segmentOf(location) == s.id)
+            records.put(location, read(s, offsetOf(location), length));
+    }
+
+    private <T extends Persistable> void moveIfInSegment(Segment s, Stored<T> st, Map<Long, byte[]> records)
+                    throws IOException {
+        if (segmentOf(st.location) == s.id)
+            st.location = appendLive(records.get(st.location));
+    }
+
+    //Requires write lock
+    private long appendLive(byte[] record) throws IOException {
+        openSegmentIfRequired();
+        long location = appendRecord(record);
+        active.liveBytes += record.length;
+        return location;
+    }
+
+    // ----- Index -----
+
+    private static long location(int segmentId, long offset) {
+        return ((long) segmentId << 32) | offset;
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static long offsetOf(long location) {
+        return location & 0xFFFFFFFFL;
+    }
+
+    //Requires write lock (or construction)
+    private void garbage(long location, int length) {
+        Segment s = segments.get(segmentOf(location));
+        if (s != null)
+            s.liveBytes -= length;
+    }
+
+    private void indexUpdate(SessionTypeWorkerId id, long timestamp, long location, int length) {
+        UpdateIndex index = updates.get(id);
+        if (index == null) {
+            index = new UpdateIndex();
+            updates.put(id, index);
+        }
+        int i = index.find(timestamp);
+        if (i >= 0) {
+            garbage(index.location(i), index.length(i));
+            index.set(i, location, length);
+        } else {
+            index.insert(-(i + 1), timestamp, location, length);
+        }
+    }
+
+    private void indexStaticInfo(SessionTypeWorkerId id, Persistable p, long location, int length) {
+        Stored<Persistable> old = staticInfo.put(id, new Stored<>(p, location, length));
+        if (old != null)
+            garbage(old.location, old.length);
+    }
+
+    private void indexMetaData(StorageMetaData m, long location, int length) {
+        Stored<StorageMetaData> old = metaData.put(new SessionTypeId(m.getSessionID(), m.getTypeID()),
+                        new Stored<>(m, location, length));
+        if (old != null)
+            garbage(old.location, old.length);
+    }
+
+    //Register the IDs, adding events for new IDs to the list (if not null)
+    private void register(SessionTypeWorkerId id, long timestamp, List<StatsStorageEvent> events) {
+        String sid = id.getSessionID();
+        String tid = id.getTypeID();
+        String wid = id.getWorkerID();
+        boolean newSession = sessionIDs.add(sid);
+        boolean newType = sessionTypes.add(new SessionTypeId(sid, tid));
+        boolean newWorker = wid != null && workers.add(id);
+        if (events == null || listeners.isEmpty())
+            return;
+        if (newSession)
+            events.add(new StatsStorageEvent(this, StatsStorageListener.EventType.NewSessionID, sid, tid, wid,
+                            timestamp));
+        if (newType)
+            events.add(new StatsStorageEvent(this, StatsStorageListener.EventType.NewTypeID, sid, tid, wid,
+                            timestamp));
+        if (newWorker)
+            events.add(new StatsStorageEvent(this, StatsStorageListener.EventType.NewWorkerID, sid, tid, wid,
+                            timestamp));
+    }
+
+    // ----- Encoding and decoding -----
+
+    private static byte[] persistableRecord(byte type, Persistable p) {
+        byte[] payload = p.encode();
+        byte[] record = new byte[PERSISTABLE_HEADER_BYTES + payload.length];
+        //Key and class IDs are set when the record is appended
+        ByteBuffer.wrap(record).putInt(record.length - 4).put(type).putInt(-1).putInt(-1).putLong(p.getTimeStamp())
+                        .put(payload);
+        return record;
+    }
+
+    private static byte[] keyRecord(int id, SessionTypeWorkerId key) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeInt(0);
+        out.writeByte(TYPE_KEY);
+        out.writeInt(id);
+        writeString(out, key.getSessionID());
+        writeString(out, key.getTypeID());
+        writeString(out, key.getWorkerID());
+        return withLength(baos.toByteArray());
+    }
+
+    private static byte[] classRecord(int id, String className) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        out.writeInt(0);
+        out.writeByte(TYPE_CLASS);
+        out.writeInt(id);
+        out.writeUTF(className);
+        return withLength(baos.toByteArray());
+    }
+
+    private static byte[] withLength(byte[] record) {
+        ByteBuffer.wrap(record).putInt(record.length - 4);
+        return record;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static Persistable decode(String className, byte[] payload) {
+        Persistable p;
+        try {
+            p = (Persistable) Class.forName(className).newInstance();
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("Could not create instance of class " + className, e);
+        }
+        p.decode(payload);
+        return p;
+    }
+
+    //Requires write lock. Returns the record with the key and class IDs set
+    private byte[] setIds(byte[] record, SessionTypeWorkerId id, Persistable p) throws IOException {
+        Integer keyId = keyIds.get(id);
+        if (keyId == null) {
+            keyId = keys.size();
+            keys.add(id);
+            keyIds.put(id, keyId);
+            appendRecord(keyRecord(keyId, id));
+        }
+        String className = p.getClass().getName();
+        Integer classId = classIds.get(className);
+        if (classId == null) {
+            classId = classNames.size();
+            classNames.add(className);
+            classIds.put(className, classId);
+            appendRecord(classRecord(classId, className));
+        }
+        ByteBuffer.wrap(record).putInt(5, keyId).putInt(9, classId);
+        return record;
+    }
+
+    //Requires read or write lock
+    private byte[] read(Segment s, long offset, int length) throws IOException {
+        byte[] out = new byte[length];
+        if (s == active && offset >= s.flushed) {
+            //Not yet written to the file
+            System.arraycopy(writeBuffer.array(), (int) (offset - s.flushed), out, 0, length);
+        } else {
+            ByteBuffer bb = ByteBuffer.wrap(out);
+            long position = offset;
+            while (bb.hasRemaining()) {
+                int n = s.channel.read(bb, position);
+                if (n < 0)
+                    throw new EOFException("Unexpected end of stats storage segment " + s.file);
+                position += n;
+            }
+        }
+        return out;
+    }
+
+    //Requires read or write lock
+    private Persistable decodeRecord(byte[] bytes, int offset, int length) {
+        ByteBuffer bb = ByteBuffer.wrap(bytes, offset, length);
+        bb.position(offset + 5);
+        bb.getInt(); //Key ID
+        String className = classNames.get(bb.getInt());
+        byte[] payload = Arrays.copyOfRange(bytes, offset + PERSISTABLE_HEADER_BYTES, offset + length);
+        return decode(className, payload);
+    }
+
+    //Requires read lock. Reads entries [from, to) of the index, with one read per run of adjacent records
+    private List<Persistable> readUpdates(UpdateIndex index, int from, int to, List<Persistable> out)
+                    throws IOException {
+        int i = from;
+        while (i < to) {
+            Segment s = segments.get(segmentOf(index.location(i)));
+            long start = offsetOf(index.location(i));
+            long end = start + index.length(i);
+            int j = i + 1;
+            while (j < to && segmentOf(index.location(j)) == s.id && offsetOf(index.location(j)) == end) {
+                long newEnd = end + index.length(j);
+                if (s == active && start < s.flushed && newEnd > s.flushed)
+                    break; //Partially buffered
+                end = newEnd;
+                j++;
+            }
+
+            byte[] bytes = read(s, start, (int) (end - start));
+            int pos = 0;
+            for (int k = i; k < j; k++) {
+                out.add(decodeRecord(bytes, pos, index.length(k)));
+                pos += index.length(k);
+            }
+            i = j;
+        }
+        return out;
+    }
+
+    private Persistable readUpdate(UpdateIndex index, int i) throws IOException {
+        Segment s = segments.get(segmentOf(index.location(i)));
+        byte[] bytes = read(s, offsetOf(index.location(i)), index.length(i));
+        return decodeRecord(bytes, 0, bytes.length);
+    }
+
+    // ----- Store new info -----
+
+    private void put(byte type, Collection<? extends Persistable> collection, StatsStorageListener.EventType postType) {
+        List<byte[]> records = new ArrayList<>(collection.size());
+        for (Persistable p : collection) {
+            records.add(persistableRecord(type, p));
+        }
+
+        List<StatsStorageEvent> events = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("Cannot store stats: storage has been closed");
+            openSegmentIfRequired();
+            int i = 0;
+            for (Persistable p : collection) {
+                SessionTypeWorkerId id = new SessionTypeWorkerId(p.getSessionID(), p.getTypeID(), p.getWorkerID());
+                register(id, p.getTimeStamp(), events);
+                byte[] record = setIds(records.get(i++), id, p);
+                long location = appendLive(record);
+                switch (type) {
+                    case TYPE_STATIC_INFO:
+                        indexStaticInfo(id, p, location, record.length);
+                        break;
+                    case TYPE_METADATA:
+                        indexMetaData((StorageMetaData) p, location, record.length);
+                        break;
+                    default:
+                        indexUpdate(id, p.getTimeStamp(), location, record.length);
+                }
+                if (!listeners.isEmpty()) {
+                    events.add(new StatsStorageEvent(this, postType, p.getSessionID(), p.getTypeID(),
+                                    p.getWorkerID(), p.getTimeStamp()));
+                }
+            }
+            rollIfRequired();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing stats to " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        notifyListeners(events);
+    }
+
+    @Override
+    public void putStorageMetaData(StorageMetaData storageMetaData) {
+        putStorageMetaData(Collections.singletonList(storageMetaData));
+    }
+
+    @Override
+    public void putStorageMetaData(Collection<? extends StorageMetaData> storageMetaData) {
+        put(TYPE_METADATA, storageMetaData, StatsStorageListener.EventType.PostMetaData);
+    }
+
+    @Override
+    public void putStaticInfo(Persistable staticInfo) {
+        putStaticInfo(Collections.singletonList(staticInfo));
+    }
+
+    @Override
+    public void putStaticInfo(Collection<? extends Persistable> staticInfo) {
+        put(TYPE_STATIC_INFO, staticInfo, StatsStorageListener.EventType.PostStaticInfo);
+    }
+
+    @Override
+    public void putUpdate(Persistable update) {
+        putUpdate(Collections.singletonList(update));
+    }
+
+    @Override
+    public void putUpdate(Collection<? extends Persistable> updates) {
+        put(TYPE_UPDATE, updates, StatsStorageListener.EventType.PostUpdate);
+    }
+
+    // ----- Query -----
+
+    @Override
+    public List<String> listSessionIDs() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(sessionIDs);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean sessionExists(String sessionID) {
+        lock.readLock().lock();
+        try {
+            return sessionIDs.contains(sessionID);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Persistable getStaticInfo(String sessionID, String typeID, String workerID) {
+        lock.readLock().lock();
+        try {
+            Stored<Persistable> st = staticInfo.get(new SessionTypeWorkerId(sessionID, typeID, workerID));
+            return st == null ? null : st.value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Persistable> getAllStaticInfos(String sessionID, String typeID) {
+        lock.readLock().lock();
+        try {
+            List<Persistable> out = new ArrayList<>();
+            for (Map.Entry<SessionTypeWorkerId, Stored<Persistable>> e : staticInfo.entrySet()) {
+                if (sessionID.equals(e.getKey().getSessionID()) && typeID.equals(e.getKey().getTypeID()))
+                    out.add(e.getValue().value);
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listTypeIDsForSession(String sessionID) {
+        lock.readLock().lock();
+        try {
+            List<String> out = new ArrayList<>();
+            for (SessionTypeId st : sessionTypes) {
+                if (sessionID.equals(st.getSessionID()))
+                    out.add(st.getTypeID());
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listWorkerIDsForSession(String sessionID) {
+        return listWorkerIDs(sessionID, null);
+    }
+
+    @Override
+    public List<String> listWorkerIDsForSessionAndType(String sessionID, String typeID) {
+        return listWorkerIDs(sessionID, typeID);
+    }
+
+    private List<String> listWorkerIDs(String sessionID, String typeID) {
+        lock.readLock().lock();
+        try {
+            Set<String> out = new LinkedHashSet<>();
+            for (SessionTypeWorkerId id : workers) {
+                if (sessionID.equals(id.getSessionID()) && (typeID == null || typeID.equals(id.getTypeID())))
+                    out.add(id.getWorkerID());
+            }
+            return new ArrayList<>(out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getNumUpdateRecordsFor(String sessionID) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (Map.Entry<SessionTypeWorkerId, UpdateIndex> e : updates.entrySet()) {
+                if (sessionID.equals(e.getKey().getSessionID()))
+                    count += e.getValue().size();
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getNumUpdateRecordsFor(String sessionID, String typeID, String workerID) {
+        lock.readLock().lock();
+        try {
+            UpdateIndex index = updates.get(new SessionTypeWorkerId(sessionID, typeID, workerID));
+            return index == null ? 0 : index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Persistable getLatestUpdate(String sessionID, String typeID, String workerID) {
+        lock.readLock().lock();
+        try {
+            UpdateIndex index = updates.get(new SessionTypeWorkerId(sessionID, typeID, workerID));
+            if (index == null || index.size() == 0)
+                return null;
+            return readUpdate(index, index.size() - 1);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading stats from " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Persistable getUpdate(String sessionID, String typeID, String workerID, long timestamp) {
+        lock.readLock().lock();
+        try {
+            UpdateIndex index = updates.get(new SessionTypeWorkerId(sessionID, typeID, workerID));
+            if (index == null)
+                return null;
+            int i = index.find(timestamp);
+            return i < 0 ? null : readUpdate(index, i);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading stats from " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Persistable> getLatestUpdateAllWorkers(String sessionID, String typeID) {
+        lock.readLock().lock();
+        try {
+            List<Persistable> out = new ArrayList<>();
+            for (Map.Entry<SessionTypeWorkerId, UpdateIndex> e : updates.entrySet()) {
+                SessionTypeWorkerId id = e.getKey();
+                UpdateIndex index = e.getValue();
+                if (sessionID.equals(id.getSessionID()) && typeID.equals(id.getTypeID()) && index.size() > 0)
+                    out.add(readUpdate(index, index.size() - 1));
+            }
+            return out;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading stats from " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Persistable> getAllUpdatesAfter(String sessionID, String typeID, String workerID, long timestamp) {
+        lock.readLock().lock();
+        try {
+            List<Persistable> out = new ArrayList<>();
+            UpdateIndex index = updates.get(new SessionTypeWorkerId(sessionID, typeID, workerID));
+            if (index != null)
+                readUpdates(index, index.firstAfter(timestamp), index.size(), out);
+            return out;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading stats from " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Persistable> getAllUpdatesAfter(String sessionID, String typeID, long timestamp) {
+        List<Persistable> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<SessionTypeWorkerId, UpdateIndex> e : updates.entrySet()) {
+                SessionTypeWorkerId id = e.getKey();
+                if (sessionID.equals(id.getSessionID()) && typeID.equals(id.getTypeID())) {
+                    UpdateIndex index = e.getValue();
+                    readUpdates(index, index.firstAfter(timestamp), index.size(), out);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading stats from " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Collections.sort(out, new Comparator<Persistable>() {
+            @Override
+            public int compare(Persistable o1, Persistable o2) {
+                return Long.compare(o1.getTimeStamp(), o2.getTimeStamp());
+            }
+        });
+        return out;
+    }
+
+    @Override
+    public StorageMetaData getStorageMetaData(String sessionID, String typeID) {
+        lock.readLock().lock();
+        try {
+            Stored<StorageMetaData> st = metaData.get(new SessionTypeId(sessionID, typeID));
+            return st == null ? null : st.value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ----- Listeners -----
+
+    @Override
+    public void registerStatsStorageListener(StatsStorageListener listener) {
+        if (!listeners.contains(listener))
+            listeners.add(listener);
+    }
+
+    @Override
+    public void deregisterStatsStorageListener(StatsStorageListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void removeAllListeners() {
+        listeners.clear();
+    }
+
+    @Override
+    public List<StatsStorageListener> getListeners() {
+        return new ArrayList<>(listeners);
+    }
+
+    protected void notifyListeners(List<StatsStorageEvent> sses) {
+        if (sses == null || sses.isEmpty() || listeners.isEmpty())
+            return;
+        for (StatsStorageListener l : listeners) {
+            for (StatsStorageEvent e : sses) {
+                l.notify(e);
+            }
+        }
+    }
+
+    // ----- Close -----
+
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                return;
+            if (active != null) {
+                flushBuffer();
+                active.channel.force(true);
+            }
+            for (Segment s : segments.values()) {
+                s.channel.close();
+            }
+            closed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String toString() {
+        return "LogFileStatsStorage(" + directory.getPath() + ")";
+    }
+
+    private static class Segment {
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private long size; //Including buffered records, for the active segment
+        private long flushed; //Bytes written to the file
+        private long liveBytes; //Bytes of records that have not been replaced
+
+        private Segment(int id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private static class Stored<T extends Persistable> {
+        private final T value;
+        private long location;
+        private final int length;
+
+        private Stored(T value, long location, int length) {
+            this.value = value;
+            this.location = location;
+            this.length = length;
+        }
+    }
+
+    public static class Builder {
+
+        private final File directory;
+        private long segmentSizeBytes = 64L * 1024 * 1024;
+        private int writeBufferSizeBytes = 1024 * 1024;
+        private long commitIntervalMs = 1000;
+        private boolean syncOnCommit = true;
+        private double compactionThreshold = 0.5;
+
+        /**
+         * @param directory Directory for the log segment files. Created if it does not exist
+         */
+        public Builder(@NonNull File directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Size after which a new log segment file is started. Default: 64MB
+         */
+        public Builder segmentSizeBytes(long segmentSizeBytes) {
+            this.segmentSizeBytes = segmentSizeBytes;
+            return this;
+        }
+
+        /**
+         * Size of the in-memory write buffer: records are written to the file when the buffer is full, or when
+         * committed. Default: 1MB
+         */
+        public Builder writeBufferSizeBytes(int writeBufferSizeBytes) {
+            this.writeBufferSizeBytes = writeBufferSizeBytes;
+            return this;
+        }
+
+        /**
+         * Interval between group commits by the background thread. 0 to disable: records are then only written when
+         * the write buffer is full, or on {@link LogFileStatsStorage#commit()} and {@link LogFileStatsStorage#close()}.
+         * Default: 1000 ms
+         */
+        public Builder commitIntervalMs(long commitIntervalMs) {
+            this.commitIntervalMs = commitIntervalMs;
+            return this;
+        }
+
+        /**
+         * If true (default): sync the log file to disk on every commit
+         */
+        public Builder syncOnCommit(boolean syncOnCommit) {
+            this.syncOnCommit = syncOnCommit;
+            return this;
+        }
+
+        /**
+         * Full segments in which the fraction of live (not replaced) data is below this threshold are compacted.
+         * Default: 0.5. Set to 0 to disable compaction
+         */
+        public Builder compactionThreshold(double compactionThreshold) {
+            this.compactionThreshold = compactionThreshold;
+            return this;
+        }
+
+        public LogFileStatsStorage build() {
+            return new LogFileStatsStorage(this);
+        }
+    }
+}
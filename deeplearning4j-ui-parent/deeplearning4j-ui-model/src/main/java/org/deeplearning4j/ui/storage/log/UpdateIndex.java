@@ -0,0 +1,75 @@
+package org.deeplearning4j.ui.storage.log;
+
+import java.util.Arrays;
+
+/**
+ * Index of the update records for one (session, type, worker) triple: timestamps, log locations and record lengths,
+ * sorted by timestamp and stored in primitive arrays.<br>
+ * Updates normally arrive in timestamp order, in which case adding an update is an append.
+ */
+class UpdateIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] locations = new long[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    long timestamp(int i) {
+        return timestamps[i];
+    }
+
+    long location(int i) {
+        return locations[i];
+    }
+
+    int length(int i) {
+        return lengths[i];
+    }
+
+    /**
+     * @return Index of the given timestamp if present; otherwise (-(insertion point) - 1), as in
+     * {@link Arrays#binarySearch(long[], long)}
+     */
+    int find(long timestamp) {
+        if (size == 0 || timestamp > timestamps[size - 1])
+            return -(size + 1);
+        return Arrays.binarySearch(timestamps, 0, size, timestamp);
+    }
+
+    /**
+     * @return Index of the first entry with a timestamp strictly greater than the given timestamp (or size() if none)
+     */
+    int firstAfter(long timestamp) {
+        int idx = find(timestamp);
+        return idx >= 0 ? idx + 1 : -(idx + 1);
+    }
+
+    void set(int i, long location, int length) {
+        locations[i] = location;
+        lengths[i] = length;
+    }
+
+    void insert(int i, long timestamp, long location, int length) {
+        if (size == timestamps.length) {
+            int newCapacity = timestamps.length + (timestamps.length >> 1);
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            locations = Arrays.copyOf(locations, newCapacity);
+            lengths = Arrays.copyOf(lengths, newCapacity);
+        }
+        if (i < size) {
+            System.arraycopy(timestamps, i, timestamps, i + 1, size - i);
+            System.arraycopy(locations, i, locations, i + 1, size - i);
+            System.arraycopy(lengths, i, lengths, i + 1, size - i);
+        }
+        timestamps[i] = timestamp;
+        locations[i] = location;
+        lengths[i] = length;
+        size++;
+    }
+}
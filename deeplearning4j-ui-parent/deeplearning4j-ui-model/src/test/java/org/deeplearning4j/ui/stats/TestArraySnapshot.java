@@ -0,0 +1,88 @@
+package org.deeplearning4j.ui.stats;
+
+import org.deeplearning4j.ui.stats.api.Histogram;
+import org.junit.Test;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestArraySnapshot {
+
+    @Test
+    public void testSummaryStats() {
+        DataBuffer.Type initialType = Nd4j.dataType();
+        try {
+            for (DataBuffer.Type type : new DataBuffer.Type[] {DataBuffer.Type.FLOAT, DataBuffer.Type.DOUBLE}) {
+                Nd4j.setDataType(type);
+                Nd4j.getRandom().setSeed(12345);
+
+                List<INDArray> arrays = new ArrayList<>();
+                arrays.add(Nd4j.randn(10, 20));
+                arrays.add(Nd4j.randn('f', 10, 20));
+                arrays.add(Nd4j.rand(1, 7).subi(0.5));
+                //Contiguous view, and non-contiguous view
+                arrays.add(Nd4j.randn(10, 20).get(NDArrayIndex.interval(3, 7), NDArrayIndex.all()));
+                arrays.add(Nd4j.randn(10, 20).get(NDArrayIndex.all(), NDArrayIndex.interval(2, 9)));
+
+                for (INDArray arr : arrays) {
+                    String msg = type + " - " + arr.shapeInfoToString();
+                    ArraySnapshot s = ArraySnapshot.of(arr);
+
+                    //Two pass reference values. Note that nd4j's stdNumber() is not reliable for row vectors and views
+                    double[] values = arr.dup().data().asDouble();
+                    double sum = 0.0;
+                    double sumAbs = 0.0;
+                    for (double v : values) {
+                        sum += v;
+                        sumAbs += Math.abs(v);
+                    }
+                    double mean = sum / values.length;
+                    double sumSqDiff = 0.0;
+                    for (double v : values)
+                        sumSqDiff += (v - mean) * (v - mean);
+
+                    assertEquals(msg, values.length, s.length());
+                    assertEquals(msg, mean, s.mean(), 1e-6);
+                    assertEquals(msg, Math.sqrt(sumSqDiff / (values.length - 1)), s.stdev(), 1e-6);
+                    assertEquals(msg, sumAbs / values.length, s.meanMagnitude(), 1e-6);
+                    assertEquals(msg, arr.dup().meanNumber().doubleValue(), s.mean(), 1e-5);
+                    assertEquals(msg, arr.dup().minNumber().doubleValue(), s.min(), 0.0);
+                    assertEquals(msg, arr.dup().maxNumber().doubleValue(), s.max(), 0.0);
+                }
+            }
+        } finally {
+            Nd4j.setDataType(initialType);
+        }
+    }
+
+    @Test
+    public void testHistogram() {
+        Nd4j.getRandom().setSeed(12345);
+        int nBins = 20;
+        for (INDArray arr : new INDArray[] {Nd4j.randn(30, 40), Nd4j.rand('f', 30, 40)}) {
+            org.nd4j.linalg.api.ops.impl.transforms.Histogram op =
+                            new org.nd4j.linalg.api.ops.impl.transforms.Histogram(arr, nBins);
+            Nd4j.getExecutioner().exec(op);
+            int[] expected = new int[nBins];
+            for (int i = 0; i < nBins; i++)
+                expected[i] = (int) op.z().getDouble(i);
+
+            Histogram h = ArraySnapshot.of(arr).histogram(nBins);
+            assertEquals(nBins, h.getNBins());
+            assertEquals(arr.minNumber().doubleValue(), h.getMin(), 0.0);
+            assertEquals(arr.maxNumber().doubleValue(), h.getMax(), 0.0);
+            assertArrayEquals(expected, h.getBinCounts());
+        }
+
+        //All values equal: everything in the first bin
+        Histogram h = ArraySnapshot.of(Nd4j.ones(3, 3)).histogram(5);
+        assertArrayEquals(new int[] {9, 0, 0, 0, 0}, h.getBinCounts());
+    }
+}
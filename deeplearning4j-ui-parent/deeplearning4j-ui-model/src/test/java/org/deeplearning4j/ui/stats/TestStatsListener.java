@@ -8,15 +8,19 @@ import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.api.storage.Persistable;
 import org.deeplearning4j.api.storage.StatsStorage;
+import org.deeplearning4j.ui.stats.api.StatsReport;
+import org.deeplearning4j.ui.stats.api.StatsType;
 import org.deeplearning4j.ui.storage.mapdb.MapDBStatsStorage;
 import org.junit.Test;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by Alex on 07/10/2016.
@@ -76,4 +80,41 @@ public class TestStatsListener {
 
     }
 
+    @Test
+    public void testListenerAsync() {
+        DataSet ds = new IrisDataSetIterator(150, 150).next();
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().iterations(1)
+                        .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT).list()
+                        .layer(0, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(4).nOut(3).build())
+                        .pretrain(false).backprop(true).build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        StatsStorage ss = new MapDBStatsStorage(); //in-memory
+        StatsListener listener = new StatsListener(ss);
+        listener.setAsyncQueueSize(10);
+        assertEquals(10, listener.clone().getAsyncQueueSize());
+        net.setListeners(listener);
+
+        for (int i = 0; i < 3; i++) {
+            net.fit(ds);
+        }
+        listener.flush();
+        assertEquals(0, listener.getNumDroppedReports());
+
+        String sessionID = ss.listSessionIDs().get(0);
+        String typeID = ss.listTypeIDsForSession(sessionID).get(0);
+        String workerID = ss.listWorkerIDsForSession(sessionID).get(0);
+        List<Persistable> updates = ss.getAllUpdatesAfter(sessionID, typeID, workerID, 0);
+        assertEquals(3, updates.size());
+        for (Persistable p : updates) {
+            StatsReport report = (StatsReport) p;
+            Map<String, Double> meanParams = report.getMean(StatsType.Parameters);
+            assertNotNull(meanParams);
+            assertTrue(meanParams.containsKey("0_W"));
+            assertNotNull(report.getHistograms(StatsType.Activations));
+        }
+    }
 }
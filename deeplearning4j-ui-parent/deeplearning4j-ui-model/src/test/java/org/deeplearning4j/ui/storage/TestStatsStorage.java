@@ -12,6 +12,7 @@ import org.deeplearning4j.ui.stats.impl.SbeStatsInitializationReport;
 import org.deeplearning4j.ui.stats.impl.SbeStatsReport;
 import org.deeplearning4j.ui.stats.impl.java.JavaStatsInitializationReport;
 import org.deeplearning4j.ui.stats.impl.java.JavaStatsReport;
+import org.deeplearning4j.ui.storage.log.LogFileStatsStorage;
 import org.deeplearning4j.ui.storage.mapdb.MapDBStatsStorage;
 import org.deeplearning4j.ui.storage.sqlite.J7FileStatsStorage;
 import org.junit.Test;
@@ -36,7 +37,7 @@ public class TestStatsStorage {
     public void testStatsStorage() throws IOException {
 
         for (boolean useJ7Storage : new boolean[] {false, true}) {
-            for (int i = 0; i < 3; i++) {
+            for (int i = 0; i < 4; i++) {
 
                 StatsStorage ss;
                 switch (i) {
@@ -53,6 +54,10 @@ public class TestStatsStorage {
                     case 2:
                         ss = new InMemoryStatsStorage();
                         break;
+                    case 3:
+                        File dir = Files.createTempDirectory("TestLogFileStatsStore").toFile();
+                        ss = new LogFileStatsStorage(dir);
+                        break;
                     default:
                         throw new RuntimeException();
                 }
@@ -161,20 +166,24 @@ public class TestStatsStorage {
     public void testFileStatsStore() throws IOException {
 
         for (boolean useJ7Storage : new boolean[] {false, true}) {
-            for (int i = 0; i < 2; i++) {
+            for (int i = 0; i < 3; i++) {
                 File f;
                 if (i == 0) {
                     f = Files.createTempFile("TestMapDbStatsStore", ".db").toFile();
-                } else {
+                } else if (i == 1) {
                     f = Files.createTempFile("TestSqliteStatsStore", ".db").toFile();
+                } else {
+                    f = Files.createTempFile("TestLogFileStatsStore", "").toFile();
                 }
 
                 f.delete(); //Don't want file to exist...
                 StatsStorage ss;
                 if (i == 0) {
                     ss = new MapDBStatsStorage.Builder().file(f).build();
-                } else {
+                } else if (i == 1) {
                     ss = new J7FileStatsStorage(f);
+                } else {
+                    ss = new LogFileStatsStorage(f);
                 }
 
 
@@ -280,8 +289,10 @@ public class TestStatsStorage {
 
                 if (i == 0) {
                     ss = new MapDBStatsStorage.Builder().file(f).build();
-                } else {
+                } else if (i == 1) {
                     ss = new J7FileStatsStorage(f);
+                } else {
+                    ss = new LogFileStatsStorage(f);
                 }
 
 
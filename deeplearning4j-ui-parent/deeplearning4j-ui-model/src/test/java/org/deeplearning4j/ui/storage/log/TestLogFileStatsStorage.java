@@ -0,0 +1,225 @@
+package org.deeplearning4j.ui.storage.log;
+
+import org.deeplearning4j.api.storage.Persistable;
+import org.deeplearning4j.ui.stats.api.StatsReport;
+import org.deeplearning4j.ui.stats.impl.SbeStatsInitializationReport;
+import org.deeplearning4j.ui.stats.impl.SbeStatsReport;
+import org.deeplearning4j.ui.storage.impl.SbeStorageMetaData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TestLogFileStatsStorage {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    private static StatsReport getReport(int worker, long time, double score) {
+        StatsReport rep = new SbeStatsReport();
+        rep.reportIDs("sid", "tid", "wid" + worker, time);
+        rep.reportScore(score);
+        rep.reportPerformance(1000, 1001, 1002, 1003.0, 1004.0);
+        return rep;
+    }
+
+    private static int countSegments(File dir) {
+        File[] files = dir.listFiles();
+        int count = 0;
+        for (File f : files) {
+            if (f.getName().endsWith(".log"))
+                count++;
+        }
+        return count;
+    }
+
+    private static LogFileStatsStorage open(File dir) {
+        return new LogFileStatsStorage.Builder(dir).segmentSizeBytes(4096).writeBufferSizeBytes(1024)
+                        .commitIntervalMs(0).compactionThreshold(0.5).build();
+    }
+
+    @Test
+    public void testSegmentsRangeReadsAndReopen() throws Exception {
+        File dir = testDir.newFolder();
+        LogFileStatsStorage ss = open(dir);
+
+        SbeStatsInitializationReport init = new SbeStatsInitializationReport();
+        init.reportIDs("sid", "tid", "wid0", 0);
+        init.reportModelInfo("classname", "jsonconfig", new String[] {"p0"}, 1, 10);
+        ss.putStaticInfo(init);
+        ss.putStorageMetaData(new SbeStorageMetaData(0, "sid", "tid", "wid0", SbeStatsInitializationReport.class,
+                        SbeStatsReport.class));
+
+        //Interleaved workers, with some out of order timestamps
+        int nWorkers = 3;
+        int nUpdates = 200;
+        for (int i = 0; i < nUpdates; i++) {
+            for (int w = 0; w < nWorkers; w++) {
+                long time = (i % 10 == 5) ? 10 * (i - 3) + 1 : 10 * i;
+                ss.putUpdate(getReport(w, time, i));
+            }
+        }
+        assertTrue(countSegments(dir) > 5);
+
+        for (int reopen = 0; reopen < 2; reopen++) {
+            assertEquals(nWorkers * nUpdates, ss.getNumUpdateRecordsFor("sid"));
+            assertEquals(init, ss.getStaticInfo("sid", "tid", "wid0"));
+            assertEquals(SbeStatsReport.class.getName(), ss.getStorageMetaData("sid", "tid").getUpdateTypeClass());
+            assertEquals(3, ss.listWorkerIDsForSession("sid").size());
+
+            for (int w = 0; w < nWorkers; w++) {
+                List<Persistable> all = ss.getAllUpdatesAfter("sid", "tid", "wid" + w, -1);
+                assertEquals(nUpdates, all.size());
+                for (int i = 1; i < all.size(); i++)
+                    assertTrue(all.get(i - 1).getTimeStamp() < all.get(i).getTimeStamp());
+                assertEquals(10 * (nUpdates - 1), ss.getLatestUpdate("sid", "tid", "wid" + w).getTimeStamp());
+
+                List<Persistable> after = ss.getAllUpdatesAfter("sid", "tid", "wid" + w, 1000);
+                assertEquals(all.subList(all.size() - after.size(), all.size()), after);
+                assertEquals(getReport(w, 1000, 100), ss.getUpdate("sid", "tid", "wid" + w, 1000));
+                assertEquals(getReport(w, 1021, 105), ss.getUpdate("sid", "tid", "wid" + w, 1021));
+            }
+            assertEquals(nWorkers * nUpdates, ss.getAllUpdatesAfter("sid", "tid", -1).size());
+
+            ss.close();
+            assertTrue(ss.isClosed());
+            ss = open(dir);
+        }
+        ss.close();
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        File dir = testDir.newFolder();
+        LogFileStatsStorage ss = open(dir);
+
+        //Repeatedly replace the same updates: most of the log is garbage
+        for (int rep = 0; rep < 50; rep++) {
+            for (int i = 0; i < 10; i++) {
+                ss.putUpdate(getReport(0, i, rep));
+            }
+        }
+        ss.compact();
+        int segmentsAfterCompaction = countSegments(dir);
+        assertTrue(String.valueOf(segmentsAfterCompaction), segmentsAfterCompaction <= 3);
+
+        for (int reopen = 0; reopen < 2; reopen++) {
+            assertEquals(10, ss.getNumUpdateRecordsFor("sid", "tid", "wid0"));
+            for (int i = 0; i < 10; i++) {
+                assertEquals(getReport(0, i, 49), ss.getUpdate("sid", "tid", "wid0", i));
+            }
+            ss.close();
+            ss = open(dir);
+        }
+        ss.close();
+    }
+
+    @Test
+    public void testTruncatedRecordDiscarded() throws Exception {
+        File dir = testDir.newFolder();
+        LogFileStatsStorage ss = open(dir);
+        ss.putUpdate(getReport(0, 1, 1.0));
+        ss.putUpdate(getReport(0, 2, 2.0));
+        ss.close();
+
+        //Simulate a crash while writing the second record
+        File segment = new File(dir, "segment-00000000.log");
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        ss = open(dir);
+        assertEquals(1, ss.getNumUpdateRecordsFor("sid"));
+        assertEquals(getReport(0, 1, 1.0), ss.getLatestUpdate("sid", "tid", "wid0"));
+        ss.putUpdate(getReport(0, 3, 3.0));
+        ss.close();
+
+        ss = open(dir);
+        assertEquals(2, ss.getNumUpdateRecordsFor("sid"));
+        assertEquals(getReport(0, 3, 3.0), ss.getLatestUpdate("sid", "tid", "wid0"));
+        ss.close();
+    }
+
+    @Test
+    public void testIncompleteLastSegment() throws Exception {
+        File dir = testDir.newFolder();
+        LogFileStatsStorage ss = open(dir);
+        ss.putUpdate(getReport(0, 1, 1.0));
+        ss.close();
+
+        //Opening and closing without writing does not create a segment
+        open(dir).close();
+        assertEquals(1, countSegments(dir));
+
+        //Simulate a crash right after creating the next segment file: empty, then header only
+        File segment = new File(dir, "segment-00000000.log");
+        File next = new File(dir, "segment-00000001.log");
+        assertTrue(next.createNewFile());
+        ss = open(dir);
+        assertFalse(next.exists());
+        assertEquals(getReport(0, 1, 1.0), ss.getLatestUpdate("sid", "tid", "wid0"));
+        ss.close();
+
+        byte[] header = new byte[8];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "r")) {
+            raf.readFully(header);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(next, "rw")) {
+            raf.write(header);
+        }
+        ss = open(dir);
+        assertEquals(1, ss.getNumUpdateRecordsFor("sid"));
+        ss.putUpdate(getReport(0, 2, 2.0));
+        ss.close();
+
+        ss = open(dir);
+        assertEquals(2, ss.getNumUpdateRecordsFor("sid"));
+        assertEquals(getReport(0, 2, 2.0), ss.getLatestUpdate("sid", "tid", "wid0"));
+        ss.close();
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        File dir = testDir.newFolder();
+        final LogFileStatsStorage ss = new LogFileStatsStorage.Builder(dir).segmentSizeBytes(64 * 1024)
+                        .commitIntervalMs(5).build();
+        final int nUpdates = 500;
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int worker = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < nUpdates; i++) {
+                            ss.putUpdate(getReport(worker, i, i));
+                            if (i % 50 == 0)
+                                ss.getAllUpdatesAfter("sid", "tid", "wid" + worker, i - 10);
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread t : threads)
+            t.join();
+        assertNull(error.get());
+
+        assertEquals(4 * nUpdates, ss.getNumUpdateRecordsFor("sid"));
+        for (int w = 0; w < 4; w++) {
+            assertEquals(getReport(w, nUpdates - 1, nUpdates - 1), ss.getLatestUpdate("sid", "tid", "wid" + w));
+        }
+        ss.close();
+    }
+}